@@ -0,0 +1,176 @@
+package Benchmark;
+
+import Controller.CopyController;
+import Log.LogHandler;
+import Model.ClassifyTypes;
+import Model.SchedulingTypes;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * The CopyBenchmark class runs the {@link CopyController} end-to-end over a
+ * directory tree (typically one built by {@link MediaLibraryGenerator}) once
+ * for every requested {@link ClassifyTypes} mode, and reports files per second,
+ * MB per second and peak heap usage for each run.
+ * <p>
+ * Every mode copies into its own folder under the work directory, which is
+ * deleted after the run unless {@code --keep} is given.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class CopyBenchmark {
+
+    /**
+     * Log handler that discards every message so that logging does not skew
+     * the measurements.
+     */
+    private static final class SilentLogHandler extends LogHandler {
+
+        @Override
+        public void appendLog(String message) {
+        }
+    }
+
+    private final Path origin;
+    private final Path workDirectory;
+    private final boolean keep;
+    private final SchedulingTypes schedulingTypes;
+
+    /**
+     * Creates a benchmark over the given origin.
+     *
+     * @param origin the directory tree to organize.
+     * @param workDirectory the directory where each mode writes its output.
+     * @param keep whether to keep the output of each mode after the run.
+     * @param schedulingTypes the copy order used by every run.
+     */
+    public CopyBenchmark(Path origin, Path workDirectory, boolean keep, SchedulingTypes schedulingTypes) {
+        this.origin = origin;
+        this.workDirectory = workDirectory;
+        this.keep = keep;
+        this.schedulingTypes = schedulingTypes;
+    }
+
+    /**
+     * Runs the benchmark for one classification mode and prints a result row.
+     *
+     * @param mode the classification mode to measure.
+     * @param files the number of files in the origin.
+     * @param bytes the total size of the origin in bytes.
+     * @throws IOException if the output of the run cannot be deleted.
+     */
+    public void run(ClassifyTypes mode, long files, long bytes) throws IOException {
+        Path destination = workDirectory.resolve(mode.name());
+        Files.createDirectories(destination);
+
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+
+        long start = System.nanoTime();
+        CopyController copyController = new CopyController(mode, origin.toString(), destination.toString(), false, true, false, new SilentLogHandler());
+        copyController.setSchedulingTypes(schedulingTypes);
+        copyController.StartCopy();
+        double seconds = Math.max((System.nanoTime() - start) / 1e9, 1e-9);
+
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peakHeap += pool.getPeakUsage().getUsed();
+        }
+
+        System.out.printf("%-22s %10d %10.1f %9.2f %11.1f %9.1f %12.1f%n",
+                mode.name(), files, bytes / 1048576.0, seconds,
+                files / seconds, bytes / 1048576.0 / seconds, peakHeap / 1048576.0);
+
+        if (!keep) {
+            deleteTree(destination);
+        }
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Command line entry point.
+     * <p>
+     * Usage:
+     * {@code CopyBenchmark <originDir> <workDir> [--keep] [--policy POLICY] [MODE ...]},
+     * where MODE is any {@link ClassifyTypes} name and POLICY any
+     * {@link SchedulingTypes} name. All modes are run when none is given.
+     * </p>
+     *
+     * @param args the command line arguments.
+     * @throws IOException if the origin cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CopyBenchmark <originDir> <workDir> [--keep] [--policy POLICY] [MODE ...]");
+            System.exit(2);
+        }
+        System.setProperty("java.awt.headless", "true");
+        Path origin = Paths.get(args[0]);
+        Path work = Paths.get(args[1]);
+        boolean keep = false;
+        SchedulingTypes schedulingTypes = SchedulingTypes.LOCALITY;
+        List<ClassifyTypes> modes = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--keep")) {
+                keep = true;
+            } else if (args[i].equals("--policy") && i + 1 < args.length) {
+                schedulingTypes = SchedulingTypes.valueOf(args[++i]);
+            } else {
+                modes.add(ClassifyTypes.valueOf(args[i]));
+            }
+        }
+        if (modes.isEmpty()) {
+            modes.addAll(List.of(ClassifyTypes.values()));
+        }
+
+        long files;
+        long bytes;
+        try (Stream<Path> paths = Files.walk(origin)) {
+            long[] totals = paths.filter(Files::isRegularFile).mapToLong(path -> {
+                try {
+                    return Files.size(path);
+                } catch (IOException e) {
+                    return 0;
+                }
+            }).collect(() -> new long[2], (acc, size) -> {
+                acc[0]++;
+                acc[1] += size;
+            }, (a, b) -> {
+                a[0] += b[0];
+                a[1] += b[1];
+            });
+            files = totals[0];
+            bytes = totals[1];
+        }
+
+        System.out.printf("%-22s %10s %10s %9s %11s %9s %12s%n",
+                "mode", "files", "MB", "seconds", "files/s", "MB/s", "peakHeapMB");
+        CopyBenchmark benchmark = new CopyBenchmark(origin, work, keep, schedulingTypes);
+        for (ClassifyTypes mode : modes) {
+            benchmark.run(mode, files, bytes);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package Benchmark;
+
+import Model.FileClassifier;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import javax.imageio.ImageIO;
+
+/**
+ * The MediaLibraryGenerator class builds synthetic media libraries used to
+ * benchmark the organize process. The generated tree is fully deterministic
+ * for a given seed, so two runs with the same parameters produce byte-identical
+ * files, names and timestamps.
+ * <p>
+ * The library mixes:
+ * </p>
+ * <ul>
+ * <li>JPEG images with an EXIF {@code DateTimeOriginal} tag.</li>
+ * <li>MP4/MOV videos with a {@code mvhd} creation time atom.</li>
+ * <li>Images and videos without any metadata.</li>
+ * <li>Files of every other {@link FileClassifier} category, plus files without
+ * extension.</li>
+ * <li>A deeply nested branch and one huge flat directory.</li>
+ * </ul>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class MediaLibraryGenerator {
+
+    // Seconds between 1904-01-01 (QuickTime epoch) and 1970-01-01
+    private static final long QUICKTIME_EPOCH_OFFSET = 2082844800L;
+    private static final DateTimeFormatter EXIF_FORMATTER = DateTimeFormatter.ofPattern("yyyy:MM:dd HH:mm:ss");
+    private static final int MAX_DEPTH = 12;
+
+    private final Random random;
+    private final double sizeScale;
+    private final Map<String, List<String>> extensionsByType = new TreeMap<>();
+    private final List<String> types;
+    private long generatedBytes = 0;
+
+    /**
+     * Creates a generator.
+     *
+     * @param seed the seed that makes the generated tree reproducible.
+     * @param sizeScale multiplier applied to the size of every generated file
+     * (1.0 produces realistic camera sizes).
+     */
+    public MediaLibraryGenerator(long seed, double sizeScale) {
+        this.random = new Random(seed);
+        this.sizeScale = sizeScale;
+        // TreeMap + sorted lists keep the iteration order independent of HashMap layout
+        for (Map.Entry<String, String> entry : new TreeMap<>(FileClassifier.getDefaultExtensionToTypeMap()).entrySet()) {
+            extensionsByType.computeIfAbsent(entry.getValue(), k -> new ArrayList<>()).add(entry.getKey());
+        }
+        extensionsByType.put("Others", List.of("", "dat", "xyz"));
+        this.types = new ArrayList<>(extensionsByType.keySet());
+    }
+
+    /**
+     * Generates {@code fileCount} files below {@code root}.
+     *
+     * @param root the directory where the library will be created.
+     * @param fileCount the number of files to generate.
+     * @return the total number of bytes written.
+     * @throws IOException if a file cannot be written.
+     */
+    public long generate(Path root, int fileCount) throws IOException {
+        Files.createDirectories(root);
+        generatedBytes = 0;
+        for (int i = 0; i < fileCount; i++) {
+            // The first files walk every category so all of them are always present
+            String type = i < types.size() ? types.get(i) : pickType();
+            Path directory = pickDirectory(root, fileCount);
+            Files.createDirectories(directory);
+            generateFile(directory, i, type);
+        }
+        return generatedBytes;
+    }
+
+    private String pickType() {
+        int roll = random.nextInt(100);
+        if (roll < 45) {
+            return "Images";
+        } else if (roll < 60) {
+            return "Videos";
+        } else if (roll < 68) {
+            return "Music";
+        } else if (roll < 78) {
+            return "Documents";
+        }
+        return types.get(random.nextInt(types.size()));
+    }
+
+    private Path pickDirectory(Path root, int fileCount) {
+        int roll = random.nextInt(100);
+        if (roll < 10) {
+            // One huge flat directory
+            return root.resolve("flat");
+        } else if (roll < 20) {
+            // Deep nesting
+            Path path = root.resolve("deep");
+            int depth = 1 + random.nextInt(MAX_DEPTH);
+            for (int level = 0; level < depth; level++) {
+                path = path.resolve("level" + level);
+            }
+            return path;
+        }
+        int albums = Math.max(1, fileCount / 200);
+        Path album = root.resolve("albums").resolve(String.format("album%03d", random.nextInt(albums)));
+        return random.nextBoolean() ? album : album.resolve("sub" + random.nextInt(4));
+    }
+
+    private void generateFile(Path directory, int index, String type) throws IOException {
+        List<String> extensions = extensionsByType.get(type);
+        String extension = extensions.get(random.nextInt(extensions.size()));
+        String name = String.format("file%07d", index) + (extension.isEmpty() ? "" : "." + extension);
+        Path file = directory.resolve(name);
+        LocalDateTime date = randomDate();
+        boolean withMetadata = random.nextInt(100) >= 15;
+
+        byte[] content;
+        if (extension.equals("jpg") || extension.equals("jpeg")) {
+            content = jpeg(withMetadata ? date : null, scaled(20_000, 4_000_000));
+        } else if (extension.equals("mp4") || extension.equals("mov")) {
+            content = quickTime(extension.equals("mov"), withMetadata ? date : null, scaled(1_000_000, 40_000_000));
+        } else {
+            content = randomBytes(scaled(1_000, 1_000_000));
+        }
+
+        Files.write(file, content);
+        Files.setLastModifiedTime(file, FileTime.from(date.plusDays(random.nextInt(30)).atZone(ZoneId.systemDefault()).toInstant()));
+        generatedBytes += content.length;
+    }
+
+    private int scaled(int min, int max) {
+        return (int) Math.max(16, (min + random.nextInt(max - min)) * sizeScale);
+    }
+
+    private LocalDateTime randomDate() {
+        return LocalDateTime.of(2005, 1, 1, 0, 0)
+                .plusDays(random.nextInt(20 * 365))
+                .plusSeconds(random.nextInt(24 * 60 * 60));
+    }
+
+    private byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * Builds a small decodable JPEG, optionally with an EXIF APP1 segment
+     * carrying {@code DateTimeOriginal}, padded after EOI up to {@code size}.
+     */
+    private byte[] jpeg(LocalDateTime date, int size) throws IOException {
+        BufferedImage image = new BufferedImage(32, 24, BufferedImage.TYPE_INT_RGB);
+        int base = random.nextInt(0xFFFFFF);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, base + x * 0x000300 + y * 0x030000);
+            }
+        }
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", encoded);
+        byte[] jpeg = encoded.toByteArray();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(size, jpeg.length + 128));
+        out.write(jpeg, 0, 2); // SOI
+        if (date != null) {
+            writeExifSegment(out, date);
+        }
+        out.write(jpeg, 2, jpeg.length - 2);
+        if (out.size() < size) {
+            out.write(randomBytes(size - out.size()));
+        }
+        return out.toByteArray();
+    }
+
+    private void writeExifSegment(ByteArrayOutputStream out, LocalDateTime date) throws IOException {
+        byte[] dateBytes = (EXIF_FORMATTER.format(date) + "\0").getBytes(StandardCharsets.US_ASCII);
+        ByteArrayOutputStream tiff = new ByteArrayOutputStream();
+        tiff.write(new byte[]{'M', 'M', 0, 42});
+        writeInt(tiff, 8);                  // IFD0 offset
+        writeShort(tiff, 1);                // IFD0: one entry
+        writeShort(tiff, 0x8769);           // ExifIFDPointer
+        writeShort(tiff, 4);                // LONG
+        writeInt(tiff, 1);
+        writeInt(tiff, 26);                 // Exif IFD offset
+        writeInt(tiff, 0);                  // no next IFD
+        writeShort(tiff, 1);                // Exif IFD: one entry
+        writeShort(tiff, 0x9003);           // DateTimeOriginal
+        writeShort(tiff, 2);                // ASCII
+        writeInt(tiff, dateBytes.length);
+        writeInt(tiff, 44);                 // value offset
+        writeInt(tiff, 0);                  // no next IFD
+        tiff.write(dateBytes);
+
+        byte[] header = "Exif\0\0".getBytes(StandardCharsets.US_ASCII);
+        out.write(0xFF);
+        out.write(0xE1);
+        writeShort(out, 2 + header.length + tiff.size());
+        out.write(header);
+        tiff.writeTo(out);
+    }
+
+    /**
+     * Builds an ISO-BMFF/QuickTime file: ftyp, moov with an mvhd atom holding
+     * the creation time (0 when there is no date), and an mdat payload.
+     */
+    private byte[] quickTime(boolean mov, LocalDateTime date, int size) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size + 256);
+        writeInt(out, 24);
+        out.write(ascii("ftyp"));
+        out.write(ascii(mov ? "qt  " : "isom"));
+        writeInt(out, 0);
+        out.write(ascii(mov ? "qt  " : "isom"));
+        out.write(ascii("mp42"));
+
+        long created = date == null ? 0 : date.atZone(ZoneId.of("UTC")).toEpochSecond() + QUICKTIME_EPOCH_OFFSET;
+        writeInt(out, 8 + 108);
+        out.write(ascii("moov"));
+        writeInt(out, 108);
+        out.write(ascii("mvhd"));
+        writeInt(out, 0);                   // version + flags
+        writeInt(out, (int) created);       // creation_time
+        writeInt(out, (int) created);       // modification_time
+        writeInt(out, 1000);                // timescale
+        writeInt(out, 10_000);              // duration
+        writeInt(out, 0x00010000);          // rate 1.0
+        writeShort(out, 0x0100);            // volume 1.0
+        out.write(new byte[10]);            // reserved
+        int[] matrix = {0x00010000, 0, 0, 0, 0x00010000, 0, 0, 0, 0x40000000};
+        for (int value : matrix) {
+            writeInt(out, value);
+        }
+        out.write(new byte[24]);            // pre_defined
+        writeInt(out, 2);                   // next_track_ID
+
+        int payload = Math.max(0, size - out.size() - 8);
+        writeInt(out, 8 + payload);
+        out.write(ascii("mdat"));
+        out.write(randomBytes(payload));
+        return out.toByteArray();
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void writeShort(OutputStream out, int value) throws IOException {
+        out.write((value >>> 8) & 0xFF);
+        out.write(value & 0xFF);
+    }
+
+    private static void writeInt(OutputStream out, int value) throws IOException {
+        writeShort(out, value >>> 16);
+        writeShort(out, value);
+    }
+
+    /**
+     * Command line entry point.
+     * <p>
+     * Usage: {@code MediaLibraryGenerator <outputDir> [fileCount] [seed] [sizeScale]}
+     * </p>
+     *
+     * @param args the command line arguments.
+     * @throws IOException if the library cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: MediaLibraryGenerator <outputDir> [fileCount=1000] [seed=42] [sizeScale=1.0]");
+            System.exit(2);
+        }
+        System.setProperty("java.awt.headless", "true");
+        Path output = Paths.get(args[0]);
+        int fileCount = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+        double sizeScale = args.length > 3 ? Double.parseDouble(args[3]) : 1.0;
+
+        long start = System.nanoTime();
+        long bytes = new MediaLibraryGenerator(seed, sizeScale).generate(output, fileCount);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Generated %d files (%.1f MB) in %s in %.2f s%n", fileCount, bytes / 1048576.0, output, seconds);
+    }
+}
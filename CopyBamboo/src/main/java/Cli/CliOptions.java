@@ -0,0 +1,613 @@
+package Cli;
+
+import Controller.Classification.Layout.Layout;
+import Controller.Metadata.MetadataExtractor;
+import Controller.Throttle.ThrottleLimits;
+import Controller.Throttle.ThrottleSchedule;
+import Model.ClassifyTypes;
+import Model.CopyParameters;
+import Model.DestinationSpec;
+import Model.DurabilityMode;
+import Model.NearDuplicateMode;
+import Model.PackMode;
+import Model.PreservedAttribute;
+import Model.SchedulingTypes;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The CliOptions class parses the command line arguments of the headless
+ * entry point. The options mirror {@link ClassifyTypes} and
+ * {@link CopyParameters} so that every job that can be configured in the
+ * window can also be scheduled from cron.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class CliOptions {
+
+    /**
+     * Format of the progress lines written while the job runs.
+     */
+    public enum Progress {
+        NONE, // Only the final summary
+        TEXT, // Human readable lines on stderr
+        JSON // One JSON object per line on stdout
+    }
+
+    static final String USAGE = """
+            Usage: copybamboo --origin <dir> [--origin <dir> ...] --destination <dir> [options]
+                   copybamboo --execute-plan <file> [--threads <n>] [--progress <format>]
+                   copybamboo --query <dir> [--from <date>] [--to <date>] [--type <type>]
+                              [--find <text>] [--count]
+
+              -o, --origin <dir>          Directory to organize, or a ZIP, TAR or TAR.GZ archive.
+                                          May be repeated: the origins are scanned at the same
+                                          time, one scanner per disk, in a single job.
+              -d, --destination <dir>     Directory where the organized copy is written.
+                  --mirror <spec>         Also write every file to another destination, reading
+                                          it only once: <dir>[,mode=<type>][,overwrite]. The
+                                          mode defaults to --mode. May be repeated.
+              -m, --mode <type>           CREATION_DATE (default), CREATION_DATE_META,
+                                          CREATION_DATE_MODIFY, FILE_EXTENSION, FILE_TYPE, LAYOUT.
+                  --layout <rules>        LAYOUT: folder levels such as type/date:yyyy/date:MM,
+                                          with type, ext, date:<pattern>, size:<limits>,
+                                          meta:<field> and fixed names, and optionally one
+                                          rule per type: "Images=type/date:yyyy; type".
+                                          Implies --mode LAYOUT (default: type/date:yyyy/date:MM).
+                  --metadata-limit <size>  Metadata modes: bytes of a file read at most to find
+                                          its metadata, with K/M/G suffixes (default: 32M).
+                  --extensions <file>     FILE_TYPE: extra "Type = ext, ext" lines that add
+                                          types or move extensions, reloaded when the file
+                                          changes (default: ~/.copybamboo/extensions.conf).
+              -p, --param <parameter>     RENAME_NAME_DATE_CREATION, FOLDER_FILE_NOT_CLASSIFIED
+                                          or OVERWRITE_FILE. May be repeated.
+                  --rename                Same as --param RENAME_NAME_DATE_CREATION.
+                  --pending               Same as --param FOLDER_FILE_NOT_CLASSIFIED.
+                  --overwrite             Same as --param OVERWRITE_FILE.
+              -t, --threads <n>           Worker threads (default: available processors).
+              -x, --expand-archives       Read the ZIP, TAR and TAR.GZ files found in the origin
+                                          and organize their entries instead of copying them.
+              -s, --schedule <policy>     Copy order: LOCALITY (default, disk position and
+                                          destination folder), WALK_ORDER, SMALLEST_FIRST,
+                                          LARGEST_FIRST or BUCKET_BATCHED (one folder at a time).
+              -l, --locality-window <n>   Number of planned files ordered together by the
+                                          schedule before copying (default: 256, 1 disables
+                                          the reordering).
+                  --pack <mode>           Pack each destination folder into a ZIP archive with
+                                          an index instead of copying files one by one:
+                                          store (no compression) or deflate.
+                  --preserve <list>       Attributes copied from the origin files: times,
+                                          permissions, xattrs, all or none, comma separated
+                                          (default: times).
+                  --durability <mode>     Flushing of the copies to disk: none (default, left to
+                                          the system), per-file (each copy before its rename)
+                                          or group-commit (in batches, before their renames
+                                          and catalog records). Not with --pack.
+                  --near-duplicates <mode>
+                                          Compare images by perceptual hash to find resized or
+                                          re-encoded copies of another image of the job: report
+                                          (log them) or skip (copy only the largest one).
+                  --near-distance <bits>  Hash bits in which two images may differ to be near
+                                          duplicates, 0 to 64 (default: 8).
+              -w, --watch                 Keep running and organize new or changed files as
+                                          they are dropped into the origin.
+                  --settle <ms>           Watch mode: time a file must stay unchanged before
+                                          it is copied (default: 2000).
+                  --throttle <limits>     Rate limits such as read=50M,write=20M,ops=200 (bytes
+                                          per second with K/M/G suffixes, files opened per
+                                          second). Default: unlimited.
+                  --throttle-at <window>  Limits for a time of day, e.g.
+                                          08:00-20:00=read=10M,write=10M. May be repeated;
+                                          --throttle applies outside every window.
+                  --progress <format>     none, text (default) or json.
+                  --control <file>        Poll this file every second: writing pause, resume,
+                                          cancel, "throttle <limits>" or "throttle auto" into it
+                                          controls the running job.
+              -n, --plan <file>           Dry run: resolve dates, destinations, collisions and
+                                          duplicates and write them as a JSON lines plan
+                                          instead of copying.
+                  --execute-plan <file>   Copy the files of a plan written with --plan.
+                  --catalog               Record every written file (origin, destination, date and
+                                          the tag it came from, type, size and SHA-256) in the
+                                          catalog of the destination, <destination>/.catalog.
+                  --query <dir>           Print the catalog records of a destination as JSON
+                                          lines, in date order, without scanning its files.
+                  --from, --to <date>     Query: first and last yyyy, yyyy-MM or yyyy-MM-dd.
+                  --type <type>           Query: file type, such as Images or Videos.
+                  --find <text>           Query: text in the origin, destination or hash.
+                  --count                 Query: only print the number of matching files.
+              -v, --verbose               Also print every per-file log message.
+              -h, --help                  Show this help.
+
+            Exit codes: 0 success, 1 finished with file errors, 2 usage error, 3 fatal error,
+            4 cancelled. Ctrl+C or SIGTERM cancels a copy without leaving partial files.
+            Without arguments the graphical interface is started.
+            """;
+
+    private final List<String> origins = new ArrayList<>();
+    private String destination;
+    private ClassifyTypes classifyTypes = ClassifyTypes.CREATION_DATE;
+    private boolean modeGiven;
+    private Layout layout;
+    private long metadataMaxBytes = MetadataExtractor.DEFAULT_MAX_BYTES;
+    private boolean rename, pendients, overwrite;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private Progress progress = Progress.TEXT;
+    private boolean verbose;
+    private boolean help;
+    private boolean watch;
+    private boolean expandArchives;
+    private long settleMs = 2000;
+    private String planFile;
+    private String executePlan;
+    private int localityWindow = 256;
+    private SchedulingTypes schedulingTypes = SchedulingTypes.LOCALITY;
+    private PackMode packMode = PackMode.NONE;
+    private EnumSet<PreservedAttribute> preservedAttributes = EnumSet.of(PreservedAttribute.TIMES);
+    private DurabilityMode durabilityMode = DurabilityMode.NONE;
+    private NearDuplicateMode nearDuplicateMode = NearDuplicateMode.NONE;
+    private int nearDuplicateDistance = 8;
+    private String controlFile;
+    private String extensionsFile;
+    private ThrottleSchedule throttleSchedule;
+    private ThrottleLimits throttleLimits = ThrottleLimits.UNLIMITED;
+    private final List<String> throttleWindows = new ArrayList<>();
+    private final List<String> mirrorSpecs = new ArrayList<>();
+    private final List<DestinationSpec> mirrors = new ArrayList<>();
+    private boolean catalog;
+    private String queryDirectory;
+    private LocalDate queryFrom;
+    private LocalDate queryTo;
+    private String queryType;
+    private String queryText;
+    private boolean queryCount;
+
+    /**
+     * Parses the given arguments.
+     *
+     * @param args the command line arguments.
+     * @return the parsed options.
+     * @throws IllegalArgumentException if an option is unknown, lacks its value
+     * or has an invalid value, or a required option is missing.
+     */
+    public static CliOptions parse(String[] args) {
+        CliOptions options = new CliOptions();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "-o", "--origin" ->
+                    options.origins.add(value(args, ++i, arg));
+                case "-d", "--destination" ->
+                    options.destination = value(args, ++i, arg);
+                case "--mirror" ->
+                    options.mirrorSpecs.add(value(args, ++i, arg));
+                case "-m", "--mode" -> {
+                    options.classifyTypes = enumValue(ClassifyTypes.class, value(args, ++i, arg), arg);
+                    options.modeGiven = true;
+                }
+                case "--layout" ->
+                    options.layout = Layout.compile(value(args, ++i, arg));
+                case "--metadata-limit" ->
+                    options.metadataMaxBytes = sizeValue(value(args, ++i, arg), arg);
+                case "-p", "--param" ->
+                    options.apply(enumValue(CopyParameters.class, value(args, ++i, arg), arg));
+                case "--rename" ->
+                    options.apply(CopyParameters.RENAME_NAME_DATE_CREATION);
+                case "--pending" ->
+                    options.apply(CopyParameters.FOLDER_FILE_NOT_CLASSIFIED);
+                case "--overwrite" ->
+                    options.apply(CopyParameters.OVERWRITE_FILE);
+                case "-t", "--threads" ->
+                    options.threads = intValue(value(args, ++i, arg), arg);
+                case "--progress" ->
+                    options.progress = enumValue(Progress.class, value(args, ++i, arg), arg);
+                case "-s", "--schedule" ->
+                    options.schedulingTypes = enumValue(SchedulingTypes.class, value(args, ++i, arg), arg);
+                case "-l", "--locality-window" ->
+                    options.localityWindow = intValue(value(args, ++i, arg), arg);
+                case "--throttle" ->
+                    options.throttleLimits = throttleValue(value(args, ++i, arg), arg);
+                case "--throttle-at" ->
+                    options.throttleWindows.add(value(args, ++i, arg));
+                case "--control" ->
+                    options.controlFile = value(args, ++i, arg);
+                case "--extensions" ->
+                    options.extensionsFile = value(args, ++i, arg);
+                case "-x", "--expand-archives" ->
+                    options.expandArchives = true;
+                case "--pack" ->
+                    options.packMode = enumValue(PackMode.class, value(args, ++i, arg), arg);
+                case "--preserve" ->
+                    options.preservedAttributes = preservedValue(value(args, ++i, arg), arg);
+                case "--durability" ->
+                    options.durabilityMode = enumValue(DurabilityMode.class, value(args, ++i, arg), arg);
+                case "--near-duplicates" ->
+                    options.nearDuplicateMode = enumValue(NearDuplicateMode.class, value(args, ++i, arg), arg);
+                case "--near-distance" ->
+                    options.nearDuplicateDistance = distanceValue(value(args, ++i, arg), arg);
+                case "-w", "--watch" ->
+                    options.watch = true;
+                case "--settle" ->
+                    options.settleMs = intValue(value(args, ++i, arg), arg);
+                case "-n", "--plan" ->
+                    options.planFile = value(args, ++i, arg);
+                case "--execute-plan" ->
+                    options.executePlan = value(args, ++i, arg);
+                case "--catalog" ->
+                    options.catalog = true;
+                case "--query" ->
+                    options.queryDirectory = value(args, ++i, arg);
+                case "--from" ->
+                    options.queryFrom = dateValue(value(args, ++i, arg), arg, false);
+                case "--to" ->
+                    options.queryTo = dateValue(value(args, ++i, arg), arg, true);
+                case "--type" ->
+                    options.queryType = value(args, ++i, arg);
+                case "--find" ->
+                    options.queryText = value(args, ++i, arg);
+                case "--count" ->
+                    options.queryCount = true;
+                case "-v", "--verbose" ->
+                    options.verbose = true;
+                case "-h", "--help" ->
+                    options.help = true;
+                default ->
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        options.throttleSchedule = new ThrottleSchedule(options.throttleLimits);
+        for (String window : options.throttleWindows) {
+            options.throttleSchedule.addWindow(window);
+        }
+        if (options.layout != null && !options.modeGiven) {
+            options.classifyTypes = ClassifyTypes.LAYOUT;
+        }
+        for (String spec : options.mirrorSpecs) {
+            options.mirrors.add(mirrorValue(spec, options.classifyTypes));
+        }
+        if (!options.mirrors.isEmpty() && (options.planFile != null || options.executePlan != null || options.packMode != PackMode.NONE)) {
+            throw new IllegalArgumentException("--mirror can't be combined with --plan, --execute-plan or --pack.");
+        }
+        if (options.nearDuplicateMode != NearDuplicateMode.NONE && (options.planFile != null || options.executePlan != null)) {
+            throw new IllegalArgumentException("--near-duplicates can't be combined with --plan or --execute-plan.");
+        }
+        if (options.executePlan != null && (options.planFile != null || options.watch)) {
+            throw new IllegalArgumentException("--execute-plan can't be combined with --plan or --watch.");
+        }
+        if (options.nearDuplicateMode == NearDuplicateMode.SKIP && options.watch) {
+            throw new IllegalArgumentException("--near-duplicates skip can't be combined with --watch, the image kept is chosen once the whole origin is planned.");
+        }
+        if (options.packMode != PackMode.NONE && options.watch) {
+            throw new IllegalArgumentException("--pack can't be combined with --watch, archives are completed when the job ends.");
+        }
+        if (options.packMode != PackMode.NONE && options.durabilityMode != DurabilityMode.NONE) {
+            throw new IllegalArgumentException("--pack can't be combined with --durability, archives are not flushed to disk.");
+        }
+        if (options.planFile != null && options.watch) {
+            throw new IllegalArgumentException("--plan can't be combined with --watch.");
+        }
+        if (options.origins.size() > 1 && (options.planFile != null || options.watch)) {
+            throw new IllegalArgumentException("--plan and --watch take a single --origin.");
+        }
+        if (options.queryDirectory != null && (!options.origins.isEmpty() || options.executePlan != null || options.planFile != null)) {
+            throw new IllegalArgumentException("--query can't be combined with a copy job.");
+        }
+        if (!options.help && options.executePlan == null && options.queryDirectory == null
+                && (options.origins.isEmpty() || options.destination == null)) {
+            throw new IllegalArgumentException("Both --origin and --destination are required.");
+        }
+        return options;
+    }
+
+    private void apply(CopyParameters parameter) {
+        switch (parameter) {
+            case RENAME_NAME_DATE_CREATION ->
+                rename = true;
+            case FOLDER_FILE_NOT_CLASSIFIED ->
+                pendients = true;
+            case OVERWRITE_FILE ->
+                overwrite = true;
+        }
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[index];
+    }
+
+    private static int intValue(String value, String option) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number < 1) {
+                throw new IllegalArgumentException(option + " must be at least 1");
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + option + ": " + value);
+        }
+    }
+
+    /**
+     * Parses a number of bytes with an optional K, M or G suffix.
+     */
+    private static long sizeValue(String value, String option) {
+        String digits = value.trim().toUpperCase(Locale.ROOT);
+        int shift = 0;
+        if (!digits.isEmpty()) {
+            shift = switch (digits.charAt(digits.length() - 1)) {
+                case 'K' ->
+                    10;
+                case 'M' ->
+                    20;
+                case 'G' ->
+                    30;
+                default ->
+                    0;
+            };
+            if (shift > 0) {
+                digits = digits.substring(0, digits.length() - 1);
+            }
+        }
+        try {
+            long number = Long.parseLong(digits);
+            if (number < 1) {
+                throw new IllegalArgumentException(option + " must be at least 1");
+            }
+            return Math.multiplyExact(number, 1L << shift);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid size for " + option + ": " + value);
+        }
+    }
+
+    private static int distanceValue(String value, String option) {
+        try {
+            int bits = Integer.parseInt(value);
+            if (bits < 0 || bits > Long.SIZE) {
+                throw new IllegalArgumentException(option + " must be between 0 and 64");
+            }
+            return bits;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + option + ": " + value);
+        }
+    }
+
+    private static ThrottleLimits throttleValue(String value, String option) {
+        try {
+            return ThrottleLimits.parse(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid value for " + option + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parses a year, month or day as the first or the last day it covers.
+     */
+    private static LocalDate dateValue(String value, String option, boolean last) {
+        try {
+            return switch (value.length()) {
+                case 4 -> {
+                    Year year = Year.parse(value);
+                    yield last ? year.atMonth(12).atEndOfMonth() : year.atDay(1);
+                }
+                case 7 -> {
+                    YearMonth month = YearMonth.parse(value);
+                    yield last ? month.atEndOfMonth() : month.atDay(1);
+                }
+                default ->
+                    LocalDate.parse(value);
+            };
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date for " + option + ": " + value);
+        }
+    }
+
+    private static DestinationSpec mirrorValue(String spec, ClassifyTypes defaultTypes) {
+        String[] parts = spec.split(",");
+        if (parts[0].isBlank()) {
+            throw new IllegalArgumentException("Missing directory in --mirror: " + spec);
+        }
+        ClassifyTypes types = defaultTypes;
+        boolean overwrite = false;
+        for (int i = 1; i < parts.length; i++) {
+            String part = parts[i].trim();
+            if (part.equalsIgnoreCase("overwrite")) {
+                overwrite = true;
+            } else if (part.toLowerCase(Locale.ROOT).startsWith("mode=")) {
+                types = enumValue(ClassifyTypes.class, part.substring("mode=".length()), "--mirror");
+            } else {
+                throw new IllegalArgumentException("Invalid value for --mirror: " + part);
+            }
+        }
+        return new DestinationSpec(Paths.get(parts[0]), types, overwrite);
+    }
+
+    /**
+     * Parses a comma separated list of attribute kinds, {@code all} or
+     * {@code none}.
+     */
+    private static EnumSet<PreservedAttribute> preservedValue(String value, String option) {
+        EnumSet<PreservedAttribute> preserved = EnumSet.noneOf(PreservedAttribute.class);
+        for (String kind : value.split(",")) {
+            switch (kind.trim().toLowerCase(Locale.ROOT)) {
+                case "all" ->
+                    preserved.addAll(EnumSet.allOf(PreservedAttribute.class));
+                case "none" -> {
+                }
+                default ->
+                    preserved.add(enumValue(PreservedAttribute.class, kind.trim(), option));
+            }
+        }
+        return preserved;
+    }
+
+    private static <E extends Enum<E>> E enumValue(Class<E> type, String value, String option) {
+        try {
+            return Enum.valueOf(type, value.toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid value for " + option + ": " + value);
+        }
+    }
+
+    /**
+     * Returns the first origin, the only one of plan and watch jobs.
+     *
+     * @return the origin, or {@code null} if none was given.
+     */
+    public String getOrigin() {
+        return origins.isEmpty() ? null : origins.get(0);
+    }
+
+    public List<String> getOrigins() {
+        return origins;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public ClassifyTypes getClassifyTypes() {
+        return classifyTypes;
+    }
+
+    public boolean isRename() {
+        return rename;
+    }
+
+    public boolean isPendients() {
+        return pendients;
+    }
+
+    public boolean isOverwrite() {
+        return overwrite;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public Progress getProgress() {
+        return progress;
+    }
+
+    public boolean isVerbose() {
+        return verbose;
+    }
+
+    public boolean isHelp() {
+        return help;
+    }
+
+    public boolean isWatch() {
+        return watch;
+    }
+
+    public boolean isExpandArchives() {
+        return expandArchives;
+    }
+
+    public long getSettleMs() {
+        return settleMs;
+    }
+
+    public String getPlanFile() {
+        return planFile;
+    }
+
+    public String getExecutePlan() {
+        return executePlan;
+    }
+
+    public int getLocalityWindow() {
+        return localityWindow;
+    }
+
+    public SchedulingTypes getSchedulingTypes() {
+        return schedulingTypes;
+    }
+
+    public boolean isCatalog() {
+        return catalog;
+    }
+
+    public String getQueryDirectory() {
+        return queryDirectory;
+    }
+
+    public LocalDate getQueryFrom() {
+        return queryFrom;
+    }
+
+    public LocalDate getQueryTo() {
+        return queryTo;
+    }
+
+    public String getQueryType() {
+        return queryType;
+    }
+
+    public String getQueryText() {
+        return queryText;
+    }
+
+    public boolean isQueryCount() {
+        return queryCount;
+    }
+
+    public List<DestinationSpec> getMirrors() {
+        return mirrors;
+    }
+
+    public PackMode getPackMode() {
+        return packMode;
+    }
+
+    public NearDuplicateMode getNearDuplicateMode() {
+        return nearDuplicateMode;
+    }
+
+    public int getNearDuplicateDistance() {
+        return nearDuplicateDistance;
+    }
+
+    public EnumSet<PreservedAttribute> getPreservedAttributes() {
+        return preservedAttributes;
+    }
+
+    public DurabilityMode getDurabilityMode() {
+        return durabilityMode;
+    }
+
+    public ThrottleSchedule getThrottleSchedule() {
+        return throttleSchedule;
+    }
+
+    public String getControlFile() {
+        return controlFile;
+    }
+
+    public String getExtensionsFile() {
+        return extensionsFile;
+    }
+
+    /**
+     * Returns the layout given with --layout.
+     *
+     * @return the compiled layout, or {@code null} for the default one.
+     */
+    public Layout getLayout() {
+        return layout;
+    }
+
+    public long getMetadataMaxBytes() {
+        return metadataMaxBytes;
+    }
+}
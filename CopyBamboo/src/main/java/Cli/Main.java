@@ -0,0 +1,433 @@
+package Cli;
+
+import Controller.Archive.ArchiveFormat;
+import Controller.Catalog.Catalog;
+import Controller.Catalog.CatalogRecord;
+import Controller.CopyController;
+import Controller.JobControl;
+import Controller.Plan.CopyPlanFile;
+import Controller.Plan.CopyPlanner;
+import Controller.Plan.PlanExecutor;
+import Controller.Throttle.Throttle;
+import Controller.Throttle.ThrottleLimits;
+import Controller.WatchController;
+import Log.ConsoleLogHandler;
+import Model.CopyPlan;
+import Model.CopyTask;
+import Model.DestinationSpec;
+import Model.FileClassifier;
+import Model.Json;
+import View.mainWindow;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Application entry point. Without arguments the Swing window is started;
+ * with arguments the copy runs headless, so it can be scheduled on servers
+ * from cron. The headless path never touches AWT, FlatLaf or the theme
+ * detectors.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class Main {
+
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_FILE_ERRORS = 1;
+    public static final int EXIT_USAGE = 2;
+    public static final int EXIT_FATAL = 3;
+    public static final int EXIT_CANCELLED = 4;
+
+    private static final long PROGRESS_INTERVAL_MS = 1000;
+
+    // Released once the summary has been printed, the shutdown hooks wait for it
+    private static final CountDownLatch jobFinished = new CountDownLatch(1);
+
+    // Last command read from the control file, a command is only applied when the file changes
+    private static String lastControlCommand = "";
+
+    /**
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            mainWindow.main(args);
+            return;
+        }
+        System.exit(run(args));
+    }
+
+    /**
+     * Runs a headless copy job.
+     *
+     * @param args the command line arguments, see {@link CliOptions#USAGE}.
+     * @return the process exit code.
+     */
+    public static int run(String[] args) {
+        CliOptions options;
+        try {
+            options = CliOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(CliOptions.USAGE);
+            return EXIT_USAGE;
+        }
+        if (options.isHelp()) {
+            System.out.print(CliOptions.USAGE);
+            return EXIT_OK;
+        }
+
+        if (options.getQueryDirectory() != null) {
+            return query(options);
+        }
+
+        if (options.getExtensionsFile() != null) {
+            try {
+                FileClassifier.useExtensionsFile(Paths.get(options.getExtensionsFile()));
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Error: " + e.getMessage());
+                return EXIT_USAGE;
+            }
+        }
+
+        boolean json = options.getProgress() == CliOptions.Progress.JSON;
+        ConsoleLogHandler log = new ConsoleLogHandler(json ? System.out : System.err, json, options.isVerbose());
+        Throttle throttle = new Throttle();
+        throttle.setSchedule(options.getThrottleSchedule());
+
+        if (options.getExecutePlan() != null) {
+            PlanExecutor executor;
+            try {
+                executor = new PlanExecutor(CopyPlanFile.read(Paths.get(options.getExecutePlan())), log);
+            } catch (IOException e) {
+                System.err.println("Error: " + e.getMessage());
+                return EXIT_FATAL;
+            }
+            executor.getCopyController().setThreads(options.getThreads());
+            executor.getCopyController().setThrottle(throttle);
+            executor.getCopyController().setSchedulingTypes(options.getSchedulingTypes());
+            executor.getCopyController().setPackMode(options.getPackMode());
+            executor.getCopyController().setPreservedAttributes(options.getPreservedAttributes());
+            executor.getCopyController().setDurabilityMode(options.getDurabilityMode());
+            executor.getCopyController().setCatalogEnabled(options.isCatalog());
+            cancelOnShutdown(executor.getCopyController());
+            return runCopy(executor.getCopyController(), options, executor::execute);
+        }
+
+        Path origin = Paths.get(options.getOrigin());
+        Path destination = Paths.get(options.getDestination());
+        List<Path> origins = new ArrayList<>();
+        for (String name : options.getOrigins()) {
+            Path path = Paths.get(name);
+            boolean archiveOrigin = Files.isRegularFile(path) && ArchiveFormat.of(path) != null;
+            if (!(Files.isDirectory(path) || archiveOrigin) || !Files.isReadable(path)) {
+                System.err.println("Error: Can't read from origin directory: " + path);
+                return EXIT_FATAL;
+            }
+            if (archiveOrigin && (options.isWatch() || options.getPlanFile() != null)) {
+                System.err.println("Error: An archive origin can't be watched or planned, extract it or copy it directly.");
+                return EXIT_FATAL;
+            }
+            origins.add(path);
+        }
+
+        if (options.getPlanFile() != null) {
+            return writePlan(options, throttle, log);
+        }
+
+        List<Path> destinations = new ArrayList<>();
+        destinations.add(destination);
+        for (DestinationSpec mirror : options.getMirrors()) {
+            destinations.add(mirror.getPath());
+        }
+        for (Path target : destinations) {
+            try {
+                Files.createDirectories(target);
+            } catch (Exception e) {
+                System.err.println("Error: Can't create destination directory: " + target + " - " + e.getMessage());
+                return EXIT_FATAL;
+            }
+            if (!Files.isWritable(target)) {
+                System.err.println("Error: Can't write in destination directory: " + target);
+                return EXIT_FATAL;
+            }
+        }
+
+        CopyController copyController = new CopyController(options.getClassifyTypes(), origin.toString(), destination.toString(),
+                options.isRename(), options.isPendients(), options.isOverwrite(), log);
+        copyController.setOriginPaths(origins);
+        copyController.setMirrors(options.getMirrors());
+        copyController.setCatalogEnabled(options.isCatalog());
+        copyController.setThreads(options.getThreads());
+        copyController.setThrottle(throttle);
+        copyController.setMetadataMaxBytes(options.getMetadataMaxBytes());
+        if (options.getLayout() != null) {
+            copyController.setLayout(options.getLayout());
+        }
+        copyController.setSchedulingTypes(options.getSchedulingTypes());
+        copyController.setExpandArchives(options.isExpandArchives());
+        copyController.setPackMode(options.getPackMode());
+        copyController.setPreservedAttributes(options.getPreservedAttributes());
+        copyController.setDurabilityMode(options.getDurabilityMode());
+        copyController.setNearDuplicateMode(options.getNearDuplicateMode());
+        copyController.setNearDuplicateDistance(options.getNearDuplicateDistance());
+        copyController.setLocalityWindow(options.getLocalityWindow());
+        if (options.isWatch()) {
+            return runCopy(copyController, options, () -> watch(copyController, origin, options.getSettleMs(), log));
+        }
+        cancelOnShutdown(copyController);
+        return runCopy(copyController, options, copyController::StartCopy);
+    }
+
+    /**
+     * A copy job run by {@link #runCopy(CopyController, CliOptions, Job)}.
+     */
+    private interface Job {
+
+        void run() throws Exception;
+    }
+
+    /**
+     * Runs a copy job while reporting the counters of its controller and
+     * polling the control file, then prints the summary.
+     *
+     * @return the process exit code.
+     */
+    private static int runCopy(CopyController copyController, CliOptions options, Job job) {
+        boolean json = options.getProgress() == CliOptions.Progress.JSON;
+        long start = System.nanoTime();
+        ScheduledExecutorService progressTimer = null;
+        if (options.getProgress() != CliOptions.Progress.NONE || options.getControlFile() != null) {
+            progressTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "Progress reporter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            progressTimer.scheduleAtFixedRate(() -> {
+                if (options.getControlFile() != null) {
+                    applyControlFile(Paths.get(options.getControlFile()), copyController);
+                }
+                if (options.getProgress() != CliOptions.Progress.NONE) {
+                    printProgress("progress", copyController, json, start);
+                }
+            }, PROGRESS_INTERVAL_MS, PROGRESS_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+
+        try {
+            try {
+                job.run();
+            } finally {
+                if (progressTimer != null) {
+                    progressTimer.shutdownNow();
+                }
+            }
+            printProgress("summary", copyController, json, start);
+        } catch (Exception e) {
+            System.err.println("Error during the copy: " + e.getMessage());
+            return EXIT_FATAL;
+        } finally {
+            // Releases the shutdown hooks, also when the job failed
+            jobFinished.countDown();
+        }
+
+        if (copyController.getJobControl().isCancelled()) {
+            return EXIT_CANCELLED;
+        }
+        return copyController.getCountErr() > 0 ? EXIT_FILE_ERRORS : EXIT_OK;
+    }
+
+    /**
+     * Cancels the job when the process is asked to terminate (Ctrl+C,
+     * SIGTERM). Copies in flight are abandoned at their next chunk and their
+     * temporary files removed; the hook waits until the summary has been
+     * printed.
+     */
+    private static void cancelOnShutdown(CopyController copyController) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (jobFinished.getCount() == 0) {
+                return; // Normal exit
+            }
+            copyController.getJobControl().cancel();
+            try {
+                jobFinished.await(1, TimeUnit.MINUTES);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }, "Copy shutdown"));
+    }
+
+    /**
+     * Applies the command written in the control file: pause, resume,
+     * cancel, {@code throttle <limits>} or {@code throttle auto}. A missing or
+     * unreadable file leaves the job as it is, and a command is applied only
+     * once, when the content of the file changes.
+     */
+    private static void applyControlFile(Path controlFile, CopyController copyController) {
+        String command;
+        try {
+            command = Files.readString(controlFile, StandardCharsets.UTF_8).trim().toLowerCase(Locale.ROOT);
+        } catch (IOException e) {
+            return;
+        }
+        if (command.equals(lastControlCommand)) {
+            return;
+        }
+        lastControlCommand = command;
+        JobControl jobControl = copyController.getJobControl();
+        switch (command) {
+            case "pause" ->
+                jobControl.pause();
+            case "resume" ->
+                jobControl.resume();
+            case "cancel" ->
+                jobControl.cancel();
+            case "throttle auto" ->
+                copyController.getThrottle().clearLimits();
+            default -> {
+                if (command.startsWith("throttle ")) {
+                    try {
+                        copyController.getThrottle().setLimits(ThrottleLimits.parse(command.substring("throttle ".length())));
+                    } catch (IllegalArgumentException e) {
+                        System.err.println("Ignoring control command: " + e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Prints the catalog records of a destination that match the query
+     * options.
+     *
+     * @return the process exit code.
+     */
+    private static int query(CliOptions options) {
+        Path destination = Paths.get(options.getQueryDirectory());
+        if (!Catalog.exists(destination)) {
+            System.err.println("Error: No catalog in " + destination + ", copy into it with --catalog first.");
+            return EXIT_FATAL;
+        }
+        try (Catalog catalog = Catalog.openReadOnly(destination)) {
+            if (options.isQueryCount() && options.getQueryText() == null) {
+                System.out.println(catalog.count(options.getQueryFrom(), options.getQueryTo(), options.getQueryType()));
+                return EXIT_OK;
+            }
+            List<CatalogRecord> records = catalog.find(options.getQueryFrom(), options.getQueryTo(),
+                    options.getQueryType(), options.getQueryText(), Integer.MAX_VALUE);
+            if (options.isQueryCount()) {
+                System.out.println(records.size());
+                return EXIT_OK;
+            }
+            for (CatalogRecord record : records) {
+                System.out.println("{\"origin\":" + Json.quote(record.getOrigin())
+                        + ",\"destination\":" + Json.quote(record.getDestination())
+                        + ",\"date\":" + Json.quote(record.getDate() == null ? null : record.getDate().toString())
+                        + ",\"dateSource\":" + Json.quote(record.getDateSource())
+                        + ",\"type\":" + Json.quote(record.getType())
+                        + ",\"size\":" + record.getSize()
+                        + ",\"sha256\":" + Json.quote(record.getHash())
+                        + ",\"recorded\":" + Json.quote(Instant.ofEpochMilli(record.getRecordedAt()).toString())
+                        + "}");
+            }
+            return EXIT_OK;
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            return EXIT_FATAL;
+        }
+    }
+
+    /**
+     * Runs the planning phase only and writes the plan file.
+     *
+     * @return the process exit code.
+     */
+    private static int writePlan(CliOptions options, Throttle throttle, ConsoleLogHandler log) {
+        CopyPlanner planner = new CopyPlanner(options.getClassifyTypes(), options.getOrigin(), options.getDestination(),
+                options.isRename(), options.isPendients(), options.isOverwrite(), log);
+        planner.setThreads(options.getThreads());
+        planner.setThrottle(throttle);
+        planner.setMetadataMaxBytes(options.getMetadataMaxBytes());
+        if (options.getLayout() != null) {
+            planner.setLayout(options.getLayout());
+        }
+        long start = System.nanoTime();
+        CopyPlan plan;
+        try {
+            plan = planner.plan();
+            CopyPlanFile.write(plan, Paths.get(options.getPlanFile()));
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            return EXIT_FATAL;
+        }
+
+        Map<CopyTask.Status, Integer> counts = new EnumMap<>(CopyTask.Status.class);
+        for (CopyTask.Status status : CopyTask.Status.values()) {
+            counts.put(status, 0);
+        }
+        for (CopyTask task : plan.getTasks()) {
+            counts.merge(task.getStatus(), 1, Integer::sum);
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        if (options.getProgress() == CliOptions.Progress.JSON) {
+            System.out.println("{\"event\":\"plan\",\"files\":" + plan.getTasks().size()
+                    + ",\"copy\":" + counts.get(CopyTask.Status.COPY)
+                    + ",\"collisions\":" + counts.get(CopyTask.Status.COLLISION_RENAMED)
+                    + ",\"duplicates\":" + counts.get(CopyTask.Status.DUPLICATE)
+                    + ",\"unclassified\":" + counts.get(CopyTask.Status.UNCLASSIFIED)
+                    + ",\"elapsedMs\":" + elapsedMs + "}");
+        } else if (options.getProgress() == CliOptions.Progress.TEXT) {
+            System.err.printf("plan: files=%d copy=%d collisions=%d duplicates=%d unclassified=%d elapsed=%.1fs%n",
+                    plan.getTasks().size(), counts.get(CopyTask.Status.COPY), counts.get(CopyTask.Status.COLLISION_RENAMED),
+                    counts.get(CopyTask.Status.DUPLICATE), counts.get(CopyTask.Status.UNCLASSIFIED), elapsedMs / 1000.0);
+        }
+        return EXIT_OK;
+    }
+
+    /**
+     * Runs watch mode until the process is asked to terminate (Ctrl+C,
+     * SIGTERM). The shutdown hook waits until the files already queued have
+     * been copied and the summary has been printed.
+     */
+    private static void watch(CopyController copyController, Path origin, long settleMs, ConsoleLogHandler log) throws Exception {
+        WatchController watchController = new WatchController(copyController, origin, settleMs, log);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            watchController.stop();
+            try {
+                jobFinished.await(5, TimeUnit.MINUTES);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }, "Watch shutdown"));
+        watchController.watch();
+    }
+
+    private static void printProgress(String event, CopyController copyController, boolean json, long start) {
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        int copied = copyController.getCountCopy();
+        int skipped = copyController.getCountRepeat();
+        int errors = copyController.getCountErr();
+        int similar = copyController.getCountSimilar();
+        JobControl jobControl = copyController.getJobControl();
+        String state = jobControl.isCancelled() ? "cancelled"
+                : event.equals("summary") ? "finished" : jobControl.isPaused() ? "paused" : "running";
+        if (json) {
+            System.out.println("{\"event\":\"" + event + "\",\"state\":\"" + state + "\",\"copied\":" + copied
+                    + ",\"skipped\":" + skipped + ",\"errors\":" + errors + ",\"similar\":" + similar + ",\"elapsedMs\":" + elapsedMs + "}");
+        } else {
+            System.err.printf("%s: %s copied=%d skipped=%d errors=%d similar=%d elapsed=%.1fs%n",
+                    event, state, copied, skipped, errors, similar, elapsedMs / 1000.0);
+        }
+    }
+}
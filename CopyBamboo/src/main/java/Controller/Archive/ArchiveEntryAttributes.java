@@ -0,0 +1,93 @@
+package Controller.Archive;
+
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * Basic attributes of an archive entry, taken from the archive itself (the
+ * ZIP central directory or the TAR header) so entries never have to be
+ * stat'd.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class ArchiveEntryAttributes implements BasicFileAttributes {
+
+    private final long size;
+    private final FileTime lastModifiedTime;
+    private final FileTime lastAccessTime;
+    private final FileTime creationTime;
+    private final long ordinal;
+
+    /**
+     * Constructs the attributes of an entry. Missing times fall back to the
+     * modification time.
+     *
+     * @param size the uncompressed size in bytes.
+     * @param lastModifiedTime the modification time.
+     * @param lastAccessTime the access time, may be {@code null}.
+     * @param creationTime the creation time, may be {@code null}.
+     * @param ordinal the position of the entry in the archive.
+     */
+    public ArchiveEntryAttributes(long size, FileTime lastModifiedTime, FileTime lastAccessTime, FileTime creationTime, long ordinal) {
+        this.size = size;
+        this.lastModifiedTime = lastModifiedTime != null ? lastModifiedTime : FileTime.fromMillis(0);
+        this.lastAccessTime = lastAccessTime != null ? lastAccessTime : this.lastModifiedTime;
+        this.creationTime = creationTime != null ? creationTime : this.lastModifiedTime;
+        this.ordinal = ordinal;
+    }
+
+    /**
+     * Returns the position of the entry in the archive, used as its locality
+     * key so entries are copied in the order they are stored.
+     *
+     * @return the position of the entry.
+     */
+    public long getOrdinal() {
+        return ordinal;
+    }
+
+    @Override
+    public FileTime lastModifiedTime() {
+        return lastModifiedTime;
+    }
+
+    @Override
+    public FileTime lastAccessTime() {
+        return lastAccessTime;
+    }
+
+    @Override
+    public FileTime creationTime() {
+        return creationTime;
+    }
+
+    @Override
+    public boolean isRegularFile() {
+        return true;
+    }
+
+    @Override
+    public boolean isDirectory() {
+        return false;
+    }
+
+    @Override
+    public boolean isSymbolicLink() {
+        return false;
+    }
+
+    @Override
+    public boolean isOther() {
+        return false;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public Object fileKey() {
+        return null;
+    }
+}
@@ -0,0 +1,89 @@
+package Controller.Archive;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * The ArchiveFormat enum lists the archive formats that can be read directly
+ * as copy sources, without extracting them first.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public enum ArchiveFormat {
+
+    /**
+     * ZIP archive, read with random access through the zip file system.
+     */
+    ZIP,
+    /**
+     * Uncompressed TAR archive, read as a stream.
+     */
+    TAR,
+    /**
+     * Gzip compressed TAR archive, read as a stream.
+     */
+    TAR_GZ;
+
+    /**
+     * Returns the format of a file from its name.
+     *
+     * @param file the file.
+     * @return the archive format, or {@code null} if the file is not an
+     * archive that can be read as a source.
+     */
+    public static ArchiveFormat of(Path file) {
+        Path fileName = file.getFileName();
+        if (fileName == null) {
+            return null;
+        }
+        String name = fileName.toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".zip")) {
+            return ZIP;
+        } else if (name.endsWith(".tar")) {
+            return TAR;
+        } else if (name.endsWith(".tar.gz") || name.endsWith(".tgz")) {
+            return TAR_GZ;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the name of an archive without its archive extension, used as
+     * the folder name of the entries stored at its root.
+     *
+     * @param file the archive.
+     * @return the base name.
+     */
+    public static String baseName(Path file) {
+        String name = file.getFileName().toString();
+        String lower = name.toLowerCase(Locale.ROOT);
+        for (String extension : new String[]{".tar.gz", ".tgz", ".tar", ".zip"}) {
+            if (lower.endsWith(extension) && lower.length() > extension.length()) {
+                return name.substring(0, name.length() - extension.length());
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Builds the path used to classify an entry: the archive base name
+     * followed by the entry name. Empty, {@code .} and {@code ..} segments are
+     * dropped, so a crafted entry name can never point outside the archive
+     * folder, and entries at the root of the archive get the archive name as
+     * parent folder.
+     *
+     * @param archiveName the base name of the archive.
+     * @param entryName the name stored in the archive.
+     * @return the relative path of the entry.
+     */
+    public static Path entryPath(String archiveName, String entryName) {
+        Path path = Paths.get(archiveName);
+        for (String part : entryName.split("[/\\\\]")) {
+            if (!part.isEmpty() && !part.equals(".") && !part.equals("..")) {
+                path = path.resolve(part);
+            }
+        }
+        return path;
+    }
+}
@@ -0,0 +1,344 @@
+package Controller.Archive;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The TarReader class reads a TAR stream entry by entry, so an archive of any
+ * size is processed in a single sequential pass with a constant amount of
+ * memory. It understands the ustar format and the GNU long name and POSIX pax
+ * extensions used by current tar implementations; entries other than regular
+ * files are returned with {@link Entry#isRegularFile()} false.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class TarReader implements Closeable {
+
+    private static final int BLOCK_SIZE = 512;
+
+    /**
+     * Header of a TAR entry.
+     */
+    public static final class Entry {
+
+        private final String name;
+        private final long size;
+        private final FileTime lastModifiedTime;
+        private final FileTime lastAccessTime;
+        private final FileTime creationTime;
+        private final boolean regularFile;
+
+        Entry(String name, long size, FileTime lastModifiedTime, FileTime lastAccessTime, FileTime creationTime, boolean regularFile) {
+            this.name = name;
+            this.size = size;
+            this.lastModifiedTime = lastModifiedTime;
+            this.lastAccessTime = lastAccessTime;
+            this.creationTime = creationTime;
+            this.regularFile = regularFile;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public FileTime getLastModifiedTime() {
+            return lastModifiedTime;
+        }
+
+        public FileTime getLastAccessTime() {
+            return lastAccessTime;
+        }
+
+        public FileTime getCreationTime() {
+            return creationTime;
+        }
+
+        public boolean isRegularFile() {
+            return regularFile;
+        }
+    }
+
+    private final InputStream in;
+    private final byte[] header = new byte[BLOCK_SIZE];
+    // Bytes of the current entry not read yet, plus its padding
+    private long remaining;
+    private long padding;
+
+    /**
+     * Constructs a TarReader.
+     *
+     * @param in the uncompressed TAR stream.
+     */
+    public TarReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Moves to the next entry, skipping what was not read of the current one.
+     *
+     * @return the next entry, or {@code null} at the end of the archive.
+     * @throws IOException if the stream cannot be read or is not a valid TAR
+     * archive.
+     */
+    public Entry next() throws IOException {
+        skipFully(remaining + padding);
+        remaining = 0;
+        padding = 0;
+
+        String longName = null;
+        Map<String, String> pax = new HashMap<>();
+        while (true) {
+            if (!readBlock()) {
+                return null;
+            }
+            if (isZeroBlock()) {
+                return null; // End of archive marker
+            }
+            verifyChecksum();
+            char type = (char) header[156];
+            long size = parseNumber(124, 12);
+            switch (type) {
+                case 'L' -> {
+                    longName = trimNul(new String(readData(size), StandardCharsets.UTF_8));
+                    continue;
+                }
+                case 'x' -> {
+                    pax.putAll(parsePax(readData(size)));
+                    continue;
+                }
+                case 'g' -> {
+                    readData(size); // Global pax headers carry nothing used here
+                    continue;
+                }
+                default -> {
+                }
+            }
+
+            String name = longName != null ? longName : headerName();
+            if (pax.containsKey("path")) {
+                name = pax.get("path");
+            }
+            if (pax.containsKey("size")) {
+                size = Long.parseLong(pax.get("size"));
+            }
+            FileTime modified = pax.containsKey("mtime") ? paxTime(pax.get("mtime"))
+                    : FileTime.from(parseNumber(136, 12), TimeUnit.SECONDS);
+            FileTime accessed = pax.containsKey("atime") ? paxTime(pax.get("atime")) : null;
+            FileTime created = pax.containsKey("ctime") ? paxTime(pax.get("ctime")) : null;
+            boolean regular = type == '0' || type == 0 || type == '7';
+            // Hard links, symlinks, directories and devices carry no data to read
+            long dataSize = regular ? size : (type == '1' || type == '2' || type == '5' ? 0 : size);
+            remaining = dataSize;
+            padding = (BLOCK_SIZE - dataSize % BLOCK_SIZE) % BLOCK_SIZE;
+            return new Entry(name, size, modified, accessed, created, regular);
+        }
+    }
+
+    /**
+     * Returns a stream over the data of the current entry. It must be consumed
+     * before {@link #next()} is called again; closing it does not close the
+     * archive.
+     *
+     * @return the entry data.
+     */
+    public InputStream entryStream() {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int value = in.read();
+                if (value < 0) {
+                    throw new EOFException("Truncated TAR entry");
+                }
+                remaining--;
+                return value;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int read = in.read(buffer, offset, (int) Math.min(length, remaining));
+                if (read < 0) {
+                    throw new EOFException("Truncated TAR entry");
+                }
+                remaining -= read;
+                return read;
+            }
+
+            @Override
+            public void close() {
+                // The archive stays open for the next entry
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private boolean readBlock() throws IOException {
+        int offset = 0;
+        while (offset < BLOCK_SIZE) {
+            int read = in.read(header, offset, BLOCK_SIZE - offset);
+            if (read < 0) {
+                if (offset == 0) {
+                    return false; // Archive without end marker
+                }
+                throw new EOFException("Truncated TAR header");
+            }
+            offset += read;
+        }
+        return true;
+    }
+
+    private boolean isZeroBlock() {
+        for (byte b : header) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void verifyChecksum() throws IOException {
+        long expected = parseNumber(148, 8);
+        long sum = 0;
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            sum += (i >= 148 && i < 156) ? ' ' : (header[i] & 0xFF);
+        }
+        if (sum != expected) {
+            throw new IOException("Not a TAR archive or corrupted header");
+        }
+    }
+
+    private String headerName() {
+        String name = field(0, 100);
+        boolean ustar = field(257, 5).equals("ustar");
+        String prefix = ustar ? field(345, 155) : "";
+        return prefix.isEmpty() ? name : prefix + "/" + name;
+    }
+
+    private String field(int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses an octal number, or a base-256 number when the high bit of the
+     * first byte is set (GNU extension for sizes over 8 GB).
+     */
+    private long parseNumber(int offset, int length) throws IOException {
+        if ((header[offset] & 0x80) != 0) {
+            long value = header[offset] & 0x7F;
+            for (int i = offset + 1; i < offset + length; i++) {
+                value = (value << 8) | (header[i] & 0xFF);
+            }
+            return value;
+        }
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            byte b = header[i];
+            if (b == 0 || b == ' ') {
+                if (value != 0) {
+                    break;
+                }
+                continue;
+            }
+            if (b < '0' || b > '7') {
+                throw new IOException("Invalid number in TAR header");
+            }
+            value = (value << 3) + (b - '0');
+        }
+        return value;
+    }
+
+    private byte[] readData(long size) throws IOException {
+        if (size > Integer.MAX_VALUE - BLOCK_SIZE) {
+            throw new IOException("TAR extended header too large");
+        }
+        byte[] data = in.readNBytes((int) size);
+        if (data.length != size) {
+            throw new EOFException("Truncated TAR extended header");
+        }
+        skipFully((BLOCK_SIZE - size % BLOCK_SIZE) % BLOCK_SIZE);
+        return data;
+    }
+
+    private void skipFully(long bytes) throws IOException {
+        while (bytes > 0) {
+            long skipped = in.skip(bytes);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException("Truncated TAR archive");
+                }
+                skipped = 1;
+            }
+            bytes -= skipped;
+        }
+    }
+
+    /**
+     * Parses pax records, each written as {@code "<length> <key>=<value>\n"}.
+     */
+    private static Map<String, String> parsePax(byte[] data) throws IOException {
+        Map<String, String> records = new HashMap<>();
+        int position = 0;
+        while (position < data.length) {
+            int space = position;
+            while (space < data.length && data[space] != ' ') {
+                space++;
+            }
+            int length;
+            try {
+                length = Integer.parseInt(new String(data, position, space - position, StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid pax header");
+            }
+            if (length <= 0 || position + length > data.length) {
+                throw new IOException("Invalid pax header");
+            }
+            String record = new String(data, space + 1, position + length - space - 2, StandardCharsets.UTF_8);
+            int equals = record.indexOf('=');
+            if (equals > 0) {
+                records.put(record.substring(0, equals), record.substring(equals + 1));
+            }
+            position += length;
+        }
+        return records;
+    }
+
+    private static FileTime paxTime(String value) {
+        int dot = value.indexOf('.');
+        long seconds = Long.parseLong(dot < 0 ? value : value.substring(0, dot));
+        long nanos = 0;
+        if (dot >= 0) {
+            String fraction = (value.substring(dot + 1) + "000000000").substring(0, 9);
+            nanos = Long.parseLong(fraction);
+        }
+        return FileTime.from(seconds * 1_000_000_000L + nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String trimNul(String value) {
+        int nul = value.indexOf('\0');
+        return nul < 0 ? value : value.substring(0, nul);
+    }
+}
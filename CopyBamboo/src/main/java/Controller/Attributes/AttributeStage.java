@@ -0,0 +1,203 @@
+package Controller.Attributes;
+
+import Controller.Archive.ArchiveEntryAttributes;
+import Log.LogExcepcion;
+import Model.PreservedAttribute;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * The AttributeStage class applies the attributes of the origin files to
+ * their copies once the data is written, so the copy workers go on with the
+ * next file instead of waiting for the attribute calls.
+ * <p>
+ * The copies are queued with the attributes read when their origin was
+ * scanned, so the origin is not stat'd again. A single thread takes the
+ * queued copies in batches, sorts every batch by directory and applies the
+ * kinds of attributes that are kept: times, POSIX permissions and user
+ * extended attributes. Permissions are taken from the scanned attributes when
+ * they are POSIX ones; extended attributes are read from the origin. Archive
+ * entries only get their times.
+ * </p>
+ * <p>
+ * Errors are written to the exception log and don't fail the copy, as when
+ * the attributes were applied by the copy workers.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class AttributeStage {
+
+    private static final int BATCH_SIZE = 256;
+    // Copies waiting for their attributes before the copy workers block
+    private static final int QUEUE_CAPACITY = 4 * BATCH_SIZE;
+
+    /**
+     * A copy waiting for its attributes.
+     */
+    private static final class Pending {
+
+        private final Path origin;
+        private final BasicFileAttributes attrs;
+        private final Path destination;
+        private final LocalDateTime creationDate;
+
+        Pending(Path origin, BasicFileAttributes attrs, Path destination, LocalDateTime creationDate) {
+            this.origin = origin;
+            this.attrs = attrs;
+            this.destination = destination;
+            this.creationDate = creationDate;
+        }
+    }
+
+    // Ends the thread once the copies queued before it are done
+    private static final Pending END = new Pending(null, null, null, null);
+
+    private final Set<PreservedAttribute> preserved;
+    private final LogExcepcion logFile;
+    private final BlockingQueue<Pending> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread worker;
+
+    /**
+     * Constructs an AttributeStage and starts its thread.
+     *
+     * @param preserved the kinds of attributes to apply.
+     * @param logFile the log of the errors.
+     */
+    public AttributeStage(Set<PreservedAttribute> preserved, LogExcepcion logFile) {
+        this.preserved = preserved.isEmpty() ? EnumSet.noneOf(PreservedAttribute.class) : EnumSet.copyOf(preserved);
+        this.logFile = logFile;
+        this.worker = new Thread(this::run, "Attribute stage");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Queues a copy. Blocks while too many copies are waiting.
+     *
+     * @param origin the origin file.
+     * @param attrs the attributes of the origin read when it was scanned.
+     * @param destination the copy.
+     * @param creationDate the resolved date, set as creation time, or
+     * {@code null} to use now.
+     */
+    public void submit(Path origin, BasicFileAttributes attrs, Path destination, LocalDateTime creationDate) {
+        if (preserved.isEmpty()) {
+            return;
+        }
+        Pending pending = new Pending(origin, attrs, destination, creationDate);
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            apply(pending);
+        }
+    }
+
+    /**
+     * Waits until the attributes of every queued copy are applied and stops
+     * the thread.
+     */
+    public void close() {
+        try {
+            queue.put(END);
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(BATCH_SIZE);
+        boolean end = false;
+        while (!end) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, BATCH_SIZE - 1);
+            end = batch.remove(END);
+            batch.sort(Comparator.comparing(pending -> pending.destination.getParent()));
+            for (Pending pending : batch) {
+                try {
+                    apply(pending);
+                } catch (RuntimeException ex) {
+                    logFile.anadirExcepcionLog(ex);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private void apply(Pending pending) {
+        boolean archiveEntry = pending.attrs instanceof ArchiveEntryAttributes;
+        if (preserved.contains(PreservedAttribute.XATTRS) && !archiveEntry) {
+            applyExtendedAttributes(pending.origin, pending.destination);
+        }
+        if (preserved.contains(PreservedAttribute.PERMISSIONS) && pending.attrs instanceof PosixFileAttributes posix) {
+            try {
+                Files.setPosixFilePermissions(pending.destination, posix.permissions());
+            } catch (IOException | UnsupportedOperationException ex) {
+                logFile.anadirExcepcionLog(ex);
+            }
+        }
+        // Times last, writing extended attributes may change them
+        if (preserved.contains(PreservedAttribute.TIMES)) {
+            applyTimes(pending.attrs, pending.destination, pending.creationDate);
+        }
+    }
+
+    /**
+     * Copies the access and modification times of {@code attrs} to the
+     * destination and sets its creation time to the resolved date.
+     */
+    private void applyTimes(BasicFileAttributes attrs, Path destination, LocalDateTime creationDate) {
+        try {
+            FileTime creationFileTime = FileTime.from((creationDate != null ? creationDate : LocalDateTime.now())
+                    .atZone(ZoneId.systemDefault()).toInstant());
+            Files.getFileAttributeView(destination, BasicFileAttributeView.class)
+                    .setTimes(attrs.lastAccessTime(), attrs.lastModifiedTime(), creationFileTime);
+        } catch (IOException ex) {
+            logFile.anadirExcepcionLog(ex);
+        }
+    }
+
+    private void applyExtendedAttributes(Path origin, Path destination) {
+        if (origin.getFileSystem() != FileSystems.getDefault()) {
+            return;
+        }
+        UserDefinedFileAttributeView from = Files.getFileAttributeView(origin, UserDefinedFileAttributeView.class);
+        UserDefinedFileAttributeView to = Files.getFileAttributeView(destination, UserDefinedFileAttributeView.class);
+        if (from == null || to == null) {
+            return;
+        }
+        try {
+            for (String name : from.list()) {
+                ByteBuffer value = ByteBuffer.allocate(from.size(name));
+                from.read(name, value);
+                value.flip();
+                to.write(name, value);
+            }
+        } catch (IOException | UnsupportedOperationException ex) {
+            logFile.anadirExcepcionLog(ex);
+        }
+    }
+}
@@ -0,0 +1,531 @@
+package Controller.Catalog;
+
+import Controller.FileCopier;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * The Catalog class keeps a record of every file written into a destination,
+ * so questions such as "how many photos from 2019 do we have?" or "where did
+ * this file go?" are answered without walking or parsing the archive.
+ * <p>
+ * Records are appended to a binary log, {@code .catalog/catalog.log} in the
+ * destination, as {@code [length][record][crc32]} frames; a frame cut short
+ * by a crash is dropped the next time the catalog is opened. Every copy job
+ * only appends its own records. A later record for the same destination
+ * replaces the earlier one.
+ * </p>
+ * <p>
+ * The indexes are kept in memory: every live record as its log offset, date
+ * and type, sorted by date, with the records of each type listed apart. They
+ * are saved to {@code catalog.idx} when the catalog is closed, together with
+ * the log length they cover, so opening the catalog only reads the index and
+ * the records appended after it was saved.
+ * </p>
+ * <p>
+ * Queries open the catalog read-only, which takes no lock and never writes,
+ * so they can run while a job is appending to it. They see the records
+ * complete when they were opened.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class Catalog implements AutoCloseable {
+
+    /**
+     * Directory of the catalog inside the destination.
+     */
+    public static final String DIRECTORY = ".catalog";
+    private static final String LOG_FILE = "catalog.log";
+    private static final String INDEX_FILE = "catalog.idx";
+    private static final int LOG_MAGIC = 0x43424c47; // "CBLG"
+    private static final int INDEX_MAGIC = 0x43424958; // "CBIX"
+    private static final int FORMAT_VERSION = 1;
+    private static final int LOG_HEADER_SIZE = 8;
+    // Records are a few hundred bytes, anything larger is a corrupt frame
+    private static final int MAX_RECORD_SIZE = 1024 * 1024;
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    /**
+     * Position and index keys of a live record.
+     */
+    private static final class Entry {
+
+        private final long offset;
+        private final long dateKey;
+        private final int typeId;
+
+        Entry(long offset, long dateKey, int typeId) {
+            this.offset = offset;
+            this.dateKey = dateKey;
+            this.typeId = typeId;
+        }
+    }
+
+    private final Path directory;
+    private final FileChannel log;
+    // Null when the catalog is read-only
+    private final FileLock lock;
+    private final DataOutputStream out;
+    private long logLength;
+    // Live record of every destination, keyed by the destination
+    private final Map<String, Entry> live = new HashMap<>();
+    private final List<String> types = new ArrayList<>();
+    private final Map<String, Integer> typeIds = new HashMap<>();
+    // Derived from live, rebuilt after appends
+    private Entry[] byDate;
+    private Map<Integer, List<Entry>> byType;
+    private Map<Long, String> destinationAt;
+
+    private Catalog(Path directory, FileChannel log, FileLock lock) throws IOException {
+        this.directory = directory;
+        this.log = log;
+        this.lock = lock;
+        if (lock != null && log.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE).putInt(LOG_MAGIC).putInt(FORMAT_VERSION);
+            header.flip();
+            log.write(header, 0);
+        }
+        long covered = readIndex();
+        logLength = replay(covered);
+        if (lock == null) {
+            // A torn tail may be a record still being written by a job, keep it
+            this.out = null;
+            return;
+        }
+        log.truncate(logLength);
+        log.position(logLength);
+        this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(log), 64 * 1024));
+    }
+
+    /**
+     * Opens the catalog of a destination, creating it if needed. Only one job
+     * at a time can have it open.
+     *
+     * @param destinationRoot the destination directory.
+     * @return the catalog.
+     * @throws IOException if the catalog cannot be read or created, or is
+     * open in another job.
+     */
+    public static Catalog open(Path destinationRoot) throws IOException {
+        Path directory = destinationRoot.resolve(DIRECTORY);
+        Files.createDirectories(directory);
+        FileChannel log = FileChannel.open(directory.resolve(LOG_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            FileLock lock = log.tryLock();
+            if (lock == null) {
+                throw new IOException("The catalog is in use by another job: " + directory);
+            }
+            checkHeader(log, directory);
+            return new Catalog(directory, log, lock);
+        } catch (IOException | RuntimeException e) {
+            log.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the catalog of a destination to query it. It takes no lock and
+     * never writes to the catalog, so it may be open while a job appends to
+     * it; the records appended after it was opened are not seen.
+     *
+     * @param destinationRoot the destination directory.
+     * @return the read-only catalog.
+     * @throws IOException if the catalog does not exist or cannot be read.
+     */
+    public static Catalog openReadOnly(Path destinationRoot) throws IOException {
+        Path directory = destinationRoot.resolve(DIRECTORY);
+        FileChannel log = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.READ);
+        try {
+            checkHeader(log, directory);
+            return new Catalog(directory, log, null);
+        } catch (IOException | RuntimeException e) {
+            log.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns whether a destination has a catalog.
+     *
+     * @param destinationRoot the destination directory.
+     * @return true if a catalog exists.
+     */
+    public static boolean exists(Path destinationRoot) {
+        return Files.isRegularFile(destinationRoot.resolve(DIRECTORY).resolve(LOG_FILE));
+    }
+
+    private static void checkHeader(FileChannel log, Path directory) throws IOException {
+        if (log.size() == 0) {
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+        if (log.read(header, 0) < LOG_HEADER_SIZE || header.getInt(0) != LOG_MAGIC) {
+            throw new IOException("Not a catalog: " + directory.resolve(LOG_FILE));
+        }
+        if (header.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported catalog version " + header.getInt(4) + ": " + directory);
+        }
+    }
+
+    /**
+     * Appends the record of a written file.
+     *
+     * @param record the record.
+     * @throws IOException if the log cannot be written.
+     * @throws IllegalStateException if the catalog was opened read-only.
+     */
+    public synchronized void append(CatalogRecord record) throws IOException {
+        if (out == null) {
+            throw new IllegalStateException("The catalog is open read-only: " + directory);
+        }
+        byte[] payload = encode(record);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.writeInt((int) crc.getValue());
+        index(record.getDestination(), logLength, dateKey(record.getDate()), record.getType());
+        logLength += 8 + payload.length;
+    }
+
+    /**
+     * Counts the live records matching the given filters without reading
+     * them.
+     *
+     * @param from the first day, or {@code null}.
+     * @param to the last day, or {@code null}.
+     * @param type the file type, ignoring case, or {@code null} for every
+     * type.
+     * @return the number of matching records.
+     */
+    public synchronized int count(LocalDate from, LocalDate to, String type) {
+        return candidates(from, to, type).size();
+    }
+
+    /**
+     * Returns the live records matching the given filters, in date order.
+     *
+     * @param from the first day, or {@code null}.
+     * @param to the last day, or {@code null}.
+     * @param type the file type, ignoring case, or {@code null} for every
+     * type.
+     * @param text text that the origin, destination or hash must contain,
+     * ignoring case, or {@code null}.
+     * @param limit the maximum number of records returned.
+     * @return the records.
+     * @throws IOException if the log cannot be read.
+     */
+    public synchronized List<CatalogRecord> find(LocalDate from, LocalDate to, String type, String text, int limit) throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+        String needle = text == null ? null : text.toLowerCase(Locale.ROOT);
+        List<CatalogRecord> records = new ArrayList<>();
+        for (Entry entry : candidates(from, to, type)) {
+            if (records.size() >= limit) {
+                break;
+            }
+            CatalogRecord record = read(entry.offset);
+            if (needle == null
+                    || record.getOrigin().toLowerCase(Locale.ROOT).contains(needle)
+                    || record.getDestination().toLowerCase(Locale.ROOT).contains(needle)
+                    || record.getHash().contains(needle)) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Writes the pending records and saves the indexes. A read-only catalog
+     * is only closed.
+     *
+     * @throws IOException if the catalog cannot be written.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (lock == null) {
+            log.close();
+            return;
+        }
+        try {
+            out.flush();
+            log.force(false);
+            writeIndex();
+        } finally {
+            lock.release();
+            log.close();
+        }
+    }
+
+    private List<Entry> candidates(LocalDate from, LocalDate to, String type) {
+        Integer typeId = type == null ? null : typeIdOf(type);
+        if (type != null && typeId == null) {
+            return List.of();
+        }
+        if (from == null && to == null && typeId != null) {
+            return byType().getOrDefault(typeId, List.of());
+        }
+        Entry[] sorted = byDate();
+        int start = 0;
+        if (from != null || to != null) {
+            // Undated records sort first, no date range includes them
+            start = firstAtOrAfter(sorted, from == null ? NO_DATE + 1 : from.atStartOfDay().toEpochSecond(ZoneOffset.UTC));
+        }
+        int end = to == null ? sorted.length : firstAtOrAfter(sorted, to.plusDays(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC));
+        List<Entry> matches = new ArrayList<>();
+        for (int i = start; i < end; i++) {
+            if (typeId == null || sorted[i].typeId == typeId) {
+                matches.add(sorted[i]);
+            }
+        }
+        return matches;
+    }
+
+    private Integer typeIdOf(String type) {
+        Integer typeId = typeIds.get(type);
+        for (int i = 0; typeId == null && i < types.size(); i++) {
+            if (types.get(i).equalsIgnoreCase(type)) {
+                typeId = i;
+            }
+        }
+        return typeId;
+    }
+
+    private static int firstAtOrAfter(Entry[] sorted, long dateKey) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle].dateKey < dateKey) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private Entry[] byDate() {
+        if (byDate == null) {
+            byDate = live.values().toArray(new Entry[0]);
+            Arrays.sort(byDate, Comparator.comparingLong((Entry entry) -> entry.dateKey).thenComparingLong(entry -> entry.offset));
+        }
+        return byDate;
+    }
+
+    private Map<Integer, List<Entry>> byType() {
+        if (byType == null) {
+            byType = new HashMap<>();
+            for (Entry entry : byDate()) {
+                byType.computeIfAbsent(entry.typeId, id -> new ArrayList<>()).add(entry);
+            }
+        }
+        return byType;
+    }
+
+    private Map<Long, String> destinationAt() {
+        if (destinationAt == null) {
+            destinationAt = new HashMap<>();
+            for (Map.Entry<String, Entry> entry : live.entrySet()) {
+                destinationAt.put(entry.getValue().offset, entry.getKey());
+            }
+        }
+        return destinationAt;
+    }
+
+    private void index(String destination, long offset, long dateKey, String type) {
+        Integer typeId = typeIds.get(type);
+        if (typeId == null) {
+            typeId = types.size();
+            types.add(type);
+            typeIds.put(type, typeId);
+        }
+        live.put(destination, new Entry(offset, dateKey, typeId));
+        byDate = null;
+        byType = null;
+        destinationAt = null;
+    }
+
+    private static long dateKey(LocalDateTime date) {
+        // Dates are local to the files, they are compared as they are written
+        return date == null ? NO_DATE : date.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * Loads the saved indexes.
+     *
+     * @return the log length they cover.
+     */
+    private long readIndex() throws IOException {
+        Path index = directory.resolve(INDEX_FILE);
+        if (!Files.isRegularFile(index)) {
+            return LOG_HEADER_SIZE;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(index), 64 * 1024))) {
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != FORMAT_VERSION) {
+                return LOG_HEADER_SIZE;
+            }
+            long covered = in.readLong();
+            if (covered > log.size()) {
+                return LOG_HEADER_SIZE; // The log was replaced or cut, read it all again
+            }
+            int typeCount = in.readInt();
+            List<String> names = new ArrayList<>(typeCount);
+            for (int i = 0; i < typeCount; i++) {
+                names.add(in.readUTF());
+            }
+            int entryCount = in.readInt();
+            for (int i = 0; i < entryCount; i++) {
+                String destination = in.readUTF();
+                long offset = in.readLong();
+                long dateKey = in.readLong();
+                index(destination, offset, dateKey, names.get(in.readInt()));
+            }
+            return covered;
+        } catch (IOException | RuntimeException e) {
+            // A damaged index is rebuilt from the log
+            live.clear();
+            types.clear();
+            typeIds.clear();
+            return LOG_HEADER_SIZE;
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        Path index = directory.resolve(INDEX_FILE);
+        Path temp = FileCopier.tempFileFor(index);
+        try {
+            try (DataOutputStream indexOut = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temp, StandardOpenOption.CREATE_NEW), 64 * 1024))) {
+                indexOut.writeInt(INDEX_MAGIC);
+                indexOut.writeInt(FORMAT_VERSION);
+                indexOut.writeLong(logLength);
+                indexOut.writeInt(types.size());
+                for (String type : types) {
+                    indexOut.writeUTF(type);
+                }
+                Entry[] sorted = byDate();
+                indexOut.writeInt(sorted.length);
+                Map<Long, String> destinations = destinationAt();
+                for (Entry entry : sorted) {
+                    indexOut.writeUTF(destinations.get(entry.offset));
+                    indexOut.writeLong(entry.offset);
+                    indexOut.writeLong(entry.dateKey);
+                    indexOut.writeInt(entry.typeId);
+                }
+            }
+            FileCopier.moveIntoPlace(temp, index);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Indexes the records of the log from {@code position} on.
+     *
+     * @return the end of the last complete record.
+     */
+    private long replay(long position) throws IOException {
+        long size = log.size();
+        ByteBuffer frame = ByteBuffer.allocate(4);
+        while (position + 8 <= size) {
+            frame.clear();
+            log.read(frame, position);
+            int length = frame.getInt(0);
+            if (length <= 0 || length > MAX_RECORD_SIZE || position + 8 + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length + 4);
+            readFully(payload, position + 4);
+            CRC32 crc = new CRC32();
+            crc.update(payload.array(), 0, length);
+            if (payload.getInt(length) != (int) crc.getValue()) {
+                break;
+            }
+            CatalogRecord record = decode(payload.array(), length);
+            index(record.getDestination(), position, dateKey(record.getDate()), record.getType());
+            position += 8 + length;
+        }
+        return position;
+    }
+
+    private CatalogRecord read(long offset) throws IOException {
+        ByteBuffer frame = ByteBuffer.allocate(4);
+        readFully(frame, offset);
+        int length = frame.getInt(0);
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(payload, offset + 4);
+        return decode(payload.array(), length);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (log.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Truncated catalog record at " + position);
+            }
+        }
+    }
+
+    private static byte[] encode(CatalogRecord record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream data = new DataOutputStream(bytes)) {
+            data.writeLong(record.getRecordedAt());
+            data.writeUTF(record.getOrigin());
+            data.writeUTF(record.getDestination());
+            data.writeLong(dateKey(record.getDate()));
+            data.writeInt(record.getDate() == null ? 0 : record.getDate().getNano());
+            data.writeUTF(record.getDateSource() == null ? "" : record.getDateSource());
+            data.writeUTF(record.getType());
+            data.writeLong(record.getSize());
+            byte[] hash = HexFormat.of().parseHex(record.getHash());
+            data.writeByte(hash.length);
+            data.write(hash);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static CatalogRecord decode(byte[] payload, int length) throws IOException {
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(payload, 0, length));
+        long recordedAt = data.readLong();
+        String origin = data.readUTF();
+        String destination = data.readUTF();
+        long dateKey = data.readLong();
+        int nano = data.readInt();
+        String dateSource = data.readUTF();
+        String type = data.readUTF();
+        long size = data.readLong();
+        byte[] hash = new byte[data.readUnsignedByte()];
+        data.readFully(hash);
+        LocalDateTime date = dateKey == NO_DATE ? null : LocalDateTime.ofEpochSecond(dateKey, nano, ZoneOffset.UTC);
+        return new CatalogRecord(recordedAt, origin, destination, date, dateSource.isEmpty() ? null : dateSource,
+                type, size, HexFormat.of().formatHex(hash));
+    }
+}
@@ -0,0 +1,78 @@
+package Controller.Catalog;
+
+import java.time.LocalDateTime;
+
+/**
+ * The CatalogRecord class describes one file written by a copy job, as stored
+ * in the {@link Catalog} of the destination.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class CatalogRecord {
+
+    private final long recordedAt;
+    private final String origin;
+    private final String destination;
+    private final LocalDateTime date;
+    private final String dateSource;
+    private final String type;
+    private final long size;
+    private final String hash;
+
+    /**
+     * Constructs a CatalogRecord.
+     *
+     * @param recordedAt when the file was written, in epoch milliseconds.
+     * @param origin the origin of the file.
+     * @param destination where the file was written, or
+     * {@code archive!/member} for packed files.
+     * @param date the resolved date, may be {@code null}.
+     * @param dateSource the tag or attribute the date came from, may be
+     * {@code null}.
+     * @param type the file type, as given by {@link Model.FileClassifier}.
+     * @param size the size in bytes.
+     * @param hash the SHA-256 of the content, in hexadecimal.
+     */
+    public CatalogRecord(long recordedAt, String origin, String destination, LocalDateTime date, String dateSource, String type, long size, String hash) {
+        this.recordedAt = recordedAt;
+        this.origin = origin;
+        this.destination = destination;
+        this.date = date;
+        this.dateSource = dateSource;
+        this.type = type;
+        this.size = size;
+        this.hash = hash;
+    }
+
+    public long getRecordedAt() {
+        return recordedAt;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public LocalDateTime getDate() {
+        return date;
+    }
+
+    public String getDateSource() {
+        return dateSource;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+}
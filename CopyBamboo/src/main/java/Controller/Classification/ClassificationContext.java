@@ -1,6 +1,7 @@
 package Controller.Classification;
 
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.LocalDateTime;
 
 /**
@@ -49,4 +50,26 @@ public class ClassificationContext {
         }
         return strategy.classify(originPath, destinationPath, date, pendients);
     }
+
+    /**
+     * Executes the classification strategy on a file whose content is read
+     * from another path, such as an archive entry.
+     *
+     * @param originPath the path whose name is classified.
+     * @param content the readable path of the content.
+     * @param attrs the attributes of the file, or {@code null} if they were
+     * not read.
+     * @param destinationPath the path where the classified file should be
+     * placed.
+     * @param date the date to be used for the classification process.
+     * @param pendients flag indicating if pending files should be handled.
+     * @return the resulting path after classification.
+     * @throws IllegalStateException if no classification strategy has been set.
+     */
+    public Path classify(Path originPath, Path content, BasicFileAttributes attrs, Path destinationPath, LocalDateTime date, boolean pendients) {
+        if (strategy == null) {
+            throw new IllegalStateException("No se ha establecido una estrategia de clasificación.");
+        }
+        return strategy.classify(originPath, content, attrs, destinationPath, date, pendients);
+    }
 }
@@ -1,6 +1,7 @@
 package Controller.Classification;
 
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.LocalDateTime;
 
 /**
@@ -33,4 +34,25 @@ public interface ClassificationStrategy {
      * new location or name.
      */
     Path classify(Path originPath, Path destinationPath, LocalDateTime date, boolean pendients);
+
+    /**
+     * Classifies a file whose content is read from another path, such as an
+     * archive entry, whose name is a path inside the archive, with the
+     * attributes already read for it. The strategies that only use the name
+     * ignore the content and the attributes.
+     *
+     * @param originPath the path whose name is classified.
+     * @param content the readable path of the content.
+     * @param attrs the attributes of the file, or {@code null} if they were
+     * not read.
+     * @param destinationPath the path where the classified file should be
+     * stored.
+     * @param date the date that may be used to influence the classification.
+     * @param pendients flag indicating if pending files should be handled
+     * during the classification.
+     * @return the path resulting from the classification.
+     */
+    default Path classify(Path originPath, Path content, BasicFileAttributes attrs, Path destinationPath, LocalDateTime date, boolean pendients) {
+        return classify(originPath, destinationPath, date, pendients);
+    }
 }
@@ -0,0 +1,215 @@
+package Controller.Classification.Layout;
+
+import Controller.Classification.Layout.segments.DateSegment;
+import Controller.Classification.Layout.segments.ExtensionSegment;
+import Controller.Classification.Layout.segments.LiteralSegment;
+import Controller.Classification.Layout.segments.MetadataSegment;
+import Controller.Classification.Layout.segments.SizeSegment;
+import Controller.Classification.Layout.segments.TypeSegment;
+import Controller.Classification.Sniffing.ContentSniffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Layout class is a folder layout that combines several classifications,
+ * written as folder levels separated by {@code /}:
+ * <ul>
+ * <li>{@code type}: the type of the file, as FILE_TYPE names it.</li>
+ * <li>{@code ext}: the extension of the file.</li>
+ * <li>{@code date:<pattern>}: the date of the file, such as {@code date:yyyy}
+ * or {@code date:yyyy-MM}.</li>
+ * <li>{@code size:<limits>}: the size band of the file, such as
+ * {@code size:1M,100M}.</li>
+ * <li>{@code meta:<field>}: a metadata field, {@code meta:camera},
+ * {@code meta:make} or any field name read by Tika.</li>
+ * <li>Any other word is a folder with that name.</li>
+ * </ul>
+ * Several rules separated by {@code ;} give each type its own layout, and the
+ * rule without types applies to the rest:
+ * {@code Images=type/date:yyyy/date:MM; Videos=type/meta:camera/date:yyyy; type}.
+ * <p>
+ * The text is compiled once per job into the segments of every rule, which
+ * produce shared folder names, and a table from type to rule. Classifying a
+ * file picks its rule with one lookup and evaluates each segment once: there
+ * is no parsing or formatting per file, and the type, size and metadata of the
+ * file are only read if some segment of its rule needs them.
+ * </p>
+ * <p>
+ * Files that lack the date a rule needs are handled as in the date
+ * classifications: they go to the pending folder when pending files are kept,
+ * and are not classified otherwise.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class Layout {
+
+    /**
+     * The layout used when none is given.
+     */
+    public static final String DEFAULT = "type/date:yyyy/date:MM";
+
+    private static final Map<String, String> METADATA_ALIASES = Map.of(
+            "camera", "tiff:Model",
+            "make", "tiff:Make");
+
+    private final String text;
+    // Rule of every type that has one of its own
+    private final Map<String, LayoutSegment[]> rulesByType;
+    private final LayoutSegment[] defaultRule;
+    private final String[] metadataNames;
+    private final boolean usesDate;
+
+    private Layout(String text, Map<String, LayoutSegment[]> rulesByType, LayoutSegment[] defaultRule, String[] metadataNames, boolean usesDate) {
+        this.text = text;
+        this.rulesByType = rulesByType;
+        this.defaultRule = defaultRule;
+        this.metadataNames = metadataNames;
+        this.usesDate = usesDate;
+    }
+
+    /**
+     * Compiles a layout.
+     *
+     * @param text the layout, see {@link Layout}.
+     * @return the compiled layout.
+     * @throws IllegalArgumentException if the layout is not valid.
+     */
+    public static Layout compile(String text) {
+        Map<String, LayoutSegment[]> rulesByType = new HashMap<>();
+        LayoutSegment[] defaultRule = null;
+        List<String> metadataNames = new ArrayList<>();
+        boolean usesDate = false;
+        for (String rule : text.split(";")) {
+            rule = rule.trim();
+            if (rule.isEmpty()) {
+                continue;
+            }
+            int equals = rule.indexOf('=');
+            String[] types = equals < 0 ? null : rule.substring(0, equals).split(",");
+            String[] levels = rule.substring(equals + 1).split("/");
+            LayoutSegment[] segments = new LayoutSegment[levels.length];
+            for (int i = 0; i < levels.length; i++) {
+                String level = levels[i].trim();
+                if (level.startsWith("date:")) {
+                    usesDate = true;
+                }
+                segments[i] = compileSegment(level, metadataNames);
+            }
+            if (types == null) {
+                if (defaultRule != null) {
+                    throw new IllegalArgumentException("Only one layout rule can apply to every type: " + rule);
+                }
+                defaultRule = segments;
+                continue;
+            }
+            for (String type : types) {
+                type = type.trim();
+                if (type.isEmpty() || rulesByType.put(type, segments) != null) {
+                    throw new IllegalArgumentException("Invalid or repeated type in layout rule: " + rule);
+                }
+            }
+        }
+        if (defaultRule == null && rulesByType.isEmpty()) {
+            throw new IllegalArgumentException("Empty layout.");
+        }
+        return new Layout(text, rulesByType, defaultRule, metadataNames.toArray(new String[0]), usesDate);
+    }
+
+    private static LayoutSegment compileSegment(String level, List<String> metadataNames) {
+        if (level.isEmpty()) {
+            throw new IllegalArgumentException("Empty folder level in layout.");
+        }
+        if (level.equals("type")) {
+            return new TypeSegment();
+        }
+        if (level.equals("ext")) {
+            return new ExtensionSegment();
+        }
+        int colon = level.indexOf(':');
+        if (colon < 0) {
+            if (level.equals(".") || level.equals("..") || level.contains("\\")) {
+                throw new IllegalArgumentException("Invalid folder name in layout: " + level);
+            }
+            return new LiteralSegment(level);
+        }
+        String argument = level.substring(colon + 1).trim();
+        switch (level.substring(0, colon)) {
+            case "date":
+                return new DateSegment(argument);
+            case "size":
+                return new SizeSegment(argument);
+            case "meta":
+                if (argument.isEmpty()) {
+                    throw new IllegalArgumentException("Missing metadata field in layout: " + level);
+                }
+                String name = METADATA_ALIASES.getOrDefault(argument, argument);
+                int index = metadataNames.indexOf(name);
+                if (index < 0) {
+                    index = metadataNames.size();
+                    metadataNames.add(name);
+                }
+                return new MetadataSegment(index);
+            default:
+                throw new IllegalArgumentException("Unknown folder level in layout: " + level);
+        }
+    }
+
+    /**
+     * Returns whether some rule uses the date of the files, which then has to
+     * be resolved for every file.
+     *
+     * @return {@code true} if the layout has a {@code date:} level.
+     */
+    public boolean usesDate() {
+        return usesDate;
+    }
+
+    /**
+     * Classifies a file.
+     *
+     * @param originPath the path whose name and extension are used.
+     * @param content the readable path of the content, which differs from
+     * {@code originPath} for archive entries.
+     * @param size the size of the file, or -1 to read it when a rule needs
+     * it.
+     * @param destinationPath the base destination directory.
+     * @param date the date of the file, {@code null} if none was found.
+     * @param pendients whether files without the date their rule needs go to
+     * the pending folder.
+     * @param contentSniffer the sniffer of the types not told by the
+     * extension.
+     * @param metadataSource the reader of the metadata fields.
+     * @return the folder of the file, or {@code null} if the file has no rule
+     * or lacks the date of its rule and pending files are not kept.
+     */
+    public Path classify(Path originPath, Path content, long size, Path destinationPath, LocalDateTime date, boolean pendients,
+            ContentSniffer contentSniffer, MetadataSource metadataSource) {
+        LayoutFile file = new LayoutFile(originPath, content, size, date, contentSniffer, metadataSource, metadataNames);
+        LayoutSegment[] rule = rulesByType.isEmpty() ? defaultRule : rulesByType.getOrDefault(file.getType(), defaultRule);
+        if (rule == null) {
+            return null;
+        }
+        String[] folders = new String[rule.length];
+        for (int i = 0; i < rule.length; i++) {
+            folders[i] = rule[i].evaluate(file);
+            if (folders[i] == null) {
+                // Same as the date classifications for a file without date
+                return pendients
+                        ? Paths.get(destinationPath.toString(), "0_Pending", originPath.getParent().getFileName().toString())
+                        : null;
+            }
+        }
+        return Paths.get(destinationPath.toString(), folders);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -0,0 +1,102 @@
+package Controller.Classification.Layout;
+
+import Controller.Classification.Sniffing.ContentSniffer;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+/**
+ * The LayoutFile class holds what the segments of a {@link Layout} know about
+ * the file being classified. The values that cost a read (its type when the
+ * extension doesn't tell it, its size, its metadata) are only looked up when
+ * a segment asks for them, and only once however many segments use them.
+ * <p>
+ * The file is named by its path, which for an archive entry is its path inside
+ * the archive, while its content is read from another path, the entry itself
+ * or a temporary copy of it.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class LayoutFile {
+
+    private final Path path;
+    private final Path content;
+    private final LocalDateTime date;
+    private final ContentSniffer contentSniffer;
+    private final MetadataSource metadataSource;
+    private final String[] metadataNames;
+    private String type;
+    private long size;
+    private String[] metadata;
+
+    LayoutFile(Path path, Path content, long size, LocalDateTime date, ContentSniffer contentSniffer, MetadataSource metadataSource, String[] metadataNames) {
+        this.path = path;
+        this.content = content;
+        this.size = size;
+        this.date = date;
+        this.contentSniffer = contentSniffer;
+        this.metadataSource = metadataSource;
+        this.metadataNames = metadataNames;
+    }
+
+    /**
+     * Returns the path the file is named by.
+     *
+     * @return the path, inside its archive for an archive entry.
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the date the job resolved for the file.
+     *
+     * @return the date, or {@code null} if none was found.
+     */
+    public LocalDateTime getDate() {
+        return date;
+    }
+
+    /**
+     * Returns the type of the file, by extension or by content.
+     *
+     * @return the type, as named by {@link Model.FileClassifier}.
+     */
+    public String getType() {
+        if (type == null) {
+            type = contentSniffer.typeOf(path, content);
+        }
+        return type;
+    }
+
+    /**
+     * Returns the size of the file, as scanned by the job when it was given.
+     *
+     * @return the size in bytes, 0 if it can't be read.
+     */
+    public long getSize() {
+        if (size < 0) {
+            try {
+                size = Files.size(content);
+            } catch (IOException e) {
+                size = 0;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns a metadata field used by the layout.
+     *
+     * @param index the index of the field among the fields of the layout.
+     * @return the value, or {@code null} if the file doesn't have it.
+     */
+    public String getMetadata(int index) {
+        if (metadata == null) {
+            metadata = metadataSource.read(content, metadataNames);
+        }
+        return metadata[index];
+    }
+}
@@ -0,0 +1,22 @@
+package Controller.Classification.Layout;
+
+/**
+ * The LayoutSegment interface is one folder level of a {@link Layout}, such
+ * as the type of the file or the year of its date. Segments are built once
+ * when the layout is compiled and evaluated for every file.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public interface LayoutSegment {
+
+    /**
+     * Returns the folder name of this level for a file. Implementations return
+     * shared strings built when the layout is compiled or cached across files
+     * wherever possible, so evaluating a file builds no new names.
+     *
+     * @param file the file being classified.
+     * @return the folder name, or {@code null} if the file lacks what the
+     * segment needs, such as a date.
+     */
+    String evaluate(LayoutFile file);
+}
@@ -0,0 +1,23 @@
+package Controller.Classification.Layout;
+
+import java.nio.file.Path;
+
+/**
+ * The MetadataSource interface reads the metadata fields used by the
+ * {@code meta:} segments of a {@link Layout}.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+@FunctionalInterface
+public interface MetadataSource {
+
+    /**
+     * Reads several metadata fields of a file at once.
+     *
+     * @param file the file.
+     * @param names the names of the fields.
+     * @return the value of every field, {@code null} for the fields the file
+     * doesn't have.
+     */
+    String[] read(Path file, String[] names);
+}
@@ -0,0 +1,105 @@
+package Controller.Classification.Layout.segments;
+
+import Controller.Classification.Layout.LayoutFile;
+import Controller.Classification.Layout.LayoutSegment;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The DateSegment class is a folder named after the date of the file with a
+ * {@link DateTimeFormatter} pattern, such as {@code yyyy}, {@code MM} or
+ * {@code yyyy-MM-dd}. Files without a date can't be given this level.
+ * <p>
+ * The year, month and day alone are looked up in tables of names built once.
+ * Other patterns are formatted once per day and the name reused for every
+ * other file of that day, so a job formats as many dates as days it has.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class DateSegment implements LayoutSegment {
+
+    private static final int YEAR = 0, MONTH = 1, DAY = 2, PATTERN = 3;
+    // Years with a name in the table, the others are formatted once per day
+    private static final int MIN_TABLE_YEAR = 1900, MAX_TABLE_YEAR = 2100;
+
+    private final int field;
+    private final DateTimeFormatter formatter;
+    private final String[] table;
+    // Names of the days seen by a pattern that is not a single field
+    private final Map<Long, String> byDay = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a DateSegment.
+     *
+     * @param pattern the pattern of the folder name.
+     * @throws IllegalArgumentException if the pattern is not valid, uses the
+     * time of day or gives names with separators.
+     */
+    public DateSegment(String pattern) {
+        try {
+            this.formatter = DateTimeFormatter.ofPattern(pattern);
+            String sample = formatter.format(LocalDate.of(2000, 12, 31));
+            if (sample.isEmpty() || sample.contains("/") || sample.contains("\\")) {
+                throw new IllegalArgumentException("The date pattern must give a folder name: " + pattern);
+            }
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Only the date can be used in a date pattern: " + pattern);
+        }
+        switch (pattern) {
+            case "yyyy", "uuuu" -> {
+                field = YEAR;
+                table = new String[MAX_TABLE_YEAR - MIN_TABLE_YEAR + 1];
+                for (int year = MIN_TABLE_YEAR; year <= MAX_TABLE_YEAR; year++) {
+                    table[year - MIN_TABLE_YEAR] = formatter.format(LocalDate.of(year, 1, 1));
+                }
+            }
+            case "MM", "M" -> {
+                field = MONTH;
+                table = new String[13];
+                for (int month = 1; month <= 12; month++) {
+                    table[month] = formatter.format(LocalDate.of(2000, month, 1));
+                }
+            }
+            case "dd", "d" -> {
+                field = DAY;
+                table = new String[32];
+                for (int day = 1; day <= 31; day++) {
+                    table[day] = formatter.format(LocalDate.of(2000, 1, day));
+                }
+            }
+            default -> {
+                field = PATTERN;
+                table = null;
+            }
+        }
+    }
+
+    @Override
+    public String evaluate(LayoutFile file) {
+        LocalDateTime date = file.getDate();
+        if (date == null) {
+            return null;
+        }
+        switch (field) {
+            case YEAR:
+                int year = date.getYear();
+                if (year >= MIN_TABLE_YEAR && year <= MAX_TABLE_YEAR) {
+                    return table[year - MIN_TABLE_YEAR];
+                }
+                break;
+            case MONTH:
+                return table[date.getMonthValue()];
+            case DAY:
+                return table[date.getDayOfMonth()];
+            default:
+                break;
+        }
+        LocalDate day = date.toLocalDate();
+        return byDay.computeIfAbsent(day.toEpochDay(), d -> formatter.format(day));
+    }
+}
@@ -0,0 +1,27 @@
+package Controller.Classification.Layout.segments;
+
+import Controller.Classification.Layout.LayoutFile;
+import Controller.Classification.Layout.LayoutSegment;
+import Model.FileClassifier;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The ExtensionSegment class is a folder named after the extension of the
+ * file in lower case, such as {@code jpg}. Files without an extension are not
+ * given this level.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class ExtensionSegment implements LayoutSegment {
+
+    // Lower-case name of every extension seen, a job has only a few of them
+    private final Map<String, String> names = new ConcurrentHashMap<>();
+
+    @Override
+    public String evaluate(LayoutFile file) {
+        String extension = FileClassifier.getFileExtension(file.getPath());
+        return names.computeIfAbsent(extension, e -> e.toLowerCase(Locale.ROOT));
+    }
+}
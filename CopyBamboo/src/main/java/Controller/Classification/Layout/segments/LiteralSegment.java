@@ -0,0 +1,24 @@
+package Controller.Classification.Layout.segments;
+
+import Controller.Classification.Layout.LayoutFile;
+import Controller.Classification.Layout.LayoutSegment;
+
+/**
+ * The LiteralSegment class is a folder with a fixed name, such as
+ * {@code Camera} in {@code Camera/date:yyyy}.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class LiteralSegment implements LayoutSegment {
+
+    private final String name;
+
+    public LiteralSegment(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String evaluate(LayoutFile file) {
+        return name;
+    }
+}
@@ -0,0 +1,59 @@
+package Controller.Classification.Layout.segments;
+
+import Controller.Classification.Layout.LayoutFile;
+import Controller.Classification.Layout.LayoutSegment;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The MetadataSegment class is a folder named after a metadata field of the
+ * file, such as the camera model. Files without the field go to an
+ * {@value #UNKNOWN} folder.
+ * <p>
+ * The values are cleaned of the characters not allowed in folder names, and
+ * the clean name of every value is kept, so the files of the same camera
+ * share one name.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class MetadataSegment implements LayoutSegment {
+
+    /**
+     * The folder of the files without the field.
+     */
+    public static final String UNKNOWN = "Unknown";
+
+    private final int index;
+    private final Map<String, String> names = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a MetadataSegment.
+     *
+     * @param index the index of the field among the metadata fields of the
+     * layout.
+     */
+    public MetadataSegment(int index) {
+        this.index = index;
+    }
+
+    @Override
+    public String evaluate(LayoutFile file) {
+        String value = file.getMetadata(index);
+        if (value == null) {
+            return UNKNOWN;
+        }
+        return names.computeIfAbsent(value, MetadataSegment::folderName);
+    }
+
+    private static String folderName(String value) {
+        StringBuilder name = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            name.append(c < 32 || "/\\:*?\"<>|".indexOf(c) >= 0 ? '_' : c);
+        }
+        String folder = name.toString().trim();
+        // "." and ".." would not be folders of their own
+        return folder.isEmpty() || folder.chars().allMatch(c -> c == '.') ? UNKNOWN : folder;
+    }
+}
@@ -0,0 +1,84 @@
+package Controller.Classification.Layout.segments;
+
+import Controller.Classification.Layout.LayoutFile;
+import Controller.Classification.Layout.LayoutSegment;
+import java.util.Locale;
+
+/**
+ * The SizeSegment class is a folder named after the size band of the file.
+ * The bands are given by their limits, {@code size:1M,100M} gives the folders
+ * {@code 0-1M}, {@code 1M-100M} and {@code 100M+}.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class SizeSegment implements LayoutSegment {
+
+    private final long[] limits;
+    private final String[] names;
+
+    /**
+     * Constructs a SizeSegment.
+     *
+     * @param limits the limits of the bands, in the form of the layout, such
+     * as {@code 1M,100M}.
+     * @throws IllegalArgumentException if a limit is not valid or the limits
+     * are not increasing.
+     */
+    public SizeSegment(String limits) {
+        String[] parts = limits.split(",");
+        this.limits = new long[parts.length];
+        String[] labels = new String[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            labels[i] = parts[i].trim().toUpperCase(Locale.ROOT);
+            this.limits[i] = parseSize(labels[i]);
+            if (i > 0 && this.limits[i] <= this.limits[i - 1]) {
+                throw new IllegalArgumentException("Size bands must be increasing: " + limits);
+            }
+        }
+        this.names = new String[parts.length + 1];
+        names[0] = "0-" + labels[0];
+        for (int i = 1; i < parts.length; i++) {
+            names[i] = labels[i - 1] + "-" + labels[i];
+        }
+        names[parts.length] = labels[parts.length - 1] + "+";
+    }
+
+    @Override
+    public String evaluate(LayoutFile file) {
+        long size = file.getSize();
+        int band = 0;
+        while (band < limits.length && size >= limits[band]) {
+            band++;
+        }
+        return names[band];
+    }
+
+    private static long parseSize(String size) {
+        long multiplier = 1;
+        String digits = size;
+        if (!size.isEmpty()) {
+            switch (size.charAt(size.length() - 1)) {
+                case 'K' ->
+                    multiplier = 1024L;
+                case 'M' ->
+                    multiplier = 1024L * 1024;
+                case 'G' ->
+                    multiplier = 1024L * 1024 * 1024;
+                default ->
+                    multiplier = 1;
+            }
+            if (multiplier > 1) {
+                digits = size.substring(0, size.length() - 1);
+            }
+        }
+        try {
+            long value = Long.parseLong(digits);
+            if (value <= 0) {
+                throw new IllegalArgumentException("Invalid size band limit: " + size);
+            }
+            return Math.multiplyExact(value, multiplier);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid size band limit: " + size);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package Controller.Classification.Layout.segments;
+
+import Controller.Classification.Layout.LayoutFile;
+import Controller.Classification.Layout.LayoutSegment;
+
+/**
+ * The TypeSegment class is a folder named after the type of the file, such as
+ * {@code Images}, as the FILE_TYPE classification names it.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class TypeSegment implements LayoutSegment {
+
+    @Override
+    public String evaluate(LayoutFile file) {
+        return file.getType();
+    }
+}
@@ -0,0 +1,230 @@
+package Controller.Classification.Sniffing;
+
+import Controller.Throttle.Throttle;
+import Controller.Throttle.ThrottledInputStream;
+import Model.FileClassifier;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.tika.Tika;
+
+/**
+ * The ContentSniffer class finds the type of a file from its content, for the
+ * files whose extension doesn't tell it, such as photos copied without their
+ * suffix or exports saved as {@code .dat}.
+ * <p>
+ * Only the first {@value #HEADER_SIZE} bytes of the file are read. They are
+ * matched against the magic bytes of the usual formats in a
+ * {@link SignatureTrie} built once for the whole application; only the
+ * headers no signature matches are handed to the type detection of Tika, and
+ * never the whole file.
+ * </p>
+ * <p>
+ * Results are cached by the identity of the file (its device and inode when
+ * the file system has them, its path otherwise) while its size and
+ * modification time don't change, so a file is sniffed once per run however
+ * many destinations or jobs classify it.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class ContentSniffer {
+
+    // Enough for every signature, including the tar header at byte 257
+    private static final int HEADER_SIZE = 4 * 1024;
+
+    private static final SignatureTrie SIGNATURES = new SignatureTrie();
+
+    static {
+        // Images
+        SIGNATURES.add(new int[]{0xFF, 0xD8, 0xFF}, "Images");
+        SIGNATURES.add(new int[]{0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A}, "Images");
+        SIGNATURES.addText(0, "GIF87a", "Images");
+        SIGNATURES.addText(0, "GIF89a", "Images");
+        SIGNATURES.add(new int[]{'B', 'M', SignatureTrie.ANY, SignatureTrie.ANY, SignatureTrie.ANY, SignatureTrie.ANY, 0, 0, 0, 0}, "Images");
+        SIGNATURES.add(new int[]{'I', 'I', 0x2A, 0x00}, "Images");
+        SIGNATURES.add(new int[]{'M', 'M', 0x00, 0x2A}, "Images");
+        SIGNATURES.addText(0, "RIFF????WEBP", "Images");
+        SIGNATURES.addText(4, "ftypheic", "Images");
+        SIGNATURES.addText(4, "ftypheix", "Images");
+        SIGNATURES.addText(4, "ftypmif1", "Images");
+        SIGNATURES.addText(4, "ftypavif", "Images");
+        SIGNATURES.addText(4, "ftypcrx ", "Images");
+
+        // Videos, any other ISO media file is a video
+        SIGNATURES.addText(4, "ftyp", "Videos");
+        SIGNATURES.addText(0, "RIFF????AVI ", "Videos");
+        SIGNATURES.add(new int[]{0x1A, 0x45, 0xDF, 0xA3}, "Videos");
+        SIGNATURES.addText(0, "FLV", "Videos");
+        SIGNATURES.add(new int[]{0x00, 0x00, 0x01, 0xBA}, "Videos");
+        SIGNATURES.add(new int[]{0x00, 0x00, 0x01, 0xB3}, "Videos");
+        SIGNATURES.add(new int[]{0x30, 0x26, 0xB2, 0x75, 0x8E, 0x66, 0xCF, 0x11}, "Videos");
+
+        // Music
+        SIGNATURES.addText(4, "ftypM4A ", "Music");
+        SIGNATURES.addText(0, "RIFF????WAVE", "Music");
+        SIGNATURES.addText(0, "FORM????AIFF", "Music");
+        SIGNATURES.addText(0, "ID3", "Music");
+        SIGNATURES.addText(0, "fLaC", "Music");
+        SIGNATURES.addText(0, "OggS", "Music");
+
+        // Documents
+        SIGNATURES.addText(0, "%PDF-", "Documents");
+        SIGNATURES.add(new int[]{0xD0, 0xCF, 0x11, 0xE0, 0xA1, 0xB1, 0x1A, 0xE1}, "Documents");
+        SIGNATURES.addText(0, "{\\rtf", "Documents");
+
+        // Compressed
+        SIGNATURES.add(new int[]{'P', 'K', 0x03, 0x04}, "Compressed");
+        SIGNATURES.add(new int[]{'R', 'a', 'r', '!', 0x1A, 0x07}, "Compressed");
+        SIGNATURES.add(new int[]{'7', 'z', 0xBC, 0xAF, 0x27, 0x1C}, "Compressed");
+        SIGNATURES.add(new int[]{0x1F, 0x8B}, "Compressed");
+        SIGNATURES.addText(0, "BZh", "Compressed");
+        SIGNATURES.add(new int[]{0xFD, '7', 'z', 'X', 'Z', 0x00}, "Compressed");
+        SIGNATURES.addText(257, "ustar", "Compressed");
+
+        // Executables
+        SIGNATURES.addText(0, "MZ", "Executables");
+        SIGNATURES.add(new int[]{0x7F, 'E', 'L', 'F'}, "Executables");
+        SIGNATURES.add(new int[]{0xCF, 0xFA, 0xED, 0xFE}, "Executables");
+        SIGNATURES.add(new int[]{0xCE, 0xFA, 0xED, 0xFE}, "Executables");
+
+        // Design
+        SIGNATURES.addText(0, "%!PS-Adobe", "Design");
+        SIGNATURES.addText(0, "AC10", "Design");
+    }
+
+    /**
+     * Keeps Tika out of the classes loaded by the jobs whose files all match a
+     * signature.
+     */
+    private static final class TikaHolder {
+
+        private static final Tika TIKA = new Tika();
+    }
+
+    private static final class Entry {
+
+        private final long size;
+        private final long modified;
+        private final String type;
+
+        Entry(long size, long modified, String type) {
+            this.size = size;
+            this.modified = modified;
+            this.type = type;
+        }
+    }
+
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+    private Throttle throttle = new Throttle();
+
+    /**
+     * Sets the throttle charged for the headers read.
+     *
+     * @param throttle the throttle to charge.
+     */
+    public void setThrottle(Throttle throttle) {
+        this.throttle = throttle;
+    }
+
+    /**
+     * Returns the type of a file, the extension first and the content when
+     * the extension is missing or unknown.
+     *
+     * @param file the file.
+     * @return the type, as named by {@link FileClassifier}.
+     */
+    public String typeOf(Path file) {
+        return typeOf(file, file);
+    }
+
+    /**
+     * Returns the type of a file whose content is read from another path,
+     * such as a temporary copy.
+     *
+     * @param name the path whose extension is used.
+     * @param content the path of the content sniffed when the extension is
+     * missing or unknown.
+     * @return the type, as named by {@link FileClassifier}.
+     */
+    public String typeOf(Path name, Path content) {
+        String type = FileClassifier.getFileType(name);
+        return FileClassifier.OTHERS.equals(type) ? sniff(content) : type;
+    }
+
+    /**
+     * Finds the type of a file from its first bytes.
+     *
+     * @param file the file.
+     * @return the type, or {@link FileClassifier#OTHERS} if the content is not
+     * recognized or the file cannot be read.
+     */
+    public String sniff(Path file) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            if (!attrs.isRegularFile()) {
+                return FileClassifier.OTHERS;
+            }
+            String identity = attrs.fileKey() != null ? attrs.fileKey().toString() : file.toUri().toString();
+            long modified = attrs.lastModifiedTime().toMillis();
+            Entry cached = cache.get(identity);
+            if (cached != null && cached.size == attrs.size() && cached.modified == modified) {
+                return cached.type;
+            }
+            String type = sniffHeader(readHeader(file));
+            cache.put(identity, new Entry(attrs.size(), modified, type));
+            return type;
+        } catch (IOException e) {
+            // Gone or unreadable, the copy reports the error
+            return FileClassifier.OTHERS;
+        }
+    }
+
+    private byte[] readHeader(Path file) throws IOException {
+        throttle.acquireOperations(1);
+        try (InputStream in = new ThrottledInputStream(Files.newInputStream(file), throttle)) {
+            return in.readNBytes(HEADER_SIZE);
+        }
+    }
+
+    private static String sniffHeader(byte[] header) {
+        if (header.length == 0) {
+            return FileClassifier.OTHERS;
+        }
+        String type = SIGNATURES.match(header, header.length);
+        return type != null ? type : typeOfMediaType(TikaHolder.TIKA.detect(header));
+    }
+
+    /**
+     * Maps a media type detected by Tika to the type of {@link FileClassifier}
+     * with the same files.
+     */
+    private static String typeOfMediaType(String mediaType) {
+        if (mediaType == null) {
+            return FileClassifier.OTHERS;
+        }
+        if (mediaType.startsWith("image/")) {
+            return "Images";
+        }
+        if (mediaType.startsWith("video/")) {
+            return "Videos";
+        }
+        if (mediaType.startsWith("audio/")) {
+            return "Music";
+        }
+        if (mediaType.startsWith("text/html") || mediaType.startsWith("text/css")
+                || mediaType.startsWith("application/xml") || mediaType.startsWith("text/x-")) {
+            return "Code";
+        }
+        if (mediaType.startsWith("text/") || mediaType.startsWith("application/pdf")
+                || mediaType.startsWith("application/msword") || mediaType.startsWith("application/rtf")
+                || mediaType.startsWith("application/vnd.openxmlformats") || mediaType.startsWith("application/vnd.oasis")) {
+            return "Documents";
+        }
+        return FileClassifier.OTHERS;
+    }
+}
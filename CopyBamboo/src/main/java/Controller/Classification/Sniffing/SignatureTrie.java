@@ -0,0 +1,158 @@
+package Controller.Classification.Sniffing;
+
+import java.util.Arrays;
+
+/**
+ * The SignatureTrie class matches the first bytes of a file against a set of
+ * magic byte signatures. Signatures are stored byte by byte in a trie, so the
+ * signatures that share a prefix (every {@code RIFF} container, every ISO media
+ * {@code ftyp} box) are compared once, and a header is matched against all of
+ * them in a single walk.
+ * <p>
+ * A signature may contain wildcard positions, which match any byte, so fields
+ * such as a size before a tag or a signature at an offset are expressed with
+ * wildcards. When several signatures match, the longest one wins: a
+ * {@code ftyp} box with a known image brand is an image even though any other
+ * {@code ftyp} box is a video.
+ * </p>
+ * <p>
+ * Children are kept in small parallel arrays, as most nodes have a single
+ * child. The trie is filled once and only read afterwards, so it can be shared
+ * by every worker once built.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class SignatureTrie {
+
+    /**
+     * The value of a signature position that matches any byte.
+     */
+    public static final int ANY = -1;
+
+    private static final class Node {
+
+        private byte[] labels;
+        private Node[] children;
+        private int childCount;
+        private Node any;
+        private String type;
+        private final int depth;
+
+        Node(int depth) {
+            this.depth = depth;
+        }
+
+        Node child(byte label) {
+            for (int i = 0; i < childCount; i++) {
+                if (labels[i] == label) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node addChild(byte label) {
+            Node child = child(label);
+            if (child != null) {
+                return child;
+            }
+            if (children == null) {
+                labels = new byte[2];
+                children = new Node[2];
+            } else if (childCount == children.length) {
+                labels = Arrays.copyOf(labels, childCount * 2);
+                children = Arrays.copyOf(children, childCount * 2);
+            }
+            child = new Node(depth + 1);
+            labels[childCount] = label;
+            children[childCount++] = child;
+            return child;
+        }
+    }
+
+    private final Node root = new Node(0);
+    private int maxLength;
+
+    /**
+     * Adds a signature.
+     *
+     * @param signature the bytes from the start of the file, each one from 0
+     * to 255 or {@link #ANY}.
+     * @param type the type of the files that start with the signature.
+     */
+    public void add(int[] signature, String type) {
+        if (signature.length == 0) {
+            throw new IllegalArgumentException("A signature must have at least one byte.");
+        }
+        Node node = root;
+        for (int value : signature) {
+            if (value == ANY) {
+                if (node.any == null) {
+                    node.any = new Node(node.depth + 1);
+                }
+                node = node.any;
+            } else {
+                node = node.addChild((byte) value);
+            }
+        }
+        node.type = type;
+        maxLength = Math.max(maxLength, signature.length);
+    }
+
+    /**
+     * Adds a signature made of text, with {@code ?} matching any byte.
+     *
+     * @param offset the number of bytes of any value before the text.
+     * @param text the ASCII text of the signature.
+     * @param type the type of the files with the signature.
+     */
+    public void addText(int offset, String text, String type) {
+        int[] signature = new int[offset + text.length()];
+        Arrays.fill(signature, 0, offset, ANY);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            signature[offset + i] = c == '?' ? ANY : c & 0xff;
+        }
+        add(signature, type);
+    }
+
+    /**
+     * Returns the number of bytes a header needs to be compared with every
+     * signature.
+     *
+     * @return the length of the longest signature.
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Finds the longest signature the header starts with.
+     *
+     * @param header the first bytes of the file.
+     * @param length the number of valid bytes of {@code header}.
+     * @return the type of the signature, or {@code null} if none matches.
+     */
+    public String match(byte[] header, int length) {
+        Node node = deepestMatch(root, header, length, 0);
+        return node == null ? null : node.type;
+    }
+
+    /**
+     * Finds the deepest node with a type under {@code node}, following both
+     * the byte of the header and the wildcard at every depth.
+     */
+    private static Node deepestMatch(Node node, byte[] header, int length, int depth) {
+        Node best = node.type != null ? node : null;
+        if (depth == length) {
+            return best;
+        }
+        Node child = node.child(header[depth]);
+        Node exact = child == null ? null : deepestMatch(child, header, length, depth + 1);
+        Node any = node.any == null ? null : deepestMatch(node.any, header, length, depth + 1);
+        // A longer signature is found deeper; on a tie the exact byte wins over the wildcard
+        Node deeper = exact == null ? any : any == null ? exact : any.depth > exact.depth ? any : exact;
+        return deeper != null ? deeper : best;
+    }
+}
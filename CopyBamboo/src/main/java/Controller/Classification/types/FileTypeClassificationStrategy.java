@@ -1,9 +1,10 @@
 package Controller.Classification.types;
 
 import Controller.Classification.ClassificationStrategy;
-import Model.FileClassifier;
+import Controller.Classification.Sniffing.ContentSniffer;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.LocalDateTime;
 
 /**
@@ -16,13 +17,29 @@ import java.time.LocalDateTime;
  * "image", "document") under the specified destination path and moves the file
  * into that folder.
  * <p>
+ * Files with no extension or an unknown one are classified by their content
+ * through a {@link ContentSniffer}, so they don't all end up in "Others".
+ * <p>
  * <b>Author:</b> ThePandogs</p>
  */
 public class FileTypeClassificationStrategy implements ClassificationStrategy {
 
+    private final ContentSniffer contentSniffer;
+
+    /**
+     * Constructs a FileTypeClassificationStrategy.
+     *
+     * @param contentSniffer the sniffer of the files the extension doesn't
+     * classify.
+     */
+    public FileTypeClassificationStrategy(ContentSniffer contentSniffer) {
+        this.contentSniffer = contentSniffer;
+    }
+
     /**
      * Classifies the given file or directory by its file type, which is
-     * determined by the file's extension. The file will be placed into a folder
+     * determined by the file's extension, or by its content when the extension is
+     * missing or unknown. The file will be placed into a folder
      * named after its file type (e.g., "image", "document").
      *
      * @param originPath the path of the file or directory to be classified.
@@ -35,10 +52,26 @@ public class FileTypeClassificationStrategy implements ClassificationStrategy {
      */
     @Override
     public Path classify(Path originPath, Path destinationPath, LocalDateTime date, boolean pendients) {
-        // Get the file extension using the FileClassifier utility
-        String extension = FileClassifier.getFileExtension(originPath);
-        // Determine the file type based on the extension
-        String fileType = FileClassifier.getFileTypeByExtension(extension);
+        return classify(originPath, originPath, null, destinationPath, date, pendients);
+    }
+
+    /**
+     * Classifies a file by the extension of its name, or by the first bytes
+     * of its content when the extension is missing or unknown.
+     *
+     * @param originPath the path whose extension is used.
+     * @param content the readable path of the content.
+     * @param attrs the attributes are not used in this classification
+     * strategy.
+     * @param destinationPath the base destination path.
+     * @param date the date is not used in this classification strategy.
+     * @param pendients flag is not used in this classification strategy.
+     * @return the destination folder named after the file's type.
+     */
+    @Override
+    public Path classify(Path originPath, Path content, BasicFileAttributes attrs, Path destinationPath, LocalDateTime date, boolean pendients) {
+        // Determine the file type based on the extension, or the first bytes of the content
+        String fileType = contentSniffer.typeOf(originPath, content);
         // Create a new path by combining the destination path with the file type
         return Paths.get(destinationPath.toString(), fileType);
     }
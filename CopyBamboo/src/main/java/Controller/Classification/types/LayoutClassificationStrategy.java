@@ -0,0 +1,77 @@
+package Controller.Classification.types;
+
+import Controller.Classification.ClassificationStrategy;
+import Controller.Classification.Layout.Layout;
+import Controller.Classification.Layout.MetadataSource;
+import Controller.Classification.Sniffing.ContentSniffer;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+
+/**
+ * The LayoutClassificationStrategy class implements the
+ * ClassificationStrategy interface and classifies files with a compiled
+ * {@link Layout}, so a single job can combine the type, the extension, the
+ * date, the size and the metadata of the files, as in
+ * {@code Images/2023/07}.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class LayoutClassificationStrategy implements ClassificationStrategy {
+
+    private final Layout layout;
+    private final ContentSniffer contentSniffer;
+    private final MetadataSource metadataSource;
+
+    /**
+     * Constructs a LayoutClassificationStrategy.
+     *
+     * @param layout the compiled layout.
+     * @param contentSniffer the sniffer of the files the extension doesn't
+     * classify.
+     * @param metadataSource the reader of the metadata fields of the layout.
+     */
+    public LayoutClassificationStrategy(Layout layout, ContentSniffer contentSniffer, MetadataSource metadataSource) {
+        this.layout = layout;
+        this.contentSniffer = contentSniffer;
+        this.metadataSource = metadataSource;
+    }
+
+    /**
+     * Classifies the given file with the layout.
+     *
+     * @param originPath the path of the file or directory to be classified.
+     * @param destinationPath the base destination path where the classified
+     * file or directory will be moved.
+     * @param date the date of the file, used by the date levels of the layout.
+     * @param pendients flag indicating if files without the date their layout
+     * needs should be placed under a "0_Pending" folder.
+     * @return the folder given by the layout, or {@code null} if the file
+     * can't be classified.
+     */
+    @Override
+    public Path classify(Path originPath, Path destinationPath, LocalDateTime date, boolean pendients) {
+        return classify(originPath, originPath, null, destinationPath, date, pendients);
+    }
+
+    /**
+     * Classifies a file with the layout, reading its type, size and metadata
+     * from its content and naming it after {@code originPath}.
+     *
+     * @param originPath the path whose name and extension are used.
+     * @param content the readable path of the content.
+     * @param attrs the attributes of the file, whose size is used, or
+     * {@code null} if they were not read.
+     * @param destinationPath the base destination path.
+     * @param date the date of the file, used by the date levels of the layout.
+     * @param pendients flag indicating if files without the date their layout
+     * needs should be placed under a "0_Pending" folder.
+     * @return the folder given by the layout, or {@code null} if the file
+     * can't be classified.
+     */
+    @Override
+    public Path classify(Path originPath, Path content, BasicFileAttributes attrs, Path destinationPath, LocalDateTime date, boolean pendients) {
+        return layout.classify(originPath, content, attrs == null ? -1 : attrs.size(), destinationPath, date, pendients,
+                contentSniffer, metadataSource);
+    }
+}
@@ -1,16 +1,74 @@
 package Controller;
 
+import Controller.Archive.ArchiveEntryAttributes;
+import Controller.Archive.ArchiveFormat;
+import Controller.Archive.TarReader;
+import Controller.Attributes.AttributeStage;
+import Controller.Catalog.Catalog;
+import Controller.Catalog.CatalogRecord;
+import Controller.Classification.ClassificationContext;
+import Controller.Pack.BucketPacker;
+import Controller.Scheduling.CopyScheduler;
+import Controller.Scheduling.LocalityKey;
+import Controller.Scheduling.SchedulingPolicy;
+import Controller.Scheduling.types.BucketBatchedSchedulingPolicy;
+import Controller.Scheduling.types.LargestFirstSchedulingPolicy;
+import Controller.Scheduling.types.LocalitySchedulingPolicy;
+import Controller.Scheduling.types.SmallestFirstSchedulingPolicy;
+import Controller.Scheduling.types.WalkOrderSchedulingPolicy;
+import Controller.Similarity.BKTree;
+import Controller.Similarity.NearDuplicateIndex;
+import Controller.Similarity.PerceptualHashCache;
+import Controller.Throttle.Throttle;
 import Log.LogHandler;
 import Model.ClassifyTypes;
+import Model.CopyTask;
+import Model.DestinationSpec;
+import Model.DurabilityMode;
+import Model.NearDuplicateMode;
+import Model.PackMode;
+import Model.PreservedAttribute;
+import Model.ResolvedDate;
+import Model.SchedulingTypes;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.security.MessageDigest;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Enumeration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 /**
  * This class handles the copying of files and directories with classification
@@ -18,6 +76,58 @@ import java.util.concurrent.TimeUnit;
  */
 public class CopyController extends FileController {
 
+    // Bounds the number of files queued per worker so huge trees do not fill the heap with tasks
+    private static final int QUEUED_FILES_PER_THREAD = 4;
+    private static final int DEFAULT_LOCALITY_WINDOW = 256;
+    private static final long LOCALITY_MAX_DELAY_MS = 500;
+    private static final int ARCHIVE_BUFFER_SIZE = 256 * 1024;
+    // Locality keys of archive entries are their position, offset per archive
+    private static final int ARCHIVE_KEY_SHIFT = 40;
+    private static final int DEFAULT_NEAR_DUPLICATE_DISTANCE = 8;
+    private static final String IMAGES = "Images";
+
+    // Files between submission and the end of their copy
+    private Semaphore pendingFiles;
+    private ExecutorService copyExecutor;
+    private CopyScheduler scheduler;
+    private int localityWindow = DEFAULT_LOCALITY_WINDOW;
+    private SchedulingTypes schedulingTypes = SchedulingTypes.LOCALITY;
+    private boolean expandArchives;
+    private PackMode packMode = PackMode.NONE;
+    // Origins scanned together, null when the job has the single originPath
+    private List<Path> originPaths;
+    // Additional destinations written from the same read, and their classification
+    private List<DestinationSpec> mirrors = List.of();
+    private final List<ClassificationContext> mirrorContexts = new ArrayList<>();
+    private ExecutorService mirrorWriters;
+    private FanOutCopier fanOutCopier;
+    private boolean catalogEnabled;
+    private NearDuplicateMode nearDuplicateMode = NearDuplicateMode.NONE;
+    private int nearDuplicateDistance = DEFAULT_NEAR_DUPLICATE_DISTANCE;
+    private NearDuplicateIndex nearDuplicates;
+    private final AtomicInteger countSimilar = new AtomicInteger();
+    // Records every written file when the catalog is enabled, null otherwise
+    private Catalog catalog;
+    // Writes the bucket archives when packing, null otherwise
+    private BucketPacker packer;
+    // Keeps the renamed files apart when renaming, null otherwise
+    private NameAllocator nameAllocator;
+    private Set<PreservedAttribute> preservedAttributes = EnumSet.of(PreservedAttribute.TIMES);
+    // Applies the attributes of the origins once their copies are written
+    private AttributeStage attributeStage;
+    private DurabilityMode durabilityMode = DurabilityMode.NONE;
+    // Flushes the copies as the durability mode asks
+    private Syncer syncer = new Syncer(DurabilityMode.NONE, logFile);
+    // ZIP archives stay open until the copy workers are done with their entries
+    private final List<FileSystem> openArchives = Collections.synchronizedList(new ArrayList<>());
+    // Images waiting for the near duplicates of the job to be grouped
+    private final List<CopyTask> heldImages = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicLong archiveCount = new AtomicLong();
+    // Numbers the submitted files in walk order
+    private final AtomicLong walkSequence = new AtomicLong();
+    private JobControl jobControl = new JobControl();
+    private FileCopier fileCopier = new FileCopier(jobControl, throttle);
+
     /**
      * Constructor for initializing the CopyController with specific settings.
      *
@@ -45,10 +155,346 @@ public class CopyController extends FileController {
      * directories.
      */
     public void StartCopy() {
-        this.executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        startWorkers();
+        try {
+            copyOrigin();
+        } catch (CancellationException e) {
+            logWindow.appendLog("Copy cancelled.");
+        } finally {
+            finishWorkers();  // Asegúrate de que todas las tareas se completen
+        }
+    }
+
+    /**
+     * Creates the worker pool and sets the classification strategy so that
+     * files can be fed one by one with {@link #submitFile(Path, Consumer)}. Used by long
+     * running jobs (such as watch mode) that do not walk the whole origin.
+     */
+    public void startWorkers() {
+        this.executorService = Executors.newFixedThreadPool(threads);
+        this.copyExecutor = Executors.newFixedThreadPool(threads);
+        // Twice the window so planning keeps running while a full window waits to be copied
+        this.pendingFiles = new Semaphore(2 * localityWindow + threads * QUEUED_FILES_PER_THREAD);
+        this.scheduler = new CopyScheduler(localityWindow, LOCALITY_MAX_DELAY_MS, createSchedulingPolicy(), this::dispatchCopy);
+        this.packer = packMode == PackMode.NONE ? null : new BucketPacker(destinationPath, packMode, overwrite, jobControl, throttle);
+        this.nameAllocator = rename ? new NameAllocator(this::contentHash) : null;
+        this.attributeStage = new AttributeStage(preservedAttributes, logFile);
+        this.syncer = new Syncer(durabilityMode, logFile);
+        this.fileCopier = new FileCopier(jobControl, throttle, syncer);
+        if (!mirrors.isEmpty()) {
+            if (packer != null) {
+                throw new IllegalStateException("Packed jobs can't have additional destinations.");
+            }
+            mirrorContexts.clear();
+            for (DestinationSpec mirror : mirrors) {
+                ClassificationContext context = new ClassificationContext();
+                setClassificationStrategy(context, mirror.getClassifyTypes());
+                mirrorContexts.add(context);
+            }
+            // Grows to one writer per destination of every copy in progress
+            this.mirrorWriters = Executors.newCachedThreadPool();
+            this.fanOutCopier = new FanOutCopier(jobControl, throttle, mirrorWriters, syncer);
+        }
+        if (catalogEnabled) {
+            try {
+                this.catalog = Catalog.open(destinationPath);
+            } catch (IOException ex) {
+                logFile.anadirExcepcionLog(ex);
+                logWindow.appendLog("Error opening the catalog, files are not recorded: " + ex.getMessage());
+            }
+        }
+        if (nearDuplicateMode != NearDuplicateMode.NONE) {
+            this.nearDuplicates = new NearDuplicateIndex(nearDuplicateDistance, PerceptualHashCache.load(destinationPath), throttle);
+        }
         setClassificationStrategy();  // Establecemos la estrategia de clasificación
-        copyDirectories(this.originPath, this.destinationPath);
-        shutdownExecutor();  // Asegúrate de que todas las tareas se completen
+    }
+
+    /**
+     * Sets what is done with images that look like another image of the job,
+     * such as resized or re-encoded copies, compared by perceptual hash.
+     *
+     * @param nearDuplicateMode the near duplicate mode.
+     */
+    public void setNearDuplicateMode(NearDuplicateMode nearDuplicateMode) {
+        this.nearDuplicateMode = nearDuplicateMode;
+    }
+
+    /**
+     * Sets how many of the 64 bits of their perceptual hashes two images may
+     * differ in to be near duplicates.
+     *
+     * @param nearDuplicateDistance the distance, from 0 to 64.
+     */
+    public void setNearDuplicateDistance(int nearDuplicateDistance) {
+        if (nearDuplicateDistance < 0 || nearDuplicateDistance > Long.SIZE) {
+            throw new IllegalArgumentException("The distance must be between 0 and 64 bits.");
+        }
+        this.nearDuplicateDistance = nearDuplicateDistance;
+    }
+
+    /**
+     * Returns the number of images found similar to another image of the job,
+     * whether they were copied or skipped.
+     *
+     * @return the number of near duplicates.
+     */
+    public int getCountSimilar() {
+        return countSimilar.get();
+    }
+
+    /**
+     * Sets whether every written file is recorded in the catalog of the
+     * destination path, with its date, type, size and content hash.
+     *
+     * @param catalogEnabled whether to record the files.
+     */
+    public void setCatalogEnabled(boolean catalogEnabled) {
+        this.catalogEnabled = catalogEnabled;
+    }
+
+    /**
+     * Sets additional destinations written in the same job. Each origin file
+     * is read once and written to the destination path and to every
+     * additional destination, each classified with its own layout.
+     *
+     * @param mirrors the additional destinations.
+     */
+    public void setMirrors(List<DestinationSpec> mirrors) {
+        this.mirrors = new ArrayList<>(mirrors);
+    }
+
+    /**
+     * Sets several origins to organize in this job. They are scanned
+     * concurrently, one scanner per file store, and their files go through
+     * the same planning and copy workers into the destination path.
+     *
+     * @param originPaths the directories or archives to copy from.
+     */
+    public void setOriginPaths(List<Path> originPaths) {
+        if (originPaths.isEmpty()) {
+            throw new IllegalArgumentException("At least one origin is required.");
+        }
+        this.originPaths = new ArrayList<>(originPaths);
+        this.originPath = originPaths.get(0);
+    }
+
+    /**
+     * Sets how the copies are flushed to disk before they are recorded as
+     * done.
+     *
+     * @param durabilityMode the durability mode.
+     */
+    public void setDurabilityMode(DurabilityMode durabilityMode) {
+        this.durabilityMode = durabilityMode;
+    }
+
+    /**
+     * Sets the kinds of attributes of the origin files applied to their
+     * copies. Times are applied by default.
+     *
+     * @param preservedAttributes the kinds of attributes to apply, empty to
+     * apply none.
+     */
+    public void setPreservedAttributes(Set<PreservedAttribute> preservedAttributes) {
+        this.preservedAttributes = preservedAttributes.isEmpty()
+                ? EnumSet.noneOf(PreservedAttribute.class) : EnumSet.copyOf(preservedAttributes);
+    }
+
+    /**
+     * Sets whether the classified files are copied one by one or packed into
+     * one ZIP archive per destination folder.
+     *
+     * @param packMode the pack mode.
+     */
+    public void setPackMode(PackMode packMode) {
+        this.packMode = packMode;
+    }
+
+    /**
+     * Sets whether ZIP, TAR and TAR.GZ files found in the origin are read as
+     * sources, their entries being classified and copied like files, instead
+     * of being copied as they are.
+     *
+     * @param expandArchives whether to read archives as sources.
+     */
+    public void setExpandArchives(boolean expandArchives) {
+        this.expandArchives = expandArchives;
+    }
+
+    /**
+     * Sets the order in which planned files are copied.
+     *
+     * @param schedulingTypes the scheduling policy.
+     */
+    public void setSchedulingTypes(SchedulingTypes schedulingTypes) {
+        this.schedulingTypes = schedulingTypes;
+    }
+
+    private SchedulingPolicy createSchedulingPolicy() {
+        return switch (schedulingTypes) {
+            case LOCALITY ->
+                new LocalitySchedulingPolicy();
+            case WALK_ORDER ->
+                new WalkOrderSchedulingPolicy();
+            case SMALLEST_FIRST ->
+                new SmallestFirstSchedulingPolicy();
+            case LARGEST_FIRST ->
+                new LargestFirstSchedulingPolicy();
+            case BUCKET_BATCHED ->
+                new BucketBatchedSchedulingPolicy();
+        };
+    }
+
+    /**
+     * Sets how many planned files are sorted together by the scheduling
+     * policy before being copied. 1 copies files in the order they are planned.
+     *
+     * @param localityWindow the window size, at least 1.
+     */
+    public void setLocalityWindow(int localityWindow) {
+        if (localityWindow < 1) {
+            throw new IllegalArgumentException("Locality window must be at least 1.");
+        }
+        this.localityWindow = localityWindow;
+    }
+
+    /**
+     * Returns the control used to pause, resume or cancel this job.
+     *
+     * @return the job control.
+     */
+    public JobControl getJobControl() {
+        return jobControl;
+    }
+
+    /**
+     * Returns the destination directory of this job.
+     *
+     * @return the destination directory.
+     */
+    public Path getDestinationPath() {
+        return destinationPath;
+    }
+
+    /**
+     * Replaces the job control, so a caller can hold it before the job
+     * starts.
+     *
+     * @param jobControl the job control.
+     */
+    public void setJobControl(JobControl jobControl) {
+        this.jobControl = jobControl;
+        this.fileCopier = new FileCopier(jobControl, throttle, syncer);
+    }
+
+    @Override
+    public void setThrottle(Throttle throttle) {
+        super.setThrottle(throttle);
+        this.fileCopier = new FileCopier(jobControl, throttle, syncer);
+    }
+
+    /**
+     * Queues a single origin file to be classified and copied into the
+     * destination path. {@link #startWorkers()} must have been called before.
+     * An archive read as a source is done once its entries are queued, each
+     * entry reporting its own errors.
+     *
+     * @param file the file to process.
+     * @param done run once the copy workers are done with the file, told
+     * whether it was copied or skipped without errors.
+     */
+    public void submitFile(Path file, Consumer<Boolean> done) {
+        if (expandArchives && ArchiveFormat.of(file) != null) {
+            submitArchive(file, this.destinationPath);
+            done.accept(true);
+            return;
+        }
+        BasicFileAttributes attrs = null;
+        try {
+            attrs = scanAttributes(file);
+        } catch (IOException ex) {
+            // Let the copy report the unreadable file
+        }
+        submitFile(file.toFile(), this.destinationPath, attrs, done);
+    }
+
+    /**
+     * Queues a task whose date and destination were already resolved, for
+     * example by a {@link Controller.Plan.CopyPlanner}, so that only the copy
+     * itself is done by the workers. {@link #startWorkers()} must have been
+     * called before.
+     *
+     * @param task the task to copy.
+     */
+    public void submitTask(CopyTask task) {
+        if (jobControl.isCancelled()) {
+            return;
+        }
+        try {
+            pendingFiles.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        task.setSequence(walkSequence.incrementAndGet());
+        scheduler.offer(task);
+    }
+
+    /**
+     * Waits until every queued file has been processed and releases the
+     * worker pool.
+     */
+    public void finishWorkers() {
+        shutdownExecutor(executorService);
+        if (nearDuplicates != null) {
+            releaseHeldImages();
+        }
+        scheduler.close();
+        shutdownExecutor(copyExecutor);
+        // The syncer hands the copies it puts in place to the attribute stage
+        syncer.close();
+        attributeStage.close();
+        if (mirrorWriters != null) {
+            mirrorWriters.shutdown();
+            mirrorWriters = null;
+        }
+        if (packer != null) {
+            try {
+                packer.close();
+            } catch (IOException ex) {
+                logFile.anadirExcepcionLog(ex);
+                logWindow.appendLog("Error completing archive: " + ex.getMessage());
+            }
+            packer = null;
+        }
+        if (nearDuplicates != null) {
+            try {
+                nearDuplicates.close();
+            } catch (IOException ex) {
+                logFile.anadirExcepcionLog(ex);
+                logWindow.appendLog("Error saving the perceptual hash cache: " + ex.getMessage());
+            }
+            nearDuplicates = null;
+        }
+        if (catalog != null) {
+            try {
+                catalog.close();
+            } catch (IOException ex) {
+                logFile.anadirExcepcionLog(ex);
+                logWindow.appendLog("Error saving the catalog: " + ex.getMessage());
+            }
+            catalog = null;
+        }
+        synchronized (openArchives) {
+            for (FileSystem archive : openArchives) {
+                try {
+                    archive.close();
+                } catch (IOException ex) {
+                    logFile.anadirExcepcionLog(ex);
+                }
+            }
+            openArchives.clear();
+        }
     }
 
     /**
@@ -69,22 +515,130 @@ public class CopyController extends FileController {
         this.overwrite = overwrite;
         this.classifyTypes = classifyTypes;
         this.originPath = Paths.get(origin);
+        this.originPaths = null;
         this.destinationPath = Paths.get(destination);
         try {
-            copyDirectories(originPath, destinationPath);
+            startWorkers();
+            copyOrigin();
             return true;
+        } catch (CancellationException e) {
+            logWindow.appendLog("Copy cancelled.");
+            return false;
         } catch (Exception e) {
             logWindow.appendLog("Error during the copy: " + e.getMessage());
             return false;
         } finally {
-            shutdownExecutor();  // Asegúrate de que todas las tareas se completen
+            finishWorkers();  // Asegúrate de que todas las tareas se completen
         }
     }
 
     /**
-     * Recursively copies files and directories from the origin path to the
-     * destination path. It also handles file classification and logs the
-     * process.
+     * Processes the origins of the job. A single origin is scanned by the
+     * calling thread. Several origins are grouped by the file store they are
+     * on and every group gets its own scanner thread, so each device is read
+     * sequentially while all devices are read at the same time.
+     */
+    private void copyOrigin() {
+        List<List<Path>> groups = groupByFileStore(originPaths == null ? List.of(originPath) : originPaths);
+        if (groups.size() == 1) {
+            for (Path origin : groups.get(0)) {
+                copyOrigin(origin);
+            }
+            return;
+        }
+        ExecutorService scanners = Executors.newFixedThreadPool(groups.size(), r -> new Thread(r, "Origin scanner"));
+        try {
+            List<Future<?>> scans = new ArrayList<>();
+            for (List<Path> group : groups) {
+                scans.add(scanners.submit(() -> {
+                    for (Path origin : group) {
+                        copyOrigin(origin);
+                    }
+                }));
+            }
+            boolean cancelled = false;
+            for (Future<?> scan : scans) {
+                try {
+                    scan.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof CancellationException) {
+                        cancelled = true;
+                    } else {
+                        countErr.incrementAndGet();
+                        logFile.anadirExcepcionLog(e);
+                        logWindow.appendLog("Error scanning origin: " + e.getCause().getMessage());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    jobControl.cancel();
+                    cancelled = true;
+                }
+            }
+            if (cancelled) {
+                throw new CancellationException("Copy cancelled");
+            }
+        } finally {
+            scanners.shutdown();
+        }
+    }
+
+    /**
+     * Processes one origin, which is either a directory or a single archive.
+     *
+     * @param origin the origin.
+     */
+    private void copyOrigin(Path origin) {
+        logWindow.appendLog("Scanning: " + origin);
+        if (Files.isRegularFile(origin) && ArchiveFormat.of(origin) != null) {
+            submitArchive(origin, destinationPath);
+        } else {
+            copyDirectories(origin, destinationPath);
+        }
+    }
+
+    /**
+     * Groups origins by the file store they are on. An origin inside another
+     * origin is dropped, so no file is copied twice.
+     *
+     * @param origins the origins.
+     * @return the groups, in the order of the first origin of each.
+     */
+    private List<List<Path>> groupByFileStore(List<Path> origins) {
+        List<Path> distinct = new ArrayList<>();
+        for (Path origin : origins) {
+            Path normalized = origin.toAbsolutePath().normalize();
+            if (distinct.stream().anyMatch(normalized::startsWith)) {
+                logWindow.appendLog("Skipping origin inside another origin: " + origin);
+                continue;
+            }
+            distinct.removeIf(other -> {
+                boolean inside = other.startsWith(normalized);
+                if (inside) {
+                    logWindow.appendLog("Skipping origin inside another origin: " + other);
+                }
+                return inside;
+            });
+            distinct.add(normalized);
+        }
+        Map<Object, List<Path>> groups = new LinkedHashMap<>();
+        for (Path origin : distinct) {
+            Object store;
+            try {
+                store = Files.getFileStore(origin);
+            } catch (IOException e) {
+                store = origin; // Scanned alone, the error is reported by the scan
+            }
+            groups.computeIfAbsent(store, key -> new ArrayList<>()).add(origin);
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    /**
+     * Recursively walks the origin path and hands every file to the planning
+     * workers, which classify them and pass them on to the copy workers. The
+     * files of each directory are submitted in inode order, because
+     * {@code listFiles()} returns them in arbitrary order. Stops with a
+     * {@link CancellationException} when the job is cancelled.
      *
      * @param originPath the path of the directory to copy from.
      * @param destinationPath the path of the directory to copy to.
@@ -93,24 +647,691 @@ public class CopyController extends FileController {
         File[] fileList = originPath.toFile().listFiles();
 
         if (fileList != null) {
+            List<File> directories = new ArrayList<>();
+            List<File> files = new ArrayList<>();
+            List<BasicFileAttributes> fileAttributes = new ArrayList<>();
+            List<Long> keys = new ArrayList<>();
+            List<Path> archives = new ArrayList<>();
             for (File file : fileList) {
+                jobControl.checkpoint();
                 Path relativePath = originPath.relativize(file.toPath());
                 Path destinationFile = destinationPath.resolve(relativePath);
 
                 logWindow.appendLog("Processing: " + file.toPath() + " -> " + destinationFile);
 
-                if (file.isFile()) {
-                    LocalDateTime date = getDateFile(file);
-                    destinationFile = getDestinationPathFile(file.toPath(), destinationPath, date);
-                    if (destinationFile == null) {
-                        logWindow.appendLog("Error: The file could not be classified: " + file.toPath());
-                        continue;
-                    }
-                    copyFile(file.toPath(), destinationFile, date);
-                } else if (file.isDirectory()) {
-                    copyDirectories(file.toPath(), destinationPath);
+                BasicFileAttributes attrs;
+                try {
+                    attrs = scanAttributes(file.toPath());
+                } catch (IOException e) {
+                    countErr.incrementAndGet();
+                    logWindow.appendLog("Error reading: " + file.toPath() + " - " + e.getMessage());
+                    continue;
+                }
+                if (attrs.isRegularFile() && expandArchives && ArchiveFormat.of(file.toPath()) != null) {
+                    archives.add(file.toPath());
+                } else if (attrs.isRegularFile()) {
+                    files.add(file);
+                    fileAttributes.add(attrs);
+                    keys.add(LocalityKey.of(attrs));
+                } else if (attrs.isDirectory()) {
+                    directories.add(file);
+                }
+            }
+
+            Integer[] order = new Integer[files.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingLong(keys::get));
+            for (int i : order) {
+                submitFile(files.get(i), destinationPath, fileAttributes.get(i), null);
+            }
+            for (Path archive : archives) {
+                submitArchive(archive, destinationPath);
+            }
+            for (File directory : directories) {
+                copyDirectories(directory.toPath(), destinationPath);
+            }
+        }
+    }
+
+    /**
+     * Queues a file to be dated and classified by the planning workers, which
+     * then hand it to the scheduler. Blocks while too many files are already
+     * waiting.
+     *
+     * @param file the file to process.
+     * @param destinationPath the base destination directory.
+     * @param attrs the attributes read when the file was scanned, or
+     * {@code null} if they couldn't be read.
+     * @param done run once the copy workers are done with the file, or
+     * {@code null}.
+     */
+    private void submitFile(File file, Path destinationPath, BasicFileAttributes attrs, Consumer<Boolean> done) {
+        try {
+            pendingFiles.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            complete(done, false);
+            return;
+        }
+        long sequence = walkSequence.incrementAndGet();
+        executorService.execute(() -> {
+            try {
+                jobControl.checkpoint();
+                CopyTask task = planFile(file, attrs, destinationPath);
+                task.setSequence(sequence);
+                task.setAttributes(attrs);
+                task.setCompletion(done);
+                boolean held = checkNearDuplicate(task, file.toPath(), attrs);
+                planMirrors(task, file.toPath(), file.isFile(), types -> resolveDateFile(file, types));
+                task.setLocalityKey(attrs == null ? LocalityKey.UNKNOWN : LocalityKey.of(attrs));
+                if (held) {
+                    pendingFiles.release();
+                    return;
+                }
+                allocateNames(task, file.toPath());
+                scheduler.offer(task);
+            } catch (CancellationException e) {
+                pendingFiles.release();
+                complete(done, false);
+            } catch (RuntimeException e) {
+                pendingFiles.release();
+                countErr.incrementAndGet();
+                logFile.anadirExcepcionLog(e);
+                logWindow.appendLog("Error processing: " + file.toPath() + " - " + e.getMessage());
+                complete(done, false);
+            }
+        });
+    }
+
+    /**
+     * Reads an archive as a source. The entries of a ZIP archive are listed
+     * from its central directory and go through the planning and copy workers
+     * like files, read through the zip file system. A TAR stream can only be
+     * read in order, so it is handed to one planning worker that copies its
+     * entries as they come.
+     *
+     * @param archive the archive to read.
+     * @param destinationPath the base destination directory.
+     */
+    private void submitArchive(Path archive, Path destinationPath) {
+        ArchiveFormat format = ArchiveFormat.of(archive);
+        logWindow.appendLog("Reading archive: " + archive);
+        if (format == ArchiveFormat.ZIP) {
+            try {
+                readZip(archive, destinationPath);
+            } catch (CancellationException e) {
+                throw e;
+            } catch (IOException | RuntimeException e) {
+                countErr.incrementAndGet();
+                logFile.anadirExcepcionLog(e);
+                logWindow.appendLog("Error reading archive: " + archive + " - " + e.getMessage());
+            }
+        } else {
+            executorService.execute(() -> readTar(archive, format, destinationPath));
+        }
+    }
+
+    private void readZip(Path archive, Path destinationPath) throws IOException {
+        FileSystem zipFileSystem = FileSystems.newFileSystem(archive, (ClassLoader) null);
+        openArchives.add(zipFileSystem);
+        String archiveName = ArchiveFormat.baseName(archive);
+        long keyBase = archiveCount.incrementAndGet() << ARCHIVE_KEY_SHIFT;
+        // ZipFile lists the entries in central directory order, which is the order they are stored in
+        try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            long ordinal = 0;
+            while (entries.hasMoreElements()) {
+                ZipEntry zipEntry = entries.nextElement();
+                ordinal++;
+                if (zipEntry.isDirectory()) {
+                    continue;
+                }
+                jobControl.checkpoint();
+                ArchiveEntryAttributes attrs = new ArchiveEntryAttributes(zipEntry.getSize(), zipEntry.getLastModifiedTime(),
+                        zipEntry.getLastAccessTime(), zipEntry.getCreationTime(), keyBase + ordinal);
+                submitEntry(zipFileSystem.getPath(zipEntry.getName()), ArchiveFormat.entryPath(archiveName, zipEntry.getName()),
+                        attrs, destinationPath);
+            }
+        }
+    }
+
+    /**
+     * Queues an archive entry to be dated and classified by the planning
+     * workers.
+     */
+    private void submitEntry(Path entry, Path name, ArchiveEntryAttributes attrs, Path destinationPath) {
+        try {
+            pendingFiles.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        long sequence = walkSequence.incrementAndGet();
+        executorService.execute(() -> {
+            try {
+                jobControl.checkpoint();
+                CopyTask task = planEntry(entry, name, attrs, destinationPath);
+                task.setSequence(sequence);
+                task.setAttributes(attrs);
+                boolean held = checkNearDuplicate(task, entry, attrs);
+                planMirrors(task, name, true, types -> resolveEntryDate(entry, attrs, types));
+                task.setLocalityKey(attrs.getOrdinal());
+                if (held) {
+                    pendingFiles.release();
+                    return;
+                }
+                allocateNames(task, entry);
+                scheduler.offer(task);
+            } catch (CancellationException e) {
+                pendingFiles.release();
+            } catch (RuntimeException e) {
+                pendingFiles.release();
+                countErr.incrementAndGet();
+                logFile.anadirExcepcionLog(e);
+                logWindow.appendLog("Error processing: " + name + " - " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Reads a TAR or TAR.GZ archive in a single sequential pass.
+     */
+    private void readTar(Path archive, ArchiveFormat format, Path destinationPath) {
+        String archiveName = ArchiveFormat.baseName(archive);
+        throttle.acquireOperations(1);
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(archive), ARCHIVE_BUFFER_SIZE);
+                TarReader reader = new TarReader(format == ArchiveFormat.TAR_GZ ? new GZIPInputStream(raw, ARCHIVE_BUFFER_SIZE) : raw)) {
+            TarReader.Entry entry;
+            long ordinal = 0;
+            while ((entry = reader.next()) != null) {
+                jobControl.checkpoint();
+                if (!entry.isRegularFile()) {
+                    continue;
+                }
+                ArchiveEntryAttributes attrs = new ArchiveEntryAttributes(entry.getSize(), entry.getLastModifiedTime(),
+                        entry.getLastAccessTime(), entry.getCreationTime(), ++ordinal);
+                copyStreamedEntry(reader.entryStream(), archive + "!/" + entry.getName(),
+                        ArchiveFormat.entryPath(archiveName, entry.getName()), attrs, destinationPath);
+            }
+        } catch (CancellationException e) {
+            // The entry being copied was abandoned without touching the destination
+        } catch (IOException | RuntimeException e) {
+            countErr.incrementAndGet();
+            logFile.anadirExcepcionLog(e);
+            logWindow.appendLog("Error reading archive: " + archive + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Copies an entry of a TAR stream. Its data is written once, to a
+     * temporary file in the destination, which is dated and classified and
+     * then renamed into its classified destination.
+     *
+     * @param data the entry data.
+     * @param label the archive and entry name, for the log.
+     * @param name the path used to classify the entry.
+     * @param attrs the attributes stored in the archive.
+     * @param destinationPath the base destination directory.
+     */
+    private void copyStreamedEntry(InputStream data, String label, Path name, ArchiveEntryAttributes attrs, Path destinationPath) throws IOException {
+        Files.createDirectories(destinationPath);
+        MessageDigest digest = catalogDigest();
+        Path temp = fileCopier.spool(data, destinationPath.resolve(name.getFileName()), digest);
+        byte[] hash = digest == null ? null : digest.digest();
+        boolean moved = false;
+        try {
+            CopyTask task = planEntry(temp, name, attrs, destinationPath);
+            planMirrors(task, name, true, types -> resolveEntryDate(temp, attrs, types));
+            allocateNames(task, temp);
+            if (!task.getMirrors().isEmpty()) {
+                copyToDestinations(task, temp, attrs, label, hash, null);
+                return;
+            }
+            Path destination = task.getDestination();
+            if (destination == null) {
+                countErr.incrementAndGet();
+                logWindow.appendLog("Error: The file could not be classified: " + label);
+                return;
+            }
+            if (packer != null) {
+                String member = packer.pack(temp, attrs, destination, task.getDate(), label);
+                countCopy.incrementAndGet();
+                logWindow.appendLog("File packed from: " + label + " to " + member);
+                record(task, temp, label, member, attrs.size(), hash);
+                return;
+            }
+            createDestinationDirectory(destination.getParent());
+            if (Files.exists(destination) && !overwrite && isSameFileContent(temp, destination)) {
+                countRepeat.incrementAndGet();
+                logWindow.appendLog(name.getFileName() + " already exists and is identical, not overwritten.");
+                return;
+            }
+            jobControl.checkpoint();
+            syncer.moveIntoPlace(temp, destination);
+            moved = true;
+            commit(task, name, attrs, destination, label, hash, null);
+        } catch (IOException e) {
+            countErr.incrementAndGet();
+            logFile.anadirExcepcionLog(e);
+            logWindow.appendLog("Error copying file: " + label + " - " + e.getMessage());
+        } finally {
+            if (!moved) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /**
+     * Hands a scheduled task to the copy workers.
+     *
+     * @param task the task to copy.
+     */
+    private void dispatchCopy(CopyTask task) {
+        copyExecutor.execute(() -> {
+            Completion completion = new Completion(task.getCompletion());
+            boolean done = false;
+            try {
+                jobControl.checkpoint();
+                done = copyTask(task, completion);
+            } catch (CancellationException e) {
+                // Skipped, or abandoned part-way without touching the destination
+            } finally {
+                pendingFiles.release();
+                completion.finish(done);
+            }
+        });
+    }
+
+    private static void complete(Consumer<Boolean> done, boolean copied) {
+        if (done != null) {
+            done.accept(copied);
+        }
+    }
+
+    /**
+     * The completion of a task, run once its copy worker is done and every
+     * copy it handed to the syncer is in place or has failed.
+     */
+    private static final class Completion {
+
+        private final Consumer<Boolean> done;
+        // The copy worker and the copies waiting for the syncer
+        private int pending = 1;
+        private boolean copied = true;
+
+        Completion(Consumer<Boolean> done) {
+            this.done = done;
+        }
+
+        synchronized void expect() {
+            pending++;
+        }
+
+        void finish(boolean ok) {
+            boolean last;
+            synchronized (this) {
+                copied &= ok;
+                last = --pending == 0;
+            }
+            if (last) {
+                complete(done, copied);
+            }
+        }
+    }
+
+    /**
+     * Copies a task according to its status.
+     *
+     * @param task the task to copy.
+     * @param completion the completion of the task, told about the copies
+     * put in place by the syncer.
+     * @return {@code true} if the task was copied or skipped without errors.
+     */
+    private boolean copyTask(CopyTask task, Completion completion) {
+        if (task.getStatus() == CopyTask.Status.NEAR_DUPLICATE) {
+            countRepeat.incrementAndGet();
+            logWindow.appendLog(task.getOrigin().getFileName() + " looks like " + task.getDuplicateOf() + ", not copied.");
+            return true;
+        }
+        if (!task.getMirrors().isEmpty()) {
+            try {
+                return copyToDestinations(task, task.getOrigin(), originAttributes(task), task.getOrigin().toString(), null, completion);
+            } catch (IOException e) {
+                countErr.incrementAndGet();
+                logFile.anadirExcepcionLog(e);
+                logWindow.appendLog("Error copying file: " + task.getOrigin() + " - " + e.getMessage());
+                return false;
+            }
+        }
+        return switch (task.getStatus()) {
+            case UNCLASSIFIED -> {
+                countErr.incrementAndGet();
+                logWindow.appendLog("Error: The file could not be classified: " + task.getOrigin());
+                yield false;
+            }
+            case DUPLICATE -> {
+                countRepeat.incrementAndGet();
+                logWindow.appendLog(task.getOrigin().getFileName() + " is identical to " + task.getDuplicateOf() + ", not copied.");
+                yield true;
+            }
+            default ->
+                packer != null ? packFile(task) : copyFile(task, completion);
+        };
+    }
+
+    /**
+     * Compares a planned image with the images planned before it, if enabled,
+     * and logs it if it is a near duplicate. When near duplicates are not
+     * copied the image is held instead, until {@link #releaseHeldImages}
+     * decides which image of its group is copied. Images that can't be read
+     * or decoded are copied as usual.
+     *
+     * @param task the planned task.
+     * @param image the file to decode.
+     * @param attrs the attributes of the file, read when {@code null}.
+     * @return {@code true} if the task was held.
+     */
+    private boolean checkNearDuplicate(CopyTask task, Path image, BasicFileAttributes attrs) {
+        if (nearDuplicates == null || task.getDestination() == null
+                || !IMAGES.equals(contentSniffer.typeOf(image))) {
+            return false;
+        }
+        try {
+            BasicFileAttributes imageAttrs = attrs != null ? attrs : Files.readAttributes(image, BasicFileAttributes.class);
+            if (nearDuplicateMode == NearDuplicateMode.SKIP) {
+                if (!nearDuplicates.hold(image, imageAttrs)) {
+                    return false;
                 }
+                heldImages.add(task);
+                return true;
+            }
+            BKTree.Match<Path> similar = nearDuplicates.check(image, imageAttrs);
+            if (similar != null) {
+                countSimilar.incrementAndGet();
+                logWindow.appendLog(image + " looks like " + similar.getValue() + " (" + similar.getDistance() + " bits apart).");
             }
+        } catch (IOException ex) {
+            logFile.anadirExcepcionLog(ex);
+            logWindow.appendLog("Error comparing image: " + image + " - " + ex.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Groups the images held by {@link #checkNearDuplicate} once planning is
+     * done, marks the ones that look like a larger image to be skipped and
+     * hands all of them to the scheduler in walk order.
+     */
+    private void releaseHeldImages() {
+        List<CopyTask> tasks;
+        synchronized (heldImages) {
+            tasks = new ArrayList<>(heldImages);
+            heldImages.clear();
+        }
+        if (tasks.isEmpty()) {
+            return;
+        }
+        Map<Path, BKTree.Match<Path>> duplicates = nearDuplicates.resolve();
+        tasks.sort(Comparator.comparingLong(CopyTask::getSequence));
+        for (CopyTask task : tasks) {
+            if (jobControl.isCancelled()) {
+                return;
+            }
+            BKTree.Match<Path> similar = duplicates.get(task.getOrigin());
+            if (similar != null) {
+                countSimilar.incrementAndGet();
+                logWindow.appendLog(task.getOrigin() + " looks like " + similar.getValue() + " (" + similar.getDistance() + " bits apart).");
+                task.setStatus(CopyTask.Status.NEAR_DUPLICATE);
+                task.setDuplicateOf(similar.getValue());
+            }
+            allocateNames(task, task.getOrigin());
+            try {
+                pendingFiles.acquire();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            scheduler.offer(task);
+        }
+    }
+
+    /**
+     * Resolves where an origin goes in every additional destination. The date
+     * is resolved once per classification type, so destinations classified
+     * alike share the metadata read.
+     *
+     * @param task the task of the destination path.
+     * @param name the path used to classify the origin, whose content is
+     * read from the origin of the task.
+     * @param regularFile whether the origin is a regular file.
+     * @param dates resolves the date of the origin for a classification type.
+     */
+    private void planMirrors(CopyTask task, Path name, boolean regularFile, Function<ClassifyTypes, ResolvedDate> dates) {
+        if (mirrors.isEmpty()) {
+            return;
+        }
+        Map<ClassifyTypes, ResolvedDate> resolved = new EnumMap<>(ClassifyTypes.class);
+        resolved.put(classifyTypes, task.getDate() == null ? null : new ResolvedDate(task.getDate(), task.getDateSource()));
+        for (int i = 0; i < mirrors.size(); i++) {
+            DestinationSpec mirror = mirrors.get(i);
+            ResolvedDate date = resolved.containsKey(mirror.getClassifyTypes())
+                    ? resolved.get(mirror.getClassifyTypes())
+                    : dates.apply(mirror.getClassifyTypes());
+            resolved.put(mirror.getClassifyTypes(), date);
+            Path destination = getDestinationPathFile(name, task.getOrigin(), task.getAttributes(), mirror.getPath(), ResolvedDate.dateOf(date), regularFile, mirrorContexts.get(i));
+            CopyTask copy = new CopyTask(task.getOrigin(), destination, ResolvedDate.dateOf(date), task.getSize());
+            copy.setDateSource(ResolvedDate.sourceOf(date));
+            task.addMirror(copy);
+        }
+    }
+
+    /**
+     * Gives the renamed destinations of a task names no other file of the
+     * job or of the destination has. A destination that already holds a copy
+     * of the file under the same name or a suffixed one, or that gave one of
+     * them to a copy of the file earlier in the job, keeps that name, so the
+     * copy finds it identical and skips it, as without renaming.
+     *
+     * @param task the task, with its mirrors.
+     * @param content a readable copy of the content.
+     */
+    private void allocateNames(CopyTask task, Path content) {
+        if (nameAllocator == null || task.getStatus() == CopyTask.Status.NEAR_DUPLICATE) {
+            return;
+        }
+        task.setDestination(allocateName(task.getDestination(), content, task.getSize(), overwrite));
+        List<CopyTask> copies = task.getMirrors();
+        for (int i = 0; i < copies.size(); i++) {
+            copies.get(i).setDestination(allocateName(copies.get(i).getDestination(), content, task.getSize(), mirrors.get(i).isOverwrite()));
+        }
+    }
+
+    private Path allocateName(Path destination, Path content, long size, boolean overwriteTarget) {
+        return destination == null ? null : nameAllocator.allocate(destination, content, size, overwriteTarget);
+    }
+
+    /**
+     * Copies an origin to the destination path and every additional
+     * destination, reading it once. Each destination is checked, counted and
+     * logged on its own: a file may be copied to one destination and found
+     * identical in another.
+     *
+     * @param task the task, with its mirrors.
+     * @param source the file to read.
+     * @param attrs the attributes applied to the copies.
+     * @param label the origin, for the log.
+     * @param hash the content hash of the source, or {@code null} to hash it
+     * while it is copied.
+     * @param completion the completion of the task, or {@code null}.
+     * @return {@code true} if every destination was copied or skipped
+     * without errors.
+     */
+    private boolean copyToDestinations(CopyTask task, Path source, BasicFileAttributes attrs, String label, byte[] hash, Completion completion) throws IOException {
+        List<CopyTask> targets = new ArrayList<>();
+        targets.add(task);
+        targets.addAll(task.getMirrors());
+        List<CopyTask> copied = new ArrayList<>();
+        List<Path> destinations = new ArrayList<>();
+        boolean ok = true;
+        for (int i = 0; i < targets.size(); i++) {
+            CopyTask target = targets.get(i);
+            boolean overwriteTarget = i == 0 ? overwrite : mirrors.get(i - 1).isOverwrite();
+            Path destination = target.getDestination();
+            if (destination == null) {
+                countErr.incrementAndGet();
+                logWindow.appendLog("Error: The file could not be classified: " + label
+                        + " in " + (i == 0 ? destinationPath : mirrors.get(i - 1).getPath()));
+                ok = false;
+                continue;
+            }
+            createDestinationDirectory(destination.getParent());
+            if (Files.exists(destination) && !overwriteTarget && isSameFileContent(source, destination)) {
+                countRepeat.incrementAndGet();
+                logWindow.appendLog(destination + " already exists and is identical, not overwritten.");
+                continue;
+            }
+            copied.add(target);
+            destinations.add(destination);
+        }
+        if (destinations.isEmpty()) {
+            return ok;
+        }
+        MessageDigest digest = hash == null ? catalogDigest() : null;
+        List<IOException> failures = fanOutCopier.copy(source, destinations, digest);
+        byte[] contentHash = digest == null ? hash : digest.digest();
+        for (int i = 0; i < copied.size(); i++) {
+            Path destination = destinations.get(i);
+            IOException failure = failures.get(i);
+            if (failure == null) {
+                commit(copied.get(i), source, attrs, destination, label, contentHash, completion);
+            } else {
+                ok = false;
+                countErr.incrementAndGet();
+                logFile.anadirExcepcionLog(failure);
+                logWindow.appendLog("Error copying file: " + label + " to " + destination + " - " + failure.getMessage());
+            }
+        }
+        return ok;
+    }
+
+    /**
+     * Returns a digest to hash a file while it is copied, or {@code null} if
+     * the catalog is not enabled and the hash is not needed.
+     */
+    private MessageDigest catalogDigest() {
+        return catalog == null ? null : newContentDigest();
+    }
+
+    /**
+     * Records a written file in the catalog, if enabled.
+     *
+     * @param task the task of the file.
+     * @param content a readable copy of the content.
+     * @param origin the origin, for the catalog.
+     * @param destination where the file was written.
+     * @param size the size of the file.
+     * @param hash the content hash computed while the file was written, or
+     * {@code null} to read it from {@code content}.
+     */
+    private void record(CopyTask task, Path content, String origin, String destination, long size, byte[] hash) {
+        append(catalogRecord(task, content, origin, destination, size, hash));
+    }
+
+    /**
+     * Hands a file moved into its destination to the syncer. Once it is in
+     * place and durable, the copy is counted and logged, the attributes of
+     * its origin are applied and it is recorded in the catalog; if the syncer
+     * can't put it in place, it is counted as an error.
+     *
+     * @param task the task of the file.
+     * @param source the file the attributes are read from.
+     * @param attrs the attributes of the origin.
+     * @param destination the written file.
+     * @param origin the origin, for the catalog.
+     * @param hash the content hash computed while the file was written, or
+     * {@code null} to read it from the destination.
+     * @param completion the completion of the task, or {@code null}.
+     */
+    private void commit(CopyTask task, Path source, BasicFileAttributes attrs, Path destination, String origin, byte[] hash, Completion completion) {
+        if (completion != null) {
+            completion.expect();
+        }
+        syncer.commit(destination, () -> {
+            try {
+                countCopy.incrementAndGet();
+                logWindow.appendLog("File copied from: " + origin + " to " + destination);
+                attributeStage.submit(source, attrs, destination, task.getDate());
+                append(catalogRecord(task, destination, origin, destination.toString(), attrs.size(), hash));
+            } finally {
+                if (completion != null) {
+                    completion.finish(true);
+                }
+            }
+        }, e -> {
+            countErr.incrementAndGet();
+            logFile.anadirExcepcionLog(e);
+            logWindow.appendLog("Error copying file: " + origin + " to " + destination + " - " + e.getMessage());
+            if (completion != null) {
+                completion.finish(false);
+            }
+        });
+    }
+
+    /**
+     * Prepares the catalog record of a written file.
+     *
+     * @return the record, or {@code null} if the catalog is not enabled or
+     * the file can't be read.
+     */
+    private CatalogRecord catalogRecord(CopyTask task, Path content, String origin, String destination, long size, byte[] hash) {
+        if (catalog == null) {
+            return null;
+        }
+        try {
+            String type = contentSniffer.typeOf(task.getDestination(), content);
+            return new CatalogRecord(System.currentTimeMillis(), origin, destination, task.getDate(),
+                    task.getDateSource(), type, size, HexFormat.of().formatHex(hash != null ? hash : contentHash(content)));
+        } catch (IOException ex) {
+            logFile.anadirExcepcionLog(ex);
+            logWindow.appendLog("Error recording in the catalog: " + destination + " - " + ex.getMessage());
+            return null;
+        }
+    }
+
+    private void append(CatalogRecord catalogRecord) {
+        if (catalogRecord == null) {
+            return;
+        }
+        try {
+            catalog.append(catalogRecord);
+        } catch (IOException ex) {
+            logFile.anadirExcepcionLog(ex);
+            logWindow.appendLog("Error recording in the catalog: " + catalogRecord.getDestination() + " - " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Packs a single file into the archive of its destination folder.
+     *
+     * @param task the task of the file.
+     * @return {@code true} if the file was packed.
+     */
+    private boolean packFile(CopyTask task) {
+        Path originPath = task.getOrigin();
+        try {
+            BasicFileAttributes attrs = originAttributes(task);
+            String member = packer.pack(originPath, attrs, task.getDestination(), task.getDate(), originPath.toString());
+            countCopy.incrementAndGet();
+            logWindow.appendLog("File packed from: " + originPath + " to " + member);
+            record(task, originPath, originPath.toString(), member, attrs.size(), null);
+            return true;
+        } catch (IOException e) {
+            countErr.incrementAndGet();
+            logFile.anadirExcepcionLog(e);
+            logWindow.appendLog("Error packing file: " + originPath + " - " + e.getMessage());
+            return false;
         }
     }
 
@@ -118,37 +1339,70 @@ public class CopyController extends FileController {
      * Copies a single file from the origin path to the destination path,
      * applying attributes and logging the process.
      *
-     * @param originPath the path of the file to copy.
-     * @param destinationPath the path of the file to copy to.
-     * @param creationDate the creation date of the file.
+     * @param task the task of the file.
+     * @param completion the completion of the task.
+     * @return {@code true} if the file was copied or found identical.
      */
-    private void copyFile(Path originPath, Path destinationPath, LocalDateTime creationDate) {
+    private boolean copyFile(CopyTask task, Completion completion) {
+        Path originPath = task.getOrigin();
+        Path destinationPath = task.getDestination();
         try {
-            if (!Files.exists(destinationPath.getParent())) {
-                Files.createDirectories(destinationPath.getParent());
-            }
+            BasicFileAttributes attrs = originAttributes(task);
+            createDestinationDirectory(destinationPath.getParent());
             if (Files.exists(destinationPath) && !overwrite) {
                 if (isSameFileContent(originPath, destinationPath)) {
+                    countRepeat.incrementAndGet();
                     logWindow.appendLog(originPath.getFileName() + " already exists and is identical, not overwritten.");
-                    return;
+                    return true;
                 }
             }
-            Files.copy(originPath, destinationPath, StandardCopyOption.REPLACE_EXISTING);
-            applyAttributes(originPath, destinationPath, creationDate);
-            logWindow.appendLog("File copied from: " + originPath + " to " + destinationPath);
+            MessageDigest digest = catalogDigest();
+            fileCopier.copy(originPath, destinationPath, digest);
+            commit(task, originPath, attrs, destinationPath, originPath.toString(), digest == null ? null : digest.digest(), completion);
+            return true;
         } catch (IOException e) {
+            countErr.incrementAndGet();
             logFile.anadirExcepcionLog(e);
             logWindow.appendLog("Error copying file: " + originPath + " - " + e.getMessage());
+            return false;
         }
     }
 
-    private void shutdownExecutor() {
+    /**
+     * Reads the attributes of an origin file that are carried to its copy:
+     * the POSIX ones when permissions are kept and the file system has them,
+     * the basic ones otherwise.
+     *
+     * @param file the origin file.
+     * @return the attributes.
+     * @throws IOException if the attributes cannot be read.
+     */
+    private BasicFileAttributes scanAttributes(Path file) throws IOException {
+        if (preservedAttributes.contains(PreservedAttribute.PERMISSIONS)
+                && file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            return Files.readAttributes(file, PosixFileAttributes.class);
+        }
+        return Files.readAttributes(file, BasicFileAttributes.class);
+    }
+
+    /**
+     * Returns the attributes of the origin of a task, read when it was
+     * scanned or now for the tasks of a plan.
+     */
+    private BasicFileAttributes originAttributes(CopyTask task) throws IOException {
+        return task.getAttributes() != null ? task.getAttributes() : scanAttributes(task.getOrigin());
+    }
+
+    private void shutdownExecutor(ExecutorService executor) {
         try {
-            executorService.shutdown();
-            if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
-                executorService.shutdownNow();
+            executor.shutdown();
+            // Workers may still be copying large files, wait for all of them
+            while (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+                logWindow.appendLog("Waiting for pending copies to finish...");
             }
         } catch (InterruptedException ex) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
             logFile.anadirExcepcionLog(ex);
             logWindow.appendLog("Error waiting for task termination: " + ex.getMessage());
         }
@@ -1,20 +1,24 @@
 package Controller;
 
+import Controller.Metadata.DateParser;
+import Controller.Metadata.MetadataExtractor;
+import Controller.Throttle.Throttle;
 import Model.DateFile;
+import Model.ResolvedDate;
 import com.drew.imaging.ImageMetadataReader;
+import com.drew.imaging.ImageProcessingException;
 import com.drew.metadata.exif.ExifSubIFDDirectory;
-import org.apache.tika.Tika;
 import org.apache.tika.metadata.Metadata;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
 import java.util.Date;
 
 /**
@@ -25,13 +29,55 @@ import java.util.Date;
  */
 public class DateFileController implements DateFile {
 
-    private Tika tika;
+    /**
+     * Reads the EXIF original date with metadata-extractor. Like the Tika
+     * parser of {@link MetadataExtractor}, it keeps the library out of the
+     * classes loaded by the window and by the jobs that never read metadata.
+     */
+    private static final class ExifReader {
+
+        private static Date dateTimeOriginal(InputStream in) throws ImageProcessingException, IOException {
+            com.drew.metadata.Metadata metadataExif = ImageMetadataReader.readMetadata(in);
+            ExifSubIFDDirectory directory = metadataExif.getFirstDirectoryOfType(ExifSubIFDDirectory.class);
+            return directory == null ? null : directory.getDate(ExifSubIFDDirectory.TAG_DATETIME_ORIGINAL);
+        }
+    }
+
+    // Source of the dates read with metadata-extractor when no tag was found
+    private static final String EXIF_DATE_TIME_ORIGINAL = "ExifSubIFD:DateTimeOriginal";
+    // Tags read for the creation date, in order of preference
+    private static final String[] CREATION_DATE_TAGS = {
+        "dcterms:created", // XMP Dublin Core
+        "photoshop:DateCreated", // Photoshop
+        "Exif:DateTimeOriginal", // EXIF metadata
+        "xmp:CreateDate", // XMP standard creation date
+        "xmp:ModifyDate", // XMP standard modification date
+        "dc:created", // Dublin Core
+        "Creation-Date", // General metadata field
+        "meta:created", // Metadata tag often used in video files
+        "date" // Generic date tag
+    };
+
+    private final MetadataExtractor metadataExtractor = new MetadataExtractor();
+    private final DateParser dateParser = new DateParser();
 
     /**
-     * Constructor that initializes the Tika library to parse file metadata.
+     * Sets the throttle charged for the metadata reads.
+     *
+     * @param throttle the throttle to charge.
      */
-    public DateFileController() {
-        tika = new Tika();
+    public void setThrottle(Throttle throttle) {
+        this.metadataExtractor.setThrottle(throttle);
+    }
+
+    /**
+     * Sets the maximum number of bytes of a file read to find its metadata.
+     *
+     * @param maxBytes the limit, at least 1.
+     * @see MetadataExtractor#setMaxBytes(long)
+     */
+    public void setMetadataMaxBytes(long maxBytes) {
+        metadataExtractor.setMaxBytes(maxBytes);
     }
 
     // <editor-fold defaultstate="collapsed" desc="getDateFile">
@@ -46,42 +92,52 @@ public class DateFileController implements DateFile {
      */
     @Override
     public LocalDateTime getMetaCreationDate(File f) {
-        Metadata metadata = new Metadata();
+        return getMetaCreationDate(f.toPath());
+    }
+
+    /**
+     * Retrieves the creation date of the given file based on its metadata.
+     * The file may also be an entry of an archive opened as a file system.
+     *
+     * @param f the file from which to extract the creation date.
+     * @return a {@link LocalDateTime} representing the creation date, or
+     * {@code null} if not found.
+     * @see #getMetaCreationDate(File)
+     */
+    public LocalDateTime getMetaCreationDate(Path f) {
+        return ResolvedDate.dateOf(resolveMetaCreationDate(f));
+    }
+
+    /**
+     * Retrieves the creation date of the given file based on its metadata,
+     * together with the metadata tag it was read from.
+     *
+     * @param f the file from which to extract the creation date.
+     * @return the date and its tag, or {@code null} if not found.
+     * @see #getMetaCreationDate(Path)
+     */
+    public ResolvedDate resolveMetaCreationDate(Path f) {
         String creationDate = null;
-        try (FileInputStream inputStream = new FileInputStream(f)) {
-            tika.parse(inputStream, metadata);
-            String[] possibleTags = {
-                "dcterms:created", // XMP Dublin Core
-                "photoshop:DateCreated", // Photoshop
-                "Exif:DateTimeOriginal", // EXIF metadata
-                "xmp:CreateDate", // XMP standard creation date
-                "xmp:ModifyDate", // XMP standard modification date
-                "dc:created", // Dublin Core
-                "Creation-Date", // General metadata field
-                "meta:created", // Metadata tag often used in video files
-                "date" // Generic date tag
-            };
+        try {
+            Metadata metadata = metadataExtractor.extract(f);
 
             // Iterate through tags to find creation date
-            for (String tag : possibleTags) {
+            for (String tag : CREATION_DATE_TAGS) {
                 creationDate = metadata.get(tag);
                 if (creationDate != null) {
-                    return parseDate(creationDate);
+                    LocalDateTime date = dateParser.parse(creationDate, tag, metadata.get("Content-Type"));
+                    return date == null ? null : new ResolvedDate(date, tag);
                 }
             }
             // If no creation date found, check EXIF metadata
             if (creationDate == null) {
-                ExifSubIFDDirectory directory = null;
-
-                com.drew.metadata.Metadata metadataExif = ImageMetadataReader.readMetadata(f);
-                directory = metadataExif.getFirstDirectoryOfType(ExifSubIFDDirectory.class);
-
-                if (directory != null) {
-                    Date date = directory.getDate(ExifSubIFDDirectory.TAG_DATETIME_ORIGINAL);
-                    return LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
-
+                Date date;
+                try (InputStream exifStream = metadataExtractor.open(f)) {
+                    date = ExifReader.dateTimeOriginal(exifStream);
+                }
+                if (date != null) {
+                    return new ResolvedDate(LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault()), EXIF_DATE_TIME_ORIGINAL);
                 }
-
             }
         } catch (Exception e) {
             return null;
@@ -90,39 +146,26 @@ public class DateFileController implements DateFile {
     }
 
     /**
-     * Parses a date string into a {@link LocalDateTime} object. Attempts to
-     * parse using several date formats.
+     * Reads several metadata fields of a file with one parse, which is shared
+     * with {@link #resolveMetaCreationDate(Path)} when both read the same
+     * file in a row.
      *
-     * @param dateString the string to parse.
-     * @return a {@link LocalDateTime} if the date is valid, {@code null}
-     * otherwise.
+     * @param f the file.
+     * @param names the names of the fields, as Tika names them.
+     * @return the value of every field, {@code null} for the fields the file
+     * doesn't have or all of them if the file can't be parsed.
      */
-    private LocalDateTime parseDate(String dateString) {
-        if ("1904-01-01T00:00:00Z".equals(dateString)) {
-            return null;
-        }
-
-        // Remove 'Z' (UTC timezone) if present
-        if (dateString != null && dateString.endsWith("Z")) {
-            dateString = dateString.substring(0, dateString.length() - 1);
-        }
-
-        // Try parsing with different formats
-        DateTimeFormatter[] formatters = {
-            DateTimeFormatter.ISO_DATE_TIME, // Formato estándar ISO 8601
-            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"), // Formato clásico
-            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss") // Formato con 'T'
-        };
-
-        for (DateTimeFormatter formatter : formatters) {
-            try {
-                return LocalDateTime.parse(dateString, formatter);
-            } catch (Exception e) {
-                // If format fails, continue to the next one
-                continue;
+    public String[] readMetadataFields(Path f, String[] names) {
+        String[] values = new String[names.length];
+        try {
+            Metadata metadata = metadataExtractor.extract(f);
+            for (int i = 0; i < names.length; i++) {
+                values[i] = metadata.get(names[i]);
             }
+        } catch (Exception e) {
+            // Unreadable or unsupported files have no fields
         }
-        return null; // Return null if parsing fails
+        return values;
     }
 
     /**
@@ -159,9 +202,8 @@ public class DateFileController implements DateFile {
      * @param f the file whose metadata will be printed.
      */
     public void printAllMetadata(File f) {
-        Metadata metadata = new Metadata();
-        try (FileInputStream inputStream = new FileInputStream(f)) {
-            tika.parse(inputStream, metadata);
+        try {
+            Metadata metadata = metadataExtractor.extract(f.toPath());
 
             // Print all metadata fields
             for (String name : metadata.names()) {
@@ -179,11 +221,9 @@ public class DateFileController implements DateFile {
      * @return the EXIF date as a string, or {@code null} if not found.
      */
     public String getExifDate(File f) {
-        Metadata metadata = new Metadata();
-        try (FileInputStream inputStream = new FileInputStream(f)) {
+        try {
             // Use Tika to parse the EXIF metadata
-
-            tika.parse(inputStream, metadata);
+            Metadata metadata = metadataExtractor.extract(f.toPath());
 
             // Look for common EXIF date tags
             String exifDate = metadata.get("exif:DateTimeOriginal");
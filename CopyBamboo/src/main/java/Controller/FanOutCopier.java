@@ -0,0 +1,274 @@
+package Controller;
+
+import Controller.Throttle.Throttle;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+/**
+ * The FanOutCopier class copies one origin to several destinations while
+ * reading the origin only once. Every chunk read is handed to one writer per
+ * destination, each with its own bounded queue, so a slow destination only
+ * holds back its own writer until its queue is full, while the other
+ * destinations keep writing at their own speed.
+ * <p>
+ * Like {@link FileCopier}, every destination is written to a temporary file
+ * that is renamed into place only when complete, leaving the zero blocks of
+ * large files as holes. A destination that fails does not stop the others.
+ * </p>
+ * <p>
+ * The caller may pass a digest, which is updated with every chunk read, to
+ * hash the content without reading any of the copies again.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class FanOutCopier {
+
+    private static final int CHUNK_SIZE = 1024 * 1024;
+    // Chunks a writer may fall behind the reader before the reader waits for it
+    private static final int QUEUED_CHUNKS = 4;
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    /**
+     * Writes the chunks of one destination to its temporary file.
+     */
+    private final class DestinationWriter implements Runnable {
+
+        private final Path temp;
+        private final BlockingQueue<ByteBuffer> queue = new ArrayBlockingQueue<>(QUEUED_CHUNKS);
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile IOException failure;
+
+        DestinationWriter(Path temp) {
+            this.temp = temp;
+        }
+
+        @Override
+        public void run() {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.SPARSE)) {
+                SparseWriter writer = new SparseWriter(channel);
+                ByteBuffer chunk;
+                while ((chunk = queue.take()) != END) {
+                    write(writer, chunk);
+                }
+                writer.finish();
+            } catch (IOException e) {
+                failure = e;
+                drain();
+            } catch (InterruptedException e) {
+                failure = new IOException("Write interrupted", e);
+                drain();
+            } finally {
+                done.countDown();
+            }
+        }
+
+        private void write(SparseWriter writer, ByteBuffer chunk) throws IOException {
+            int written = writer.write(chunk);
+            if (written > 0) {
+                throttle.acquireWrite(written);
+            }
+        }
+
+        /**
+         * Keeps taking chunks after a failure so the reader is never blocked
+         * by a destination that stopped writing.
+         */
+        private void drain() {
+            try {
+                while (queue.take() != END) {
+                    // Discarded
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private final JobControl jobControl;
+    private final Throttle throttle;
+    private final Executor writers;
+    private final Syncer syncer;
+
+    /**
+     * Constructs a FanOutCopier.
+     *
+     * @param jobControl the control checked between chunks.
+     * @param throttle the limits charged for every chunk.
+     * @param writers runs the writer of every destination; it must be able
+     * to run one writer per destination of every concurrent copy.
+     * @param syncer moves the copies into place, flushing them as its mode
+     * asks.
+     */
+    public FanOutCopier(JobControl jobControl, Throttle throttle, Executor writers, Syncer syncer) {
+        this.jobControl = jobControl;
+        this.throttle = throttle;
+        this.writers = writers;
+        this.syncer = syncer;
+    }
+
+    /**
+     * Copies {@code origin} to every destination, replacing them if they
+     * exist.
+     *
+     * @param origin the file to copy.
+     * @param destinations the files to create or replace.
+     * @param digest the digest to update with the content, or {@code null}
+     * if the content is not hashed.
+     * @return the failure of each destination, {@code null} for the
+     * destinations that were copied.
+     * @throws IOException if the origin cannot be read; no destination is
+     * touched.
+     * @throws CancellationException if the job was cancelled; the
+     * destinations not completed yet are left untouched.
+     */
+    public List<IOException> copy(Path origin, List<Path> destinations, MessageDigest digest) throws IOException {
+        throttle.acquireOperations(1 + destinations.size());
+        try (ReadableByteChannel in = Files.newByteChannel(origin)) {
+            ByteBuffer first = read(in, digest);
+            if (first.remaining() < CHUNK_SIZE) {
+                return copySmall(first, destinations);
+            }
+            return copyLarge(first, in, destinations, digest);
+        }
+    }
+
+    /**
+     * Writes a file that fits in one chunk from the calling thread, without
+     * handing it to writers.
+     */
+    private List<IOException> copySmall(ByteBuffer data, List<Path> destinations) throws IOException {
+        List<IOException> failures = new ArrayList<>();
+        for (Path destination : destinations) {
+            jobControl.checkpoint();
+            Path temp = FileCopier.tempFileFor(destination);
+            try {
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                    ByteBuffer chunk = data.duplicate();
+                    throttle.acquireWrite(chunk.remaining());
+                    while (chunk.hasRemaining()) {
+                        channel.write(chunk);
+                    }
+                }
+                syncer.moveIntoPlace(temp, destination);
+                failures.add(null);
+            } catch (IOException e) {
+                Files.deleteIfExists(temp);
+                failures.add(e);
+            } catch (RuntimeException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+        }
+        return failures;
+    }
+
+    private List<IOException> copyLarge(ByteBuffer first, ReadableByteChannel in, List<Path> destinations, MessageDigest digest) throws IOException {
+        List<DestinationWriter> started = new ArrayList<>();
+        boolean completed = false;
+        try {
+            for (Path destination : destinations) {
+                DestinationWriter writer = new DestinationWriter(FileCopier.tempFileFor(destination));
+                writers.execute(writer);
+                started.add(writer);
+            }
+            ByteBuffer chunk = first;
+            while (chunk.hasRemaining()) {
+                for (DestinationWriter writer : started) {
+                    writer.queue.put(chunk.duplicate());
+                }
+                jobControl.checkpoint();
+                chunk = read(in, digest);
+            }
+            completed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Copy interrupted");
+        } finally {
+            finish(started);
+            if (!completed) {
+                for (DestinationWriter writer : started) {
+                    Files.deleteIfExists(writer.temp);
+                }
+            }
+        }
+        List<IOException> failures = new ArrayList<>();
+        for (int i = 0; i < started.size(); i++) {
+            DestinationWriter writer = started.get(i);
+            IOException failure = writer.failure;
+            if (failure == null) {
+                try {
+                    syncer.moveIntoPlace(writer.temp, destinations.get(i));
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                // Once moved, the file belongs to the syncer
+                Files.deleteIfExists(writer.temp);
+            }
+            failures.add(failure);
+        }
+        return failures;
+    }
+
+    /**
+     * Ends the queues of the writers and waits until they have written
+     * everything.
+     */
+    private void finish(List<DestinationWriter> started) {
+        boolean interrupted = false;
+        for (DestinationWriter writer : started) {
+            // The temporary files must be closed before returning, even when interrupted
+            boolean ended = false;
+            while (!ended) {
+                try {
+                    writer.queue.put(END);
+                    ended = true;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            while (writer.done.getCount() > 0) {
+                try {
+                    writer.done.await();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reads the next chunk, filling it unless the end of the origin is
+     * reached.
+     */
+    private ByteBuffer read(ReadableByteChannel in, MessageDigest digest) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+        while (chunk.hasRemaining() && in.read(chunk) >= 0) {
+            // Keep filling
+        }
+        chunk.flip();
+        if (digest != null) {
+            digest.update(chunk.duplicate());
+        }
+        throttle.acquireRead(chunk.remaining());
+        return chunk;
+    }
+}
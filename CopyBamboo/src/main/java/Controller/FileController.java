@@ -1,60 +1,240 @@
 package Controller;
 
 import Controller.Classification.ClassificationContext;
+import Controller.Classification.Layout.Layout;
+import Controller.Classification.Sniffing.ContentSniffer;
 import Controller.Classification.types.DateClassificationStrategy;
 import Controller.Classification.types.FileExtensionClassificationStrategy;
 import Controller.Classification.types.FileTypeClassificationStrategy;
+import Controller.Classification.types.LayoutClassificationStrategy;
+import Controller.Throttle.Throttle;
+import Controller.Throttle.ThrottledInputStream;
 import Log.LogExcepcion;
 import Log.LogHandler;
 import Model.ClassifyTypes;
+import Model.CopyTask;
+import Model.ResolvedDate;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.attribute.BasicFileAttributeView;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Arrays;
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public abstract class FileController {
 
     protected boolean rename, pendients, overwrite;
     protected Path originPath, destinationPath;
-    protected int countCopy = 0, countRepeat = 0, countErr = 0;
+    protected final AtomicInteger countCopy = new AtomicInteger(), countRepeat = new AtomicInteger(), countErr = new AtomicInteger();
+    protected int threads = Runtime.getRuntime().availableProcessors();
     protected int desiredBlockSize = 2500;
     protected ClassifyTypes classifyTypes;
+    protected Layout layout = Layout.compile(Layout.DEFAULT);
     protected DateFileController dateFileController = new DateFileController();
+    protected Throttle throttle = new Throttle();
     protected LogExcepcion logFile = new LogExcepcion();
     protected LogHandler logWindow;
     protected FileRenamer fileRenamer = new FileRenamer();
-    protected Set<Path> createdDirectories = new HashSet<>();
+    // Types of the files without a known extension, kept across the jobs of the controller
+    protected ContentSniffer contentSniffer = new ContentSniffer();
+    // Destination directories known to exist, shared by every worker and origin of a job
+    protected Set<Path> createdDirectories = ConcurrentHashMap.newKeySet();
     protected ClassificationContext classificationContext = new ClassificationContext();
     protected ExecutorService executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
 
+    /**
+     * Sets the number of worker threads used to process files.
+     *
+     * @param threads the number of threads, at least 1.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1.");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Sets the read, write and operation limits of the job. The same throttle
+     * may be shared by several jobs to limit them together, and its limits
+     * may be changed while the job runs.
+     *
+     * @param throttle the throttle to charge.
+     */
+    public void setThrottle(Throttle throttle) {
+        this.throttle = throttle;
+        this.dateFileController.setThrottle(throttle);
+        this.contentSniffer.setThrottle(throttle);
+    }
+
+    public Throttle getThrottle() {
+        return throttle;
+    }
+
+    /**
+     * Sets the maximum number of bytes of a file read to find its metadata.
+     *
+     * @param maxBytes the limit, at least 1.
+     */
+    public void setMetadataMaxBytes(long maxBytes) {
+        dateFileController.setMetadataMaxBytes(maxBytes);
+    }
+
+    /**
+     * Sets the layout of the {@link ClassifyTypes#LAYOUT} classification,
+     * {@link Layout#DEFAULT} unless set.
+     *
+     * @param layout the compiled layout.
+     */
+    public void setLayout(Layout layout) {
+        this.layout = layout;
+    }
+
+    public int getCountCopy() {
+        return countCopy.get();
+    }
+
+    public int getCountRepeat() {
+        return countRepeat.get();
+    }
+
+    public int getCountErr() {
+        return countErr.get();
+    }
+
     public LocalDateTime getDateFile(File f) {
+        return ResolvedDate.dateOf(resolveDateFile(f, classifyTypes));
+    }
+
+    /**
+     * Resolves the date of a file as a given classification type needs it,
+     * together with the tag or attribute it came from.
+     *
+     * @param f the file.
+     * @param classifyTypes the classification type.
+     * @return the date and its source, or {@code null} if the type does not
+     * use dates or none was found.
+     */
+    protected ResolvedDate resolveDateFile(File f, ClassifyTypes classifyTypes) {
         return switch (classifyTypes) {
             case CREATION_DATE ->
-                dateFileController.getCreationDate(f);
+                resolved(dateFileController.getCreationDate(f), ResolvedDate.CREATION_TIME);
             case CREATION_DATE_META ->
-                dateFileController.getMetaCreationDate(f);
+                dateFileController.resolveMetaCreationDate(f.toPath());
             case CREATION_DATE_MODIFY ->
-                dateFileController.getLastModifiedDate(f);
+                resolved(dateFileController.getLastModifiedDate(f), ResolvedDate.LAST_MODIFIED_TIME);
+            case LAYOUT ->
+                layout.usesDate() ? dateFileController.resolveMetaCreationDate(f.toPath()) : null;
             default ->
                 null;
         };
     }
 
+    private static ResolvedDate resolved(LocalDateTime date, String source) {
+        return date == null ? null : new ResolvedDate(date, source);
+    }
+
+    /**
+     * Does all the metadata work for a file: resolves its date and its
+     * classified destination.
+     *
+     * @param file the origin file.
+     * @param attrs the attributes read when the file was scanned, or
+     * {@code null} if they couldn't be read.
+     * @param destinationPath the base destination directory.
+     * @return the task describing the copy; its status is
+     * {@link CopyTask.Status#UNCLASSIFIED} when no destination was found.
+     */
+    protected CopyTask planFile(File file, BasicFileAttributes attrs, Path destinationPath) {
+        ResolvedDate resolved = resolveDateFile(file, classifyTypes);
+        LocalDateTime date = ResolvedDate.dateOf(resolved);
+        Path destinationFile = attrs == null
+                ? getDestinationPathFile(file.toPath(), destinationPath, date)
+                : getDestinationPathFile(file.toPath(), file.toPath(), attrs, destinationPath, date, attrs.isRegularFile(), classificationContext);
+        CopyTask task = new CopyTask(file.toPath(), destinationFile, date, attrs == null ? file.length() : attrs.size());
+        task.setDateSource(ResolvedDate.sourceOf(resolved));
+        return task;
+    }
+
+    /**
+     * Does the metadata work for an entry read from an archive. The date comes
+     * from the attributes stored in the archive, or from the metadata of the
+     * entry data, so the entry is never stat'd.
+     *
+     * @param entry the readable entry, or a local copy of its data.
+     * @param name the path of the entry inside the archive, prefixed with the
+     * archive name; its file name and parent name are used to classify it.
+     * @param attrs the attributes stored in the archive.
+     * @param destinationPath the base destination directory.
+     * @return the task describing the copy of {@code entry}.
+     */
+    protected CopyTask planEntry(Path entry, Path name, BasicFileAttributes attrs, Path destinationPath) {
+        ResolvedDate resolved = resolveEntryDate(entry, attrs, classifyTypes);
+        LocalDateTime date = ResolvedDate.dateOf(resolved);
+        Path destinationFile = getDestinationPathFile(name, entry, attrs, destinationPath, date, true, classificationContext);
+        CopyTask task = new CopyTask(entry, destinationFile, date, attrs.size());
+        task.setDateSource(ResolvedDate.sourceOf(resolved));
+        return task;
+    }
+
+    /**
+     * Resolves the date of an archive entry as a given classification type
+     * needs it, together with the tag or attribute it came from.
+     *
+     * @param entry the readable entry, or a local copy of its data.
+     * @param attrs the attributes stored in the archive.
+     * @param classifyTypes the classification type.
+     * @return the date and its source, or {@code null} if the type does not
+     * use dates or none was found.
+     */
+    protected ResolvedDate resolveEntryDate(Path entry, BasicFileAttributes attrs, ClassifyTypes classifyTypes) {
+        return switch (classifyTypes) {
+            case CREATION_DATE ->
+                resolved(toLocalDateTime(attrs.creationTime()), ResolvedDate.CREATION_TIME);
+            case CREATION_DATE_META ->
+                dateFileController.resolveMetaCreationDate(entry);
+            case CREATION_DATE_MODIFY ->
+                resolved(toLocalDateTime(attrs.lastModifiedTime()), ResolvedDate.LAST_MODIFIED_TIME);
+            case LAYOUT ->
+                layout.usesDate() ? dateFileController.resolveMetaCreationDate(entry) : null;
+            default ->
+                null;
+        };
+    }
+
+    private static LocalDateTime toLocalDateTime(FileTime time) {
+        return time == null ? null : LocalDateTime.ofInstant(time.toInstant(), ZoneId.systemDefault());
+    }
+
     protected boolean existsDirectory(Path pathDestination) {
         return Files.exists(pathDestination) && Files.isDirectory(pathDestination);
     }
 
+    /**
+     * Creates a destination directory unless this job already created or
+     * found it, which saves a stat per copied file.
+     *
+     * @param directory the directory.
+     * @throws IOException if the directory cannot be created.
+     */
+    protected void createDestinationDirectory(Path directory) throws IOException {
+        if (!createdDirectories.contains(directory)) {
+            Files.createDirectories(directory);
+            createdDirectories.add(directory);
+        }
+    }
+
     protected boolean createDirectory(Path pathDestination) {
         try {
             Files.createDirectories(pathDestination);
@@ -75,23 +255,6 @@ public abstract class FileController {
         return true;
     }
 
-    protected void applyAttributes(Path originPath, Path destinationPath, LocalDateTime creationDate) {
-        try {
-            FileTime creationFileTime;
-            BasicFileAttributes attrs = Files.readAttributes(originPath, BasicFileAttributes.class);
-            FileTime lastAccessTime = attrs.lastAccessTime();
-            if (creationDate != null) {
-                creationFileTime = FileTime.from(creationDate.atZone(ZoneId.systemDefault()).toInstant());
-            } else {
-                creationFileTime = FileTime.from(LocalDateTime.now().atZone(ZoneId.systemDefault()).toInstant());
-            }
-            Files.getFileAttributeView(destinationPath, BasicFileAttributeView.class)
-                    .setTimes(lastAccessTime, attrs.lastModifiedTime(), creationFileTime);
-        } catch (IOException ex) {
-            logFile.anadirExcepcionLog(ex);
-        }
-    }
-
     protected int calculateBatchSize(int totalFiles) {
         int batchSize = desiredBlockSize;
         if (totalFiles <= desiredBlockSize) {
@@ -108,44 +271,107 @@ public abstract class FileController {
 
     protected boolean isSameFileContent(Path file1, Path file2) throws IOException {
         try {
-            MessageDigest digest = MessageDigest.getInstance("MD5");
-            byte[] hash1 = digest.digest(Files.readAllBytes(file1));
-            byte[] hash2 = digest.digest(Files.readAllBytes(file2));
-            return Arrays.equals(hash1, hash2);
+            if (Files.size(file1) != Files.size(file2)) {
+                return false;
+            }
+            return Arrays.equals(contentHash(file1), contentHash(file2));
         } catch (Exception e) {
             logFile.anadirExcepcionLog(e);
             return false;
         }
     }
 
+    /**
+     * Computes the SHA-256 hash of a file, reading it in chunks charged to
+     * the throttle.
+     *
+     * @param file the file to hash.
+     * @return the hash bytes.
+     * @throws IOException if the file cannot be read.
+     */
+    protected byte[] contentHash(Path file) throws IOException {
+        throttle.acquireOperations(1);
+        try (InputStream in = new ThrottledInputStream(Files.newInputStream(file), throttle)) {
+            MessageDigest digest = newContentDigest();
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return digest.digest();
+        }
+    }
+
+    /**
+     * Creates the digest of the content hashes, so a hash computed while a
+     * file is copied matches {@link #contentHash}.
+     *
+     * @return a new SHA-256 digest.
+     */
+    protected static MessageDigest newContentDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     protected void setClassificationStrategy() {
+        setClassificationStrategy(classificationContext, classifyTypes);
+    }
+
+    /**
+     * Sets the strategy of a classification type on a context.
+     *
+     * @param context the context to configure.
+     * @param classifyTypes the classification type.
+     */
+    protected void setClassificationStrategy(ClassificationContext context, ClassifyTypes classifyTypes) {
         switch (classifyTypes) {
             case FILE_TYPE:
-                classificationContext.setStrategy(new FileTypeClassificationStrategy());
+                context.setStrategy(new FileTypeClassificationStrategy(contentSniffer));
                 break;
             case FILE_EXTENSION:
-                classificationContext.setStrategy(new FileExtensionClassificationStrategy());
+                context.setStrategy(new FileExtensionClassificationStrategy());
                 break;
             case CREATION_DATE:
             case CREATION_DATE_META:
             case CREATION_DATE_MODIFY:
-                classificationContext.setStrategy(new DateClassificationStrategy());
+                context.setStrategy(new DateClassificationStrategy());
                 break;
+            case LAYOUT:
+                context.setStrategy(new LayoutClassificationStrategy(layout, contentSniffer, dateFileController::readMetadataFields));
+                break;
+            default:
+                throw new IllegalArgumentException("Classification type not supported.");
         }
     }
 
     protected Path getDestinationPathFile(Path originPath, Path destinationPath, LocalDateTime fileDate) {
-        switch (classifyTypes) {
-            case FILE_TYPE ->
-                classificationContext.setStrategy(new FileTypeClassificationStrategy());
-            case FILE_EXTENSION ->
-                classificationContext.setStrategy(new FileExtensionClassificationStrategy());
-            case CREATION_DATE, CREATION_DATE_META, CREATION_DATE_MODIFY ->
-                classificationContext.setStrategy(new DateClassificationStrategy());
-            default ->
-                throw new IllegalArgumentException("Classification type not supported.");
-        }
-        Path classifiedPath = classificationContext.classify(originPath, destinationPath, fileDate, pendients);
+        return getDestinationPathFile(originPath, destinationPath, fileDate, Files.isRegularFile(originPath));
+    }
+
+    protected Path getDestinationPathFile(Path originPath, Path destinationPath, LocalDateTime fileDate, boolean regularFile) {
+        return getDestinationPathFile(originPath, originPath, null, destinationPath, fileDate, regularFile, classificationContext);
+    }
+
+    /**
+     * Classifies a file into its destination.
+     *
+     * @param originPath the path whose name is classified and kept.
+     * @param content the readable path of the content, which differs from
+     * {@code originPath} for archive entries.
+     * @param attrs the attributes already read for the file, or {@code null}.
+     * @param destinationPath the base destination directory.
+     * @param fileDate the date of the file, or {@code null}.
+     * @param regularFile whether the origin is a regular file.
+     * @param context the classification of the destination.
+     * @return the destination file, or {@code null} if it can't be
+     * classified.
+     */
+    protected Path getDestinationPathFile(Path originPath, Path content, BasicFileAttributes attrs, Path destinationPath, LocalDateTime fileDate, boolean regularFile, ClassificationContext context) {
+        // The strategy is set once per job by setClassificationStrategy(), workers only read it
+        Path classifiedPath = context.classify(originPath, content, attrs, destinationPath, fileDate, pendients);
 
         if (classifiedPath == null) {
             return null;
@@ -153,7 +379,7 @@ public abstract class FileController {
 
         classifiedPath = Path.of(classifiedPath.toString() + "/" + originPath.getFileName());
 
-        if (Files.isRegularFile(originPath) && rename) {
+        if (regularFile && rename) {
             classifiedPath = fileRenamer.renameFile(classifiedPath, fileDate);
         }
         return classifiedPath;
@@ -0,0 +1,306 @@
+package Controller;
+
+import Controller.Throttle.Throttle;
+import Log.LogExcepcion;
+import Model.DurabilityMode;
+import Model.FileClassifier;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The FileCopier class copies the content of one file in chunks. The data is
+ * written to a hidden temporary file next to the destination, which is renamed
+ * over the destination only when the copy is complete, so an interrupted,
+ * failed or cancelled copy never leaves a half-written destination file. The
+ * {@link JobControl} is checked and the {@link Throttle} charged before every
+ * chunk.
+ * <p>
+ * Files are copied by the file system where possible. Disk images and the
+ * streamed data, such as archive entries, are read through a buffer instead
+ * and written with a {@link SparseWriter}, which leaves their zero blocks as
+ * holes, so a sparse virtual machine disk takes the space of its data and not
+ * of its apparent size. Java has no portable way to ask a file for its holes,
+ * so they are found by their zeros.
+ * </p>
+ * <p>
+ * When the caller needs the hash of the content, for the catalog, it passes a
+ * digest that is updated with every chunk as it is copied, so the copy does
+ * not have to be read again. Hashed files are copied through a buffer, since
+ * the data copied by the file system never reaches the digest.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class FileCopier {
+
+    /**
+     * Suffix of the temporary files, which are ignored when listing
+     * destination directories.
+     */
+    public static final String TEMP_SUFFIX = ".part";
+
+    // 1 MiB keeps pause/cancel latency in the millisecond range
+    private static final long CHUNK_SIZE = 1024 * 1024;
+    private static final int STREAM_BUFFER_SIZE = 256 * 1024;
+    // Smaller images are copied as they are, their holes save little
+    private static final long SPARSE_MIN_SIZE = CHUNK_SIZE;
+
+    private final JobControl jobControl;
+    private final Throttle throttle;
+    private final Syncer syncer;
+
+    /**
+     * Constructs a FileCopier that leaves the flushing of the copies to the
+     * operating system.
+     *
+     * @param jobControl the control checked between chunks.
+     * @param throttle the limits charged for every chunk.
+     */
+    public FileCopier(JobControl jobControl, Throttle throttle) {
+        this(jobControl, throttle, new Syncer(DurabilityMode.NONE, new LogExcepcion()));
+    }
+
+    /**
+     * Constructs a FileCopier.
+     *
+     * @param jobControl the control checked between chunks.
+     * @param throttle the limits charged for every chunk.
+     * @param syncer moves the copies into place, flushing them as its mode
+     * asks.
+     */
+    public FileCopier(JobControl jobControl, Throttle throttle, Syncer syncer) {
+        this.jobControl = jobControl;
+        this.throttle = throttle;
+        this.syncer = syncer;
+    }
+
+    /**
+     * Copies {@code origin} to {@code destination}, replacing it if it exists.
+     *
+     * @param origin the file to copy.
+     * @param destination the file to create or replace.
+     * @throws IOException if the copy fails; the destination is left
+     * untouched.
+     * @throws java.util.concurrent.CancellationException if the job was
+     * cancelled; the destination is left untouched.
+     */
+    public void copy(Path origin, Path destination) throws IOException {
+        copy(origin, destination, null);
+    }
+
+    /**
+     * Copies {@code origin} to {@code destination}, replacing it if it exists,
+     * and updates {@code digest} with the content copied.
+     *
+     * @param origin the file to copy.
+     * @param destination the file to create or replace.
+     * @param digest the digest to update, or {@code null} if the content is
+     * not hashed.
+     * @throws IOException if the copy fails; the destination is left
+     * untouched.
+     * @throws java.util.concurrent.CancellationException if the job was
+     * cancelled; the destination is left untouched.
+     */
+    public void copy(Path origin, Path destination, MessageDigest digest) throws IOException {
+        if (origin.getFileSystem() != FileSystems.getDefault()) {
+            // Archive entries have no file channel of their own, stream them
+            throttle.acquireOperations(1);
+            try (InputStream in = Files.newInputStream(origin)) {
+                copy(in, destination, digest);
+            }
+            return;
+        }
+        Path temp = tempFileFor(destination);
+        throttle.acquireOperations(2);
+        try {
+            boolean sparse = FileClassifier.DISK_IMAGE.equals(FileClassifier.getFileType(origin));
+            try (FileChannel in = FileChannel.open(origin, StandardOpenOption.READ);
+                    FileChannel out = sparse
+                            ? FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.SPARSE)
+                            : FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                long size = in.size();
+                if (sparse && size >= SPARSE_MIN_SIZE) {
+                    copySparse(in, out, digest);
+                } else if (digest != null) {
+                    copyBuffered(in, out, digest);
+                } else {
+                    long position = 0;
+                    while (position < size) {
+                        jobControl.checkpoint();
+                        long chunk = Math.min(CHUNK_SIZE, size - position);
+                        throttle.acquireRead(chunk);
+                        throttle.acquireWrite(chunk);
+                        long transferred = in.transferTo(position, chunk, out);
+                        if (transferred <= 0) {
+                            break; // The origin shrank while it was copied
+                        }
+                        position += transferred;
+                    }
+                }
+            }
+            jobControl.checkpoint();
+            syncer.moveIntoPlace(temp, destination);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Copies a file through a buffer, leaving its zero blocks as holes.
+     *
+     * @param in the origin.
+     * @param out the new destination.
+     */
+    private void copySparse(FileChannel in, FileChannel out, MessageDigest digest) throws IOException {
+        SparseWriter writer = new SparseWriter(out);
+        ByteBuffer buffer = ByteBuffer.allocate((int) CHUNK_SIZE);
+        while (in.read(buffer) >= 0) {
+            jobControl.checkpoint();
+            if (!buffer.hasRemaining()) {
+                writeBuffer(buffer, writer, digest);
+            }
+        }
+        writeBuffer(buffer, writer, digest);
+        writer.finish();
+    }
+
+    /**
+     * Copies a file through a buffer, hashing every chunk on its way.
+     *
+     * @param in the origin.
+     * @param out the new destination.
+     * @param digest the digest to update.
+     */
+    private void copyBuffered(FileChannel in, FileChannel out, MessageDigest digest) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) CHUNK_SIZE);
+        while (in.read(buffer) >= 0) {
+            jobControl.checkpoint();
+            buffer.flip();
+            int length = buffer.remaining();
+            throttle.acquireRead(length);
+            throttle.acquireWrite(length);
+            digest.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Copies a stream, such as an entry read from an archive, to
+     * {@code destination}, replacing it if it exists.
+     *
+     * @param in the data to copy; it is read to the end but not closed.
+     * @param destination the file to create or replace.
+     * @param digest the digest to update, or {@code null} if the content is
+     * not hashed.
+     * @throws IOException if the copy fails; the destination is left
+     * untouched.
+     * @throws java.util.concurrent.CancellationException if the job was
+     * cancelled; the destination is left untouched.
+     */
+    public void copy(InputStream in, Path destination, MessageDigest digest) throws IOException {
+        Path temp = spool(in, destination, digest);
+        try {
+            jobControl.checkpoint();
+            syncer.moveIntoPlace(temp, destination);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Writes a stream to a new temporary file next to {@code near}. The caller
+     * moves the file into place with {@link Syncer#moveIntoPlace} or deletes
+     * it.
+     * Used when the destination of the data is only known once it has been
+     * read, as for the entries of a TAR stream.
+     *
+     * @param in the data to write; it is read to the end but not closed.
+     * @param near a path in the directory where the file is created.
+     * @param digest the digest to update, or {@code null} if the content is
+     * not hashed.
+     * @return the temporary file.
+     * @throws IOException if the data cannot be written.
+     */
+    public Path spool(InputStream in, Path near, MessageDigest digest) throws IOException {
+        Path temp = tempFileFor(near);
+        throttle.acquireOperations(1);
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.SPARSE)) {
+            SparseWriter writer = new SparseWriter(out);
+            ReadableByteChannel channel = Channels.newChannel(in);
+            ByteBuffer buffer = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+            while (channel.read(buffer) >= 0) {
+                jobControl.checkpoint();
+                if (!buffer.hasRemaining()) {
+                    writeBuffer(buffer, writer, digest);
+                }
+            }
+            writeBuffer(buffer, writer, digest);
+            writer.finish();
+            return temp;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    private void writeBuffer(ByteBuffer buffer, SparseWriter writer, MessageDigest digest) throws IOException {
+        buffer.flip();
+        int length = buffer.remaining();
+        if (length > 0) {
+            if (digest != null) {
+                digest.update(buffer.duplicate());
+            }
+            throttle.acquireRead(length);
+            int written = writer.write(buffer);
+            // Only the data reaches the disk, the holes are not charged
+            if (written > 0) {
+                throttle.acquireWrite(written);
+            }
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Returns a unique temporary path in the directory of the destination.
+     *
+     * @param destination the final destination.
+     * @return the temporary path.
+     */
+    public static Path tempFileFor(Path destination) {
+        return destination.resolveSibling("." + destination.getFileName() + "."
+                + Long.toHexString(ThreadLocalRandom.current().nextLong()) + TEMP_SUFFIX);
+    }
+
+    /**
+     * Renames a complete temporary file over its destination, atomically when
+     * the file system supports it.
+     *
+     * @param temp the complete temporary file.
+     * @param destination the final destination.
+     * @throws IOException if the rename fails.
+     */
+    public static void moveIntoPlace(Path temp, Path destination) throws IOException {
+        try {
+            Files.move(temp, destination, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, destination, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -45,7 +45,7 @@ public class FileRenamer {
             fileExtension = originalName.substring(extensionIndex);
         }
 
-        String newFileName = dateFormatter.format(fileDate) + "." + fileExtension;
+        String newFileName = dateFormatter.format(fileDate) + fileExtension;
 
         return originalFilePath.resolveSibling(newFileName);
     }
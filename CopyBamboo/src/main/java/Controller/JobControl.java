@@ -0,0 +1,79 @@
+package Controller;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * The JobControl class lets the user pause, resume and cancel a running copy
+ * job. The copy workers call {@link #checkpoint()} between files and between
+ * the chunks of every file, so a pause or a cancellation takes effect within
+ * milliseconds even in the middle of a large file.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class JobControl {
+
+    private volatile boolean paused;
+    private volatile boolean cancelled;
+
+    /**
+     * Pauses the job. Workers block at their next checkpoint until
+     * {@link #resume()} or {@link #cancel()} is called.
+     */
+    public synchronized void pause() {
+        if (!cancelled) {
+            paused = true;
+        }
+    }
+
+    /**
+     * Resumes a paused job.
+     */
+    public synchronized void resume() {
+        paused = false;
+        notifyAll();
+    }
+
+    /**
+     * Cancels the job. Files not started are skipped and files being copied
+     * are abandoned at their next chunk, without leaving partial files.
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        paused = false;
+        notifyAll();
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Blocks while the job is paused and aborts the caller if the job was
+     * cancelled. Costs two volatile reads when the job is running.
+     *
+     * @throws CancellationException if the job has been cancelled, or the
+     * waiting thread was interrupted.
+     */
+    public void checkpoint() {
+        if (!paused && !cancelled) {
+            return;
+        }
+        synchronized (this) {
+            while (paused && !cancelled) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException("Copy interrupted");
+                }
+            }
+        }
+        if (cancelled) {
+            throw new CancellationException("Copy cancelled");
+        }
+    }
+}
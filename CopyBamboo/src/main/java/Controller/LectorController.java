@@ -7,6 +7,10 @@ package Controller;
 import Model.ClassifyTypes;
 import Log.LogExcepcion;
 import Log.LogHandler;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  *
@@ -29,6 +33,7 @@ public class LectorController {
 
     private final LogExcepcion logFile = new LogExcepcion();// Instance for logging exceptions
     private final LogHandler logWindow; // Interface for logging actions in the UI
+    private final JobControl jobControl = new JobControl(); // Pause, resume and cancel of the copy
 
     /**
      * Constructs a new LectorController with the provided LogHandler. This is
@@ -41,6 +46,16 @@ public class LectorController {
 
     }
 
+    /**
+     * Returns the control used to pause, resume or cancel the copy started by
+     * {@link #copyDirectory} or {@link #copyDirectories}.
+     *
+     * @return the job control.
+     */
+    public JobControl getJobControl() {
+        return jobControl;
+    }
+
     /**
      * Initiates the process of copying a directory from the origin path to the
      * destination path. It delegates the task to the CopyController class,
@@ -57,10 +72,34 @@ public class LectorController {
      * {@code false} if an error occurred.
      */
     public boolean copyDirectory(String origin, String destination, ClassifyTypes classifyTypes, boolean rename, boolean pendients, boolean overwrite) {
+        return copyDirectories(List.of(origin), destination, classifyTypes, rename, pendients, overwrite);
+    }
+
+    /**
+     * Copies several origins, such as memory cards and drives, into one
+     * destination in a single job. The origins are scanned at the same time
+     * and share the classification and copy workers.
+     *
+     * @param origins the paths to the source directories.
+     * @param destination the path to the destination directory.
+     * @param classifyTypes the classification strategy to use for categorizing
+     * files.
+     * @param rename whether to rename the files during the copying process.
+     * @param pendients whether to handle pending files during the process.
+     * @param overwrite whether to overwrite existing files in the destination.
+     * @return {@code true} if the directories were successfully copied;
+     * {@code false} if an error occurred.
+     */
+    public boolean copyDirectories(List<String> origins, String destination, ClassifyTypes classifyTypes, boolean rename, boolean pendients, boolean overwrite) {
         try {
             // Create an instance of CopyController and start the copying process
-
-            CopyController copyController = new CopyController(classifyTypes, origin, destination, rename, pendients, overwrite, logWindow);
+            List<Path> originPaths = new ArrayList<>();
+            for (String origin : origins) {
+                originPaths.add(Paths.get(origin));
+            }
+            CopyController copyController = new CopyController(classifyTypes, origins.get(0), destination, rename, pendients, overwrite, logWindow);
+            copyController.setOriginPaths(originPaths);
+            copyController.setJobControl(jobControl);
             copyController.StartCopy();
         } catch (Exception e) {
             logFile.anadirExcetionCustom("Error in copy action " + e.getMessage());
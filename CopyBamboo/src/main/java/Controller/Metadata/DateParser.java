@@ -0,0 +1,239 @@
+package Controller.Metadata;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The DateParser class reads the dates found in the metadata of files. It
+ * accepts the layouts written by cameras, phones and editors:
+ * <ul>
+ * <li>ISO 8601, as in XMP and QuickTime: {@code 2023-07-04T10:15:30},
+ * {@code 2023-07-04 10:15:30.250}, {@code 2023-07-04T10:15:30Z},
+ * {@code 2023-07-04T10:15:30+02:00} or only {@code 2023-07-04}.</li>
+ * <li>EXIF: {@code 2023:07:04 10:15:30}.</li>
+ * <li>ISO 8601 basic: {@code 20230704T101530Z} or {@code 20230704}.</li>
+ * </ul>
+ * <p>
+ * Dates are read with a scanner over the characters of the text, so a value
+ * that is not a date costs a few comparisons instead of an exception. The
+ * layout that read a tag is remembered for that tag and file type and tried
+ * first next time, since a camera or a format always writes a tag the same
+ * way.
+ * </p>
+ * <p>
+ * Dates with an offset, such as the UTC dates ({@code Z} or {@code +00:00})
+ * QuickTime and many XMP writers store, are converted to the time zone of the
+ * system, like the dates of the file system, whatever their offset. Dates
+ * without one, like the EXIF dates, keep the time they were written with.
+ * The QuickTime empty date, 1904-01-01 00:00:00, is not a date.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class DateParser {
+
+    private enum Format {
+        ISO, EXIF, BASIC
+    }
+
+    private static final Format[] FORMATS = Format.values();
+    private static final LocalDateTime QUICKTIME_EMPTY_DATE = LocalDateTime.of(1904, 1, 1, 0, 0);
+    // Offset of the dates without one
+    private static final int NO_OFFSET = Integer.MIN_VALUE;
+    private static final int[] FRACTION_SCALE = {
+        0, 100_000_000, 10_000_000, 1_000_000, 100_000, 10_000, 1_000, 100, 10, 1
+    };
+
+    // Layout that last read every tag, by file type
+    private final Map<String, Map<String, Format>> formats = new ConcurrentHashMap<>();
+
+    /**
+     * Parses a date read from a metadata tag.
+     *
+     * @param text the value of the tag.
+     * @param tag the name of the tag.
+     * @param fileType the type of the file, such as its media type, or
+     * {@code null} if unknown.
+     * @return the date in the time of the system, or {@code null} if the value
+     * is not a date.
+     */
+    public LocalDateTime parse(String text, String tag, String fileType) {
+        if (text == null) {
+            return null;
+        }
+        text = text.trim();
+        Map<String, Format> byType = formats.computeIfAbsent(tag, t -> new ConcurrentHashMap<>());
+        String type = fileType == null ? "" : fileType;
+        Format known = byType.get(type);
+        if (known != null) {
+            LocalDateTime date = scan(text, known);
+            if (date != null) {
+                return date == QUICKTIME_EMPTY_DATE ? null : date;
+            }
+        }
+        for (Format format : FORMATS) {
+            if (format == known) {
+                continue;
+            }
+            LocalDateTime date = scan(text, format);
+            if (date != null) {
+                byType.put(type, format);
+                return date == QUICKTIME_EMPTY_DATE ? null : date;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads a date in one layout.
+     *
+     * @return the date, {@link #QUICKTIME_EMPTY_DATE} itself for the empty
+     * date, or {@code null} if the text is not a date in that layout.
+     */
+    private static LocalDateTime scan(String text, Format format) {
+        int length = text.length();
+        char separator = switch (format) {
+            case ISO ->
+                '-';
+            case EXIF ->
+                ':';
+            case BASIC ->
+                0;
+        };
+        int p = 0;
+        int year = digits(text, p, 4);
+        p += 4;
+        if (separator != 0 && !at(text, p++, separator)) {
+            return null;
+        }
+        int month = digits(text, p, 2);
+        p += 2;
+        if (separator != 0 && !at(text, p++, separator)) {
+            return null;
+        }
+        int day = digits(text, p, 2);
+        p += 2;
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            return null;
+        }
+        if (p == length) {
+            return LocalDateTime.of(year, month, day, 0, 0);
+        }
+
+        char timeSeparator = text.charAt(p++);
+        if (timeSeparator != 'T' && (timeSeparator != ' ' || format == Format.BASIC)) {
+            return null;
+        }
+        boolean extended = format != Format.BASIC;
+        int hour = digits(text, p, 2);
+        p += 2;
+        if (extended && !at(text, p++, ':')) {
+            return null;
+        }
+        int minute = digits(text, p, 2);
+        p += 2;
+        int second = 0;
+        int nanos = 0;
+        if (extended ? at(text, p, ':') : p < length && isDigit(text.charAt(p))) {
+            if (extended) {
+                p++;
+            }
+            second = digits(text, p, 2);
+            p += 2;
+            if (at(text, p, '.') || at(text, p, ',')) {
+                int start = ++p;
+                while (p < length && isDigit(text.charAt(p)) && p - start < 9) {
+                    nanos = nanos * 10 + text.charAt(p++) - '0';
+                }
+                if (p == start) {
+                    return null;
+                }
+                nanos *= FRACTION_SCALE[p - start];
+                // Digits past the nanoseconds are dropped
+                while (p < length && isDigit(text.charAt(p))) {
+                    p++;
+                }
+            }
+        }
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return null;
+        }
+
+        int offset = NO_OFFSET;
+        if (p < length) {
+            char sign = text.charAt(p++);
+            if ((sign == 'Z' || sign == 'z') && p == length) {
+                offset = 0;
+            } else if (sign == '+' || sign == '-') {
+                int offsetHours = digits(text, p, 2);
+                p += 2;
+                int offsetMinutes = 0;
+                if (p < length) {
+                    if (at(text, p, ':')) {
+                        p++;
+                    }
+                    offsetMinutes = digits(text, p, 2);
+                    p += 2;
+                }
+                if (p != length || offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59) {
+                    return null;
+                }
+                offset = (sign == '-' ? -1 : 1) * (offsetHours * 3600 + offsetMinutes * 60);
+            } else {
+                return null;
+            }
+        }
+
+        LocalDateTime date = LocalDateTime.of(year, month, day, hour, minute, second, nanos);
+        if (date.equals(QUICKTIME_EMPTY_DATE)) {
+            return QUICKTIME_EMPTY_DATE;
+        }
+        if (offset != NO_OFFSET) {
+            return LocalDateTime.ofInstant(date.toInstant(ZoneOffset.ofTotalSeconds(offset)), ZoneId.systemDefault());
+        }
+        return date;
+    }
+
+    /**
+     * Reads a number of decimal digits.
+     *
+     * @return the number, or -1 if the text doesn't have that many digits at
+     * that position.
+     */
+    private static int digits(String text, int start, int count) {
+        if (start + count > text.length()) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + c - '0';
+        }
+        return value;
+    }
+
+    private static boolean at(String text, int index, char c) {
+        return index < text.length() && text.charAt(index) == c;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+            case 2 ->
+                (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 ->
+                30;
+            default ->
+                31;
+        };
+    }
+}
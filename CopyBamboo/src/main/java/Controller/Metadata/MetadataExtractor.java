@@ -0,0 +1,228 @@
+package Controller.Metadata;
+
+import Controller.Throttle.Throttle;
+import Controller.Throttle.ThrottledInputStream;
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * The MetadataExtractor class reads the metadata of files with Tika, and
+ * nothing else.
+ * <p>
+ * Files are parsed in the calling thread by a single {@link AutoDetectParser}
+ * shared by every extractor, with a content handler that drops the text of the
+ * document and stops the parse as soon as the parser starts writing the body,
+ * since by then the parser has filled the metadata. Embedded documents are
+ * not parsed. At most {@link #getMaxBytes()} bytes of every file are read, so
+ * a large file without metadata near its start costs a bounded read instead
+ * of a full one.
+ * </p>
+ * <p>
+ * The last file extracted by every thread is remembered while it is not
+ * modified, so the date and the metadata levels of a layout parse the same
+ * file only once.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class MetadataExtractor {
+
+    /**
+     * The default maximum number of bytes read from a file.
+     */
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    /**
+     * Keeps Tika out of the classes loaded by the jobs that never read
+     * metadata. The parser is thread safe and expensive to create.
+     */
+    private static final class ParserHolder {
+
+        private static final AutoDetectParser PARSER = new AutoDetectParser();
+    }
+
+    /**
+     * Thrown by the handler to end a parse once the metadata is known.
+     */
+    private static final class MetadataComplete extends SAXException {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final MetadataComplete INSTANCE = new MetadataComplete();
+
+        private MetadataComplete() {
+            super("Metadata complete");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    /**
+     * Drops the content of the document and ends the parse when the body
+     * starts.
+     */
+    private static final class MetadataOnlyHandler extends DefaultHandler {
+
+        private static final MetadataOnlyHandler INSTANCE = new MetadataOnlyHandler();
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+            if ("body".equals(localName) || "body".equals(qName)) {
+                throw MetadataComplete.INSTANCE;
+            }
+        }
+    }
+
+    /**
+     * Ends the stream after a number of bytes, as if the file ended there.
+     */
+    private static final class BoundedInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.remaining = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    /**
+     * The last file extracted by a thread.
+     */
+    private static final class LastExtraction {
+
+        private Path file;
+        private FileTime modified;
+        private Metadata metadata;
+    }
+
+    private final ThreadLocal<LastExtraction> last = ThreadLocal.withInitial(LastExtraction::new);
+    private volatile long maxBytes = DEFAULT_MAX_BYTES;
+    private Throttle throttle = new Throttle();
+
+    /**
+     * Sets the throttle charged for the metadata reads.
+     *
+     * @param throttle the throttle to charge.
+     */
+    public void setThrottle(Throttle throttle) {
+        this.throttle = throttle;
+    }
+
+    /**
+     * Sets the maximum number of bytes read from a file. Formats that keep
+     * their metadata at the end, such as some videos, need a limit larger
+     * than the file to be read.
+     *
+     * @param maxBytes the limit, at least 1.
+     */
+    public void setMaxBytes(long maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("The metadata read limit must be at least 1 byte.");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Extracts the metadata of a file. The file may also be an entry of an
+     * archive opened as a file system.
+     *
+     * @param file the file.
+     * @return the metadata found, which may be empty or partial if the file is
+     * damaged, of an unknown format or longer than the read limit.
+     * @throws IOException if the file cannot be read.
+     */
+    public Metadata extract(Path file) throws IOException {
+        LastExtraction extraction = last.get();
+        FileTime modified = Files.getLastModifiedTime(file);
+        if (file.equals(extraction.file) && modified.equals(extraction.modified)) {
+            return extraction.metadata;
+        }
+        Metadata metadata = new Metadata();
+        try (InputStream in = open(file)) {
+            ParserHolder.PARSER.parse(in, MetadataOnlyHandler.INSTANCE, metadata, new ParseContext());
+        } catch (MetadataComplete e) {
+            // The body started, the metadata is complete
+        } catch (SAXException | TikaException | RuntimeException e) {
+            // Damaged, truncated by the limit or unsupported: keep what was found
+        }
+        extraction.file = file;
+        extraction.modified = modified;
+        extraction.metadata = metadata;
+        return metadata;
+    }
+
+    /**
+     * Opens a file for reading its metadata, charged to the throttle and
+     * ending at the read limit like the reads of {@link #extract(Path)}.
+     *
+     * @param file the file.
+     * @return the buffered content of the file, up to the read limit.
+     * @throws IOException if the file cannot be opened.
+     */
+    public InputStream open(Path file) throws IOException {
+        throttle.acquireOperations(1);
+        return new BufferedInputStream(new BoundedInputStream(
+                new ThrottledInputStream(Files.newInputStream(file), throttle), maxBytes), 64 * 1024);
+    }
+}
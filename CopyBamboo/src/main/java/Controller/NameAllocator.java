@@ -0,0 +1,298 @@
+package Controller;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The NameAllocator class gives every file copied into a directory a name of
+ * its own, so that files renamed to the same name, such as the photos of a
+ * burst taken within the same second, are all kept: the first one gets the
+ * name and the next ones get {@code _1}, {@code _2}... before the extension,
+ * as the plans do.
+ * <p>
+ * Every destination directory is listed once, the first time a name is
+ * allocated in it, and the names handed out are reserved in memory, so the
+ * copy workers never probe the file system for a free name and two workers
+ * never get the same one. Every name keeps a counter of the suffixes already
+ * given, so the next free name is usually found at the first try. Names are
+ * compared ignoring case, so the copies also stay apart on file systems that
+ * ignore it.
+ * </p>
+ * <p>
+ * A file whose content is already under the name or one of its suffixed
+ * names, copied by a previous job or reserved by another file of this one,
+ * gets that name back, so the copy finds it identical instead of keeping a
+ * second copy. The files under every name are indexed by size and hash, so
+ * finding the copy is a single lookup however many suffixes are taken, and a
+ * file is only hashed when another one has its size, once however many files
+ * are compared with it. The files given the same name are allocated one at a time, so two copies
+ * of a file allocated at once also get the same name.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class NameAllocator {
+
+    /**
+     * Computes the hash of the content of a file.
+     */
+    @FunctionalInterface
+    public interface ContentHash {
+
+        /**
+         * Hashes a file.
+         *
+         * @param file the file.
+         * @return the hash of its content.
+         * @throws IOException if the file cannot be read.
+         */
+        byte[] of(Path file) throws IOException;
+    }
+
+    /**
+     * The content of a file under a name, hashed the first time it is
+     * compared with a file of the same size.
+     */
+    private static final class Content {
+
+        // Hash of a file that couldn't be read, equal to no other
+        private static final byte[] UNREADABLE = new byte[0];
+
+        private final Path file;
+        private final long size;
+        // Where the content is or will be copied, read if the file is gone,
+        // such as a temporary copy or an archive entry
+        private Path destination;
+        private byte[] hash;
+
+        Content(Path file, Path destination, long size) {
+            this.file = file;
+            this.destination = destination;
+            this.size = size;
+        }
+
+        synchronized byte[] hash(ContentHash hasher) {
+            if (hash == null) {
+                try {
+                    hash = hasher.of(file);
+                } catch (IOException e) {
+                    hash = UNREADABLE;
+                    if (destination != null && !destination.equals(file)) {
+                        try {
+                            hash = hasher.of(destination);
+                        } catch (IOException ex) {
+                            // Compared as different
+                        }
+                    }
+                }
+            }
+            return hash;
+        }
+
+        synchronized Path getDestination() {
+            return destination;
+        }
+
+        synchronized void setDestination(Path destination) {
+            this.destination = destination;
+        }
+    }
+
+    /**
+     * The files under a name and its suffixed names, indexed by size and then
+     * by hash, so a copy of a file is found with one lookup however many of
+     * the names are taken.
+     */
+    private static final class Family {
+
+        // Next suffix to try
+        private int next;
+        private boolean listed;
+        // Files of a size no other file was looked up with yet, not hashed
+        private final Map<Long, List<Content>> unhashed = new HashMap<>();
+        private final Map<Long, Map<ByteBuffer, Content>> hashed = new HashMap<>();
+
+        /**
+         * Returns the file with the same content as {@code file}, hashing the
+         * files of its size the first time one is looked up.
+         */
+        Content find(Content file, ContentHash hasher) {
+            List<Content> sameSize = unhashed.remove(file.size);
+            if (sameSize != null) {
+                Map<ByteBuffer, Content> hashes = hashed.computeIfAbsent(file.size, s -> new HashMap<>());
+                for (Content content : sameSize) {
+                    put(hashes, content, hasher);
+                }
+            }
+            Map<ByteBuffer, Content> hashes = hashed.get(file.size);
+            if (hashes == null) {
+                return null;
+            }
+            byte[] hash = file.hash(hasher);
+            return hash == Content.UNREADABLE ? null : hashes.get(ByteBuffer.wrap(hash));
+        }
+
+        void add(Content file, ContentHash hasher) {
+            Map<ByteBuffer, Content> hashes = hashed.get(file.size);
+            if (hashes != null) {
+                put(hashes, file, hasher);
+            } else {
+                unhashed.computeIfAbsent(file.size, s -> new ArrayList<>()).add(file);
+            }
+        }
+
+        private static void put(Map<ByteBuffer, Content> hashes, Content file, ContentHash hasher) {
+            byte[] hash = file.hash(hasher);
+            if (hash != Content.UNREADABLE) {
+                // The first file with the content keeps its name
+                hashes.putIfAbsent(ByteBuffer.wrap(hash), file);
+            }
+        }
+    }
+
+    /**
+     * The names of a destination directory.
+     */
+    private static final class Directory {
+
+        private final Path path;
+        // Names found when the directory was listed by their key, empty if it didn't exist
+        private volatile Map<String, String> existing;
+        // Names handed out by this allocator
+        private final Set<String> reserved = ConcurrentHashMap.newKeySet();
+        // The names handed out and found for every requested name, also locked while it is allocated
+        private final ConcurrentHashMap<String, Family> families = new ConcurrentHashMap<>();
+
+        Directory(Path path) {
+            this.path = path;
+        }
+
+        Map<String, String> existing() {
+            Map<String, String> names = existing;
+            if (names == null) {
+                synchronized (this) {
+                    names = existing;
+                    if (names == null) {
+                        names = list(path);
+                        existing = names;
+                    }
+                }
+            }
+            return names;
+        }
+
+        Content existingContent(String name) {
+            Path file = path.resolve(name);
+            try {
+                return new Content(file, file, Files.size(file));
+            } catch (IOException e) {
+                // Gone or unreadable, no file has its size
+                return new Content(file, file, -1);
+            }
+        }
+
+        private static Map<String, String> list(Path path) {
+            Map<String, String> names = new HashMap<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+                for (Path file : stream) {
+                    String name = file.getFileName().toString();
+                    names.put(key(name), name);
+                }
+            } catch (NoSuchFileException e) {
+                // A new directory, every name is free
+            } catch (IOException e) {
+                // Unreadable: the copy will report it
+            }
+            return names;
+        }
+    }
+
+    private final ConcurrentHashMap<Path, Directory> directories = new ConcurrentHashMap<>();
+    private final ContentHash hasher;
+
+    /**
+     * Constructs a NameAllocator.
+     *
+     * @param hasher hashes the files of the same size to find the copies.
+     */
+    public NameAllocator(ContentHash hasher) {
+        this.hasher = hasher;
+    }
+
+    /**
+     * Allocates a name for a file: the name or suffixed name that already
+     * holds its content, or a free one.
+     *
+     * @param destination the wanted destination.
+     * @param content a readable copy of the content of the file.
+     * @param size the size of the file.
+     * @param overwrite whether the files already in the directory may be
+     * replaced; only the names allocated by this allocator are then avoided
+     * or reused.
+     * @return the destination itself if its name is free or holds the same
+     * content, or a sibling with a suffixed name otherwise.
+     */
+    public Path allocate(Path destination, Path content, long size, boolean overwrite) {
+        Directory directory = directory(destination);
+        String name = destination.getFileName().toString();
+        Map<String, String> existing = overwrite ? Map.of() : directory.existing();
+        Content file = new Content(content, null, size);
+        Family family = directory.families.computeIfAbsent(key(name), k -> new Family());
+        synchronized (family) {
+            if (!family.listed) {
+                // Copies of a previous job fill the suffixes in order
+                family.listed = true;
+                for (int n = 0;; n++) {
+                    String existingName = existing.get(key(n == 0 ? name : suffixed(name, n)));
+                    if (existingName == null) {
+                        break;
+                    }
+                    family.add(directory.existingContent(existingName), hasher);
+                }
+            }
+            Content taken = family.find(file, hasher);
+            if (taken != null) {
+                // Under the name as it was given, which may differ in case
+                return taken.getDestination();
+            }
+            while (true) {
+                int n = family.next++;
+                String candidate = n == 0 ? name : suffixed(name, n);
+                String candidateKey = key(candidate);
+                Path sibling = n == 0 ? destination : destination.resolveSibling(candidate);
+                if (existing.containsKey(candidateKey) || !directory.reserved.add(candidateKey)) {
+                    continue;
+                }
+                file.setDestination(sibling);
+                family.add(file, hasher);
+                return sibling;
+            }
+        }
+    }
+
+    private Directory directory(Path destination) {
+        return directories.computeIfAbsent(destination.getParent(), Directory::new);
+    }
+
+    private static String suffixed(String name, int suffix) {
+        int dot = name.lastIndexOf('.');
+        return dot > 0
+                ? name.substring(0, dot) + "_" + suffix + name.substring(dot)
+                : name + "_" + suffix;
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
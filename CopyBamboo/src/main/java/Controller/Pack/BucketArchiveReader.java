@@ -0,0 +1,137 @@
+package Controller.Pack;
+
+import Model.Json;
+import Model.PackMode;
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The BucketArchiveReader class reads single members of the archives written
+ * by {@link BucketArchiveWriter}. The index gives the offset of the member
+ * data, so a member is read with one seek instead of scanning the archive or
+ * loading its central directory.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public final class BucketArchiveReader {
+
+    private BucketArchiveReader() {
+    }
+
+    /**
+     * Opens a member of a bucket archive.
+     *
+     * @param archive the archive.
+     * @param name the member name.
+     * @return the content of the member; closing it closes the archive.
+     * @throws IOException if the index or the archive cannot be read, or the
+     * archive has no such member.
+     */
+    public static InputStream openMember(Path archive, String name) throws IOException {
+        Map<String, String> member = null;
+        for (Map<String, String> candidate : members(archive)) {
+            if (name.equals(candidate.get("name"))) {
+                member = candidate;
+                break;
+            }
+        }
+        if (member == null) {
+            throw new IOException("No member " + name + " in " + archive);
+        }
+        return openMember(archive, member);
+    }
+
+    /**
+     * Opens a member of a bucket archive from its index entry.
+     *
+     * @param archive the archive.
+     * @param member the index entry of the member, as returned by
+     * {@link #members(Path)}.
+     * @return the content of the member; closing it closes the archive.
+     * @throws IOException if the archive cannot be read.
+     */
+    static InputStream openMember(Path archive, Map<String, String> member) throws IOException {
+        long dataOffset = Long.parseLong(member.get("dataOffset"));
+        long compressedSize = Long.parseLong(member.get("compressedSize"));
+        FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ);
+        try {
+            channel.position(dataOffset);
+            InputStream raw = limit(Channels.newInputStream(channel), compressedSize);
+            if (PackMode.STORE.name().equals(member.get("method"))) {
+                return raw;
+            }
+            return new InflaterInputStream(raw, new Inflater(true));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the index of a bucket archive.
+     *
+     * @param archive the archive.
+     * @return the index entry of every member, in archive order.
+     * @throws IOException if the index cannot be read or is not a bucket
+     * archive index.
+     */
+    static List<Map<String, String>> members(Path archive) throws IOException {
+        Path index = BucketArchiveWriter.indexOf(archive);
+        List<Map<String, String>> members = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(index, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (line == null || !String.valueOf(BucketArchiveWriter.FORMAT_VERSION).equals(Json.parseObject(line).get("index"))) {
+                throw new IOException("Not a bucket archive index: " + index);
+            }
+            while ((line = reader.readLine()) != null) {
+                members.add(Json.parseObject(line));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid bucket archive index: " + index, e);
+        }
+        return members;
+    }
+
+    private static InputStream limit(InputStream in, long length) {
+        return new FilterInputStream(in) {
+            private long remaining = length;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int value = super.read();
+                if (value >= 0) {
+                    remaining--;
+                }
+                return value;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int count) throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int read = super.read(buffer, offset, (int) Math.min(count, remaining));
+                if (read > 0) {
+                    remaining -= read;
+                }
+                return read;
+            }
+        };
+    }
+}
@@ -0,0 +1,342 @@
+package Controller.Pack;
+
+import Controller.FileCopier;
+import Controller.Throttle.Throttle;
+import Model.Json;
+import Model.PackMode;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * The BucketArchiveWriter class writes the files of one destination bucket
+ * into a single streaming ZIP archive, together with an index that records
+ * where every member starts, so a member can be read without scanning the
+ * archive (see {@link BucketArchiveReader}).
+ * <p>
+ * A bucket has exactly one writer and members are appended one at a time:
+ * the copy workers read and checksum their files concurrently and then take
+ * turns on the writer, so the disk only sees large sequential writes. The
+ * archive and its index are written to temporary files and renamed into place
+ * by {@link #close()}, so an interrupted job never leaves a truncated archive.
+ * When the archive already exists, which only happens when overwriting, its
+ * members that were not replaced by a member of the same name are copied into
+ * the new archive before it takes its place.
+ * </p>
+ * The index is written as JSON lines next to the archive:
+ * <pre>
+ * {"index":1,"archive":"7.zip"}
+ * {"name":"a.jpg","offset":0,"dataOffset":35,"size":1024,"compressedSize":1024,"crc":305419896,"method":"STORE","modified":"2023-07-01T10:00:00Z","origin":"/in/a.jpg"}
+ * </pre>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class BucketArchiveWriter {
+
+    public static final String INDEX_SUFFIX = ".idx";
+    static final int FORMAT_VERSION = 1;
+
+    /**
+     * Counts the bytes written to the archive, which gives the offset of each
+     * member.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            out.write(buffer, offset, length);
+            count += length;
+        }
+    }
+
+    private final Path archive;
+    private final Path tempArchive;
+    private final Path tempIndex;
+    private final PackMode mode;
+    private final Throttle throttle;
+    private final CountingOutputStream counter;
+    private final ZipOutputStream zip;
+    private final BufferedWriter index;
+    private final Set<String> names = new HashSet<>();
+    private final byte[] buffer = new byte[64 * 1024];
+    private boolean failed;
+
+    /**
+     * Creates the temporary archive and index of a bucket.
+     *
+     * @param archive the final path of the archive.
+     * @param mode {@link PackMode#STORE} or {@link PackMode#DEFLATE}.
+     * @param throttle the throttle charged for the bytes written.
+     * @throws IOException if the files cannot be created.
+     */
+    public BucketArchiveWriter(Path archive, PackMode mode, Throttle throttle) throws IOException {
+        this.archive = archive;
+        this.mode = mode;
+        this.throttle = throttle;
+        Files.createDirectories(archive.getParent());
+        this.tempArchive = FileCopier.tempFileFor(archive);
+        this.tempIndex = FileCopier.tempFileFor(indexOf(archive));
+        throttle.acquireOperations(2);
+        this.counter = new CountingOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(tempArchive, StandardOpenOption.CREATE_NEW), 256 * 1024));
+        this.zip = new ZipOutputStream(counter);
+        this.zip.setMethod(mode == PackMode.STORE ? ZipOutputStream.STORED : ZipOutputStream.DEFLATED);
+        this.index = Files.newBufferedWriter(tempIndex, StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW);
+        index.write("{\"index\":" + FORMAT_VERSION + ",\"archive\":" + Json.quote(archive.getFileName().toString()) + "}");
+        index.newLine();
+    }
+
+    /**
+     * Returns the index file of an archive.
+     *
+     * @param archive the archive.
+     * @return the index next to it.
+     */
+    public static Path indexOf(Path archive) {
+        return archive.resolveSibling(archive.getFileName() + INDEX_SUFFIX);
+    }
+
+    public Path getArchive() {
+        return archive;
+    }
+
+    /**
+     * Appends a member whose data was already read into memory.
+     *
+     * @param name the wanted member name; a suffix is added if the bucket
+     * already has a member with this name.
+     * @param data the content.
+     * @param crc the CRC-32 of the content.
+     * @param modified the modification time of the member.
+     * @param created the creation time of the member, may be {@code null}.
+     * @param origin the origin of the file, recorded in the index.
+     * @return the member name used.
+     * @throws IOException if the archive cannot be written.
+     */
+    public synchronized String add(String name, byte[] data, long crc, FileTime modified, FileTime created, String origin) throws IOException {
+        checkUsable();
+        ZipEntry entry = newEntry(name, data.length, crc, modified, created);
+        long offset = counter.count;
+        try {
+            zip.putNextEntry(entry);
+            long dataOffset = counter.count;
+            throttle.acquireWrite(data.length);
+            zip.write(data);
+            zip.closeEntry();
+            writeIndex(entry, offset, dataOffset, origin);
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            throw e;
+        }
+        return entry.getName();
+    }
+
+    /**
+     * Appends a member streamed from a file, for files too large to be read
+     * into memory first.
+     *
+     * @param name the wanted member name.
+     * @param file the file to pack.
+     * @param size the size of the file.
+     * @param crc the CRC-32 of the file, only needed for
+     * {@link PackMode#STORE}.
+     * @param modified the modification time of the member.
+     * @param created the creation time of the member, may be {@code null}.
+     * @param origin the origin of the file, recorded in the index.
+     * @return the member name used.
+     * @throws IOException if the file cannot be read or the archive written;
+     * the archive can't be completed afterwards, see {@link #isFailed()}.
+     */
+    public synchronized String add(String name, Path file, long size, long crc, FileTime modified, FileTime created, String origin) throws IOException {
+        checkUsable();
+        ZipEntry entry = newEntry(name, size, crc, modified, created);
+        long offset = counter.count;
+        try (InputStream in = Files.newInputStream(file)) {
+            zip.putNextEntry(entry);
+            long dataOffset = counter.count;
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                throttle.acquireRead(read);
+                throttle.acquireWrite(read);
+                zip.write(buffer, 0, read);
+            }
+            zip.closeEntry();
+            writeIndex(entry, offset, dataOffset, origin);
+        } catch (IOException | RuntimeException e) {
+            // Part of the member may already be in the archive
+            failed = true;
+            throw e;
+        }
+        return entry.getName();
+    }
+
+    /**
+     * Returns whether a member could not be written completely, which leaves
+     * the archive unusable.
+     *
+     * @return true if the archive failed.
+     */
+    public synchronized boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Discards the archive and its index.
+     *
+     * @throws IOException if the temporary files cannot be deleted.
+     */
+    public synchronized void abort() throws IOException {
+        failed = true;
+        try {
+            zip.close();
+            index.close();
+        } catch (IOException e) {
+            // The archive is discarded anyway
+        } finally {
+            Files.deleteIfExists(tempArchive);
+            Files.deleteIfExists(tempIndex);
+        }
+    }
+
+    /**
+     * Finishes the archive and its index and renames them into place.
+     *
+     * @throws IOException if the archive cannot be completed.
+     */
+    public synchronized void close() throws IOException {
+        if (failed) {
+            abort();
+            throw new IOException("Archive not completed: " + archive);
+        }
+        try {
+            if (Files.exists(indexOf(archive))) {
+                keepMembers();
+            }
+            zip.close();
+            index.close();
+            FileCopier.moveIntoPlace(tempArchive, archive);
+            FileCopier.moveIntoPlace(tempIndex, indexOf(archive));
+        } finally {
+            Files.deleteIfExists(tempArchive);
+            Files.deleteIfExists(tempIndex);
+        }
+    }
+
+    /**
+     * Copies the members of the archive being replaced that this job did not
+     * replace, so overwriting an archive only replaces the members of the
+     * same name instead of everything packed by earlier jobs.
+     */
+    private void keepMembers() throws IOException {
+        try {
+            for (Map<String, String> member : BucketArchiveReader.members(archive)) {
+                String name = member.get("name");
+                if (!names.add(name)) {
+                    // Replaced by a file of this job
+                    continue;
+                }
+                ZipEntry entry = new ZipEntry(name);
+                if (mode == PackMode.STORE) {
+                    long size = Long.parseLong(member.get("size"));
+                    entry.setSize(size);
+                    entry.setCompressedSize(size);
+                    entry.setCrc(Long.parseLong(member.get("crc")));
+                }
+                entry.setLastModifiedTime(FileTime.from(Instant.parse(member.get("modified"))));
+                long offset = counter.count;
+                try (InputStream in = BucketArchiveReader.openMember(archive, member)) {
+                    zip.putNextEntry(entry);
+                    long dataOffset = counter.count;
+                    int read;
+                    while ((read = in.read(buffer)) > 0) {
+                        throttle.acquireRead(read);
+                        throttle.acquireWrite(read);
+                        zip.write(buffer, 0, read);
+                    }
+                    zip.closeEntry();
+                    writeIndex(entry, offset, dataOffset, member.get("origin"));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // The existing archive stays in place rather than losing its members
+            abort();
+            throw new IOException("Archive not completed, the existing one is kept: " + archive + " - " + e.getMessage(), e);
+        }
+    }
+
+    private void checkUsable() throws IOException {
+        if (failed) {
+            throw new IOException("Archive not completed: " + archive);
+        }
+    }
+
+    private ZipEntry newEntry(String name, long size, long crc, FileTime modified, FileTime created) {
+        ZipEntry entry = new ZipEntry(uniqueName(name));
+        if (mode == PackMode.STORE) {
+            // Stored members need their size and checksum before the data is written
+            entry.setSize(size);
+            entry.setCompressedSize(size);
+            entry.setCrc(crc);
+        }
+        entry.setLastModifiedTime(modified);
+        if (created != null) {
+            entry.setCreationTime(created);
+        }
+        return entry;
+    }
+
+    private String uniqueName(String name) {
+        if (names.add(name)) {
+            return name;
+        }
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+        for (int counter = 1;; counter++) {
+            String candidate = base + "_" + counter + extension;
+            if (names.add(candidate)) {
+                return candidate;
+            }
+        }
+    }
+
+    private void writeIndex(ZipEntry entry, long offset, long dataOffset, String origin) throws IOException {
+        index.write("{\"name\":" + Json.quote(entry.getName())
+                + ",\"offset\":" + offset
+                + ",\"dataOffset\":" + dataOffset
+                + ",\"size\":" + entry.getSize()
+                + ",\"compressedSize\":" + entry.getCompressedSize()
+                + ",\"crc\":" + entry.getCrc()
+                + ",\"method\":" + Json.quote(entry.getMethod() == ZipEntry.STORED ? PackMode.STORE.name() : PackMode.DEFLATE.name())
+                + ",\"modified\":" + Json.quote(entry.getLastModifiedTime().toString())
+                + ",\"origin\":" + Json.quote(origin)
+                + "}");
+        index.newLine();
+    }
+}
@@ -0,0 +1,192 @@
+package Controller.Pack;
+
+import Controller.JobControl;
+import Controller.Throttle.Throttle;
+import Controller.Throttle.ThrottledInputStream;
+import Model.PackMode;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * The BucketPacker class packs the classified output into one ZIP archive per
+ * destination bucket instead of one file per copy. A file classified into
+ * {@code 2023/07/IMG_1.jpg} becomes the member {@code IMG_1.jpg} of
+ * {@code 2023/07.zip}, which saves an inode and a directory entry per file on
+ * archives of millions of small photos.
+ * <p>
+ * The copy workers call {@link #pack} concurrently. Small files are read and
+ * checksummed by the calling worker before it takes the writer of its bucket,
+ * so the writer is only held while bytes are appended. Unless overwriting, a
+ * later job writes {@code 07_1.zip}; when overwriting, {@code 07.zip} is
+ * rewritten with the files of the job replacing the members of the same name
+ * and every other member kept.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class BucketPacker {
+
+    // Files up to this size are read into memory before taking the writer
+    private static final int IN_MEMORY_LIMIT = 1024 * 1024;
+    private static final String ARCHIVE_EXTENSION = ".zip";
+    // Archive of the files classified directly into the destination root
+    private static final String ROOT_ARCHIVE = "files" + ARCHIVE_EXTENSION;
+
+    private final Path destinationRoot;
+    private final PackMode mode;
+    private final boolean overwrite;
+    private final JobControl jobControl;
+    private final Throttle throttle;
+    private final Map<Path, BucketArchiveWriter> writers = new HashMap<>();
+
+    /**
+     * Constructs a BucketPacker.
+     *
+     * @param destinationRoot the destination directory of the job.
+     * @param mode {@link PackMode#STORE} or {@link PackMode#DEFLATE}.
+     * @param overwrite whether existing archives are replaced.
+     * @param jobControl the control checked before every file.
+     * @param throttle the throttle charged for the bytes read and written.
+     */
+    public BucketPacker(Path destinationRoot, PackMode mode, boolean overwrite, JobControl jobControl, Throttle throttle) {
+        if (mode == PackMode.NONE) {
+            throw new IllegalArgumentException("Pack mode NONE does not pack files.");
+        }
+        this.destinationRoot = destinationRoot;
+        this.mode = mode;
+        this.overwrite = overwrite;
+        this.jobControl = jobControl;
+        this.throttle = throttle;
+    }
+
+    /**
+     * Packs a file into the archive of the bucket of its classified
+     * destination.
+     *
+     * @param file the file to pack.
+     * @param attrs the attributes of the file.
+     * @param destination the classified destination of the file.
+     * @param date the resolved date, stored as the creation time of the
+     * member, may be {@code null}.
+     * @param origin the origin of the file, for the index.
+     * @return the archive and member name, as {@code archive!/member}.
+     * @throws IOException if the file cannot be read or the archive written.
+     * @throws java.util.concurrent.CancellationException if the job was
+     * cancelled before the file was packed.
+     */
+    public String pack(Path file, BasicFileAttributes attrs, Path destination, LocalDateTime date, String origin) throws IOException {
+        jobControl.checkpoint();
+        FileTime created = date == null ? null : FileTime.from(date.atZone(ZoneId.systemDefault()).toInstant());
+        String name = destination.getFileName().toString();
+        BucketArchiveWriter writer = writerFor(destination.getParent());
+        String member;
+        try {
+            if (attrs.size() <= IN_MEMORY_LIMIT) {
+                throttle.acquireOperations(1);
+                byte[] data;
+                try (InputStream in = new ThrottledInputStream(Files.newInputStream(file), throttle)) {
+                    data = in.readAllBytes();
+                }
+                CRC32 crc = new CRC32();
+                crc.update(data);
+                member = writer.add(name, data, crc.getValue(), attrs.lastModifiedTime(), created, origin);
+            } else {
+                // Stored members need their checksum before the data, which costs a first read
+                long crc = mode == PackMode.STORE ? crcOf(file) : 0;
+                throttle.acquireOperations(1);
+                member = writer.add(name, file, attrs.size(), crc, attrs.lastModifiedTime(), created, origin);
+            }
+        } catch (IOException e) {
+            if (writer.isFailed()) {
+                discard(destination.getParent(), writer);
+                throw new IOException(e.getMessage() + " - archive discarded: " + writer.getArchive(), e);
+            }
+            throw e;
+        }
+        return writer.getArchive() + "!/" + member;
+    }
+
+    /**
+     * Completes every archive and its index.
+     *
+     * @throws IOException if an archive cannot be completed; the other
+     * archives are still completed.
+     */
+    public void close() throws IOException {
+        List<BucketArchiveWriter> open;
+        synchronized (this) {
+            open = new ArrayList<>(writers.values());
+            writers.clear();
+        }
+        IOException failure = null;
+        for (BucketArchiveWriter writer : open) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private synchronized BucketArchiveWriter writerFor(Path bucket) throws IOException {
+        BucketArchiveWriter writer = writers.get(bucket);
+        if (writer == null) {
+            writer = new BucketArchiveWriter(archiveFor(bucket), mode, throttle);
+            writers.put(bucket, writer);
+        }
+        return writer;
+    }
+
+    private synchronized void discard(Path bucket, BucketArchiveWriter writer) throws IOException {
+        // The next file of the bucket starts a new archive
+        if (writers.remove(bucket, writer)) {
+            writer.abort();
+        }
+    }
+
+    private Path archiveFor(Path bucket) {
+        Path archive = bucket.equals(destinationRoot)
+                ? destinationRoot.resolve(ROOT_ARCHIVE)
+                : bucket.resolveSibling(bucket.getFileName() + ARCHIVE_EXTENSION);
+        if (overwrite) {
+            return archive;
+        }
+        String fileName = archive.getFileName().toString();
+        String base = fileName.substring(0, fileName.length() - ARCHIVE_EXTENSION.length());
+        for (int counter = 1; Files.exists(archive) || Files.exists(BucketArchiveWriter.indexOf(archive)); counter++) {
+            archive = archive.resolveSibling(base + "_" + counter + ARCHIVE_EXTENSION);
+        }
+        return archive;
+    }
+
+    private long crcOf(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = new ThrottledInputStream(Files.newInputStream(file), throttle)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                jobControl.checkpoint();
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,124 @@
+package Controller.Plan;
+
+import Model.ClassifyTypes;
+import Model.CopyPlan;
+import Model.CopyTask;
+import Model.Json;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * The CopyPlanFile class saves and loads {@link CopyPlan}s as JSON lines: a
+ * header object with the settings of the job followed by one object per task,
+ * sorted by origin, so that two plans can be compared with any text diff tool.
+ * <pre>
+ * {"plan":1,"mode":"CREATION_DATE_META","origin":"/in","destination":"/out","rename":false,"pendients":true,"overwrite":false,"files":2}
+ * {"status":"COPY","origin":"/in/a.jpg","destination":"/out/2023/7/a.jpg","date":"2023-07-01T10:00","size":1024,"inode":5120,"duplicateOf":null}
+ * </pre>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public final class CopyPlanFile {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private CopyPlanFile() {
+    }
+
+    /**
+     * Writes a plan to a file.
+     *
+     * @param plan the plan to write.
+     * @param file the file to write to, replaced if it exists.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(CopyPlan plan, Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("{\"plan\":" + FORMAT_VERSION
+                    + ",\"mode\":" + Json.quote(plan.getClassifyTypes().name())
+                    + ",\"origin\":" + Json.quote(plan.getOriginPath().toString())
+                    + ",\"destination\":" + Json.quote(plan.getDestinationPath().toString())
+                    + ",\"rename\":" + plan.isRename()
+                    + ",\"pendients\":" + plan.isPendients()
+                    + ",\"overwrite\":" + plan.isOverwrite()
+                    + ",\"files\":" + plan.getTasks().size() + "}");
+            writer.newLine();
+            for (CopyTask task : plan.getTasks()) {
+                writer.write("{\"status\":" + Json.quote(task.getStatus().name())
+                        + ",\"origin\":" + Json.quote(task.getOrigin().toString())
+                        + ",\"destination\":" + Json.quote(task.getDestination() == null ? null : task.getDestination().toString())
+                        + ",\"date\":" + Json.quote(task.getDate() == null ? null : task.getDate().toString())
+                        + ",\"dateSource\":" + Json.quote(task.getDateSource())
+                        + ",\"size\":" + task.getSize()
+                        + ",\"inode\":" + task.getLocalityKey()
+                        + ",\"duplicateOf\":" + Json.quote(task.getDuplicateOf() == null ? null : task.getDuplicateOf().toString())
+                        + "}");
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Reads a plan written by {@link #write(CopyPlan, Path)}.
+     *
+     * @param file the plan file.
+     * @return the plan.
+     * @throws IOException if the file cannot be read or is not a valid plan.
+     */
+    public static CopyPlan read(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (line == null) {
+                throw new IOException("Empty plan file: " + file);
+            }
+            CopyPlan plan;
+            int lineNumber = 1;
+            try {
+                Map<String, String> header = Json.parseObject(line);
+                if (!String.valueOf(FORMAT_VERSION).equals(header.get("plan"))) {
+                    throw new IOException("Unsupported plan version: " + header.get("plan"));
+                }
+                plan = new CopyPlan(ClassifyTypes.valueOf(header.get("mode")),
+                        Paths.get(header.get("origin")), Paths.get(header.get("destination")),
+                        Boolean.parseBoolean(header.get("rename")),
+                        Boolean.parseBoolean(header.get("pendients")),
+                        Boolean.parseBoolean(header.get("overwrite")));
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    plan.getTasks().add(readTask(Json.parseObject(line)));
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("Invalid plan " + file + " at line " + lineNumber + ": " + e.getMessage(), e);
+            }
+            return plan;
+        }
+    }
+
+    private static CopyTask readTask(Map<String, String> fields) {
+        String destination = fields.get("destination");
+        String date = fields.get("date");
+        String duplicateOf = fields.get("duplicateOf");
+        CopyTask task = new CopyTask(Paths.get(fields.get("origin")),
+                destination == null ? null : Paths.get(destination),
+                date == null ? null : LocalDateTime.parse(date),
+                Long.parseLong(fields.get("size")));
+        task.setStatus(CopyTask.Status.valueOf(fields.get("status")));
+        task.setDuplicateOf(duplicateOf == null ? null : Paths.get(duplicateOf));
+        task.setDateSource(fields.get("dateSource"));
+        String inode = fields.get("inode");
+        if (inode != null) {
+            task.setLocalityKey(Long.parseLong(inode));
+        }
+        return task;
+    }
+}
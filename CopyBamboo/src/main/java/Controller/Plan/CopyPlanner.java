@@ -0,0 +1,212 @@
+package Controller.Plan;
+
+import Controller.FileController;
+import Controller.Scheduling.LocalityKey;
+import Log.LogHandler;
+import Model.ClassifyTypes;
+import Model.CopyPlan;
+import Model.CopyTask;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The CopyPlanner class runs the planning phase of a copy job without copying
+ * anything. It walks the origin, resolves the date and the
+ * {@link Controller.Classification.ClassificationContext} target of every file
+ * in parallel, and then detects:
+ * <ul>
+ * <li>Collisions: different files going to the same destination. The later
+ * ones (in origin order) get a unique {@code name_N.ext} destination.</li>
+ * <li>Duplicates: files with identical content. When they go to the same
+ * destination only the first one is copied; otherwise the task just records
+ * which file it duplicates.</li>
+ * </ul>
+ * Only files that share their size with another file are hashed.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class CopyPlanner extends FileController {
+
+    /**
+     * Constructs a CopyPlanner with the settings of the job to plan.
+     *
+     * @param classifyTypes the classification strategy to be used.
+     * @param originPath the path of the directory to copy from.
+     * @param destinationPath the path of the directory to copy to.
+     * @param rename whether to rename files during the copy process.
+     * @param pendients whether to handle pending files.
+     * @param overwrite whether to overwrite existing files.
+     * @param logWindow the log handler to display log messages.
+     */
+    public CopyPlanner(ClassifyTypes classifyTypes, String originPath, String destinationPath, boolean rename, boolean pendients, boolean overwrite, LogHandler logWindow) {
+        this.classifyTypes = classifyTypes;
+        // Plans are executed later, maybe from another directory
+        this.originPath = Paths.get(originPath).toAbsolutePath().normalize();
+        this.destinationPath = Paths.get(destinationPath).toAbsolutePath().normalize();
+        this.rename = rename;
+        this.pendients = pendients;
+        this.overwrite = overwrite;
+        this.logWindow = logWindow;
+    }
+
+    /**
+     * Builds the plan.
+     *
+     * @return the plan, with its tasks sorted by origin path.
+     * @throws IOException if the origin cannot be walked.
+     */
+    public CopyPlan plan() throws IOException {
+        CopyPlan plan = new CopyPlan(classifyTypes, originPath, destinationPath, rename, pendients, overwrite);
+        executorService = Executors.newFixedThreadPool(threads);
+        try {
+            setClassificationStrategy();
+            List<Future<CopyTask>> futures = new ArrayList<>();
+            Files.walkFileTree(originPath, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile()) {
+                        futures.add(executorService.submit(() -> {
+                            CopyTask task = planFile(file.toFile(), attrs, destinationPath);
+                            task.setLocalityKey(LocalityKey.of(attrs));
+                            return task;
+                        }));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    logFile.anadirExcepcionLog(exc);
+                    logWindow.appendLog("Error reading: " + file + " - " + exc.getMessage());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            for (Future<CopyTask> future : futures) {
+                plan.getTasks().add(future.get());
+            }
+            plan.getTasks().sort(Comparator.comparing(CopyTask::getOrigin));
+            Map<CopyTask, String> contentKeys = markDuplicates(plan.getTasks());
+            resolveCollisions(plan.getTasks(), contentKeys);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Planning interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new IOException("Planning failed: " + ex.getCause().getMessage(), ex.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+        return plan;
+    }
+
+    /**
+     * Hashes the files that share their size with another file and links every
+     * duplicate to the first file (in origin order) with the same content.
+     *
+     * @return the content key, size and hash, of every hashed task.
+     */
+    private Map<CopyTask, String> markDuplicates(List<CopyTask> tasks) throws InterruptedException, ExecutionException {
+        Map<Long, List<CopyTask>> bySize = new HashMap<>();
+        for (CopyTask task : tasks) {
+            if (task.getSize() > 0) {
+                bySize.computeIfAbsent(task.getSize(), size -> new ArrayList<>()).add(task);
+            }
+        }
+        Map<CopyTask, Future<byte[]>> hashes = new LinkedHashMap<>();
+        for (List<CopyTask> sameSize : bySize.values()) {
+            if (sameSize.size() > 1) {
+                for (CopyTask task : sameSize) {
+                    hashes.put(task, executorService.submit(() -> contentHash(task.getOrigin())));
+                }
+            }
+        }
+        Map<String, Path> firstByHash = new HashMap<>();
+        Map<CopyTask, String> contentKeys = new HashMap<>();
+        for (CopyTask task : tasks) {
+            Future<byte[]> hash = hashes.get(task);
+            if (hash == null) {
+                continue;
+            }
+            byte[] digest;
+            try {
+                digest = hash.get();
+            } catch (ExecutionException ex) {
+                logWindow.appendLog("Error hashing: " + task.getOrigin() + " - " + ex.getCause().getMessage());
+                continue;
+            }
+            String key = task.getSize() + ":" + Arrays.toString(digest);
+            contentKeys.put(task, key);
+            Path first = firstByHash.putIfAbsent(key, task.getOrigin());
+            if (first != null) {
+                task.setDuplicateOf(first);
+            }
+        }
+        return contentKeys;
+    }
+
+    /**
+     * Gives every destination to exactly one task: identical files going to
+     * the same destination are skipped and different ones are renamed. A task
+     * is identical when its content key is the one of an earlier task of its
+     * destination, whichever file their content was first seen in.
+     *
+     * @param tasks the tasks, in origin order.
+     * @param contentKeys the content key of every hashed task; tasks without
+     * one have content no other task has.
+     */
+    static void resolveCollisions(List<CopyTask> tasks, Map<CopyTask, String> contentKeys) {
+        Map<Path, List<CopyTask>> byDestination = new HashMap<>();
+        Set<Path> taken = new HashSet<>();
+        for (CopyTask task : tasks) {
+            if (task.getDestination() != null) {
+                byDestination.computeIfAbsent(task.getDestination(), d -> new ArrayList<>()).add(task);
+                taken.add(task.getDestination());
+            }
+        }
+        for (CopyTask task : tasks) {
+            List<CopyTask> sameDestination = task.getDestination() == null ? null : byDestination.get(task.getDestination());
+            if (sameDestination == null || sameDestination.get(0) == task) {
+                continue;
+            }
+            String key = contentKeys.get(task);
+            boolean identical = key != null && sameDestination.stream()
+                    .takeWhile(other -> other != task)
+                    .anyMatch(other -> key.equals(contentKeys.get(other)));
+            if (identical) {
+                task.setStatus(CopyTask.Status.DUPLICATE);
+            } else {
+                task.setDestination(uniqueDestination(task.getDestination(), taken));
+                task.setStatus(CopyTask.Status.COLLISION_RENAMED);
+            }
+        }
+    }
+
+    private static Path uniqueDestination(Path destination, Set<Path> taken) {
+        String name = destination.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+        for (int suffix = 1;; suffix++) {
+            Path candidate = destination.resolveSibling(base + "_" + suffix + extension);
+            if (taken.add(candidate)) {
+                return candidate;
+            }
+        }
+    }
+}
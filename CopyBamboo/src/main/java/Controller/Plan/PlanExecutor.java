@@ -0,0 +1,59 @@
+package Controller.Plan;
+
+import Controller.CopyController;
+import Log.LogHandler;
+import Model.CopyPlan;
+import Model.CopyTask;
+
+/**
+ * The PlanExecutor class runs the execution phase of a copy job: it copies the
+ * tasks of a {@link CopyPlan} with the full worker pool. No dates are read and
+ * nothing is classified again, every task already carries its destination, so
+ * the workers only do I/O.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class PlanExecutor {
+
+    private final CopyPlan plan;
+    private final CopyController copyController;
+
+    /**
+     * Constructs a PlanExecutor.
+     *
+     * @param plan the plan to execute.
+     * @param logWindow the log handler to display log messages.
+     */
+    public PlanExecutor(CopyPlan plan, LogHandler logWindow) {
+        this.plan = plan;
+        this.copyController = new CopyController(plan.getClassifyTypes(), plan.getOriginPath().toString(),
+                plan.getDestinationPath().toString(), plan.isRename(), plan.isPendients(), plan.isOverwrite(), logWindow);
+    }
+
+    /**
+     * Returns the controller that does the copies, to configure it (threads)
+     * and read its counters.
+     *
+     * @return the copy controller.
+     */
+    public CopyController getCopyController() {
+        return copyController;
+    }
+
+    /**
+     * Copies every task of the plan and waits until all of them are done. The
+     * whole plan is already in memory, so it is scheduled as a single window
+     * and the scheduling policy orders it globally.
+     */
+    public void execute() {
+        copyController.setLocalityWindow(Math.max(1, plan.getTasks().size()));
+        copyController.startWorkers();
+        try {
+            for (CopyTask task : plan.getTasks()) {
+                copyController.submitTask(task);
+            }
+        } finally {
+            copyController.finishWorkers();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package Controller.Scheduling;
+
+import Model.CopyTask;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * The CopyScheduler class sits between the planning workers, which resolve
+ * dates and destinations, and the copy workers. It collects planned tasks in a
+ * bounded window and dispatches each full window in the order chosen by its
+ * {@link SchedulingPolicy}, physical-locality order by default.
+ * <p>
+ * A window is also dispatched when its oldest task has waited for longer than
+ * the maximum delay, so slow producers (such as watch mode) are never stuck
+ * waiting for a window to fill. A window size of 1 disables the reordering.
+ * </p>
+ * <p>
+ * Windows are dispatched one at a time: a window is taken and ordered only
+ * once the previous one is handed over, so the policy is never called
+ * concurrently and the windows are never interleaved.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class CopyScheduler {
+
+    private static final long CHECK_INTERVAL_MS = 100;
+
+    private final int window;
+    private final long maxDelayMs;
+    private final SchedulingPolicy policy;
+    private final Consumer<CopyTask> dispatcher;
+    private final List<CopyTask> pending = new ArrayList<>();
+    // Held while a window is taken, ordered and dispatched
+    private final Object dispatchLock = new Object();
+    private final ScheduledExecutorService timer;
+    private long oldestNanos;
+
+    /**
+     * Constructs a CopyScheduler.
+     *
+     * @param window the number of tasks sorted together.
+     * @param maxDelayMs the longest time, in milliseconds, a task may wait for
+     * its window to fill.
+     * @param policy the policy that orders each window.
+     * @param dispatcher receives the tasks in the order they must be copied.
+     */
+    public CopyScheduler(int window, long maxDelayMs, SchedulingPolicy policy, Consumer<CopyTask> dispatcher) {
+        this.window = Math.max(1, window);
+        this.maxDelayMs = maxDelayMs;
+        this.policy = policy;
+        this.dispatcher = dispatcher;
+        if (this.window > 1) {
+            timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "Copy scheduler timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            timer.scheduleWithFixedDelay(this::flushIfStale, CHECK_INTERVAL_MS, CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        } else {
+            timer = null;
+        }
+    }
+
+    /**
+     * Adds a planned task. Dispatches the window when it is full.
+     *
+     * @param task the task to schedule.
+     */
+    public void offer(CopyTask task) {
+        if (window == 1) {
+            dispatcher.accept(task);
+            return;
+        }
+        boolean full;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                oldestNanos = System.nanoTime();
+            }
+            pending.add(task);
+            full = pending.size() >= window;
+        }
+        if (full) {
+            dispatchWhen(() -> pending.size() >= window);
+        }
+    }
+
+    /**
+     * Dispatches every waiting task, whatever the size of the window.
+     */
+    public void flush() {
+        dispatchWhen(() -> true);
+    }
+
+    /**
+     * Dispatches the waiting tasks and stops the delay timer.
+     */
+    public void close() {
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+        flush();
+    }
+
+    private void flushIfStale() {
+        dispatchWhen(() -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldestNanos) >= maxDelayMs);
+    }
+
+    /**
+     * Takes the waiting tasks, if there are any and the condition still holds
+     * once the previous window is dispatched, and dispatches them.
+     *
+     * @param ready checked holding the lock of the waiting tasks.
+     */
+    private void dispatchWhen(BooleanSupplier ready) {
+        synchronized (dispatchLock) {
+            List<CopyTask> batch;
+            synchronized (this) {
+                if (pending.isEmpty() || !ready.getAsBoolean()) {
+                    return;
+                }
+                batch = new ArrayList<>(pending);
+                pending.clear();
+            }
+            policy.order(batch);
+            for (CopyTask task : batch) {
+                dispatcher.accept(task);
+            }
+        }
+    }
+}
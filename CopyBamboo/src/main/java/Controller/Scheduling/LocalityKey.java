@@ -0,0 +1,50 @@
+package Controller.Scheduling;
+
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The LocalityKey class derives a physical-locality key for a file from its
+ * {@link BasicFileAttributes#fileKey()}. On Unix-like systems the file key
+ * carries the inode number, and reading files in inode order roughly follows
+ * their position on the disk, which avoids most of the seeking on rotational
+ * and optical media.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public final class LocalityKey {
+
+    /**
+     * Value returned when the file system does not expose a usable file key.
+     */
+    public static final long UNKNOWN = -1;
+
+    // UnixFileKey.toString() is "(dev=XXX,ino=YYY)"
+    private static final Pattern INODE = Pattern.compile("ino=(\\d+)");
+
+    private LocalityKey() {
+    }
+
+    /**
+     * Returns the locality key of a file.
+     *
+     * @param attrs the attributes read for the file.
+     * @return the inode number, or {@link #UNKNOWN} if it is not available.
+     */
+    public static long of(BasicFileAttributes attrs) {
+        Object fileKey = attrs.fileKey();
+        if (fileKey == null) {
+            return UNKNOWN;
+        }
+        Matcher matcher = INODE.matcher(fileKey.toString());
+        if (!matcher.find()) {
+            return UNKNOWN;
+        }
+        try {
+            return Long.parseLong(matcher.group(1));
+        } catch (NumberFormatException e) {
+            return UNKNOWN;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package Controller.Scheduling;
+
+import Model.CopyTask;
+import java.util.List;
+
+/**
+ * The SchedulingPolicy interface defines the contract for the policies used by
+ * the {@link CopyScheduler} to decide in which order the planned tasks of a
+ * window are copied. Policies are interchangeable in the same way as the
+ * classification strategies.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public interface SchedulingPolicy {
+
+    /**
+     * Sorts a window of planned tasks, in place, in the order they must be
+     * copied. Called from a single thread at a time.
+     *
+     * @param batch the tasks to sort.
+     */
+    void order(List<CopyTask> batch);
+}
@@ -0,0 +1,31 @@
+package Controller.Scheduling.types;
+
+import Controller.Scheduling.SchedulingPolicy;
+import Model.CopyTask;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The BucketBatchedSchedulingPolicy class copies one destination bucket (for
+ * example one year/month folder) at a time. Buckets are ordered by the total
+ * size of their tasks, smallest first, so the first complete folders are
+ * available to downstream consumers as early as possible; tasks inside a
+ * bucket follow their locality key.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class BucketBatchedSchedulingPolicy implements SchedulingPolicy {
+
+    @Override
+    public void order(List<CopyTask> batch) {
+        Map<Object, Long> bucketBytes = new HashMap<>();
+        for (CopyTask task : batch) {
+            bucketBytes.merge(LocalitySchedulingPolicy.bucketOf(task), task.getSize(), Long::sum);
+        }
+        batch.sort(Comparator.<CopyTask>comparingLong(task -> bucketBytes.get(LocalitySchedulingPolicy.bucketOf(task)))
+                .thenComparing(task -> String.valueOf(LocalitySchedulingPolicy.bucketOf(task)))
+                .thenComparingLong(LocalitySchedulingPolicy::keyOf));
+    }
+}
@@ -0,0 +1,24 @@
+package Controller.Scheduling.types;
+
+import Controller.Scheduling.SchedulingPolicy;
+import Model.CopyTask;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The LargestFirstSchedulingPolicy class copies the largest files first. With
+ * several copy workers the big files then run in parallel at the start and
+ * the small ones fill the gaps, instead of the job ending with a single worker
+ * still busy on a large file. Files of the same size follow their locality
+ * key.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class LargestFirstSchedulingPolicy implements SchedulingPolicy {
+
+    @Override
+    public void order(List<CopyTask> batch) {
+        batch.sort(Comparator.comparingLong(CopyTask::getSize).reversed()
+                .thenComparingLong(LocalitySchedulingPolicy::keyOf));
+    }
+}
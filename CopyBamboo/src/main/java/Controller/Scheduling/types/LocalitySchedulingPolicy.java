@@ -0,0 +1,47 @@
+package Controller.Scheduling.types;
+
+import Controller.Scheduling.LocalityKey;
+import Controller.Scheduling.SchedulingPolicy;
+import Model.CopyTask;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The LocalitySchedulingPolicy class orders a window in physical-locality
+ * order: tasks are grouped by destination bucket (the classified directory),
+ * buckets are ordered by the lowest inode they contain and tasks inside a
+ * bucket by inode. Reads then mostly move forward on the source disk and
+ * writes to one bucket directory are issued together.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class LocalitySchedulingPolicy implements SchedulingPolicy {
+
+    /**
+     * Sorts a window in locality order. Tasks without destination or without
+     * locality key keep their relative order.
+     *
+     * @param batch the tasks to sort, in place.
+     */
+    @Override
+    public void order(List<CopyTask> batch) {
+        Map<Object, Long> bucketKey = new HashMap<>();
+        for (CopyTask task : batch) {
+            bucketKey.merge(bucketOf(task), keyOf(task), Math::min);
+        }
+        batch.sort(Comparator.<CopyTask>comparingLong(task -> bucketKey.get(bucketOf(task)))
+                .thenComparing(task -> String.valueOf(bucketOf(task)))
+                .thenComparingLong(LocalitySchedulingPolicy::keyOf));
+    }
+
+    static Object bucketOf(CopyTask task) {
+        return task.getDestination() == null ? "" : task.getDestination().getParent();
+    }
+
+    static long keyOf(CopyTask task) {
+        // Unknown keys sort last, List.sort is stable so they keep their arrival order
+        return task.getLocalityKey() == LocalityKey.UNKNOWN ? Long.MAX_VALUE : task.getLocalityKey();
+    }
+}
@@ -0,0 +1,22 @@
+package Controller.Scheduling.types;
+
+import Controller.Scheduling.SchedulingPolicy;
+import Model.CopyTask;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The SmallestFirstSchedulingPolicy class copies the smallest files first.
+ * Many files are finished early, which gives fast visible progress and frees
+ * the queued tasks sooner. Files of the same size follow their locality key.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class SmallestFirstSchedulingPolicy implements SchedulingPolicy {
+
+    @Override
+    public void order(List<CopyTask> batch) {
+        batch.sort(Comparator.comparingLong(CopyTask::getSize)
+                .thenComparingLong(LocalitySchedulingPolicy::keyOf));
+    }
+}
@@ -0,0 +1,22 @@
+package Controller.Scheduling.types;
+
+import Controller.Scheduling.SchedulingPolicy;
+import Model.CopyTask;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The WalkOrderSchedulingPolicy class copies the tasks of a window in the
+ * order their origins were walked. The planning workers finish in any order,
+ * so the tasks are sorted back by the sequence given when they were
+ * submitted.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class WalkOrderSchedulingPolicy implements SchedulingPolicy {
+
+    @Override
+    public void order(List<CopyTask> batch) {
+        batch.sort(Comparator.comparingLong(CopyTask::getSequence));
+    }
+}
@@ -0,0 +1,159 @@
+package Controller.Similarity;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * The BKTree class indexes 64-bit hashes by Hamming distance. Every child of a
+ * node is stored under its distance to that node, so a query within distance
+ * {@code d} of a hash only descends into the children whose distance to the
+ * node is within {@code d} of the query's own distance to it, which skips most
+ * of the tree for small distances.
+ * <p>
+ * Children are kept in small parallel arrays instead of a map or a 65 slot
+ * array, because most nodes of a large tree have only a few children. The
+ * tree is not thread safe.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ *
+ * @param <V> the value stored with every hash.
+ */
+public class BKTree<V> {
+
+    /**
+     * The closest value found by {@link #nearest(long, int)}.
+     *
+     * @param <V> the value type.
+     */
+    public static final class Match<V> {
+
+        private final V value;
+        private final int distance;
+
+        Match(V value, int distance) {
+            this.value = value;
+            this.distance = distance;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        /**
+         * Returns the number of bits in which the hashes differ.
+         *
+         * @return the Hamming distance.
+         */
+        public int getDistance() {
+            return distance;
+        }
+    }
+
+    private static final class Node<V> {
+
+        private final long hash;
+        private final V value;
+        private byte[] distances;
+        private Node<V>[] children;
+        private int childCount;
+
+        Node(long hash, V value) {
+            this.hash = hash;
+            this.value = value;
+        }
+
+        Node<V> child(int distance) {
+            for (int i = 0; i < childCount; i++) {
+                if (distances[i] == distance) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        void addChild(int distance, Node<V> child) {
+            if (children == null) {
+                distances = new byte[2];
+                children = (Node<V>[]) new Node<?>[2];
+            } else if (childCount == children.length) {
+                distances = Arrays.copyOf(distances, childCount * 2);
+                children = Arrays.copyOf(children, childCount * 2);
+            }
+            distances[childCount] = (byte) distance;
+            children[childCount++] = child;
+        }
+    }
+
+    private Node<V> root;
+    private int size;
+
+    /**
+     * Adds a hash. Values with the same hash are all kept.
+     *
+     * @param hash the hash.
+     * @param value the value returned by the queries that find the hash.
+     */
+    public void add(long hash, V value) {
+        Node<V> node = new Node<>(hash, value);
+        size++;
+        if (root == null) {
+            root = node;
+            return;
+        }
+        Node<V> parent = root;
+        while (true) {
+            int distance = Long.bitCount(parent.hash ^ hash);
+            Node<V> child = parent.child(distance);
+            if (child == null) {
+                parent.addChild(distance, node);
+                return;
+            }
+            parent = child;
+        }
+    }
+
+    /**
+     * Finds the hash closest to {@code hash}, if it is within
+     * {@code maxDistance}.
+     *
+     * @param hash the hash to look for.
+     * @param maxDistance the largest Hamming distance accepted.
+     * @return the closest match, or {@code null} if every hash differs in more
+     * than {@code maxDistance} bits.
+     */
+    public Match<V> nearest(long hash, int maxDistance) {
+        if (root == null) {
+            return null;
+        }
+        Node<V> best = null;
+        int bestDistance = maxDistance + 1;
+        Deque<Node<V>> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node<V> node = pending.pop();
+            int distance = Long.bitCount(node.hash ^ hash);
+            if (distance < bestDistance) {
+                best = node;
+                bestDistance = distance;
+                if (distance == 0) {
+                    break;
+                }
+            }
+            // Only the children within the best distance so far can be closer
+            int radius = bestDistance - 1;
+            for (int i = 0; i < node.childCount; i++) {
+                if (Math.abs(node.distances[i] - distance) <= radius) {
+                    pending.push(node.children[i]);
+                }
+            }
+        }
+        return best == null ? null : new Match<>(best.value, bestDistance);
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,184 @@
+package Controller.Similarity;
+
+import Controller.Throttle.Throttle;
+import Controller.Throttle.ThrottledInputStream;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import javax.imageio.IIOException;
+
+/**
+ * The NearDuplicateIndex class finds the images of a job that look like an
+ * image seen before in the same job. Every image is reduced to its
+ * {@link PerceptualHash} and looked up in a {@link BKTree} of the hashes seen
+ * so far: an image whose hash differs in at most {@code maxDistance} bits
+ * from a previous one is a near duplicate of it, otherwise its hash is added.
+ * <p>
+ * {@link #check} is called concurrently by the planning workers. Decoding and
+ * hashing run in the calling worker; only the lookup and insertion in the tree
+ * are serialized, so two similar images checked at the same time are still
+ * matched. Of every group of similar images the first one checked is the one
+ * the others are reported against.
+ * </p>
+ * <p>
+ * When only one image of every group is kept, the order in which the workers
+ * check the images must not decide which one. Those images are
+ * {@link #hold held} instead, and grouped by {@link #resolve} once all of them
+ * are hashed, largest file first, so the image kept is the largest of its
+ * group whatever the order they were planned in.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class NearDuplicateIndex {
+
+    private final int maxDistance;
+    private final PerceptualHashCache cache;
+    private final Throttle throttle;
+    private final BKTree<Path> tree = new BKTree<>();
+    private final List<HeldImage> held = new ArrayList<>();
+
+    /**
+     * An image waiting for {@link #resolve}.
+     */
+    private static final class HeldImage {
+
+        private final Path file;
+        private final long size;
+        private final long hash;
+
+        HeldImage(Path file, long size, long hash) {
+            this.file = file;
+            this.size = size;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * Constructs a NearDuplicateIndex.
+     *
+     * @param maxDistance the largest number of differing hash bits of two
+     * similar images, from 0 to 64.
+     * @param cache the hashes of the images hashed by previous jobs.
+     * @param throttle the throttle charged for the images read.
+     */
+    public NearDuplicateIndex(int maxDistance, PerceptualHashCache cache, Throttle throttle) {
+        if (maxDistance < 0 || maxDistance > Long.SIZE) {
+            throw new IllegalArgumentException("The distance must be between 0 and 64 bits.");
+        }
+        this.maxDistance = maxDistance;
+        this.cache = cache;
+        this.throttle = throttle;
+    }
+
+    /**
+     * Hashes an image and looks for a similar image checked before. When none
+     * is found the image is added to the index.
+     *
+     * @param file the image.
+     * @param attrs the attributes of the image.
+     * @return the similar image and how far its hash is, or {@code null} if
+     * the image is not similar to any previous image or can't be decoded.
+     * @throws IOException if the image cannot be read.
+     */
+    public BKTree.Match<Path> check(Path file, BasicFileAttributes attrs) throws IOException {
+        OptionalLong hash = hashOf(file, attrs);
+        if (hash.isEmpty()) {
+            return null;
+        }
+        synchronized (tree) {
+            BKTree.Match<Path> match = tree.nearest(hash.getAsLong(), maxDistance);
+            if (match == null) {
+                tree.add(hash.getAsLong(), file);
+            }
+            return match;
+        }
+    }
+
+    /**
+     * Hashes an image and keeps it to be grouped by {@link #resolve}.
+     *
+     * @param file the image.
+     * @param attrs the attributes of the image.
+     * @return {@code true} if the image was held, {@code false} if it can't be
+     * decoded.
+     * @throws IOException if the image cannot be read.
+     */
+    public boolean hold(Path file, BasicFileAttributes attrs) throws IOException {
+        OptionalLong hash = hashOf(file, attrs);
+        if (hash.isEmpty()) {
+            return false;
+        }
+        synchronized (held) {
+            held.add(new HeldImage(file, attrs.size(), hash.getAsLong()));
+        }
+        return true;
+    }
+
+    /**
+     * Groups the held images. They are checked from the largest file to the
+     * smallest, ties broken by path, so every group is represented by its
+     * largest image. The held images are then released.
+     *
+     * @return the similar image and distance of every held image that looks
+     * like a larger one, keyed by the image.
+     */
+    public Map<Path, BKTree.Match<Path>> resolve() {
+        List<HeldImage> images;
+        synchronized (held) {
+            images = new ArrayList<>(held);
+            held.clear();
+        }
+        images.sort(Comparator.comparingLong((HeldImage image) -> image.size).reversed()
+                .thenComparing(image -> image.file.toString()));
+        Map<Path, BKTree.Match<Path>> duplicates = new HashMap<>();
+        synchronized (tree) {
+            for (HeldImage image : images) {
+                BKTree.Match<Path> match = tree.nearest(image.hash, maxDistance);
+                if (match == null) {
+                    tree.add(image.hash, image.file);
+                } else {
+                    duplicates.put(image.file, match);
+                }
+            }
+        }
+        return duplicates;
+    }
+
+    /**
+     * Writes the hashes computed by this job to the cache.
+     *
+     * @throws IOException if the cache cannot be written.
+     */
+    public void close() throws IOException {
+        cache.save();
+    }
+
+    private OptionalLong hashOf(Path file, BasicFileAttributes attrs) throws IOException {
+        String identity = attrs.fileKey() != null ? attrs.fileKey().toString() : file.toUri().toString();
+        long modified = attrs.lastModifiedTime().toMillis();
+        PerceptualHashCache.Entry cached = cache.get(identity, attrs.size(), modified);
+        if (cached != null) {
+            return cached.isImage() ? OptionalLong.of(cached.getHash()) : OptionalLong.empty();
+        }
+        OptionalLong hash;
+        throttle.acquireOperations(1);
+        try (InputStream in = new BufferedInputStream(new ThrottledInputStream(Files.newInputStream(file), throttle), 64 * 1024)) {
+            hash = PerceptualHash.of(in);
+        } catch (IIOException | RuntimeException e) {
+            // Damaged or unsupported variant of the format, some decoders fail with runtime exceptions
+            hash = OptionalLong.empty();
+        }
+        cache.put(identity, new PerceptualHashCache.Entry(attrs.size(), modified, hash.isPresent(), hash.orElse(0)));
+        return hash;
+    }
+}
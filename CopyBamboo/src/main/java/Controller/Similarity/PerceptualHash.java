@@ -0,0 +1,108 @@
+package Controller.Similarity;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.OptionalLong;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
+/**
+ * The PerceptualHash class computes the difference hash (dHash) of an image:
+ * the image is reduced to 9x8 grey cells and every bit tells whether a cell
+ * is darker than its right neighbour. Resizing, re-encoding or slightly
+ * changing the colours of a photo keeps most bits, so copies of the same
+ * picture have hashes that differ in only a few bits.
+ * <p>
+ * The image is decoded with source subsampling, skipping rows and columns so
+ * that only about {@value #MIN_DECODED_SIDE} pixels remain on its shorter
+ * side. A 12 megapixel photo is decoded into a few thousand pixels instead of
+ * twelve million, which makes the hash cheap next to the copy of the file.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public final class PerceptualHash {
+
+    private static final int WIDTH = 9;
+    private static final int HEIGHT = 8;
+    // Shorter side of the decoded image, several pixels per cell to average noise
+    private static final int MIN_DECODED_SIDE = 64;
+
+    private PerceptualHash() {
+    }
+
+    /**
+     * Decodes an image and computes its hash.
+     *
+     * @param in the image data; it is not closed.
+     * @return the hash, or empty if no installed image reader recognizes the
+     * data.
+     * @throws IOException if the data cannot be read or the image is damaged.
+     */
+    public static OptionalLong of(InputStream in) throws IOException {
+        try (ImageInputStream image = new MemoryCacheImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(image);
+            if (!readers.hasNext()) {
+                return OptionalLong.empty();
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(image, true, true);
+                int step = Math.max(1, Math.min(reader.getWidth(0), reader.getHeight(0)) / MIN_DECODED_SIDE);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return OptionalLong.of(dHash(reader.read(0, param)));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Computes the hash of a decoded image.
+     *
+     * @param image the image.
+     * @return the hash, one bit per cell compared with its right neighbour.
+     */
+    public static long dHash(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] rgb = image.getRGB(0, 0, width, height, null, 0, width);
+        long[] cells = new long[WIDTH * HEIGHT];
+        for (int cellY = 0; cellY < HEIGHT; cellY++) {
+            int y0 = cellY * height / HEIGHT;
+            int y1 = Math.max(y0 + 1, (cellY + 1) * height / HEIGHT);
+            for (int cellX = 0; cellX < WIDTH; cellX++) {
+                int x0 = cellX * width / WIDTH;
+                int x1 = Math.max(x0 + 1, (cellX + 1) * width / WIDTH);
+                long sum = 0;
+                for (int y = y0; y < y1; y++) {
+                    for (int x = x0; x < x1; x++) {
+                        sum += luma(rgb[y * width + x]);
+                    }
+                }
+                // Mean scaled by 1024 to keep the comparison in integers
+                cells[cellY * WIDTH + cellX] = (sum << 10) / ((long) (y1 - y0) * (x1 - x0));
+            }
+        }
+        long hash = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH - 1; x++) {
+                hash = (hash << 1) | (cells[y * WIDTH + x] < cells[y * WIDTH + x + 1] ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    private static int luma(int argb) {
+        int r = (argb >> 16) & 0xff;
+        int g = (argb >> 8) & 0xff;
+        int b = argb & 0xff;
+        return (r * 299 + g * 587 + b * 114) / 1000;
+    }
+}
@@ -0,0 +1,162 @@
+package Controller.Similarity;
+
+import Controller.Catalog.Catalog;
+import Controller.FileCopier;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The PerceptualHashCache class keeps the perceptual hash of every image
+ * already hashed, so running a job again over the same origin does not decode
+ * the images that have not changed.
+ * <p>
+ * Entries are keyed by the identity of the file (its device and inode when the
+ * file system has them, its path otherwise) and are only used while the size
+ * and modification time of the file are the ones recorded. Files that could
+ * not be decoded are remembered too. The cache is kept in the
+ * {@value Controller.Catalog.Catalog#DIRECTORY} directory of the destination
+ * and is only written when something changed.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class PerceptualHashCache {
+
+    private static final String CACHE_FILE = "perceptual-hashes.bin";
+    private static final int MAGIC = 0x43425048; // "CBPH"
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * The hash of a file as it was when it was hashed.
+     */
+    public static final class Entry {
+
+        private final long size;
+        private final long modified;
+        private final boolean image;
+        private final long hash;
+
+        /**
+         * Constructs an Entry.
+         *
+         * @param size the size of the file.
+         * @param modified the modification time of the file, in milliseconds.
+         * @param image whether the file could be decoded.
+         * @param hash the hash, 0 when the file could not be decoded.
+         */
+        public Entry(long size, long modified, boolean image, long hash) {
+            this.size = size;
+            this.modified = modified;
+            this.image = image;
+            this.hash = hash;
+        }
+
+        public boolean isImage() {
+            return image;
+        }
+
+        public long getHash() {
+            return hash;
+        }
+    }
+
+    private final Path file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean changed;
+
+    private PerceptualHashCache(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Loads the cache of a destination. A missing or unreadable cache gives
+     * an empty one, which is rebuilt as images are hashed.
+     *
+     * @param destinationRoot the destination directory.
+     * @return the cache.
+     */
+    public static PerceptualHashCache load(Path destinationRoot) {
+        PerceptualHashCache cache = new PerceptualHashCache(destinationRoot.resolve(Catalog.DIRECTORY).resolve(CACHE_FILE));
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cache.file), 64 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return cache;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String identity = in.readUTF();
+                cache.entries.put(identity, new Entry(in.readLong(), in.readLong(), in.readBoolean(), in.readLong()));
+            }
+        } catch (IOException e) {
+            // A damaged cache only costs decoding the images again
+            cache.entries.clear();
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the hash recorded for a file, if the file has not changed
+     * since.
+     *
+     * @param identity the identity of the file.
+     * @param size the current size of the file.
+     * @param modified the current modification time, in milliseconds.
+     * @return the entry, or {@code null} if the file has to be hashed.
+     */
+    public Entry get(String identity, long size, long modified) {
+        Entry entry = entries.get(identity);
+        return entry != null && entry.size == size && entry.modified == modified ? entry : null;
+    }
+
+    /**
+     * Records the hash of a file.
+     *
+     * @param identity the identity of the file.
+     * @param entry the hash and the state of the file it was computed from.
+     */
+    public void put(String identity, Entry entry) {
+        entries.put(identity, entry);
+        changed = true;
+    }
+
+    /**
+     * Writes the cache if something was recorded since it was loaded.
+     *
+     * @throws IOException if the cache cannot be written.
+     */
+    public void save() throws IOException {
+        if (!changed) {
+            return;
+        }
+        Files.createDirectories(file.getParent());
+        Path temp = FileCopier.tempFileFor(file);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temp, StandardOpenOption.CREATE_NEW), 64 * 1024))) {
+                Map<String, Entry> snapshot = Map.copyOf(entries);
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<String, Entry> cached : snapshot.entrySet()) {
+                    Entry entry = cached.getValue();
+                    out.writeUTF(cached.getKey());
+                    out.writeLong(entry.size);
+                    out.writeLong(entry.modified);
+                    out.writeBoolean(entry.image);
+                    out.writeLong(entry.hash);
+                }
+            }
+            FileCopier.moveIntoPlace(temp, file);
+            changed = false;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package Controller;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * The SparseWriter class writes the data of a file in order to a new file,
+ * leaving the blocks that are all zeros as holes. The blocks with data are
+ * written at their position and the zero blocks are skipped, so a sparse
+ * origin, such as a virtual machine disk, only takes the space of its data in
+ * the destination, and the zeros are never written.
+ * <p>
+ * A block is checked for zeros until its first byte that is not zero, which
+ * for ordinary data is one of its first bytes, so the check costs little
+ * next to the write.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+class SparseWriter {
+
+    // The block size of most file systems, the smallest hole they keep
+    static final int BLOCK_SIZE = 4096;
+    private static final byte[] ZEROS = new byte[BLOCK_SIZE];
+
+    private final FileChannel channel;
+    private long position;
+
+    /**
+     * Constructs a SparseWriter.
+     *
+     * @param channel the new file, opened for writing and empty.
+     */
+    SparseWriter(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Writes the remaining bytes of a buffer after the data given so far.
+     *
+     * @param buffer the data; it is consumed.
+     * @return the number of bytes written, without the skipped zero blocks.
+     * @throws IOException if the data cannot be written.
+     */
+    int write(ByteBuffer buffer) throws IOException {
+        int length = buffer.remaining();
+        if (!buffer.hasArray()) {
+            writeFully(buffer, position);
+            position += length;
+            return length;
+        }
+        byte[] array = buffer.array();
+        int start = buffer.arrayOffset() + buffer.position();
+        int end = start + length;
+        int written = 0;
+        int run = -1;
+        for (int block = start; block < end; block += BLOCK_SIZE) {
+            int blockEnd = Math.min(block + BLOCK_SIZE, end);
+            boolean zero = Arrays.mismatch(array, block, blockEnd, ZEROS, 0, blockEnd - block) < 0;
+            if (!zero && run < 0) {
+                run = block;
+            } else if (zero && run >= 0) {
+                writeFully(ByteBuffer.wrap(array, run, block - run), position + run - start);
+                written += block - run;
+                run = -1;
+            }
+        }
+        if (run >= 0) {
+            writeFully(ByteBuffer.wrap(array, run, end - run), position + run - start);
+            written += end - run;
+        }
+        position += length;
+        buffer.position(buffer.limit());
+        return written;
+    }
+
+    /**
+     * Gives the file its full size when it ends with a hole, which writing
+     * the data alone doesn't. Must be called once all the data is written.
+     *
+     * @throws IOException if the file cannot be extended.
+     */
+    void finish() throws IOException {
+        if (channel.size() < position) {
+            writeFully(ByteBuffer.wrap(ZEROS, 0, 1), position - 1);
+        }
+    }
+
+    private void writeFully(ByteBuffer data, long at) throws IOException {
+        while (data.hasRemaining()) {
+            at += channel.write(data, at);
+        }
+    }
+}
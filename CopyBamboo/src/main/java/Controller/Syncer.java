@@ -0,0 +1,289 @@
+package Controller;
+
+import Log.LogExcepcion;
+import Model.DurabilityMode;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * The Syncer class flushes the copies of a job to disk as its
+ * {@link DurabilityMode} asks. The copiers move their temporary files into
+ * place through {@link #moveIntoPlace}, and hand every completed copy to
+ * {@link #commit} with what has to be done once it is durable, such as
+ * recording it in the catalog.
+ * <p>
+ * With {@link DurabilityMode#GROUP_COMMIT}, the temporary files and the
+ * completions are queued to a thread that takes them in batches: it flushes
+ * every temporary file of the batch, renames them into place, flushes each of
+ * their directories once, and only then runs the completions. A file is
+ * never in place before its data is on disk, so a crash can't leave a copy
+ * with its name but without its content. The copy workers never wait for the
+ * disk unless the queue is full, and a directory that receives many files of
+ * a batch is flushed once for all of them. When a copy can't be flushed or
+ * renamed, its temporary file is deleted and its failure handler is run
+ * instead of its completion, so the caller counts it as an error.
+ * </p>
+ * <p>
+ * A new directory is only durable once its parent is, so the first time a
+ * directory is flushed, the directories above it are flushed too.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class Syncer {
+
+    private static final int BATCH_SIZE = 256;
+    // Copies waiting to be flushed before the copy workers block
+    private static final int QUEUE_CAPACITY = 4 * BATCH_SIZE;
+
+    /**
+     * A temporary file waiting to be flushed and renamed, or the completion
+     * of a copy.
+     */
+    private static final class Pending {
+
+        private final Path temp;
+        private final Path file;
+        private final Runnable done;
+        private final Consumer<IOException> failed;
+
+        Pending(Path temp, Path file, Runnable done, Consumer<IOException> failed) {
+            this.temp = temp;
+            this.file = file;
+            this.done = done;
+            this.failed = failed;
+        }
+    }
+
+    // Ends the thread once the copies queued before it are done
+    private static final Pending END = new Pending(null, null, null, null);
+
+    private final DurabilityMode mode;
+    private final LogExcepcion logFile;
+    // Directories flushed at least once, with the directories above them
+    private final Set<Path> syncedDirectories = ConcurrentHashMap.newKeySet();
+    // Copies that couldn't be put in place, until their failure is handled
+    private final Map<Path, IOException> failures = new ConcurrentHashMap<>();
+    private final BlockingQueue<Pending> queue;
+    private final Thread worker;
+
+    /**
+     * Constructs a Syncer. With {@link DurabilityMode#GROUP_COMMIT} its
+     * thread is started, and {@link #close()} must be called at the end of
+     * the job.
+     *
+     * @param mode the durability mode.
+     * @param logFile the log of the errors.
+     */
+    public Syncer(DurabilityMode mode, LogExcepcion logFile) {
+        this.mode = mode;
+        this.logFile = logFile;
+        if (mode == DurabilityMode.GROUP_COMMIT) {
+            this.queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+            this.worker = new Thread(this::run, "Group commit syncer");
+            this.worker.setDaemon(true);
+            this.worker.start();
+        } else {
+            this.queue = null;
+            this.worker = null;
+        }
+    }
+
+    public DurabilityMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Renames a complete temporary file over its destination. With
+     * {@link DurabilityMode#PER_FILE}, the file is flushed before the rename
+     * and its directory after. With {@link DurabilityMode#GROUP_COMMIT}, the
+     * file is queued to be flushed and renamed with its batch, and belongs to
+     * the syncer from then on: the caller must not delete it.
+     *
+     * @param temp the complete temporary file.
+     * @param destination the final destination.
+     * @throws IOException if the file cannot be flushed or renamed.
+     */
+    public void moveIntoPlace(Path temp, Path destination) throws IOException {
+        switch (mode) {
+            case PER_FILE -> {
+                syncFile(temp);
+                FileCopier.moveIntoPlace(temp, destination);
+                syncDirectory(destination.getParent());
+            }
+            case GROUP_COMMIT ->
+                enqueue(new Pending(temp, destination, null, null));
+            default ->
+                FileCopier.moveIntoPlace(temp, destination);
+        }
+    }
+
+    /**
+     * Runs what has to be done once a copy is durable: at once, unless the
+     * copies are flushed in groups, in which case it runs on the thread of
+     * the syncer once the file is flushed, renamed into place and its
+     * directory flushed. If the file cannot be put in place, the failure
+     * handler is run instead.
+     *
+     * @param file the destination given to {@link #moveIntoPlace}.
+     * @param done the completion of the copy.
+     * @param failed the handler of the error that kept the file from its
+     * destination.
+     */
+    public void commit(Path file, Runnable done, Consumer<IOException> failed) {
+        if (queue == null) {
+            done.run();
+            return;
+        }
+        enqueue(new Pending(null, file, done, failed));
+    }
+
+    /**
+     * Queues a file or a completion even if the thread is interrupted, as a
+     * completion must not run before the rename queued ahead of it.
+     */
+    private void enqueue(Pending pending) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(pending);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits until every queued copy is flushed and its completion run, and
+     * stops the thread.
+     */
+    public void close() {
+        if (worker == null) {
+            return;
+        }
+        try {
+            queue.put(END);
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(BATCH_SIZE);
+        boolean end = false;
+        while (!end) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, BATCH_SIZE - 1);
+            end = batch.remove(END);
+            syncBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void syncBatch(List<Pending> batch) {
+        List<Pending> synced = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            if (pending.temp == null) {
+                continue;
+            }
+            try {
+                syncFile(pending.temp);
+                synced.add(pending);
+            } catch (IOException ex) {
+                fail(pending, ex);
+            }
+        }
+        // Only the files already on disk are given their names
+        Set<Path> directories = new LinkedHashSet<>();
+        for (Pending pending : synced) {
+            try {
+                FileCopier.moveIntoPlace(pending.temp, pending.file);
+                directories.add(pending.file.getParent());
+            } catch (IOException ex) {
+                fail(pending, ex);
+            }
+        }
+        for (Path directory : directories) {
+            syncDirectory(directory);
+        }
+        for (Pending pending : batch) {
+            if (pending.done == null) {
+                continue;
+            }
+            IOException failure = failures.remove(pending.file);
+            try {
+                if (failure == null) {
+                    pending.done.run();
+                } else {
+                    pending.failed.accept(failure);
+                }
+            } catch (RuntimeException ex) {
+                logFile.anadirExcepcionLog(ex);
+            }
+        }
+    }
+
+    private void fail(Pending pending, IOException ex) {
+        failures.put(pending.file, ex);
+        try {
+            Files.deleteIfExists(pending.temp);
+        } catch (IOException e) {
+            logFile.anadirExcepcionLog(e);
+        }
+    }
+
+    /**
+     * Flushes the data of a file, with the size and whatever else is needed
+     * to read it back, but not its times.
+     */
+    protected void syncFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.force(false);
+        } catch (IOException e) {
+            // Some systems only flush files open for writing
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.force(false);
+            }
+        }
+    }
+
+    /**
+     * Flushes the entries of a directory, and the first time also the
+     * directories above it. Systems that can't open directories, such as
+     * Windows, keep them durable on their own and are skipped.
+     */
+    private void syncDirectory(Path directory) {
+        while (directory != null) {
+            try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+                channel.force(true);
+            } catch (IOException e) {
+                return;
+            }
+            if (!syncedDirectories.add(directory)) {
+                return;
+            }
+            directory = directory.getParent();
+        }
+    }
+}
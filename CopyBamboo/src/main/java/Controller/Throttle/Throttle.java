@@ -0,0 +1,121 @@
+package Controller.Throttle;
+
+import java.time.LocalTime;
+
+/**
+ * The Throttle class enforces the read byte rate, write byte rate and
+ * operations per second of a job with three {@link TokenBucket}s, so an
+ * organize job can run on a shared NAS without saturating it. The copy engine
+ * charges every chunk it copies and the metadata reader every byte it parses;
+ * every file opened counts as one operation.
+ * <p>
+ * The limits come from a {@link ThrottleSchedule}, checked again every second,
+ * unless they were overridden at runtime with {@link #setLimits}. A new
+ * Throttle is unlimited and costs one volatile read per call.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class Throttle {
+
+    private static final long SCHEDULE_CHECK_NANOS = 1_000_000_000L;
+
+    private final TokenBucket readBytes = new TokenBucket();
+    private final TokenBucket writeBytes = new TokenBucket();
+    private final TokenBucket operations = new TokenBucket();
+
+    private volatile ThrottleSchedule schedule = new ThrottleSchedule(ThrottleLimits.UNLIMITED);
+    private volatile ThrottleLimits override;
+    private volatile ThrottleLimits current = ThrottleLimits.UNLIMITED;
+    private volatile long nextScheduleCheck = System.nanoTime();
+    private volatile boolean configured;
+
+    /**
+     * Sets the schedule that chooses the limits by time of day.
+     *
+     * @param schedule the schedule.
+     */
+    public void setSchedule(ThrottleSchedule schedule) {
+        this.schedule = schedule;
+        this.configured = true;
+        refresh(true);
+    }
+
+    /**
+     * Overrides the schedule with fixed limits until
+     * {@link #clearLimits()} is called.
+     *
+     * @param limits the limits to apply now.
+     */
+    public void setLimits(ThrottleLimits limits) {
+        this.override = limits;
+        this.configured = true;
+        refresh(true);
+    }
+
+    /**
+     * Removes the runtime override and goes back to the schedule.
+     */
+    public void clearLimits() {
+        this.override = null;
+        refresh(true);
+    }
+
+    /**
+     * Returns the limits in force.
+     *
+     * @return the current limits.
+     */
+    public ThrottleLimits getCurrentLimits() {
+        return current;
+    }
+
+    /**
+     * Waits until {@code bytes} may be read.
+     *
+     * @param bytes the bytes about to be read.
+     */
+    public void acquireRead(long bytes) {
+        refresh(false);
+        readBytes.acquire(bytes);
+    }
+
+    /**
+     * Waits until {@code bytes} may be written.
+     *
+     * @param bytes the bytes about to be written.
+     */
+    public void acquireWrite(long bytes) {
+        refresh(false);
+        writeBytes.acquire(bytes);
+    }
+
+    /**
+     * Waits until {@code count} file operations may be done.
+     *
+     * @param count the number of files about to be opened.
+     */
+    public void acquireOperations(int count) {
+        refresh(false);
+        operations.acquire(count);
+    }
+
+    private void refresh(boolean force) {
+        if (!configured) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (!force && now - nextScheduleCheck < 0) {
+            return;
+        }
+        nextScheduleCheck = now + SCHEDULE_CHECK_NANOS;
+        ThrottleLimits overrideLimits = override;
+        ThrottleLimits limits = overrideLimits != null ? overrideLimits : schedule.limitsAt(LocalTime.now());
+        if (limits != current) {
+            current = limits;
+            readBytes.setRate(limits.getReadBytesPerSecond());
+            writeBytes.setRate(limits.getWriteBytesPerSecond());
+            operations.setRate(limits.getOperationsPerSecond());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package Controller.Throttle;
+
+import java.util.Locale;
+
+/**
+ * The ThrottleLimits class holds the read byte rate, write byte rate and
+ * operations per second allowed to a job. A limit of 0 means unlimited.
+ * <p>
+ * Limits are written as a comma separated list such as
+ * {@code read=50M,write=20M,ops=200}; byte rates accept the K, M and G
+ * (binary) suffixes and {@code unlimited} lifts every limit.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class ThrottleLimits {
+
+    public static final ThrottleLimits UNLIMITED = new ThrottleLimits(0, 0, 0);
+
+    private final long readBytesPerSecond;
+    private final long writeBytesPerSecond;
+    private final long operationsPerSecond;
+
+    /**
+     * Constructs the limits.
+     *
+     * @param readBytesPerSecond the bytes read per second, 0 for unlimited.
+     * @param writeBytesPerSecond the bytes written per second, 0 for
+     * unlimited.
+     * @param operationsPerSecond the files opened per second, 0 for
+     * unlimited.
+     */
+    public ThrottleLimits(long readBytesPerSecond, long writeBytesPerSecond, long operationsPerSecond) {
+        if (readBytesPerSecond < 0 || writeBytesPerSecond < 0 || operationsPerSecond < 0) {
+            throw new IllegalArgumentException("Throttle limits can't be negative.");
+        }
+        this.readBytesPerSecond = readBytesPerSecond;
+        this.writeBytesPerSecond = writeBytesPerSecond;
+        this.operationsPerSecond = operationsPerSecond;
+    }
+
+    /**
+     * Parses limits such as {@code read=50M,write=20M,ops=200}. Limits not
+     * mentioned are unlimited.
+     *
+     * @param value the text to parse.
+     * @return the parsed limits.
+     * @throws IllegalArgumentException if the text is not valid.
+     */
+    public static ThrottleLimits parse(String value) {
+        String text = value.trim().toLowerCase(Locale.ROOT);
+        if (text.equals("unlimited") || text.equals("none")) {
+            return UNLIMITED;
+        }
+        long read = 0, write = 0, ops = 0;
+        for (String part : text.split(",")) {
+            int equals = part.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Invalid throttle limit: " + part);
+            }
+            String name = part.substring(0, equals).trim();
+            String amount = part.substring(equals + 1).trim();
+            switch (name) {
+                case "read" ->
+                    read = parseSize(amount);
+                case "write" ->
+                    write = parseSize(amount);
+                case "ops" ->
+                    ops = parseSize(amount);
+                default ->
+                    throw new IllegalArgumentException("Unknown throttle limit: " + name);
+            }
+        }
+        return new ThrottleLimits(read, write, ops);
+    }
+
+    private static long parseSize(String amount) {
+        long multiplier = 1;
+        String digits = amount;
+        if (!amount.isEmpty()) {
+            switch (amount.charAt(amount.length() - 1)) {
+                case 'k' ->
+                    multiplier = 1024L;
+                case 'm' ->
+                    multiplier = 1024L * 1024;
+                case 'g' ->
+                    multiplier = 1024L * 1024 * 1024;
+                default ->
+                    multiplier = 1;
+            }
+            if (multiplier > 1) {
+                digits = amount.substring(0, amount.length() - 1);
+            }
+        }
+        try {
+            long number = Long.parseLong(digits.trim());
+            if (number < 0) {
+                throw new IllegalArgumentException("Invalid throttle amount: " + amount);
+            }
+            return number * multiplier;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid throttle amount: " + amount);
+        }
+    }
+
+    public long getReadBytesPerSecond() {
+        return readBytesPerSecond;
+    }
+
+    public long getWriteBytesPerSecond() {
+        return writeBytesPerSecond;
+    }
+
+    public long getOperationsPerSecond() {
+        return operationsPerSecond;
+    }
+
+    @Override
+    public String toString() {
+        if (readBytesPerSecond == 0 && writeBytesPerSecond == 0 && operationsPerSecond == 0) {
+            return "unlimited";
+        }
+        return "read=" + readBytesPerSecond + ",write=" + writeBytesPerSecond + ",ops=" + operationsPerSecond;
+    }
+}
@@ -0,0 +1,94 @@
+package Controller.Throttle;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The ThrottleSchedule class chooses the {@link ThrottleLimits} of a job by
+ * time of day, so a long job can run slowly during office hours and at full
+ * speed at night. Windows are written as {@code HH:mm-HH:mm=<limits>} and may
+ * wrap around midnight; the first window containing the current time wins, and
+ * the default limits apply outside every window.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class ThrottleSchedule {
+
+    /**
+     * A time of day window with its limits.
+     */
+    private static final class Window {
+
+        private final LocalTime start;
+        private final LocalTime end;
+        private final ThrottleLimits limits;
+
+        Window(LocalTime start, LocalTime end, ThrottleLimits limits) {
+            this.start = start;
+            this.end = end;
+            this.limits = limits;
+        }
+
+        boolean contains(LocalTime time) {
+            if (start.isBefore(end)) {
+                return !time.isBefore(start) && time.isBefore(end);
+            }
+            // Wraps around midnight
+            return !time.isBefore(start) || time.isBefore(end);
+        }
+    }
+
+    private final ThrottleLimits defaultLimits;
+    private final List<Window> windows = new ArrayList<>();
+
+    /**
+     * Constructs a schedule without windows.
+     *
+     * @param defaultLimits the limits applied outside every window.
+     */
+    public ThrottleSchedule(ThrottleLimits defaultLimits) {
+        this.defaultLimits = defaultLimits;
+    }
+
+    /**
+     * Adds a window such as {@code 08:00-20:00=read=10M,write=10M}.
+     *
+     * @param window the window to parse.
+     * @throws IllegalArgumentException if the window is not valid.
+     */
+    public void addWindow(String window) {
+        int equals = window.indexOf('=');
+        int dash = window.indexOf('-');
+        if (equals < 0 || dash < 0 || dash > equals) {
+            throw new IllegalArgumentException("Invalid throttle window: " + window);
+        }
+        try {
+            LocalTime start = LocalTime.parse(window.substring(0, dash).trim());
+            LocalTime end = LocalTime.parse(window.substring(dash + 1, equals).trim());
+            if (start.equals(end)) {
+                throw new IllegalArgumentException("Empty throttle window: " + window);
+            }
+            windows.add(new Window(start, end, ThrottleLimits.parse(window.substring(equals + 1))));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid time in throttle window: " + window);
+        }
+    }
+
+    /**
+     * Returns the limits that apply at the given time of day.
+     *
+     * @param time the time of day.
+     * @return the limits of the first window containing the time, or the
+     * default limits.
+     */
+    public ThrottleLimits limitsAt(LocalTime time) {
+        for (Window window : windows) {
+            if (window.contains(time)) {
+                return window.limits;
+            }
+        }
+        return defaultLimits;
+    }
+}
@@ -0,0 +1,51 @@
+package Controller.Throttle;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream that charges every byte read to the read bucket of a
+ * {@link Throttle}, used for the metadata reads done while planning.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class ThrottledInputStream extends FilterInputStream {
+
+    private final Throttle throttle;
+
+    /**
+     * Wraps a stream.
+     *
+     * @param in the stream to read from.
+     * @param throttle the throttle charged for the bytes read.
+     */
+    public ThrottledInputStream(InputStream in, Throttle throttle) {
+        super(in);
+        this.throttle = throttle;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int value = super.read();
+        if (value >= 0) {
+            throttle.acquireRead(1);
+        }
+        return value;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int read = super.read(buffer, offset, length);
+        if (read > 0) {
+            throttle.acquireRead(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // Skipped bytes are not transferred, only seeked over
+        return super.skip(n);
+    }
+}
@@ -0,0 +1,85 @@
+package Controller.Throttle;
+
+/**
+ * The TokenBucket class limits how fast a resource is consumed. Tokens are
+ * added continuously at the configured rate, up to one second worth of
+ * tokens, and every caller takes as many tokens as units it is about to
+ * consume. A caller that takes more tokens than available leaves the bucket in
+ * debt and sleeps until the debt has been paid, so requests larger than the
+ * bucket (a whole chunk of a file) are still paced correctly on average.
+ * <p>
+ * The rate can be changed at any time; threads already waiting pick up the
+ * new rate within {@value #MAX_SLEEP_MS} milliseconds.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class TokenBucket {
+
+    private static final long MAX_SLEEP_MS = 100;
+
+    // Units per second, 0 means unlimited
+    private volatile long rate;
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    /**
+     * Sets the rate of the bucket.
+     *
+     * @param rate the units allowed per second, 0 for unlimited.
+     */
+    public synchronized void setRate(long rate) {
+        if (rate < 0) {
+            throw new IllegalArgumentException("Rate can't be negative.");
+        }
+        refill();
+        this.rate = rate;
+        tokens = Math.min(tokens, rate);
+    }
+
+    public long getRate() {
+        return rate;
+    }
+
+    /**
+     * Takes {@code amount} tokens, sleeping as long as needed to stay under
+     * the rate. Returns immediately when the bucket is unlimited.
+     *
+     * @param amount the number of units about to be consumed.
+     */
+    public void acquire(long amount) {
+        if (rate == 0 || amount <= 0) {
+            return;
+        }
+        synchronized (this) {
+            refill();
+            tokens -= amount;
+        }
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                refill();
+                if (tokens >= 0 || rate == 0) {
+                    return;
+                }
+                waitNanos = (long) (-tokens * 1_000_000_000L / rate);
+            }
+            try {
+                Thread.sleep(Math.max(1, Math.min(waitNanos / 1_000_000, MAX_SLEEP_MS)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        if (rate > 0) {
+            tokens = Math.min(rate, tokens + (now - lastRefill) * (double) rate / 1_000_000_000L);
+        } else {
+            tokens = 0;
+        }
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,343 @@
+package Controller;
+
+import Log.LogExcepcion;
+import Log.LogHandler;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The WatchController class keeps an origin directory organized continuously.
+ * It registers every directory of the origin tree in a {@link WatchService}
+ * and feeds only new or changed files to a {@link CopyController}, so files
+ * dropped into an inbox are archived within seconds without rescanning the
+ * whole origin.
+ * <p>
+ * A file is only copied once it has settled: its size and modification time
+ * must stay unchanged for the configured quiet period, so files that are still
+ * being written are never picked up half-way. When the watch service reports
+ * an overflow, only the directory whose events were lost is listed again, and
+ * files are compared against the size and modification time they had when
+ * they were last archived.
+ * </p>
+ * <p>
+ * The archived files are remembered in a {@link WatchState} kept in the
+ * destination, so when watching starts again, the files found in the origin
+ * that were archived and didn't change since are skipped without reading
+ * them or their copies; only the files dropped or changed while the watcher
+ * was not running are copied.
+ * </p>
+ * <p>
+ * A file counts as archived once the copy workers have copied it, or skipped
+ * it as identical. A copy that fails is tried again after another quiet
+ * period, a few times, and then waits for the next event of the file.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class WatchController {
+
+    private static final long POLL_INTERVAL_MS = 250;
+    // Copies of an unchanged file tried before waiting for its next event
+    private static final int MAX_ATTEMPTS = 3;
+    // Interval between writes of the archived files, a crash only loses the last ones
+    private static final long SAVE_INTERVAL_MS = 10_000;
+
+    /**
+     * Size and modification time of a file at a given moment.
+     */
+    private static final class FileState {
+
+        private final long size;
+        private final long modified;
+        private final long seenAt;
+        // Failed copies of the file in this state
+        private final int failures;
+
+        FileState(long size, long modified, long seenAt) {
+            this(size, modified, seenAt, 0);
+        }
+
+        FileState(long size, long modified, long seenAt, int failures) {
+            this.size = size;
+            this.modified = modified;
+            this.seenAt = seenAt;
+            this.failures = failures;
+        }
+
+        boolean sameContentAs(FileState other) {
+            return other != null && size == other.size && modified == other.modified;
+        }
+    }
+
+    private final CopyController copyController;
+    private final Path originPath;
+    private final long quietPeriodMs;
+    private final LogHandler logWindow;
+    private final LogExcepcion logFile = new LogExcepcion();
+
+    // Files seen in events but not settled yet
+    private final Map<Path, FileState> pending = new ConcurrentHashMap<>();
+    // Files handed to the copy workers and not done yet
+    private final Map<Path, FileState> copying = new ConcurrentHashMap<>();
+    // Size and modification time of the archived files when they were copied
+    private final WatchState archived;
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    private final Set<Path> watchedPaths = ConcurrentHashMap.newKeySet();
+
+    private WatchService watchService;
+    private ScheduledExecutorService settleTimer;
+    private volatile boolean running;
+
+    /**
+     * Constructs a WatchController.
+     *
+     * @param copyController the controller that classifies and copies files.
+     * @param originPath the directory to watch, recursively.
+     * @param quietPeriodMs how long, in milliseconds, a file must stay
+     * unchanged before it is copied.
+     * @param logWindow the log handler to display log messages.
+     */
+    public WatchController(CopyController copyController, Path originPath, long quietPeriodMs, LogHandler logWindow) {
+        this.copyController = copyController;
+        this.originPath = originPath;
+        this.quietPeriodMs = quietPeriodMs;
+        this.logWindow = logWindow;
+        this.archived = WatchState.load(copyController.getDestinationPath());
+    }
+
+    /**
+     * Watches the origin until {@link #stop()} is called. Files already
+     * present when watching starts and not archived as they are now are
+     * processed once, as a catch-up for anything dropped or changed while the
+     * watcher was not running.
+     *
+     * @throws IOException if the watch service cannot be created or the
+     * origin cannot be registered.
+     */
+    public void watch() throws IOException {
+        watchService = originPath.getFileSystem().newWatchService();
+        running = true;
+        copyController.startWorkers();
+        settleTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Watch settle timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        settleTimer.scheduleWithFixedDelay(this::submitSettledFiles, POLL_INTERVAL_MS, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        settleTimer.scheduleWithFixedDelay(this::saveState, SAVE_INTERVAL_MS, SAVE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        registerTree(originPath);
+        logWindow.appendLog("Watching: " + originPath);
+
+        try {
+            while (running) {
+                WatchKey key = watchService.take();
+                Path directory = watchedDirectories.get(key);
+                if (directory != null) {
+                    handleEvents(key, directory);
+                }
+                if (!key.reset()) {
+                    Path removed = watchedDirectories.remove(key);
+                    if (removed != null) {
+                        watchedPaths.remove(removed);
+                    }
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ex) {
+            // stop() closed the service
+        } finally {
+            settleTimer.shutdownNow();
+            copyController.finishWorkers();
+            saveState();
+        }
+    }
+
+    private void saveState() {
+        try {
+            archived.save();
+        } catch (IOException ex) {
+            logFile.anadirExcepcionLog(ex);
+        }
+    }
+
+    /**
+     * Stops watching. Files already queued are still copied before
+     * {@link #watch()} returns; files that had not settled yet are not.
+     */
+    public void stop() {
+        running = false;
+        try {
+            if (watchService != null) {
+                watchService.close();
+            }
+        } catch (IOException ex) {
+            logFile.anadirExcepcionLog(ex);
+        }
+    }
+
+    private void handleEvents(WatchKey key, Path directory) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Events of this directory were lost, list it again and keep only what changed
+                logWindow.appendLog("Watch events lost, checking again: " + directory);
+                scanDirectory(directory);
+                continue;
+            }
+            Path child = directory.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                pending.remove(child);
+                archived.remove(child);
+            } else if (Files.isDirectory(child)) {
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                    registerTree(child);
+                }
+            } else {
+                observe(child);
+            }
+        }
+    }
+
+    /**
+     * Registers a directory and all its subdirectories, and queues the files
+     * found in them. Files created before the registration completed would not
+     * produce events, so listing them here closes that gap.
+     */
+    private void registerTree(Path root) {
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                    watchedDirectories.put(key, dir);
+                    watchedPaths.add(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile()) {
+                        observe(file, attrs);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    logFile.anadirExcepcionLog(exc);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException ex) {
+            logFile.anadirExcepcionLog(ex);
+            logWindow.appendLog("Error watching directory: " + root + " - " + ex.getMessage());
+        }
+    }
+
+    private void scanDirectory(Path directory) {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                if (Files.isDirectory(entry)) {
+                    if (!watchedPaths.contains(entry)) {
+                        registerTree(entry);
+                    }
+                } else {
+                    observe(entry);
+                }
+            }
+        } catch (IOException ex) {
+            logFile.anadirExcepcionLog(ex);
+        }
+    }
+
+    private void observe(Path file) {
+        try {
+            observe(file, Files.readAttributes(file, BasicFileAttributes.class));
+        } catch (IOException ex) {
+            // The file vanished before it could be read, nothing to archive
+            pending.remove(file);
+        }
+    }
+
+    private void observe(Path file, BasicFileAttributes attrs) {
+        if (!attrs.isRegularFile()) {
+            return;
+        }
+        FileState state = new FileState(attrs.size(), attrs.lastModifiedTime().toMillis(), System.nanoTime());
+        if (archived.isArchived(file, state.size, state.modified) || state.sameContentAs(copying.get(file))) {
+            return; // Already archived, or being copied, and unchanged
+        }
+        pending.merge(file, state, (previous, current) -> current.sameContentAs(previous) ? previous : current);
+    }
+
+    /**
+     * Hands every pending file whose size and modification time did not change
+     * during the quiet period to the copy workers.
+     */
+    private void submitSettledFiles() {
+        if (copyController.getJobControl().isCancelled()) {
+            stop();
+            return;
+        }
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Path, FileState>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext() && running) {
+            Map.Entry<Path, FileState> entry = iterator.next();
+            Path file = entry.getKey();
+            FileState seen = entry.getValue();
+            if (TimeUnit.NANOSECONDS.toMillis(now - seen.seenAt) < quietPeriodMs) {
+                continue;
+            }
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                FileState current = new FileState(attrs.size(), attrs.lastModifiedTime().toMillis(), now, seen.failures);
+                if (!current.sameContentAs(seen)) {
+                    entry.setValue(current); // Still being written, wait another quiet period
+                    continue;
+                }
+                iterator.remove();
+                copying.put(file, current);
+                copyController.submitFile(file, copied -> copied(file, current, copied));
+            } catch (IOException ex) {
+                iterator.remove();
+            } catch (RuntimeException ex) {
+                logFile.anadirExcepcionLog(ex);
+            }
+        }
+    }
+
+    /**
+     * Called by the copy workers once they are done with a file. A file that
+     * was copied is archived; one that failed is queued again, unless it
+     * changed in the meantime and is already pending.
+     */
+    private void copied(Path file, FileState state, boolean copied) {
+        copying.remove(file, state);
+        if (copied) {
+            archived.put(file, state.size, state.modified);
+        } else if (state.failures + 1 < MAX_ATTEMPTS) {
+            pending.putIfAbsent(file, new FileState(state.size, state.modified, System.nanoTime(), state.failures + 1));
+        } else {
+            logWindow.appendLog("Giving up on " + file + " until it changes.");
+        }
+    }
+}
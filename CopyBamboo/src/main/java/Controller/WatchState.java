@@ -0,0 +1,146 @@
+package Controller;
+
+import Controller.Catalog.Catalog;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The WatchState class remembers the files the watch mode has archived, with
+ * the size and modification time they had when they were copied, so a watch
+ * started again only copies the files that are new or changed since, without
+ * reading the files it already archived or their copies.
+ * <p>
+ * The state is kept in the {@value Controller.Catalog.Catalog#DIRECTORY}
+ * directory of the destination and is only written when something changed.
+ * A file deleted from the origin is forgotten. A missing or damaged state
+ * only costs comparing the files found at start with their copies again.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class WatchState {
+
+    private static final String STATE_FILE = "watch-state.bin";
+    private static final int MAGIC = 0x43425753; // "CBWS"
+    private static final int FORMAT_VERSION = 1;
+
+    private final Path file;
+    // Size and modification time of every archived file, by its path
+    private final Map<String, long[]> archived = new ConcurrentHashMap<>();
+    private volatile boolean changed;
+
+    private WatchState(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Loads the state of a destination. A missing or unreadable state gives
+     * an empty one.
+     *
+     * @param destinationRoot the destination directory.
+     * @return the state.
+     */
+    public static WatchState load(Path destinationRoot) {
+        WatchState state = new WatchState(destinationRoot.resolve(Catalog.DIRECTORY).resolve(STATE_FILE));
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(state.file), 64 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return state;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                state.archived.put(path, new long[]{in.readLong(), in.readLong()});
+            }
+        } catch (IOException e) {
+            // The files found at start are compared with their copies again
+            state.archived.clear();
+        }
+        return state;
+    }
+
+    /**
+     * Returns whether a file was archived as it is now.
+     *
+     * @param path the file.
+     * @param size its current size.
+     * @param modified its current modification time, in milliseconds.
+     * @return {@code true} if the file was archived with that size and
+     * modification time.
+     */
+    public boolean isArchived(Path path, long size, long modified) {
+        long[] state = archived.get(key(path));
+        return state != null && state[0] == size && state[1] == modified;
+    }
+
+    /**
+     * Records a file as archived.
+     *
+     * @param path the file.
+     * @param size its size when it was copied.
+     * @param modified its modification time when it was copied, in
+     * milliseconds.
+     */
+    public void put(Path path, long size, long modified) {
+        archived.put(key(path), new long[]{size, modified});
+        changed = true;
+    }
+
+    /**
+     * Forgets a file, as when it is deleted from the origin.
+     *
+     * @param path the file.
+     */
+    public void remove(Path path) {
+        if (archived.remove(key(path)) != null) {
+            changed = true;
+        }
+    }
+
+    /**
+     * Writes the state if something changed since it was loaded or last
+     * written.
+     *
+     * @throws IOException if the state cannot be written.
+     */
+    public synchronized void save() throws IOException {
+        if (!changed) {
+            return;
+        }
+        changed = false;
+        Files.createDirectories(file.getParent());
+        Path temp = FileCopier.tempFileFor(file);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temp, StandardOpenOption.CREATE_NEW), 64 * 1024))) {
+                Map<String, long[]> snapshot = Map.copyOf(archived);
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<String, long[]> entry : snapshot.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue()[0]);
+                    out.writeLong(entry.getValue()[1]);
+                }
+            }
+            FileCopier.moveIntoPlace(temp, file);
+        } catch (IOException | RuntimeException e) {
+            // Written again with the next change
+            changed = true;
+            throw e;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String key(Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+}
@@ -0,0 +1,54 @@
+package Log;
+
+import Model.Json;
+import java.io.PrintStream;
+
+/**
+ * The ConsoleLogHandler class sends log messages to the console instead of a
+ * JTextArea, so the copy process can run on headless machines without loading
+ * any AWT or Swing component.
+ * <p>
+ * Messages are written either as plain text or as one JSON object per line
+ * ({@code {"event":"log","message":"..."}}), and can be silenced completely
+ * so that only progress and summary lines are printed.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class ConsoleLogHandler extends LogHandler {
+
+    private final PrintStream out;
+    private final boolean json;
+    private final boolean verbose;
+
+    /**
+     * Constructs a ConsoleLogHandler.
+     *
+     * @param out the stream where messages are written.
+     * @param json whether to write messages as JSON lines.
+     * @param verbose whether to write messages at all; when {@code false}
+     * every message is discarded.
+     */
+    public ConsoleLogHandler(PrintStream out, boolean json, boolean verbose) {
+        this.out = out;
+        this.json = json;
+        this.verbose = verbose;
+    }
+
+    /**
+     * Writes a log message to the console.
+     *
+     * @param message The message to be written.
+     */
+    @Override
+    public void appendLog(final String message) {
+        if (!verbose) {
+            return;
+        }
+        if (json) {
+            out.println("{\"event\":\"log\",\"message\":" + Json.quote(message) + "}");
+        } else {
+            out.println(message);
+        }
+    }
+}
@@ -29,6 +29,15 @@ public class LogHandler {
         this.logTextArea = logTextArea;
     }
 
+    /**
+     * Constructs a LogHandler that is not bound to any JTextArea. Intended for
+     * subclasses that send the messages somewhere else (console, benchmarks)
+     * and override {@link #appendLog(String)}.
+     */
+    protected LogHandler() {
+        this.logTextArea = null;
+    }
+
     /**
      * Appends a log message to the JTextArea and ensures that the latest log
      * entry is visible by scrolling down. This method appends the provided
@@ -38,12 +47,10 @@ public class LogHandler {
      * @param message The message to be appended to the log area.
      */
     public void appendLog(final String message) {
-        logTextArea.append(message + "\n\n");
-        logTextArea.setCaretPosition(logTextArea.getDocument().getLength());
-
-        // Ensures the log area updates on the Event Dispatch Thread (EDT)
+        // Messages arrive from several copy workers, the text area is only touched on the EDT
         SwingUtilities.invokeLater(() -> {
-            // Nothing needed inside here as SwingUtilities.invokeLater ensures thread safety
+            logTextArea.append(message + "\n\n");
+            logTextArea.setCaretPosition(logTextArea.getDocument().getLength());
         });
     }
 }
@@ -37,6 +37,12 @@ public enum ClassifyTypes {
     /**
      * Classify based on the file's type, determined by its extension.
      */
-    FILE_TYPE;
+    FILE_TYPE,
     // </editor-fold>
+
+    /**
+     * Classify with a layout that combines type, extension, date, size and
+     * metadata levels, such as {@code type/date:yyyy/date:MM}.
+     */
+    LAYOUT;
 }
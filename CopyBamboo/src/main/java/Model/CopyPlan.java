@@ -0,0 +1,69 @@
+package Model;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code CopyPlan} class holds the result of a dry run: the settings of
+ * the job and one {@link CopyTask} per origin file, with its date, destination
+ * and status already resolved. A plan can be saved, reviewed and diffed, and
+ * executed later without repeating any metadata work.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class CopyPlan {
+
+    private final ClassifyTypes classifyTypes;
+    private final Path originPath;
+    private final Path destinationPath;
+    private final boolean rename, pendients, overwrite;
+    private final List<CopyTask> tasks = new ArrayList<>();
+
+    /**
+     * Constructs an empty CopyPlan.
+     *
+     * @param classifyTypes the classification used to build the plan.
+     * @param originPath the origin directory.
+     * @param destinationPath the destination directory.
+     * @param rename whether files were renamed with their date.
+     * @param pendients whether unclassified files go to a pending folder.
+     * @param overwrite whether existing files are overwritten.
+     */
+    public CopyPlan(ClassifyTypes classifyTypes, Path originPath, Path destinationPath, boolean rename, boolean pendients, boolean overwrite) {
+        this.classifyTypes = classifyTypes;
+        this.originPath = originPath;
+        this.destinationPath = destinationPath;
+        this.rename = rename;
+        this.pendients = pendients;
+        this.overwrite = overwrite;
+    }
+
+    public ClassifyTypes getClassifyTypes() {
+        return classifyTypes;
+    }
+
+    public Path getOriginPath() {
+        return originPath;
+    }
+
+    public Path getDestinationPath() {
+        return destinationPath;
+    }
+
+    public boolean isRename() {
+        return rename;
+    }
+
+    public boolean isPendients() {
+        return pendients;
+    }
+
+    public boolean isOverwrite() {
+        return overwrite;
+    }
+
+    public List<CopyTask> getTasks() {
+        return tasks;
+    }
+}
@@ -0,0 +1,211 @@
+package Model;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The {@code CopyTask} class describes the copy of a single file once all its
+ * metadata work is done: the resolved date, the classified destination and
+ * what has to be done with it. Tasks are produced by the scan/plan phase and
+ * consumed by the copy workers.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class CopyTask {
+
+    /**
+     * What the copy phase has to do with the task.
+     */
+    public enum Status {
+        /**
+         * Copy the file to its destination.
+         */
+        COPY,
+        /**
+         * Another file with different content was already going to the same
+         * destination, so this one got a new, unique destination name.
+         */
+        COLLISION_RENAMED,
+        /**
+         * Another file with identical content is copied to the same
+         * destination, this one is skipped.
+         */
+        DUPLICATE,
+        /**
+         * The file is an image that looks like another image of the job, such
+         * as a resized or re-encoded copy of it, and near duplicates are
+         * skipped.
+         */
+        NEAR_DUPLICATE,
+        /**
+         * The file could not be classified and is not copied.
+         */
+        UNCLASSIFIED
+    }
+
+    private final Path origin;
+    private Path destination;
+    private final LocalDateTime date;
+    private String dateSource;
+    private final long size;
+    private Status status;
+    private Path duplicateOf;
+    private long localityKey = -1;
+    private long sequence;
+    private BasicFileAttributes attributes;
+    private final List<CopyTask> mirrors = new ArrayList<>();
+    private Consumer<Boolean> completion;
+
+    /**
+     * Constructs a CopyTask.
+     *
+     * @param origin the file to copy.
+     * @param destination the classified destination file, {@code null} when
+     * the file could not be classified.
+     * @param date the resolved date of the file, may be {@code null}.
+     * @param size the size of the file in bytes.
+     */
+    public CopyTask(Path origin, Path destination, LocalDateTime date, long size) {
+        this.origin = origin;
+        this.destination = destination;
+        this.date = date;
+        this.size = size;
+        this.status = destination == null ? Status.UNCLASSIFIED : Status.COPY;
+    }
+
+    public Path getOrigin() {
+        return origin;
+    }
+
+    public Path getDestination() {
+        return destination;
+    }
+
+    public void setDestination(Path destination) {
+        this.destination = destination;
+    }
+
+    public LocalDateTime getDate() {
+        return date;
+    }
+
+    /**
+     * Returns the metadata tag or file attribute the date was read from.
+     *
+     * @return the source of the date, or {@code null} when there is no date.
+     * @see ResolvedDate
+     */
+    public String getDateSource() {
+        return dateSource;
+    }
+
+    public void setDateSource(String dateSource) {
+        this.dateSource = dateSource;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    /**
+     * Returns the origin of another task with identical content, if any. It is
+     * informative for {@link Status#COPY} tasks and explains why
+     * {@link Status#DUPLICATE} tasks are skipped. For
+     * {@link Status#NEAR_DUPLICATE} tasks it is the similar image that is
+     * copied.
+     *
+     * @return the origin of the identical file, or {@code null}.
+     */
+    public Path getDuplicateOf() {
+        return duplicateOf;
+    }
+
+    public void setDuplicateOf(Path duplicateOf) {
+        this.duplicateOf = duplicateOf;
+    }
+
+    /**
+     * Returns the physical-locality key of the origin (its inode number), used
+     * to order reads on the source disk.
+     *
+     * @return the key, or -1 when it is unknown.
+     */
+    public long getLocalityKey() {
+        return localityKey;
+    }
+
+    public void setLocalityKey(long localityKey) {
+        this.localityKey = localityKey;
+    }
+
+    /**
+     * Returns the position of the task in the order its origin was walked,
+     * which the planning workers, finishing in any order, don't keep.
+     *
+     * @return the position, counted from 1 in each job.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * Returns the attributes of the origin read when it was scanned, which
+     * are applied to the copy without reading the origin again.
+     *
+     * @return the attributes, or {@code null} when the task was not scanned
+     * in this job, such as the tasks read from a plan.
+     */
+    public BasicFileAttributes getAttributes() {
+        return attributes;
+    }
+
+    public void setAttributes(BasicFileAttributes attributes) {
+        this.attributes = attributes;
+    }
+
+    /**
+     * Returns the copies of the same origin to the additional destinations
+     * of the job, in the order of their {@link DestinationSpec}s. The origin
+     * is read once for this task and all its mirrors.
+     *
+     * @return the mirror tasks, empty for single destination jobs.
+     */
+    public List<CopyTask> getMirrors() {
+        return mirrors;
+    }
+
+    public void addMirror(CopyTask mirror) {
+        mirrors.add(mirror);
+    }
+
+    /**
+     * Returns what is run once the copy phase is done with the task. It is
+     * told whether the task ended without errors: copied, or skipped as
+     * identical or near duplicate.
+     *
+     * @return the completion, or {@code null} when nobody waits for the task.
+     */
+    public Consumer<Boolean> getCompletion() {
+        return completion;
+    }
+
+    public void setCompletion(Consumer<Boolean> completion) {
+        this.completion = completion;
+    }
+}
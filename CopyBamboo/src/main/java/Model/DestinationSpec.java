@@ -0,0 +1,43 @@
+package Model;
+
+import java.nio.file.Path;
+
+/**
+ * The {@code DestinationSpec} class describes an additional destination of a
+ * copy job, such as an offsite staging copy kept next to the primary archive.
+ * Each destination has its own classification layout and overwrite policy;
+ * renaming and the pending folder are shared with the primary destination.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class DestinationSpec {
+
+    private final Path path;
+    private final ClassifyTypes classifyTypes;
+    private final boolean overwrite;
+
+    /**
+     * Constructs a DestinationSpec.
+     *
+     * @param path the destination directory.
+     * @param classifyTypes the classification used in this destination.
+     * @param overwrite whether existing identical files are overwritten.
+     */
+    public DestinationSpec(Path path, ClassifyTypes classifyTypes, boolean overwrite) {
+        this.path = path;
+        this.classifyTypes = classifyTypes;
+        this.overwrite = overwrite;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public ClassifyTypes getClassifyTypes() {
+        return classifyTypes;
+    }
+
+    public boolean isOverwrite() {
+        return overwrite;
+    }
+}
@@ -0,0 +1,33 @@
+package Model;
+
+/**
+ * The {@code DurabilityMode} enum defines how the copies are flushed to disk
+ * before they are recorded as done, trading crash safety for throughput.
+ * Copies are always written to a temporary file and renamed into place, so a
+ * cancelled job never leaves partial files; the modes differ in what survives
+ * a power cut.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public enum DurabilityMode {
+
+    /**
+     * Leave the copies to the operating system, which writes them at its own
+     * pace. The fastest; the last copies of a job may be lost or incomplete
+     * after a power cut.
+     */
+    NONE,
+    /**
+     * Flush every temporary file before it is renamed into place, and its
+     * directory after. A copy that has its name is complete, at the cost of
+     * waiting for the disk on every file.
+     */
+    PER_FILE,
+    /**
+     * Flush the copies in batches, together with their directories, from a
+     * thread of its own, and record them in the catalog only once flushed.
+     * Almost as fast as {@link #NONE}; a copy cut by a power loss is not in
+     * the catalog and is copied again by the next job.
+     */
+    GROUP_COMMIT;
+}
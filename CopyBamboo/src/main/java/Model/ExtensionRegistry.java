@@ -0,0 +1,180 @@
+package Model;
+
+import Log.LogExcepcion;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code ExtensionRegistry} class keeps the extension to file type table
+ * used to classify files, made of the built-in mapping of
+ * {@link FileClassifier} and the extensions of a user file, which may add new
+ * types or move an extension to another type:
+ * <pre>
+ * # Type = extensions
+ * RAW = cr2, nef, arw, dng
+ * Images = heic, heif
+ * Projects = psd, prproj, blend
+ * </pre>
+ * <p>
+ * The mapping is compiled into an {@link ExtensionTable} whenever the file is
+ * loaded, and the table is replaced at once, so the workers classifying files
+ * always see a complete table and never wait for a reload. Once watched, the
+ * file is checked every {@value #WATCH_INTERVAL_MS} ms and loaded again when it
+ * changes; a file with errors is reported to the exception log and the
+ * previous table is kept.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class ExtensionRegistry {
+
+    private static final long WATCH_INTERVAL_MS = 2000;
+
+    private final Path file;
+    private final Map<String, String> defaults;
+    private volatile ExtensionTable table;
+    // Modification time of the file the table was loaded from, null when there was no file
+    private FileTime loadedModified;
+    private ScheduledExecutorService watcher;
+    private final LogExcepcion logFile = new LogExcepcion();
+
+    /**
+     * Constructs a registry with the built-in mapping only; the file is read
+     * by {@link #reload()}.
+     *
+     * @param file the user file with the extensions.
+     * @param defaults the built-in mapping.
+     */
+    public ExtensionRegistry(Path file, Map<String, String> defaults) {
+        this.file = file;
+        this.defaults = defaults;
+        this.table = ExtensionTable.compile(defaults);
+    }
+
+    /**
+     * Returns the current table. The table does not change, a reload replaces
+     * it by a new one.
+     *
+     * @return the table.
+     */
+    public ExtensionTable getTable() {
+        return table;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Loads the file again if it changed, was created or was removed since it
+     * was loaded. A removed file leaves the built-in mapping.
+     *
+     * @return whether the table was replaced.
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalArgumentException if the file has errors; the table is
+     * kept, and the file is not read again until it changes.
+     */
+    public synchronized boolean reload() throws IOException {
+        FileTime modified;
+        try {
+            modified = Files.getLastModifiedTime(file);
+        } catch (NoSuchFileException e) {
+            modified = null;
+        }
+        if (modified == null ? loadedModified == null : modified.equals(loadedModified)) {
+            return false;
+        }
+        loadedModified = modified;
+        Map<String, String> mapping = new LinkedHashMap<>(defaults);
+        if (modified != null) {
+            try {
+                mapping.putAll(parse(Files.readAllLines(file, StandardCharsets.UTF_8)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(file + ": " + e.getMessage(), e);
+            }
+        }
+        table = ExtensionTable.compile(mapping);
+        return true;
+    }
+
+    /**
+     * Starts checking the file for changes in the background. Calling it
+     * again has no effect. A file that can't be loaded is reported to the
+     * exception log.
+     *
+     * @return this registry.
+     */
+    public synchronized ExtensionRegistry watch() {
+        if (watcher == null) {
+            watcher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "Extension registry reloader");
+                thread.setDaemon(true);
+                return thread;
+            });
+            watcher.scheduleWithFixedDelay(() -> {
+                try {
+                    reload();
+                } catch (IOException | IllegalArgumentException e) {
+                    logFile.anadirExcepcionLog(e);
+                }
+            }, WATCH_INTERVAL_MS, WATCH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+        return this;
+    }
+
+    /**
+     * Stops checking the file for changes. The current table is kept.
+     */
+    public synchronized void close() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+            watcher = null;
+        }
+    }
+
+    /**
+     * Parses the lines of an extensions file: {@code Type = ext, ext, ...}
+     * lines, with blank lines and lines starting with {@code #} ignored.
+     * Extensions may be written with or without the leading dot.
+     *
+     * @param lines the lines of the file.
+     * @return the extension to type mapping of the file.
+     * @throws IllegalArgumentException if a line is not valid.
+     */
+    static Map<String, String> parse(List<String> lines) {
+        Map<String, String> mapping = new LinkedHashMap<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int equals = line.indexOf('=');
+            String type = equals < 0 ? "" : line.substring(0, equals).trim();
+            // Types are folder names, "." and ".." would not be folders of their own
+            if (type.isEmpty() || type.chars().allMatch(c -> c == '.') || type.contains("/") || type.contains("\\")) {
+                throw new IllegalArgumentException("Invalid line " + (i + 1) + ", expected <type> = <extensions>: " + line);
+            }
+            for (String extension : line.substring(equals + 1).split(",")) {
+                extension = extension.trim();
+                if (extension.startsWith(".")) {
+                    extension = extension.substring(1);
+                }
+                if (extension.isEmpty() || extension.contains(".") || extension.contains(" ")) {
+                    throw new IllegalArgumentException("Invalid extension on line " + (i + 1) + ": " + line);
+                }
+                mapping.put(extension, type);
+            }
+        }
+        return mapping;
+    }
+}
@@ -0,0 +1,213 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code ExtensionTable} class is an immutable extension to file type
+ * mapping compiled for lookups that run once for every file of a job.
+ * <p>
+ * The extensions are placed with a hash and displace scheme: every extension
+ * first hashes to a bucket, and every bucket stores the seed of a second hash
+ * that sends each of its extensions to a slot of its own. A lookup therefore
+ * hashes the extension twice and compares it with the single extension in its
+ * slot, without probing. The extension is read in place from the file name and
+ * lower-cased character by character while it is hashed and compared, so a
+ * lookup allocates nothing.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public final class ExtensionTable {
+
+    // The seeds tried for a bucket before the table is made larger
+    private static final int MAX_SEED = 1 << 16;
+
+    private final char[][] keys;
+    private final String[] types;
+    private final int[] seeds;
+    private final int slotMask;
+    private final int bucketMask;
+    private final Map<String, String> mapping;
+
+    private ExtensionTable(char[][] keys, String[] types, int[] seeds, Map<String, String> mapping) {
+        this.keys = keys;
+        this.types = types;
+        this.seeds = seeds;
+        this.slotMask = keys.length - 1;
+        this.bucketMask = seeds.length - 1;
+        this.mapping = mapping;
+    }
+
+    /**
+     * Compiles a mapping into a table.
+     *
+     * @param extensionToType the file type of every extension, without the
+     * leading dot; extensions are matched ignoring case.
+     * @return the table.
+     */
+    public static ExtensionTable compile(Map<String, String> extensionToType) {
+        Map<String, String> mapping = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : extensionToType.entrySet()) {
+            mapping.put(lowerCase(entry.getKey()), entry.getValue());
+        }
+        int slots = Integer.highestOneBit(Math.max(1, mapping.size()) * 2 - 1) * 2;
+        while (true) {
+            ExtensionTable table = place(mapping, slots);
+            if (table != null) {
+                return table;
+            }
+            slots *= 2;
+        }
+    }
+
+    /**
+     * Places every extension in a table of {@code slots} slots.
+     *
+     * @return the table, or {@code null} if some bucket found no seed.
+     */
+    private static ExtensionTable place(Map<String, String> mapping, int slots) {
+        int bucketCount = Math.max(1, slots / 4);
+        List<List<String>> buckets = new ArrayList<>();
+        for (int i = 0; i < bucketCount; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (String extension : mapping.keySet()) {
+            buckets.get(hash(extension, 0, extension.length(), 0) & (bucketCount - 1)).add(extension);
+        }
+        // The largest buckets are placed first, while most slots are free
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < bucketCount; i++) {
+            order.add(i);
+        }
+        order.sort((a, b) -> buckets.get(b).size() - buckets.get(a).size());
+
+        char[][] keys = new char[slots][];
+        String[] types = new String[slots];
+        int[] seeds = new int[bucketCount];
+        int[] candidate = new int[0];
+        for (int bucket : order) {
+            List<String> bucketKeys = buckets.get(bucket);
+            if (bucketKeys.isEmpty()) {
+                break;
+            }
+            if (candidate.length < bucketKeys.size()) {
+                candidate = new int[bucketKeys.size()];
+            }
+            int seed = findSeed(bucketKeys, keys, candidate);
+            if (seed < 0) {
+                return null;
+            }
+            seeds[bucket] = seed;
+            for (int i = 0; i < bucketKeys.size(); i++) {
+                keys[candidate[i]] = bucketKeys.get(i).toCharArray();
+                types[candidate[i]] = mapping.get(bucketKeys.get(i));
+            }
+        }
+        return new ExtensionTable(keys, types, seeds, Collections.unmodifiableMap(mapping));
+    }
+
+    /**
+     * Finds a seed that sends every key of a bucket to a different free slot.
+     *
+     * @param candidate receives the slot of every key for the seed found.
+     * @return the seed, or -1 if none was found.
+     */
+    private static int findSeed(List<String> bucketKeys, char[][] keys, int[] candidate) {
+        int mask = keys.length - 1;
+        for (int seed = 1; seed < MAX_SEED; seed++) {
+            boolean placed = true;
+            for (int i = 0; i < bucketKeys.size() && placed; i++) {
+                String key = bucketKeys.get(i);
+                int slot = hash(key, 0, key.length(), seed) & mask;
+                placed = keys[slot] == null;
+                for (int j = 0; j < i && placed; j++) {
+                    placed = candidate[j] != slot;
+                }
+                candidate[i] = slot;
+            }
+            if (placed) {
+                return seed;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the file type of an extension.
+     *
+     * @param extension the extension, without the leading dot, in any case.
+     * @return the file type, or {@code null} if the extension is not in the
+     * table.
+     */
+    public String get(CharSequence extension) {
+        return get(extension, 0, extension.length());
+    }
+
+    /**
+     * Returns the file type of an extension read in place, such as the part
+     * of a file name after its last dot.
+     *
+     * @param text the text containing the extension.
+     * @param start the index of the first character of the extension.
+     * @param end the index after the last character of the extension.
+     * @return the file type, or {@code null} if the extension is not in the
+     * table.
+     */
+    public String get(CharSequence text, int start, int end) {
+        int bucket = hash(text, start, end, 0) & bucketMask;
+        int slot = hash(text, start, end, seeds[bucket]) & slotMask;
+        char[] key = keys[slot];
+        if (key == null || key.length != end - start) {
+            return null;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] != lowerCase(text.charAt(start + i))) {
+                return null;
+            }
+        }
+        return types[slot];
+    }
+
+    /**
+     * Returns the mapping the table was compiled from.
+     *
+     * @return an unmodifiable map of lower-case extensions to file types.
+     */
+    public Map<String, String> getMapping() {
+        return mapping;
+    }
+
+    private static int hash(CharSequence text, int start, int end, int seed) {
+        int h = seed * 0x9E3779B9;
+        for (int i = start; i < end; i++) {
+            h = (h ^ lowerCase(text.charAt(i))) * 0x01000193;
+        }
+        return mix(h);
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    private static char lowerCase(char c) {
+        if (c < 128) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        return Character.toLowerCase(c);
+    }
+
+    private static String lowerCase(String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = lowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+}
@@ -1,6 +1,11 @@
 package Model;
 
+import Log.LogExcepcion;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -14,13 +19,32 @@ import java.util.Map;
  * for extracting the file extension from a given {@link Path}.
  * </p>
  * <p>
+ * The built-in mapping can be extended with the user file
+ * {@code ~/.copybamboo/extensions.conf}, or the file given with
+ * {@link #useExtensionsFile(Path)}, through an {@link ExtensionRegistry} that
+ * reloads it when it changes.
+ * </p>
+ * <p>
  * <b>Author:</b> ThePandogs</p>
  */
 public class FileClassifier {
 
+    /**
+     * The type of the files whose extension is not in the mapping.
+     */
+    public static final String OTHERS = "Others";
+
+    /**
+     * The type of disk and virtual machine images, which are often sparse.
+     */
+    public static final String DISK_IMAGE = "DiskImage";
+
     // A map that holds the association between file extensions and their corresponding file types
     private static final Map<String, String> extensionToTypeMap = new HashMap<>();
 
+    // Registry of the file given by useExtensionsFile(), the user file otherwise
+    private static volatile ExtensionRegistry registry;
+
     static {
         // Pictures
         extensionToTypeMap.put("jpg", "Images");
@@ -115,22 +139,116 @@ public class FileClassifier {
         extensionToTypeMap.put("dmg", "DiskImage");
         extensionToTypeMap.put("vmdk", "DiskImage");
         extensionToTypeMap.put("img", "DiskImage");
+        extensionToTypeMap.put("vdi", "DiskImage");
+        extensionToTypeMap.put("vhd", "DiskImage");
+        extensionToTypeMap.put("vhdx", "DiskImage");
+        extensionToTypeMap.put("qcow2", "DiskImage");
+    }
+
+    /**
+     * Loads the user extensions from the default file,
+     * {@code ~/.copybamboo/extensions.conf}, the first time a file is
+     * classified.
+     */
+    private static final class DefaultRegistry {
+
+        private static final ExtensionRegistry REGISTRY = create();
+
+        private static ExtensionRegistry create() {
+            ExtensionRegistry registry = new ExtensionRegistry(
+                    Paths.get(System.getProperty("user.home"), ".copybamboo", "extensions.conf"), extensionToTypeMap);
+            try {
+                registry.reload();
+            } catch (IOException | IllegalArgumentException e) {
+                // The built-in mapping is used until the file is fixed
+                new LogExcepcion().anadirExcepcionLog(e);
+            }
+            return registry.watch();
+        }
+    }
+
+    /**
+     * Classifies files with the extensions of a file instead of the default
+     * user file. The file is loaded now and reloaded whenever it changes; the
+     * file used before, if any, is no longer watched.
+     *
+     * @param file the extensions file, see {@link ExtensionRegistry}.
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalArgumentException if the file doesn't exist or has
+     * errors.
+     */
+    public static synchronized void useExtensionsFile(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("Extensions file not found: " + file);
+        }
+        ExtensionRegistry fileRegistry = new ExtensionRegistry(file, extensionToTypeMap);
+        fileRegistry.reload();
+        ExtensionRegistry previous = registry;
+        if (previous != null) {
+            previous.close();
+        }
+        registry = fileRegistry.watch();
+    }
+
+    private static ExtensionTable table() {
+        ExtensionRegistry current = registry;
+        return (current != null ? current : DefaultRegistry.REGISTRY).getTable();
     }
 
     /**
      * Retrieves the file type associated with the given file extension.
      * <p>
      * This method uses a predefined mapping of file extensions to file types
-     * (e.g., "jpg" -> "Images", "mp3" -> "Music"). If the extension is not
-     * found in the mapping, it returns "Others" by default.
+     * (e.g., "jpg" -> "Images", "mp3" -> "Music"), extended by the user
+     * extensions file. If the extension is not found in the mapping, it
+     * returns "Others" by default.
      * </p>
      *
-     * @param extension The file extension (e.g., "jpg", "mp3").
+     * @param extension The file extension (e.g., "jpg", "mp3"), in any case.
      * @return The corresponding file type as a {@code String}, or "Others" if
      * the extension is not found in the map.
      */
     public static String getFileTypeByExtension(String extension) {
-        return extensionToTypeMap.getOrDefault(extension.toLowerCase(), "Others");
+        String type = table().get(extension);
+        return type != null ? type : OTHERS;
+    }
+
+    /**
+     * Retrieves the file type of a file by the extension of its name, read in
+     * place from the name.
+     *
+     * @param file the file.
+     * @return the file type, or "Others" if the file has no extension or it is
+     * not found in the map.
+     */
+    public static String getFileType(Path file) {
+        String fileName = file.getFileName().toString();
+        int lastIndex = fileName.lastIndexOf('.');
+        if (lastIndex == -1) {
+            return OTHERS;
+        }
+        String type = table().get(fileName, lastIndex + 1, fileName.length());
+        return type != null ? type : OTHERS;
+    }
+
+    /**
+     * Returns a read-only view of the extension to file type mapping used by
+     * {@link #getFileTypeByExtension(String)}, including the user extensions.
+     *
+     * @return an unmodifiable map of lower-case extensions to file types.
+     */
+    public static Map<String, String> getExtensionToTypeMap() {
+        return table().getMapping();
+    }
+
+    /**
+     * Returns the built-in extension to file type mapping, without the user
+     * extensions.
+     *
+     * @return an unmodifiable map of lower-case extensions to file types.
+     */
+    public static Map<String, String> getDefaultExtensionToTypeMap() {
+        return Collections.unmodifiableMap(extensionToTypeMap);
     }
 
     /**
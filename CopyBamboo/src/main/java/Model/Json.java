@@ -0,0 +1,166 @@
+package Model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The {@code Json} class contains the minimal helpers needed to write and
+ * read the machine-readable, one-object-per-line files used by the command
+ * line interface and copy plans. Only flat objects whose values are strings,
+ * numbers, booleans or {@code null} are supported.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public final class Json {
+
+    private Json() {
+    }
+
+    /**
+     * Returns the given text as a quoted JSON string, escaping quotes,
+     * backslashes and control characters.
+     *
+     * @param text the text to quote, may be {@code null}.
+     * @return the JSON representation of the text, or {@code null} as a JSON
+     * literal.
+     */
+    public static String quote(String text) {
+        if (text == null) {
+            return "null";
+        }
+        StringBuilder builder = new StringBuilder(text.length() + 2);
+        builder.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"' ->
+                    builder.append("\\\"");
+                case '\\' ->
+                    builder.append("\\\\");
+                case '\n' ->
+                    builder.append("\\n");
+                case '\r' ->
+                    builder.append("\\r");
+                case '\t' ->
+                    builder.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                }
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    /**
+     * Parses a flat JSON object.
+     *
+     * @param line the text of the object.
+     * @return the members of the object in order of appearance. Strings are
+     * unescaped, numbers and booleans are returned as their literal text and
+     * {@code null} as a {@code null} value.
+     * @throws IllegalArgumentException if the text is not a flat JSON object.
+     */
+    public static Map<String, String> parseObject(String line) {
+        Map<String, String> members = new LinkedHashMap<>();
+        int[] pos = {skipSpaces(line, 0)};
+        expect(line, pos, '{');
+        if (peek(line, pos) == '}') {
+            return members;
+        }
+        while (true) {
+            String key = parseString(line, pos);
+            expect(line, pos, ':');
+            String value;
+            if (peek(line, pos) == '"') {
+                value = parseString(line, pos);
+            } else {
+                int start = pos[0];
+                while (pos[0] < line.length() && ",} \t".indexOf(line.charAt(pos[0])) < 0) {
+                    pos[0]++;
+                }
+                value = line.substring(start, pos[0]);
+                if (value.isEmpty()) {
+                    throw new IllegalArgumentException("Missing value at " + start);
+                }
+                if (value.equals("null")) {
+                    value = null;
+                }
+            }
+            members.put(key, value);
+            char next = peek(line, pos);
+            pos[0]++;
+            if (next == '}') {
+                return members;
+            } else if (next != ',') {
+                throw new IllegalArgumentException("Expected ',' or '}' at " + (pos[0] - 1));
+            }
+        }
+    }
+
+    private static String parseString(String line, int[] pos) {
+        expect(line, pos, '"');
+        StringBuilder builder = new StringBuilder();
+        while (pos[0] < line.length()) {
+            char c = line.charAt(pos[0]++);
+            if (c == '"') {
+                return builder.toString();
+            }
+            if (c != '\\') {
+                builder.append(c);
+                continue;
+            }
+            if (pos[0] >= line.length()) {
+                break;
+            }
+            char escaped = line.charAt(pos[0]++);
+            switch (escaped) {
+                case 'n' ->
+                    builder.append('\n');
+                case 'r' ->
+                    builder.append('\r');
+                case 't' ->
+                    builder.append('\t');
+                case 'b' ->
+                    builder.append('\b');
+                case 'f' ->
+                    builder.append('\f');
+                case 'u' -> {
+                    if (pos[0] + 4 > line.length()) {
+                        throw new IllegalArgumentException("Truncated escape at " + pos[0]);
+                    }
+                    builder.append((char) Integer.parseInt(line.substring(pos[0], pos[0] + 4), 16));
+                    pos[0] += 4;
+                }
+                default ->
+                    builder.append(escaped);
+            }
+        }
+        throw new IllegalArgumentException("Unterminated string");
+    }
+
+    private static char peek(String line, int[] pos) {
+        pos[0] = skipSpaces(line, pos[0]);
+        if (pos[0] >= line.length()) {
+            throw new IllegalArgumentException("Unexpected end of object");
+        }
+        return line.charAt(pos[0]);
+    }
+
+    private static void expect(String line, int[] pos, char expected) {
+        if (peek(line, pos) != expected) {
+            throw new IllegalArgumentException("Expected '" + expected + "' at " + pos[0]);
+        }
+        pos[0]++;
+    }
+
+    private static int skipSpaces(String line, int pos) {
+        while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+}
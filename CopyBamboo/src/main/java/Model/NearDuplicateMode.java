@@ -0,0 +1,25 @@
+package Model;
+
+/**
+ * The {@code NearDuplicateMode} enum defines what a copy job does with images
+ * that look like another image of the same job, such as resized, re-encoded
+ * or re-exported copies of a photo, which an exact content comparison does
+ * not detect.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public enum NearDuplicateMode {
+
+    /**
+     * Do not compare images.
+     */
+    NONE,
+    /**
+     * Copy every image and log the ones that look like an image seen before.
+     */
+    REPORT,
+    /**
+     * Copy only the largest image of every group of similar images.
+     */
+    SKIP;
+}
@@ -0,0 +1,25 @@
+package Model;
+
+/**
+ * The {@code PackMode} enum defines how the classified output is written: as
+ * individual files, or packed into one ZIP archive per destination bucket
+ * (for example one archive per year/month folder) for cold archival.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public enum PackMode {
+
+    /**
+     * Copy every file to its destination folder.
+     */
+    NONE,
+    /**
+     * Pack the files of each bucket into a ZIP archive without compression.
+     * Best for media that is already compressed.
+     */
+    STORE,
+    /**
+     * Pack the files of each bucket into a deflate compressed ZIP archive.
+     */
+    DEFLATE;
+}
@@ -0,0 +1,26 @@
+package Model;
+
+/**
+ * The {@code PreservedAttribute} enum lists the kinds of file attributes that
+ * can be copied from the origin files to their copies. Each kind is kept or
+ * skipped on its own.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public enum PreservedAttribute {
+
+    /**
+     * The access and modification times of the origin, and the resolved date
+     * as creation time.
+     */
+    TIMES,
+    /**
+     * The POSIX permissions of the origin, on file systems that have them.
+     */
+    PERMISSIONS,
+    /**
+     * The user-defined extended attributes of the origin, on file systems
+     * that have them.
+     */
+    XATTRS;
+}
@@ -0,0 +1,65 @@
+package Model;
+
+import java.time.LocalDateTime;
+
+/**
+ * The {@code ResolvedDate} class holds the date resolved for a file together
+ * with where it came from: the metadata tag that produced it (one of the tags
+ * tried by {@link Controller.DateFileController}) or the file system
+ * attribute used, so a surprising classification can be traced back.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class ResolvedDate {
+
+    /**
+     * Source of dates taken from the creation time of the file.
+     */
+    public static final String CREATION_TIME = "creationTime";
+    /**
+     * Source of dates taken from the last modification time of the file.
+     */
+    public static final String LAST_MODIFIED_TIME = "lastModifiedTime";
+
+    private final LocalDateTime date;
+    private final String source;
+
+    /**
+     * Constructs a ResolvedDate.
+     *
+     * @param date the date.
+     * @param source the tag or attribute it was read from.
+     */
+    public ResolvedDate(LocalDateTime date, String source) {
+        this.date = date;
+        this.source = source;
+    }
+
+    /**
+     * Returns the date of a possibly missing resolved date.
+     *
+     * @param resolved the resolved date, may be {@code null}.
+     * @return the date, or {@code null}.
+     */
+    public static LocalDateTime dateOf(ResolvedDate resolved) {
+        return resolved == null ? null : resolved.date;
+    }
+
+    /**
+     * Returns the source of a possibly missing resolved date.
+     *
+     * @param resolved the resolved date, may be {@code null}.
+     * @return the source, or {@code null}.
+     */
+    public static String sourceOf(ResolvedDate resolved) {
+        return resolved == null ? null : resolved.source;
+    }
+
+    public LocalDateTime getDate() {
+        return date;
+    }
+
+    public String getSource() {
+        return source;
+    }
+}
@@ -0,0 +1,40 @@
+package Model;
+
+/**
+ * The {@code SchedulingTypes} enum defines the order in which planned files
+ * are handed to the copy workers.
+ * <p>
+ * Every policy orders the files inside the scheduling window (see
+ * {@code --locality-window}); a bigger window gets closer to a global order at
+ * the cost of memory. A plan executed with {@code --execute-plan} is ordered
+ * as a whole.
+ * </p>
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public enum SchedulingTypes {
+
+    /**
+     * Group files by destination folder and follow their position on the
+     * source disk. The default.
+     */
+    LOCALITY,
+    /**
+     * Copy files in the order the origin is walked.
+     */
+    WALK_ORDER,
+    /**
+     * Copy the smallest files first, for fast visible progress.
+     */
+    SMALLEST_FIRST,
+    /**
+     * Copy the largest files first, so parallel workers do not end the job
+     * waiting on one big file.
+     */
+    LARGEST_FIRST,
+    /**
+     * Copy one destination folder at a time, smallest folder first, so
+     * complete folders are available as early as possible.
+     */
+    BUCKET_BATCHED;
+}
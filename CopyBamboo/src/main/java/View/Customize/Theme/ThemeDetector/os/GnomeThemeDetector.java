@@ -9,8 +9,12 @@ import org.slf4j.LoggerFactory;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.lang.ProcessBuilder.Redirect;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
@@ -22,9 +26,17 @@ import java.util.regex.Pattern;
  * using `gsettings`.
  * </p>
  * <p>
- * The detection is done by reading the system's theme settings and by
- * monitoring any changes in the GTK theme. When the theme changes, registered
- * listeners are notified of the current theme's status (dark or light).
+ * A single {@code gsettings monitor} process, started the first time the theme
+ * is read or a listener is registered, keeps the current theme in memory for
+ * the rest of the application, so {@link #isDark()} never starts a process
+ * once the theme is known. The monitor thread sleeps on the output of that
+ * process while the theme doesn't change. If the process ends, it is started
+ * again after a delay that doubles on every quick failure.
+ * </p>
+ * <p>
+ * When the theme changes, registered listeners are notified of the current
+ * theme's status (dark or light), one after another on a single notification
+ * thread.
  * </p>
  * <p>
  * <b>Author:</b> ThePandogs</p>
@@ -33,55 +45,65 @@ class GnomeThemeDetector extends OsThemeDetector {
 
     private static final Logger logger = LoggerFactory.getLogger(GnomeThemeDetector.class);
 
-    // Command to monitor GNOME theme changes
-    private static final String MONITORING_CMD = "gsettings monitor org.gnome.desktop.interface";
+    private static final String SCHEMA = "org.gnome.desktop.interface";
+    private static final String GTK_THEME = "gtk-theme";
+    private static final String COLOR_SCHEME = "color-scheme";
 
-    // Commands to get the current theme and color scheme settings
-    private static final String[] GET_CMD = new String[]{
-        "gsettings get org.gnome.desktop.interface gtk-theme",
-        "gsettings get org.gnome.desktop.interface color-scheme"
-    };
+    // Delay before starting a monitor process that ended, doubled on every quick failure
+    private static final long MIN_RESTART_DELAY_MS = 1000;
+    private static final long MAX_RESTART_DELAY_MS = 5 * 60 * 1000;
+    // A monitor process that ran this long was healthy, the next restart is quick again
+    private static final long HEALTHY_RUN_MS = 60 * 1000;
 
     private final Set<Consumer<Boolean>> listeners = new ConcurrentHashSet<>();
     private final Pattern darkThemeNamePattern = Pattern.compile(".*dark.*", Pattern.CASE_INSENSITIVE);
+    private final ExecutorService notifier = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "GTK Theme Listeners");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Counted down once the monitor has read the theme for the first time
+    private final CountDownLatch themeKnown = new CountDownLatch(1);
+
+    // Written by the monitor thread only
+    private volatile boolean gtkThemeDark;
+    private volatile boolean colorSchemeDark;
 
-    private volatile DetectorThread detectorThread;
+    private MonitorThread monitorThread;
 
     /**
-     * Determines if the current theme is dark or not by executing system
-     * commands.
+     * Returns whether the current theme is dark. The first call waits until
+     * the monitor has read the theme; later calls return the theme kept up to
+     * date by the monitor.
      *
-     * @return {@code true} if the system's GTK theme indicates a dark theme,
-     * {@code false} otherwise.
+     * @return {@code true} if the system's GTK theme or color scheme indicates
+     * a dark theme, {@code false} otherwise.
      */
     @Override
     public boolean isDark() {
+        startMonitor();
         try {
-            Runtime runtime = Runtime.getRuntime();
-            for (String cmd : GET_CMD) {
-                Process process = runtime.exec(cmd);
-                try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                    String readLine = reader.readLine();
-                    if (readLine != null && isDarkTheme(readLine)) {
-                        return true;
-                    }
-                }
-            }
-        } catch (IOException e) {
-            logger.error("Couldn't detect Linux OS theme", e);
+            themeKnown.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         }
-        return false;
+        return currentDark();
+    }
+
+    private boolean currentDark() {
+        return gtkThemeDark || colorSchemeDark;
     }
 
     /**
      * Checks if the provided GTK theme name matches the pattern for a dark
      * theme.
      *
-     * @param gtkTheme The GTK theme name.
+     * @param gtkTheme The GTK theme name, may be {@code null}.
      * @return {@code true} if the theme is dark, {@code false} otherwise.
      */
-    private boolean isDarkTheme(String gtkTheme) {
-        return darkThemeNamePattern.matcher(gtkTheme).matches();
+    private boolean isDarkTheme(@Nullable String gtkTheme) {
+        return gtkTheme != null && darkThemeNamePattern.matcher(gtkTheme).matches();
     }
 
     /**
@@ -94,54 +116,101 @@ class GnomeThemeDetector extends OsThemeDetector {
      * @param darkThemeListener The listener to be notified of theme changes.
      * @throws NullPointerException if the listener is {@code null}.
      */
-    @SuppressWarnings("DuplicatedCode")
     @Override
-    public synchronized void registerListener(@NotNull Consumer<Boolean> darkThemeListener) {
+    public void registerListener(@NotNull Consumer<Boolean> darkThemeListener) {
         Objects.requireNonNull(darkThemeListener);
-        final boolean listenerAdded = listeners.add(darkThemeListener);
-        final boolean singleListener = listenerAdded && listeners.size() == 1;
-        final DetectorThread currentDetectorThread = detectorThread;
-        final boolean threadInterrupted = currentDetectorThread != null && currentDetectorThread.isInterrupted();
-
-        if (singleListener || threadInterrupted) {
-            final DetectorThread newDetectorThread = new DetectorThread(this);
-            this.detectorThread = newDetectorThread;
-            newDetectorThread.start();
-        }
+        listeners.add(darkThemeListener);
+        startMonitor();
     }
 
     /**
      * Removes a listener that was previously registered for theme change
-     * notifications.
+     * notifications. The monitor keeps running, since it also keeps the theme
+     * returned by {@link #isDark()}.
      *
      * @param darkThemeListener The listener to be removed.
      */
     @Override
-    public synchronized void removeListener(@Nullable Consumer<Boolean> darkThemeListener) {
+    public void removeListener(@Nullable Consumer<Boolean> darkThemeListener) {
         listeners.remove(darkThemeListener);
-        if (listeners.isEmpty()) {
-            this.detectorThread.interrupt();
-            this.detectorThread = null;
+    }
+
+    private synchronized void startMonitor() {
+        if (monitorThread == null) {
+            monitorThread = new MonitorThread();
+            monitorThread.start();
         }
     }
 
     /**
-     * A background thread that monitors changes to the system's GTK theme and
-     * notifies listeners when a theme change occurs.
-     * <p>
-     * This thread continuously monitors for changes in the theme and calls the
-     * listeners whenever the theme switches between dark and light.
-     * </p>
+     * Applies a change of one of the theme settings.
+     */
+    private void update(String key, @Nullable String value) {
+        if (GTK_THEME.equals(key)) {
+            publish(isDarkTheme(value), colorSchemeDark);
+        } else if (COLOR_SCHEME.equals(key)) {
+            publish(gtkThemeDark, isDarkTheme(value));
+        }
+    }
+
+    /**
+     * Stores the theme settings and notifies the listeners if the theme
+     * switched between dark and light.
+     */
+    private void publish(boolean gtkDark, boolean colorSchemeDark) {
+        boolean before = currentDark();
+        this.gtkThemeDark = gtkDark;
+        this.colorSchemeDark = colorSchemeDark;
+        boolean after = currentDark();
+        if (after != before && themeKnown.getCount() == 0) {
+            logger.debug("Theme changed detection, dark: {}", after);
+            notifier.execute(() -> {
+                for (Consumer<Boolean> listener : listeners) {
+                    try {
+                        listener.accept(after);
+                    } catch (RuntimeException e) {
+                        logger.error("Caught exception during listener notifying ", e);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Reads a theme setting once.
+     *
+     * @return the value, or {@code null} if it can't be read.
+     */
+    @Nullable
+    private static String query(String key) {
+        try {
+            Process process = new ProcessBuilder("gsettings", "get", SCHEMA, key).redirectError(Redirect.DISCARD).start();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                return reader.readLine();
+            } finally {
+                process.waitFor();
+            }
+        } catch (IOException e) {
+            logger.error("Couldn't detect Linux OS theme", e);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Runs {@code gsettings monitor} and applies every theme change it
+     * prints. The process is started before the theme is read, so a change
+     * made in between is not lost. A process that ends is restarted with a
+     * growing delay; when {@code gsettings} can't be started at all the theme
+     * is read once and the monitor stops.
      */
-    private static final class DetectorThread extends Thread {
+    private final class MonitorThread extends Thread {
 
-        private final GnomeThemeDetector detector;
-        private final Pattern outputPattern = Pattern.compile("(gtk-theme|color-scheme).*", Pattern.CASE_INSENSITIVE);
-        private boolean lastValue;
+        private final Pattern outputPattern = Pattern.compile("(gtk-theme|color-scheme): .*", Pattern.CASE_INSENSITIVE);
 
-        DetectorThread(@NotNull GnomeThemeDetector detector) {
-            this.detector = detector;
-            this.lastValue = detector.isDark();
+        MonitorThread() {
             this.setName("GTK Theme Detector Thread");
             this.setDaemon(true);
             this.setPriority(Thread.NORM_PRIORITY - 1);
@@ -149,48 +218,65 @@ class GnomeThemeDetector extends OsThemeDetector {
 
         @Override
         public void run() {
+            long restartDelay = MIN_RESTART_DELAY_MS;
+            while (!isInterrupted()) {
+                long started = System.currentTimeMillis();
+                if (!monitor()) {
+                    break;
+                }
+                if (System.currentTimeMillis() - started >= HEALTHY_RUN_MS) {
+                    restartDelay = MIN_RESTART_DELAY_MS;
+                }
+                logger.debug("Monitoring process ended, restarting in {} ms", restartDelay);
+                try {
+                    Thread.sleep(restartDelay);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                restartDelay = Math.min(restartDelay * 2, MAX_RESTART_DELAY_MS);
+            }
+            logger.debug("ThemeDetectorThread has stopped");
+        }
+
+        /**
+         * Runs one monitor process until it ends.
+         *
+         * @return {@code false} if the process couldn't be started.
+         */
+        private boolean monitor() {
+            Process monitoringProcess;
             try {
-                Runtime runtime = Runtime.getRuntime();
-                Process monitoringProcess = runtime.exec(MONITORING_CMD);
-                try (BufferedReader reader = new BufferedReader(new InputStreamReader(monitoringProcess.getInputStream()))) {
-                    while (!this.isInterrupted()) {
-                        // Expected input = gtk-theme: '$GtkThemeName'
-                        String readLine = reader.readLine();
-
-                        // reader.readLine sometimes returns null on application shutdown.
-                        if (readLine == null) {
-                            continue;
-                        }
-
-                        if (!outputPattern.matcher(readLine).matches()) {
-                            continue;
-                        }
-                        String[] keyValue = readLine.split("\\s");
-                        String value = keyValue[1];
-                        boolean currentDetection = detector.isDarkTheme(value);
-                        logger.debug("Theme changed detection, dark: {}", currentDetection);
-                        if (currentDetection != lastValue) {
-                            lastValue = currentDetection;
-                            for (Consumer<Boolean> listener : detector.listeners) {
-                                try {
-                                    listener.accept(currentDetection);
-                                } catch (RuntimeException e) {
-                                    logger.error("Caught exception during listener notifying ", e);
-                                }
-                            }
-                        }
-                    }
-                    logger.debug("ThemeDetectorThread has been interrupted!");
-                    if (monitoringProcess.isAlive()) {
-                        monitoringProcess.destroy();
-                        logger.debug("Monitoring process has been destroyed!");
+                monitoringProcess = new ProcessBuilder("gsettings", "monitor", SCHEMA).redirectError(Redirect.DISCARD).start();
+            } catch (IOException e) {
+                logger.error("Couldn't start monitoring process, theme changes won't be detected ", e);
+                readTheme();
+                return false;
+            }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(monitoringProcess.getInputStream()))) {
+                readTheme();
+                String readLine;
+                // Expected input = gtk-theme: '$GtkThemeName'; null once the process has ended
+                while ((readLine = reader.readLine()) != null) {
+                    if (outputPattern.matcher(readLine).matches()) {
+                        int separator = readLine.indexOf(": ");
+                        update(readLine.substring(0, separator), readLine.substring(separator + 2));
                     }
                 }
             } catch (IOException e) {
-                logger.error("Couldn't start monitoring process ", e);
-            } catch (ArrayIndexOutOfBoundsException e) {
-                logger.error("Couldn't parse command line output", e);
+                logger.error("Couldn't read the monitoring process ", e);
+            } finally {
+                monitoringProcess.destroy();
             }
+            return true;
+        }
+
+        /**
+         * Reads the theme settings, on the first start and after every restart
+         * because changes made while no process was monitoring were missed.
+         */
+        private void readTheme() {
+            publish(isDarkTheme(query(GTK_THEME)), isDarkTheme(query(COLOR_SCHEME)));
+            themeKnown.countDown();
         }
     }
 }
@@ -4,6 +4,7 @@ import com.formdev.flatlaf.FlatDarkLaf;
 import com.formdev.flatlaf.FlatLightLaf;
 import com.formdev.flatlaf.util.SystemInfo;
 
+import java.util.prefs.Preferences;
 import javax.swing.UIManager;
 import javax.swing.UnsupportedLookAndFeelException;
 import javax.swing.SwingUtilities;
@@ -22,6 +23,9 @@ import javax.swing.SwingUtilities;
  */
 public class ThemeManager {
 
+    // Preference with the last theme detected on the OS
+    private static final String LAST_SYSTEM_DARK = "lastSystemDark";
+
     /**
      * Enum representing the available themes that can be applied in the
      * application.
@@ -104,4 +108,29 @@ public class ThemeManager {
         // If not macOS or Windows, by default use the light theme
         return false;
     }
+
+    /**
+     * Returns whether the OS was using a dark theme the last time it was
+     * detected. Detecting the OS theme can take hundreds of milliseconds, so
+     * the window starts with this value while the detection runs in the
+     * background.
+     *
+     * @return {@code true} if the last detected theme was dark, {@code false}
+     * if it was light or it was never detected.
+     */
+    public static boolean isLastSystemThemeDark() {
+        return Preferences.userNodeForPackage(ThemeManager.class).getBoolean(LAST_SYSTEM_DARK, false);
+    }
+
+    /**
+     * Remembers the theme detected on the OS for the next start.
+     *
+     * @param dark whether the OS is using a dark theme.
+     */
+    public static void rememberSystemTheme(boolean dark) {
+        Preferences preferences = Preferences.userNodeForPackage(ThemeManager.class);
+        if (preferences.getBoolean(LAST_SYSTEM_DARK, false) != dark) {
+            preferences.putBoolean(LAST_SYSTEM_DARK, dark);
+        }
+    }
 }
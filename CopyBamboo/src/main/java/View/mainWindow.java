@@ -8,6 +8,7 @@ import Model.ClassifyTypes;
 import Controller.LectorController;
 import Log.LogHandler;
 import View.Customize.Theme.ThemeDetector.os.OsThemeDetector;
+import View.Customize.Theme.ThemeManager;
 import com.formdev.flatlaf.themes.FlatMacDarkLaf;
 import com.formdev.flatlaf.themes.FlatMacLightLaf;
 import java.awt.Desktop;
@@ -46,50 +47,22 @@ public class mainWindow extends javax.swing.JFrame {
      */
     LogHandler logWindow;
 
+    // System property that closes the window once started, to record the classes it loads
+    private static final String EXIT_AFTER_STARTUP = "copybamboo.exitAfterStartup";
+    private static final int STARTUP_TRAINING_MS = 3000;
+
     private final Map<JRadioButton, ClassifyTypes> radioButtonMap;
 
-    public mainWindow() {
-        // Obtener el detector de temas
-        final OsThemeDetector detector = OsThemeDetector.getDetector();
+    // Copy started with the Start button, null while idle
+    private volatile LectorController currentJob;
 
-        // Detectar el tema actual al inicio y aplicarlo
-        boolean isDark = detector.isDark();
-        try {
-            if (isDark) {
-                UIManager.setLookAndFeel(new FlatMacDarkLaf());
-            } else {
-                UIManager.setLookAndFeel(new FlatMacLightLaf());
-            }
-            // Refresca la apariencia de todos los componentes al inicio
-            SwingUtilities.invokeLater(() -> {
-                Window[] windows = Window.getWindows();
-                for (Window window : windows) {
-                    SwingUtilities.updateComponentTreeUI(window);
-                }
-            });
-        } catch (UnsupportedLookAndFeelException ex) {
-            Logger.getLogger(mainWindow.class.getName()).log(Level.SEVERE, null, ex);
-        }
+    // Theme applied to the window, only changed on the event dispatch thread
+    private boolean systemDark;
 
-        // Registrar el listener para cambios futuros en el tema
-        detector.registerListener(isDarkTheme -> {
-            SwingUtilities.invokeLater(() -> {
-                try {
-                    if (isDarkTheme) {
-                        UIManager.setLookAndFeel(new FlatMacDarkLaf());
-                    } else {
-                        UIManager.setLookAndFeel(new FlatMacLightLaf());
-                    }
-                    // Refresca la apariencia de todos los componentes cuando cambia el tema
-                    Window[] windows = Window.getWindows();
-                    for (Window window : windows) {
-                        SwingUtilities.updateComponentTreeUI(window);
-                    }
-                } catch (UnsupportedLookAndFeelException ex) {
-                    Logger.getLogger(mainWindow.class.getName()).log(Level.SEVERE, null, ex);
-                }
-            });
-        });
+    public mainWindow() {
+        // Tema de la última ejecución, el del sistema se detecta en segundo plano
+        systemDark = ThemeManager.isLastSystemThemeDark();
+        applyLookAndFeel(systemDark);
 
         initComponents();
         logWindow = new LogHandler(jtextLog);
@@ -102,6 +75,57 @@ public class mainWindow extends javax.swing.JFrame {
                 radioBtnType, ClassifyTypes.FILE_TYPE
         );
 
+        followSystemTheme();
+    }
+
+    /**
+     * Detects the OS theme and follows its changes from a background thread.
+     * Creating the detector probes the OS and reading the theme may run
+     * external commands, which would otherwise delay the window.
+     */
+    private void followSystemTheme() {
+        Thread detection = new Thread(() -> {
+            OsThemeDetector detector = OsThemeDetector.getDetector();
+            onSystemTheme(detector.isDark());
+            // Registrar el listener para cambios futuros en el tema
+            detector.registerListener(this::onSystemTheme);
+        }, "Theme detection");
+        detection.setDaemon(true);
+        detection.setPriority(Thread.NORM_PRIORITY - 1);
+        detection.start();
+    }
+
+    /**
+     * Applies the OS theme if it differs from the current one and remembers
+     * it for the next start.
+     *
+     * @param dark whether the OS is using a dark theme.
+     */
+    private void onSystemTheme(boolean dark) {
+        ThemeManager.rememberSystemTheme(dark);
+        SwingUtilities.invokeLater(() -> {
+            if (dark == systemDark) {
+                return;
+            }
+            systemDark = dark;
+            applyLookAndFeel(dark);
+            // Refresca la apariencia de todos los componentes cuando cambia el tema
+            for (Window window : Window.getWindows()) {
+                SwingUtilities.updateComponentTreeUI(window);
+            }
+        });
+    }
+
+    private static void applyLookAndFeel(boolean dark) {
+        try {
+            if (dark) {
+                UIManager.setLookAndFeel(new FlatMacDarkLaf());
+            } else {
+                UIManager.setLookAndFeel(new FlatMacLightLaf());
+            }
+        } catch (UnsupportedLookAndFeelException ex) {
+            Logger.getLogger(mainWindow.class.getName()).log(Level.SEVERE, null, ex);
+        }
     }
 
     // <editor-fold defaultstate="collapsed" desc="GETTERS_SETTERS">
@@ -142,6 +166,10 @@ public class mainWindow extends javax.swing.JFrame {
         jMenuBar1 = new javax.swing.JMenuBar();
         JMenuFile = new javax.swing.JMenu();
         jMenuExit = new javax.swing.JMenuItem();
+        JMenuJob = new javax.swing.JMenu();
+        jMenuPause = new javax.swing.JMenuItem();
+        jMenuResume = new javax.swing.JMenuItem();
+        jMenuCancel = new javax.swing.JMenuItem();
         JMenuHelp = new javax.swing.JMenu();
         jMenuDoc = new javax.swing.JMenuItem();
         jMenuProfile = new javax.swing.JMenuItem();
@@ -450,6 +478,37 @@ public class mainWindow extends javax.swing.JFrame {
 
         jMenuBar1.add(JMenuFile);
 
+        JMenuJob.setText("Job");
+
+        jMenuPause.setText("Pause");
+        jMenuPause.setEnabled(false);
+        jMenuPause.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                jMenuPauseActionPerformed(evt);
+            }
+        });
+        JMenuJob.add(jMenuPause);
+
+        jMenuResume.setText("Resume");
+        jMenuResume.setEnabled(false);
+        jMenuResume.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                jMenuResumeActionPerformed(evt);
+            }
+        });
+        JMenuJob.add(jMenuResume);
+
+        jMenuCancel.setText("Cancel");
+        jMenuCancel.setEnabled(false);
+        jMenuCancel.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                jMenuCancelActionPerformed(evt);
+            }
+        });
+        JMenuJob.add(jMenuCancel);
+
+        jMenuBar1.add(JMenuJob);
+
         JMenuHelp.setText("Help");
 
         jMenuDoc.setText("Documentation");
@@ -489,6 +548,35 @@ public class mainWindow extends javax.swing.JFrame {
         openDialogExit();
     }//GEN-LAST:event_jMenuExitActionPerformed
 
+    private void jMenuPauseActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jMenuPauseActionPerformed
+        LectorController job = currentJob;
+        if (job != null) {
+            job.getJobControl().pause();
+            logWindow.appendLog("Copy paused.");
+            updateJobMenu(true);
+        }
+    }//GEN-LAST:event_jMenuPauseActionPerformed
+
+    private void jMenuResumeActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jMenuResumeActionPerformed
+        LectorController job = currentJob;
+        if (job != null) {
+            job.getJobControl().resume();
+            logWindow.appendLog("Copy resumed.");
+            updateJobMenu(true);
+        }
+    }//GEN-LAST:event_jMenuResumeActionPerformed
+
+    private void jMenuCancelActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jMenuCancelActionPerformed
+        LectorController job = currentJob;
+        if (job != null) {
+            job.getJobControl().cancel();
+            logWindow.appendLog("Cancelling copy...");
+            jMenuPause.setEnabled(false);
+            jMenuResume.setEnabled(false);
+            jMenuCancel.setEnabled(false);
+        }
+    }//GEN-LAST:event_jMenuCancelActionPerformed
+
     private void jMenuDocActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jMenuDocActionPerformed
         openWebpage("https://github.com/ThePandogs/CopyBamboo");
     }//GEN-LAST:event_jMenuDocActionPerformed
@@ -501,6 +589,10 @@ public class mainWindow extends javax.swing.JFrame {
         doCopy();
     }//GEN-LAST:event_jButton1ActionPerformed
     private void doCopy() {
+        LectorController job = new LectorController(logWindow);
+        currentJob = job;
+        jButton1.setEnabled(false);
+        updateJobMenu(true);
 
         SwingWorker<Boolean, Void> worker = new SwingWorker<Boolean, Void>() {
             @Override
@@ -509,7 +601,7 @@ public class mainWindow extends javax.swing.JFrame {
                 String destination = txtDestinationDirectory.getText();
                 ClassifyTypes classifyType = getChooseClasiffyRadioButton();
 
-                return new LectorController(logWindow).copyDirectory(
+                return job.copyDirectory(
                         origin,
                         destination,
                         classifyType,
@@ -524,9 +616,17 @@ public class mainWindow extends javax.swing.JFrame {
             protected void done() {
                 try {
                     boolean result = get();
-                    logWindow.appendLog(result ? "Finish" : "Error");
+                    if (job.getJobControl().isCancelled()) {
+                        logWindow.appendLog("Cancelled");
+                    } else {
+                        logWindow.appendLog(result ? "Finish" : "Error");
+                    }
                 } catch (InterruptedException | ExecutionException ex) {
                     Logger.getLogger(mainWindow.class.getName()).log(Level.SEVERE, null, ex);
+                } finally {
+                    currentJob = null;
+                    jButton1.setEnabled(true);
+                    updateJobMenu(false);
                 }
             }
         };
@@ -534,6 +634,18 @@ public class mainWindow extends javax.swing.JFrame {
         worker.execute();
 
     }
+
+    /**
+     * Enables the Job menu items that apply to the state of the current copy.
+     *
+     * @param running whether a copy is running.
+     */
+    private void updateJobMenu(boolean running) {
+        boolean paused = running && currentJob.getJobControl().isPaused();
+        jMenuPause.setEnabled(running && !paused);
+        jMenuResume.setEnabled(paused);
+        jMenuCancel.setEnabled(running);
+    }
     private void radioBtnExtensionActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_radioBtnExtensionActionPerformed
         // TODO add your handling code here:
     }//GEN-LAST:event_radioBtnExtensionActionPerformed
@@ -594,48 +706,17 @@ public class mainWindow extends javax.swing.JFrame {
      * @param args the command line arguments
      */
     public static void main(String args[]) {
-
-        /* Set the Nimbus look and feel */
-        //<editor-fold defaultstate="collapsed" desc=" Look and feel setting code (optional) ">
-        /* If Nimbus (introduced in Java SE 6) is not available, stay with the default look and feel.
-         * For details see http://download.oracle.com/javase/tutorial/uiswing/lookandfeel/plaf.html 
-         */
-        try {
-            for (javax.swing.UIManager.LookAndFeelInfo info : javax.swing.UIManager.getInstalledLookAndFeels()) {
-                if ("Nimbus".equals(info.getName())) {
-                    javax.swing.UIManager.setLookAndFeel(info.getClassName());
-                    break;
-
-                }
-            }
-        } catch (ClassNotFoundException ex) {
-            java.util.logging.Logger.getLogger(mainWindow.class
-                    .getName()).log(java.util.logging.Level.SEVERE, null, ex);
-
-        } catch (InstantiationException ex) {
-            java.util.logging.Logger.getLogger(mainWindow.class
-                    .getName()).log(java.util.logging.Level.SEVERE, null, ex);
-
-        } catch (IllegalAccessException ex) {
-            java.util.logging.Logger.getLogger(mainWindow.class
-                    .getName()).log(java.util.logging.Level.SEVERE, null, ex);
-
-        } catch (javax.swing.UnsupportedLookAndFeelException ex) {
-            java.util.logging.Logger.getLogger(mainWindow.class
-                    .getName()).log(java.util.logging.Level.SEVERE, null, ex);
-        }
-        //</editor-fold>
-        //</editor-fold>
-        //</editor-fold>
-        //</editor-fold>
-        //</editor-fold>
-        //</editor-fold>
-        //</editor-fold>
-        //</editor-fold>
+        // The look and feel is set by the constructor, from the last known OS theme
 
         /* Create and display the form */
         java.awt.EventQueue.invokeLater(() -> {
             new mainWindow().setVisible(true);
+            if (Boolean.getBoolean(EXIT_AFTER_STARTUP)) {
+                // Training run of the class data sharing archive, see the appcds profile of the pom
+                javax.swing.Timer exit = new javax.swing.Timer(STARTUP_TRAINING_MS, e -> System.exit(0));
+                exit.setRepeats(false);
+                exit.start();
+            }
         });
     }
 
@@ -643,6 +724,7 @@ public class mainWindow extends javax.swing.JFrame {
     private javax.swing.JPanel Form;
     private javax.swing.JMenu JMenuFile;
     private javax.swing.JMenu JMenuHelp;
+    private javax.swing.JMenu JMenuJob;
     private Components.RoundedPanel Log;
     private Components.Background background;
     private javax.swing.JButton btnDestinationDirectory;
@@ -652,9 +734,12 @@ public class mainWindow extends javax.swing.JFrame {
     private javax.swing.JCheckBox chkrenameFileDate;
     private javax.swing.JButton jButton1;
     private javax.swing.JMenuBar jMenuBar1;
+    private javax.swing.JMenuItem jMenuCancel;
     private javax.swing.JMenuItem jMenuDoc;
     private javax.swing.JMenuItem jMenuExit;
+    private javax.swing.JMenuItem jMenuPause;
     private javax.swing.JMenuItem jMenuProfile;
+    private javax.swing.JMenuItem jMenuResume;
     private javax.swing.JPanel jPanel2;
     private javax.swing.JScrollPane jScrollPane2;
     private javax.swing.JSplitPane jSplitPane2;
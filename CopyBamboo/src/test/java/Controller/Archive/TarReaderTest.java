@@ -0,0 +1,205 @@
+package Controller.Archive;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ * Tests {@link TarReader} on archives built in memory.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class TarReaderTest {
+
+    private static final int BLOCK_SIZE = 512;
+
+    @Test
+    public void readsEntriesInOrder() throws IOException {
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        entry(tar, "photos/a.jpg", '0', 1_600_000_000L, bytes("first"));
+        entry(tar, "photos", '5', 1_600_000_000L, new byte[0]);
+        entry(tar, "photos/b.jpg", '0', 1_600_000_001L, bytes("second"));
+        end(tar);
+
+        try (TarReader reader = new TarReader(new ByteArrayInputStream(tar.toByteArray()))) {
+            TarReader.Entry first = reader.next();
+            assertEquals("photos/a.jpg", first.getName());
+            assertEquals(5, first.getSize());
+            assertTrue(first.isRegularFile());
+            assertEquals(FileTime.from(1_600_000_000L, TimeUnit.SECONDS), first.getLastModifiedTime());
+            assertArrayEquals(bytes("first"), reader.entryStream().readAllBytes());
+
+            assertFalse(reader.next().isRegularFile());
+
+            TarReader.Entry second = reader.next();
+            assertEquals("photos/b.jpg", second.getName());
+            assertArrayEquals(bytes("second"), reader.entryStream().readAllBytes());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void skipsTheDataNotRead() throws IOException {
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        entry(tar, "big.bin", '0', 0, new byte[3 * BLOCK_SIZE + 7]);
+        entry(tar, "small.txt", '0', 0, bytes("small"));
+        end(tar);
+
+        try (TarReader reader = new TarReader(new ByteArrayInputStream(tar.toByteArray()))) {
+            reader.next();
+            assertEquals(1, reader.entryStream().read(new byte[1], 0, 1));
+            assertEquals("small.txt", reader.next().getName());
+            assertArrayEquals(bytes("small"), reader.entryStream().readAllBytes());
+        }
+    }
+
+    @Test
+    public void readsGnuLongNames() throws IOException {
+        String name = "photos/" + "a".repeat(150) + "/" + "b".repeat(120) + ".jpg";
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        entry(tar, "././@LongLink", 'L', 0, bytes(name + "\0"));
+        entry(tar, name.substring(0, 99), '0', 0, bytes("data"));
+        end(tar);
+
+        try (TarReader reader = new TarReader(new ByteArrayInputStream(tar.toByteArray()))) {
+            TarReader.Entry entry = reader.next();
+            assertEquals(name, entry.getName());
+            assertArrayEquals(bytes("data"), reader.entryStream().readAllBytes());
+        }
+    }
+
+    @Test
+    public void readsPaxPathsAndTimes() throws IOException {
+        String name = "c".repeat(200) + ".jpg";
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        entry(tar, "PaxHeaders/x", 'x', 0, pax("path=" + name, "mtime=1600000000.5"));
+        entry(tar, "short.jpg", '0', 1, bytes("data"));
+        end(tar);
+
+        try (TarReader reader = new TarReader(new ByteArrayInputStream(tar.toByteArray()))) {
+            TarReader.Entry entry = reader.next();
+            assertEquals(name, entry.getName());
+            assertEquals(FileTime.from(1_600_000_000_500L, TimeUnit.MILLISECONDS), entry.getLastModifiedTime());
+        }
+    }
+
+    @Test
+    public void anArchiveWithoutEndMarkerEnds() throws IOException {
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        entry(tar, "a.txt", '0', 0, bytes("a"));
+
+        try (TarReader reader = new TarReader(new ByteArrayInputStream(tar.toByteArray()))) {
+            reader.next();
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void truncatedEntryDataFails() throws IOException {
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        entry(tar, "a.bin", '0', 0, new byte[2 * BLOCK_SIZE]);
+        byte[] truncated = Arrays.copyOf(tar.toByteArray(), BLOCK_SIZE + 100);
+
+        try (TarReader reader = new TarReader(new ByteArrayInputStream(truncated))) {
+            reader.next();
+            InputStream data = reader.entryStream();
+            assertThrows(EOFException.class, data::readAllBytes);
+        }
+    }
+
+    @Test
+    public void truncatedDataNotReadFailsOnNext() throws IOException {
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        entry(tar, "a.bin", '0', 0, new byte[2 * BLOCK_SIZE]);
+        byte[] truncated = Arrays.copyOf(tar.toByteArray(), BLOCK_SIZE + 100);
+
+        try (TarReader reader = new TarReader(new ByteArrayInputStream(truncated))) {
+            reader.next();
+            assertThrows(EOFException.class, reader::next);
+        }
+    }
+
+    @Test
+    public void truncatedHeaderFails() throws IOException {
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        entry(tar, "a.txt", '0', 0, bytes("a"));
+        byte[] truncated = Arrays.copyOf(tar.toByteArray(), 100);
+
+        try (TarReader reader = new TarReader(new ByteArrayInputStream(truncated))) {
+            assertThrows(EOFException.class, reader::next);
+        }
+    }
+
+    @Test
+    public void corruptedHeaderFails() throws IOException {
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        entry(tar, "a.txt", '0', 0, bytes("a"));
+        byte[] corrupted = tar.toByteArray();
+        corrupted[0] = 'b';
+
+        try (TarReader reader = new TarReader(new ByteArrayInputStream(corrupted))) {
+            assertThrows(IOException.class, reader::next);
+        }
+    }
+
+    private static void entry(ByteArrayOutputStream tar, String name, char type, long mtime, byte[] data) {
+        byte[] header = new byte[BLOCK_SIZE];
+        put(header, 0, name);
+        put(header, 100, "0000644");
+        put(header, 124, String.format("%011o", data.length));
+        put(header, 136, String.format("%011o", mtime));
+        header[156] = (byte) type;
+        put(header, 257, "ustar");
+        put(header, 263, "00");
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        int sum = 0;
+        for (byte b : header) {
+            sum += b & 0xFF;
+        }
+        put(header, 148, String.format("%06o", sum));
+        header[154] = 0;
+        tar.writeBytes(header);
+        tar.writeBytes(data);
+        tar.writeBytes(new byte[(BLOCK_SIZE - data.length % BLOCK_SIZE) % BLOCK_SIZE]);
+    }
+
+    private static void end(ByteArrayOutputStream tar) {
+        tar.writeBytes(new byte[2 * BLOCK_SIZE]);
+    }
+
+    private static byte[] pax(String... records) {
+        StringBuilder data = new StringBuilder();
+        for (String record : records) {
+            // The length counts itself, the space and the newline
+            int length = record.length() + 3;
+            while (length != String.valueOf(length).length() + record.length() + 2) {
+                length = String.valueOf(length).length() + record.length() + 2;
+            }
+            data.append(length).append(' ').append(record).append('\n');
+        }
+        return bytes(data.toString());
+    }
+
+    private static void put(byte[] header, int offset, String value) {
+        byte[] bytes = bytes(value);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
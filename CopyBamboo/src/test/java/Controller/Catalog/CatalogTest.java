@@ -0,0 +1,147 @@
+package Controller.Catalog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link Catalog} replay, recovery from torn writes, date queries and
+ * read-only access.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class CatalogTest {
+
+    private static final String HASH = "00112233445566778899aabbccddeeff00112233445566778899aabbccddeeff";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.newFolder("archive").toPath();
+    }
+
+    @Test
+    public void reopenedCatalogKeepsItsRecords() throws IOException {
+        try (Catalog catalog = Catalog.open(root)) {
+            catalog.append(record("/in/a.jpg", "/out/a.jpg", LocalDateTime.of(2019, 5, 1, 10, 0), "Images"));
+            catalog.append(record("/in/b.txt", "/out/b.txt", LocalDateTime.of(2020, 1, 2, 0, 0), "Documents"));
+        }
+        try (Catalog catalog = Catalog.open(root)) {
+            assertEquals(2, catalog.count(null, null, null));
+            assertEquals(1, catalog.count(null, null, "images"));
+            assertEquals("/in/a.jpg", catalog.find(null, null, null, "a.jpg", 10).get(0).getOrigin());
+        }
+    }
+
+    @Test
+    public void replaysTheLogWithoutTheIndex() throws IOException {
+        try (Catalog catalog = Catalog.open(root)) {
+            catalog.append(record("/in/a.jpg", "/out/a.jpg", LocalDateTime.of(2019, 5, 1, 10, 0), "Images"));
+            catalog.append(record("/in/a2.jpg", "/out/a.jpg", LocalDateTime.of(2021, 5, 1, 10, 0), "Images"));
+        }
+        Files.delete(root.resolve(Catalog.DIRECTORY).resolve("catalog.idx"));
+
+        try (Catalog catalog = Catalog.open(root)) {
+            List<CatalogRecord> records = catalog.find(null, null, null, null, 10);
+            assertEquals(1, records.size());
+            assertEquals("/in/a2.jpg", records.get(0).getOrigin());
+        }
+    }
+
+    @Test
+    public void dropsATornTail() throws IOException {
+        try (Catalog catalog = Catalog.open(root)) {
+            catalog.append(record("/in/a.jpg", "/out/a.jpg", LocalDateTime.of(2019, 5, 1, 10, 0), "Images"));
+        }
+        Path log = root.resolve(Catalog.DIRECTORY).resolve("catalog.log");
+        long length = Files.size(log);
+        // Half a frame, as left by a crash in the middle of an append
+        Files.write(log, new byte[]{0, 0, 0, 100, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (Catalog catalog = Catalog.open(root)) {
+            assertEquals(length, Files.size(log));
+            catalog.append(record("/in/b.jpg", "/out/b.jpg", LocalDateTime.of(2019, 6, 1, 10, 0), "Images"));
+        }
+        Files.delete(root.resolve(Catalog.DIRECTORY).resolve("catalog.idx"));
+        try (Catalog catalog = Catalog.open(root)) {
+            assertEquals(2, catalog.count(null, null, null));
+        }
+    }
+
+    @Test
+    public void dropsAFrameWithABadChecksum() throws IOException {
+        try (Catalog catalog = Catalog.open(root)) {
+            catalog.append(record("/in/a.jpg", "/out/a.jpg", LocalDateTime.of(2019, 5, 1, 10, 0), "Images"));
+            catalog.append(record("/in/b.jpg", "/out/b.jpg", LocalDateTime.of(2019, 6, 1, 10, 0), "Images"));
+        }
+        Path directory = root.resolve(Catalog.DIRECTORY);
+        Files.delete(directory.resolve("catalog.idx"));
+        byte[] bytes = Files.readAllBytes(directory.resolve("catalog.log"));
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(directory.resolve("catalog.log"), bytes);
+
+        try (Catalog catalog = Catalog.open(root)) {
+            List<CatalogRecord> records = catalog.find(null, null, null, null, 10);
+            assertEquals(1, records.size());
+            assertEquals("/out/a.jpg", records.get(0).getDestination());
+        }
+    }
+
+    @Test
+    public void dateRangesLeaveOutUndatedRecords() throws IOException {
+        try (Catalog catalog = Catalog.open(root)) {
+            catalog.append(record("/in/a.jpg", "/out/a.jpg", null, "Images"));
+            catalog.append(record("/in/b.jpg", "/out/b.jpg", LocalDateTime.of(2019, 5, 1, 10, 0), "Images"));
+            catalog.append(record("/in/c.jpg", "/out/c.jpg", LocalDateTime.of(2019, 12, 31, 23, 59), "Images"));
+            catalog.append(record("/in/d.jpg", "/out/d.jpg", LocalDateTime.of(2020, 1, 1, 0, 0), "Images"));
+
+            assertEquals(4, catalog.count(null, null, null));
+            assertEquals(2, catalog.count(null, LocalDate.of(2019, 12, 31), null));
+            assertEquals(2, catalog.count(null, LocalDate.of(2019, 12, 31), "Images"));
+            assertEquals(2, catalog.count(LocalDate.of(2019, 12, 31), null, null));
+            assertEquals(1, catalog.count(LocalDate.of(2019, 12, 31), LocalDate.of(2019, 12, 31), null));
+        }
+    }
+
+    @Test
+    public void readOnlyCatalogNeitherLocksNorWrites() throws IOException {
+        Catalog writer = Catalog.open(root);
+        try {
+            writer.append(record("/in/a.jpg", "/out/a.jpg", LocalDateTime.of(2019, 5, 1, 10, 0), "Images"));
+            writer.find(null, null, null, null, 1); // Flushes the record
+            Path log = root.resolve(Catalog.DIRECTORY).resolve("catalog.log");
+            Files.write(log, new byte[]{0, 0, 0, 100}, StandardOpenOption.APPEND);
+            long length = Files.size(log);
+
+            try (Catalog reader = Catalog.openReadOnly(root)) {
+                assertEquals(1, reader.count(null, null, null));
+                assertThrows(IllegalStateException.class,
+                        () -> reader.append(record("/in/b.jpg", "/out/b.jpg", null, "Images")));
+            }
+            assertEquals(length, Files.size(log));
+            assertTrue(Files.notExists(root.resolve(Catalog.DIRECTORY).resolve("catalog.idx")));
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static CatalogRecord record(String origin, String destination, LocalDateTime date, String type) {
+        return new CatalogRecord(0, origin, destination, date, date == null ? null : "EXIF", type, 10, HASH);
+    }
+}
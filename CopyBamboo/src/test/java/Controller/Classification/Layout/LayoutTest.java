@@ -0,0 +1,98 @@
+package Controller.Classification.Layout;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import Controller.Classification.Sniffing.ContentSniffer;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link Layout} compilation errors and the classification of files
+ * whose content is read from another path.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class LayoutTest {
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 0};
+    private static final Path DESTINATION = Paths.get("/out");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void rejectsInvalidLayouts() {
+        assertInvalid("", "Empty layout.");
+        assertInvalid(" ; ", "Empty layout.");
+        assertInvalid("type//ext", "Empty folder level in layout.");
+        assertInvalid("type/..", "Invalid folder name in layout: ..");
+        assertInvalid("./type", "Invalid folder name in layout: .");
+        assertInvalid("a\\b", "Invalid folder name in layout: a\\b");
+        assertInvalid("type/color:red", "Unknown folder level in layout: color:red");
+        assertInvalid("meta:", "Missing metadata field in layout: meta:");
+        assertInvalid("type; ext", "Only one layout rule can apply to every type: ext");
+        assertInvalid("Images=type; Images,Videos=ext", "Invalid or repeated type in layout rule: Images,Videos=ext");
+        assertInvalid(",Images=type", "Invalid or repeated type in layout rule: ,Images=type");
+    }
+
+    @Test
+    public void rejectsInvalidSizesAndDates() {
+        assertThrows(IllegalArgumentException.class, () -> Layout.compile("size:"));
+        assertThrows(IllegalArgumentException.class, () -> Layout.compile("size:0"));
+        assertThrows(IllegalArgumentException.class, () -> Layout.compile("size:1X"));
+        assertThrows(IllegalArgumentException.class, () -> Layout.compile("size:100M,1M"));
+        assertThrows(IllegalArgumentException.class, () -> Layout.compile("date:HH"));
+    }
+
+    @Test
+    public void usesTheGivenSizeWithoutReadingTheFile() {
+        Layout layout = Layout.compile("size:1K,1M");
+        Path missing = Paths.get("/nonexistent/a.txt");
+
+        assertEquals(DESTINATION.resolve("1K-1M"), classify(layout, missing, missing, 4096));
+        assertEquals(DESTINATION.resolve("1M+"), classify(layout, missing, missing, 1024 * 1024));
+        // Without a size the file is read, and a missing file has none
+        assertEquals(DESTINATION.resolve("0-1K"), classify(layout, missing, missing, -1));
+    }
+
+    @Test
+    public void sniffsTheContentAndNamesByTheName() throws IOException {
+        Path content = folder.newFile("entry.tmp").toPath();
+        Files.write(content, PNG);
+        Path name = Paths.get("photos", "holiday");
+        Layout layout = Layout.compile("Images=type/date:yyyy; Others");
+
+        assertEquals(DESTINATION.resolve("Images").resolve("2019"), classify(layout, name, content, PNG.length));
+        assertEquals(DESTINATION.resolve("Others"), classify(layout, name, name, PNG.length));
+    }
+
+    @Test
+    public void sendsFilesWithoutTheirDateToPending() {
+        Layout layout = Layout.compile("date:yyyy");
+        Path name = Paths.get("/in/trip/a.jpg");
+
+        assertTrue(layout.usesDate());
+        assertNull(layout.classify(name, name, 1, DESTINATION, null, false, new ContentSniffer(), (file, names) -> names));
+        assertEquals(DESTINATION.resolve("0_Pending").resolve("trip"),
+                layout.classify(name, name, 1, DESTINATION, null, true, new ContentSniffer(), (file, names) -> names));
+    }
+
+    private static Path classify(Layout layout, Path name, Path content, long size) {
+        return layout.classify(name, content, size, DESTINATION, LocalDateTime.of(2019, 5, 1, 10, 0), false,
+                new ContentSniffer(), (file, names) -> new String[names.length]);
+    }
+
+    private static void assertInvalid(String text, String message) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> Layout.compile(text));
+        assertEquals(message, e.getMessage());
+    }
+}
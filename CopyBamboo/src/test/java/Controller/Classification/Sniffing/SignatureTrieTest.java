@@ -0,0 +1,117 @@
+package Controller.Classification.Sniffing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+/**
+ * Tests {@link SignatureTrie} matching of exact, wildcard and overlapping
+ * signatures.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class SignatureTrieTest {
+
+    @Test
+    public void matchesAnExactSignature() {
+        SignatureTrie trie = new SignatureTrie();
+        trie.add(new int[]{0xFF, 0xD8, 0xFF}, "Images");
+        trie.addText(0, "%PDF-", "Documents");
+
+        assertEquals("Images", trie.match(new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 0x10}, 4));
+        assertEquals("Documents", match(trie, "%PDF-1.7"));
+        assertNull(match(trie, "%PDF"));
+        assertNull(match(trie, "hello"));
+    }
+
+    @Test
+    public void wildcardsMatchAnyByte() {
+        SignatureTrie trie = new SignatureTrie();
+        trie.addText(0, "RIFF????WAVE", "Music");
+
+        assertEquals("Music", trie.match(concat(bytes("RIFF"), new byte[]{1, 2, (byte) 0xFE, 4}, bytes("WAVE")), 12));
+        assertNull(match(trie, "RIFF1234AVI "));
+    }
+
+    @Test
+    public void longestSignatureWins() {
+        SignatureTrie trie = new SignatureTrie();
+        trie.addText(4, "ftyp", "Videos");
+        trie.addText(4, "ftypheic", "Images");
+
+        assertEquals("Images", match(trie, "\0\0\0\030ftypheic"));
+        assertEquals("Videos", match(trie, "\0\0\0\030ftypisom"));
+        // Too short for the image brand, still long enough for the box
+        assertEquals("Videos", match(trie, "\0\0\0\030ftyphe"));
+    }
+
+    @Test
+    public void exactByteWinsATieWithAWildcard() {
+        SignatureTrie trie = new SignatureTrie();
+        trie.addText(0, "A?C", "Wildcard");
+        trie.addText(0, "ABC", "Exact");
+
+        assertEquals("Exact", match(trie, "ABC"));
+        assertEquals("Wildcard", match(trie, "AXC"));
+    }
+
+    @Test
+    public void longerWildcardSignatureWinsOverAShorterExactOne() {
+        SignatureTrie trie = new SignatureTrie();
+        trie.addText(0, "AB", "Exact");
+        trie.addText(0, "A?CD", "Wildcard");
+
+        assertEquals("Wildcard", match(trie, "ABCD"));
+        assertEquals("Exact", match(trie, "ABCE"));
+    }
+
+    @Test
+    public void onlyTheValidBytesAreMatched() {
+        SignatureTrie trie = new SignatureTrie();
+        trie.addText(0, "OggS", "Music");
+
+        assertNull(trie.match(bytes("OggS"), 3));
+        assertNull(trie.match(new byte[0], 0));
+    }
+
+    @Test
+    public void reportsTheLongestSignature() {
+        SignatureTrie trie = new SignatureTrie();
+        trie.addText(0, "BZh", "Compressed");
+        trie.addText(257, "ustar", "Compressed");
+
+        assertEquals(262, trie.getMaxLength());
+    }
+
+    @Test
+    public void rejectsAnEmptySignature() {
+        SignatureTrie trie = new SignatureTrie();
+        assertThrows(IllegalArgumentException.class, () -> trie.add(new int[0], "Others"));
+    }
+
+    private static String match(SignatureTrie trie, String header) {
+        byte[] bytes = bytes(header);
+        return trie.match(bytes, bytes.length);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        int length = 0;
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+        byte[] all = new byte[length];
+        int position = 0;
+        for (byte[] part : parts) {
+            System.arraycopy(part, 0, all, position, part.length);
+            position += part.length;
+        }
+        return all;
+    }
+}
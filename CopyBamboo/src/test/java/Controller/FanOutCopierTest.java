@@ -0,0 +1,126 @@
+package Controller;
+
+import static Controller.FileCopierTest.assertCopied;
+import static Controller.FileCopierTest.sha256;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import Controller.Throttle.Throttle;
+import Log.LogExcepcion;
+import Model.DurabilityMode;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link FanOutCopier}: every destination must get the same bytes and
+ * size as the origin, whether the file fits in one chunk or not, and a
+ * destination that fails must not stop the others.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class FanOutCopierTest {
+
+    private static final int MIB = 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private ExecutorService writers;
+    private FanOutCopier copier;
+
+    @Before
+    public void setUp() {
+        directory = folder.getRoot().toPath();
+        writers = Executors.newCachedThreadPool();
+        copier = new FanOutCopier(new JobControl(), new Throttle(), writers,
+                new Syncer(DurabilityMode.NONE, new LogExcepcion()));
+    }
+
+    @After
+    public void tearDown() {
+        writers.shutdownNow();
+    }
+
+    @Test
+    public void copiesASmallFileToEveryDestination() throws IOException, NoSuchAlgorithmException {
+        byte[] data = SparseWriterTest.data(100 * 1024 + 7);
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        List<Path> destinations = List.of(directory.resolve("a.jpg"), directory.resolve("b.jpg"), directory.resolve("c.jpg"));
+        List<IOException> failures = copier.copy(write("photo.jpg", data), destinations, digest);
+        assertEquals(3, failures.size());
+        for (int i = 0; i < destinations.size(); i++) {
+            assertNull(failures.get(i));
+            assertCopied(data, destinations.get(i));
+        }
+        assertArrayEquals(sha256(data), digest.digest());
+    }
+
+    @Test
+    public void copiesALargeFileWithHolesToEveryDestination() throws IOException, NoSuchAlgorithmException {
+        // One hole crosses the boundary of the first two chunks and another ends the file
+        byte[] data = SparseWriterTest.data(3 * MIB + 999, MIB - 8192, MIB + 8192, 3 * MIB - 4096, 3 * MIB + 999);
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        List<Path> destinations = List.of(directory.resolve("a.img"), directory.resolve("b.img"));
+        List<IOException> failures = copier.copy(write("disk.img", data), destinations, digest);
+        for (int i = 0; i < destinations.size(); i++) {
+            assertNull(failures.get(i));
+            assertCopied(data, destinations.get(i));
+        }
+        assertArrayEquals(sha256(data), digest.digest());
+    }
+
+    @Test
+    public void copiesAFileOfExactlyOneChunk() throws IOException {
+        byte[] data = SparseWriterTest.data(MIB, MIB - 4096, MIB);
+        List<Path> destinations = List.of(directory.resolve("a.bin"), directory.resolve("b.bin"));
+        List<IOException> failures = copier.copy(write("chunk.bin", data), destinations, null);
+        for (int i = 0; i < destinations.size(); i++) {
+            assertNull(failures.get(i));
+            assertCopied(data, destinations.get(i));
+        }
+    }
+
+    @Test
+    public void completesTheOtherDestinationsOfASmallFileWhenOneFails() throws IOException {
+        byte[] data = SparseWriterTest.data(5000);
+        assertOneDestinationFails(write("photo.jpg", data), data);
+    }
+
+    @Test
+    public void completesTheOtherDestinationsOfALargeFileWhenOneFails() throws IOException {
+        byte[] data = SparseWriterTest.data(2 * MIB + 1, MIB, MIB + 4096);
+        assertOneDestinationFails(write("disk.img", data), data);
+    }
+
+    private void assertOneDestinationFails(Path origin, byte[] data) throws IOException {
+        // The folder of the second destination does not exist
+        List<Path> destinations = List.of(directory.resolve("a.bin"), directory.resolve("missing").resolve("b.bin"), directory.resolve("c.bin"));
+        List<IOException> failures = copier.copy(origin, destinations, null);
+        assertEquals(3, failures.size());
+        assertNull(failures.get(0));
+        assertNotNull(failures.get(1));
+        assertNull(failures.get(2));
+        assertCopied(data, destinations.get(0));
+        assertCopied(data, destinations.get(2));
+        assertFalse(Files.exists(directory.resolve("missing")));
+    }
+
+    private Path write(String name, byte[] data) throws IOException {
+        return Files.write(directory.resolve(name), data);
+    }
+}
@@ -0,0 +1,108 @@
+package Controller;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import Controller.Throttle.Throttle;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link FileCopier}: the buffered, sparse and streamed copies must give
+ * the same bytes and size as their origin, and the same digest.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class FileCopierTest {
+
+    private static final int MIB = 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private FileCopier copier;
+
+    @Before
+    public void setUp() {
+        directory = folder.getRoot().toPath();
+        copier = new FileCopier(new JobControl(), new Throttle());
+    }
+
+    @Test
+    public void copiesAFile() throws IOException, NoSuchAlgorithmException {
+        byte[] data = SparseWriterTest.data(3 * MIB + 17);
+        Path origin = write("photo.jpg", data);
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        copier.copy(origin, directory.resolve("copy.jpg"), digest);
+        assertCopied(data, directory.resolve("copy.jpg"));
+        assertArrayEquals(sha256(data), digest.digest());
+
+        copier.copy(origin, directory.resolve("copy.jpg"));
+        assertCopied(data, directory.resolve("copy.jpg"));
+    }
+
+    @Test
+    public void copiesADiskImageWithAHoleAcrossTwoChunks() throws IOException, NoSuchAlgorithmException {
+        byte[] data = SparseWriterTest.data(3 * MIB + 5000, MIB - 3 * 4096, MIB + 5 * 4096, 2 * MIB, 2 * MIB + 100);
+        Path origin = write("disk.img", data);
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        copier.copy(origin, directory.resolve("copy.img"), digest);
+        assertCopied(data, directory.resolve("copy.img"));
+        assertArrayEquals(sha256(data), digest.digest());
+    }
+
+    @Test
+    public void copiesADiskImageEndingInAHole() throws IOException {
+        byte[] data = SparseWriterTest.data(2 * MIB + 300, MIB + 4096, 2 * MIB + 300);
+        Path origin = write("disk.vmdk", data);
+        copier.copy(origin, directory.resolve("copy.vmdk"));
+        assertCopied(data, directory.resolve("copy.vmdk"));
+    }
+
+    @Test
+    public void copiesAStreamEndingInAHole() throws IOException, NoSuchAlgorithmException {
+        // The hole crosses the boundary of the stream buffers and reaches the end
+        byte[] data = SparseWriterTest.data(MIB + 1000, 200 * 1024, 300 * 1024, MIB - 4096, MIB + 1000);
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        copier.copy(new ByteArrayInputStream(data), directory.resolve("entry.bin"), digest);
+        assertCopied(data, directory.resolve("entry.bin"));
+        assertArrayEquals(sha256(data), digest.digest());
+    }
+
+    @Test
+    public void spoolsAStreamReadInShortPieces() throws IOException {
+        byte[] data = SparseWriterTest.data(700 * 1024 + 3, 250 * 1024, 270 * 1024, 690 * 1024, 700 * 1024 + 3);
+        InputStream shortReads = new ByteArrayInputStream(data) {
+            @Override
+            public synchronized int read(byte[] buffer, int offset, int length) {
+                return super.read(buffer, offset, Math.min(length, 1000));
+            }
+        };
+        Path temp = copier.spool(shortReads, directory.resolve("entry.bin"), null);
+        assertEquals(directory, temp.getParent());
+        assertCopied(data, temp);
+    }
+
+    static void assertCopied(byte[] data, Path copy) throws IOException {
+        assertEquals(data.length, Files.size(copy));
+        assertArrayEquals(data, Files.readAllBytes(copy));
+    }
+
+    static byte[] sha256(byte[] data) throws NoSuchAlgorithmException {
+        return MessageDigest.getInstance("SHA-256").digest(data);
+    }
+
+    private Path write(String name, byte[] data) throws IOException {
+        return Files.write(directory.resolve(name), data);
+    }
+}
@@ -0,0 +1,118 @@
+package Controller.Metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import org.junit.Test;
+
+/**
+ * Tests {@link DateParser} with the EXIF, ISO 8601 and ISO 8601 basic layouts,
+ * their offsets and the values that are not dates.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class DateParserTest {
+
+    private static final LocalDateTime DATE = LocalDateTime.of(2023, 7, 4, 10, 15, 30);
+
+    private final DateParser parser = new DateParser();
+
+    @Test
+    public void readsExifDates() {
+        assertEquals(DATE, parse("2023:07:04 10:15:30"));
+        assertEquals(DATE, parse("  2023:07:04 10:15:30 "));
+        assertEquals(LocalDateTime.of(2023, 7, 4, 0, 0), parse("2023:07:04"));
+    }
+
+    @Test
+    public void readsIsoDates() {
+        assertEquals(DATE, parse("2023-07-04T10:15:30"));
+        assertEquals(DATE.withNano(250_000_000), parse("2023-07-04 10:15:30.250"));
+        assertEquals(DATE.withNano(123_456_789), parse("2023-07-04T10:15:30,1234567891"));
+        assertEquals(DATE.withSecond(0), parse("2023-07-04T10:15"));
+        assertEquals(LocalDateTime.of(2023, 7, 4, 0, 0), parse("2023-07-04"));
+    }
+
+    @Test
+    public void convertsUtcDatesToTheSystemTime() {
+        LocalDateTime local = local(DATE);
+
+        assertEquals(local, parse("2023-07-04T10:15:30Z"));
+        assertEquals(local, parse("2023-07-04T10:15:30z"));
+        assertEquals(local, parse("2023-07-04T10:15:30+00:00"));
+        assertEquals(local, parse("20230704T101530Z"));
+    }
+
+    @Test
+    public void convertsOtherOffsetsToTheSystemTime() {
+        assertEquals(local(DATE.minusHours(2)), parse("2023-07-04T10:15:30+02:00"));
+        assertEquals(local(DATE.plusHours(5).plusMinutes(30)), parse("2023-07-04T10:15:30-0530"));
+        assertEquals(local(DATE.minusHours(9)), parse("2023-07-04T10:15:30+09"));
+        // The same instant gives the same date whatever the offset it was written with
+        assertEquals(parse("2023-07-04T08:15:30Z"), parse("2023-07-04T10:15:30+02:00"));
+        assertNull(parse("2023-07-04T10:15:30+19:00"));
+        assertNull(parse("2023-07-04T10:15:30+02:60"));
+        assertNull(parse("2023-07-04T10:15:30+02:00x"));
+    }
+
+    @Test
+    public void readsBasicDates() {
+        assertEquals(DATE, parse("20230704T101530"));
+        assertEquals(DATE.withSecond(0), parse("20230704T1015"));
+        assertEquals(LocalDateTime.of(2023, 7, 4, 0, 0), parse("20230704"));
+        assertNull(parse("20230704 101530"));
+    }
+
+    @Test
+    public void ignoresTheQuickTimeEmptyDate() {
+        assertNull(parse("1904-01-01T00:00:00"));
+        assertNull(parse("1904:01:01 00:00:00"));
+        assertNull(parse("1904-01-01T00:00:00Z"));
+        assertEquals(LocalDateTime.of(1904, 1, 1, 0, 0, 1), parse("1904-01-01T00:00:01"));
+    }
+
+    @Test
+    public void rejectsInvalidDays() {
+        assertNull(parse("2023-02-29"));
+        assertNull(parse("2100:02:29 10:00:00"));
+        assertNull(parse("2023-04-31T10:15:30"));
+        assertNull(parse("2023-00-10"));
+        assertNull(parse("2023-07-00"));
+        assertEquals(LocalDateTime.of(2024, 2, 29, 0, 0), parse("2024-02-29"));
+        assertEquals(LocalDateTime.of(2000, 2, 29, 0, 0), parse("2000:02:29"));
+    }
+
+    @Test
+    public void rejectsValuesThatAreNotDates() {
+        assertNull(parser.parse(null, "Date", null));
+        assertNull(parse(""));
+        assertNull(parse("Canon EOS 5D"));
+        assertNull(parse("2023-07-04T24:00:00"));
+        assertNull(parse("2023-07-04T10:60:00"));
+        assertNull(parse("2023-07-04T10:15:30."));
+        assertNull(parse("2023-07:04 10:15:30"));
+        assertNull(parse("2023-07-04X10:15:30"));
+    }
+
+    @Test
+    public void readsOtherLayoutsOfATagWithAKnownLayout() {
+        assertEquals(DATE, parser.parse("2023:07:04 10:15:30", "DateTimeOriginal", "image/jpeg"));
+        assertEquals(DATE, parser.parse("2023-07-04T10:15:30", "DateTimeOriginal", "image/jpeg"));
+        assertEquals(DATE, parser.parse("2023:07:04 10:15:30", "DateTimeOriginal", "image/jpeg"));
+        assertNull(parser.parse("unknown", "DateTimeOriginal", "image/jpeg"));
+    }
+
+    /**
+     * Returns a UTC date in the time of the system.
+     */
+    private static LocalDateTime local(LocalDateTime utc) {
+        return LocalDateTime.ofInstant(utc.toInstant(ZoneOffset.UTC), ZoneId.systemDefault());
+    }
+
+    private LocalDateTime parse(String text) {
+        return parser.parse(text, "Date", null);
+    }
+}
@@ -0,0 +1,176 @@
+package Controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link NameAllocator} suffixes, case-insensitive names, the reuse of
+ * the names holding the same content and concurrent allocation.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class NameAllocatorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path origin;
+    private Path destination;
+    private final AtomicInteger hashes = new AtomicInteger();
+    private int contents;
+    private NameAllocator allocator;
+
+    @Before
+    public void setUp() throws IOException {
+        origin = folder.newFolder("origin").toPath();
+        destination = folder.newFolder("destination").toPath();
+        allocator = new NameAllocator(file -> {
+            hashes.incrementAndGet();
+            try {
+                return MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @Test
+    public void suffixesTheNamesAlreadyTaken() throws IOException {
+        write(destination.resolve("a.jpg"), "old");
+        write(destination.resolve("a_1.jpg"), "older");
+
+        assertEquals(destination.resolve("a_2.jpg"), allocate("a.jpg", "new"));
+        assertEquals(destination.resolve("a_3.jpg"), allocate("a.jpg", "newer"));
+        assertEquals(destination.resolve("b"), allocate("b", "new"));
+        assertEquals(destination.resolve("b_1"), allocate("b", "newer"));
+    }
+
+    @Test
+    public void comparesNamesIgnoringCase() throws IOException {
+        write(destination.resolve("IMG.JPG"), "old");
+
+        assertEquals(destination.resolve("img_1.jpg"), allocate("img.jpg", "new"));
+        assertEquals(destination.resolve("Img_2.jpg"), allocate("Img.jpg", "newer"));
+        // The copy under another case gets the name as it is in the directory
+        assertEquals(destination.resolve("IMG.JPG"), allocate("img.jpg", "old"));
+        assertEquals(destination.resolve("img_1.jpg"), allocate("IMG.JPG", "new"));
+    }
+
+    @Test
+    public void overwriteOnlyAvoidsTheNamesOfTheJob() throws IOException {
+        write(destination.resolve("a.jpg"), "old");
+        Path first = write(origin.resolve("1"), "new");
+        Path second = write(origin.resolve("2"), "newer");
+
+        assertEquals(destination.resolve("a.jpg"), allocator.allocate(destination.resolve("a.jpg"), first, 3, true));
+        assertEquals(destination.resolve("a_1.jpg"), allocator.allocate(destination.resolve("a.jpg"), second, 5, true));
+        assertEquals(destination.resolve("a.jpg"), allocator.allocate(destination.resolve("a.jpg"), first, 3, true));
+    }
+
+    @Test
+    public void reusesTheNameOfACopyOfTheFile() throws IOException {
+        write(destination.resolve("a.jpg"), "old");
+
+        assertEquals(destination.resolve("a.jpg"), allocate("a.jpg", "old"));
+        Path reserved = allocate("a.jpg", "new");
+        assertEquals(destination.resolve("a_1.jpg"), reserved);
+        assertEquals(reserved, allocate("a.jpg", "new"));
+        assertEquals(destination.resolve("a_2.jpg"), allocate("a.jpg", "nex"));
+    }
+
+    @Test
+    public void reusesANameOnceItsFileIsGone() throws IOException {
+        Path temp = write(origin.resolve("temp"), "spooled");
+        Path reserved = allocator.allocate(destination.resolve("a.jpg"), temp, 7, false);
+        Files.move(temp, reserved);
+
+        assertEquals(reserved, allocate("a.jpg", "spooled"));
+    }
+
+    @Test
+    public void onlyHashesTheFilesOfTheSameSize() throws IOException {
+        for (int i = 0; i < 50; i++) {
+            allocate("burst.jpg", "x".repeat(i + 1));
+        }
+        assertEquals(0, hashes.get());
+
+        allocate("burst.jpg", "y".repeat(20));
+        assertEquals(2, hashes.get());
+        // Every file is hashed once, however many times it is compared
+        allocate("burst.jpg", "z".repeat(20));
+        assertEquals(3, hashes.get());
+    }
+
+    @Test
+    public void findsTheCopyAmongManyFilesOfTheSameSize() throws IOException {
+        write(destination.resolve("burst.jpg"), "frame-000");
+        for (int i = 1; i < 100; i++) {
+            assertEquals(destination.resolve("burst_" + i + ".jpg"), allocate("burst.jpg", String.format("frame-%03d", i)));
+        }
+        assertEquals(destination.resolve("burst_57.jpg"), allocate("burst.jpg", "frame-057"));
+        assertEquals(destination.resolve("burst.jpg"), allocate("burst.jpg", "frame-000"));
+        // Every file was hashed once
+        assertEquals(102, hashes.get());
+    }
+
+    @Test
+    public void allocatesAtOnceWithoutRepeatingNames() throws Exception {
+        int files = 200;
+        List<Path> contents = new ArrayList<>();
+        for (int i = 0; i < files; i++) {
+            // Every fourth file is a copy of the previous one
+            String text = "file" + (i % 4 == 3 ? i - 1 : i);
+            contents.add(write(origin.resolve(Integer.toString(i)), text));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Path>> names = new ArrayList<>();
+        try {
+            for (int i = 0; i < files; i++) {
+                Path content = contents.get(i);
+                String name = i % 2 == 0 ? "photo.jpg" : "PHOTO.jpg";
+                names.add(executor.submit(() -> allocator.allocate(destination.resolve(name), content, Files.size(content), false)));
+            }
+            Set<String> keys = new HashSet<>();
+            for (int i = 0; i < files; i++) {
+                Path name = names.get(i).get();
+                if (i % 4 == 3) {
+                    assertEquals(names.get(i - 1).get(), name);
+                } else {
+                    assertTrue(name.toString(), keys.add(name.getFileName().toString().toLowerCase(Locale.ROOT)));
+                }
+            }
+            assertEquals(150, keys.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private Path allocate(String name, String text) throws IOException {
+        Path content = write(origin.resolve("content" + contents++), text);
+        return allocator.allocate(destination.resolve(name), content, text.length(), false);
+    }
+
+    private static Path write(Path file, String text) throws IOException {
+        return Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,129 @@
+package Controller.Plan;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import Log.ConsoleLogHandler;
+import Model.ClassifyTypes;
+import Model.CopyPlan;
+import Model.CopyTask;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests how {@link CopyPlanner} gives every destination to a single task.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class CopyPlannerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void identicalFilesToTheSameDestinationAreDuplicates() throws IOException {
+        Path origin = folder.newFolder("origin").toPath();
+        write(origin.resolve("1/photo.jpg"), "same");
+        write(origin.resolve("2/photo.jpg"), "same");
+
+        CopyPlan plan = plan(origin);
+
+        assertEquals(CopyTask.Status.COPY, task(plan, "1/photo.jpg").getStatus());
+        CopyTask second = task(plan, "2/photo.jpg");
+        assertEquals(CopyTask.Status.DUPLICATE, second.getStatus());
+        assertEquals(plan.getDestinationPath().resolve("jpg/photo.jpg"), second.getDestination());
+    }
+
+    @Test
+    public void differentFilesToTheSameDestinationAreRenamed() throws IOException {
+        Path origin = folder.newFolder("origin").toPath();
+        write(origin.resolve("1/photo.jpg"), "first");
+        write(origin.resolve("2/photo.jpg"), "other");
+        write(origin.resolve("3/photo.jpg"), "third");
+
+        CopyPlan plan = plan(origin);
+
+        assertEquals(plan.getDestinationPath().resolve("jpg/photo.jpg"), task(plan, "1/photo.jpg").getDestination());
+        CopyTask second = task(plan, "2/photo.jpg");
+        assertEquals(CopyTask.Status.COLLISION_RENAMED, second.getStatus());
+        assertEquals(plan.getDestinationPath().resolve("jpg/photo_1.jpg"), second.getDestination());
+        assertEquals(plan.getDestinationPath().resolve("jpg/photo_2.jpg"), task(plan, "3/photo.jpg").getDestination());
+    }
+
+    @Test
+    public void contentFirstSeenInAnotherDestinationIsStillADuplicate() throws IOException {
+        // A goes to jpg/a.jpg, B and C to jpg/b.jpg, and all three are identical
+        Path origin = folder.newFolder("origin").toPath();
+        write(origin.resolve("1/a.jpg"), "same");
+        write(origin.resolve("2/b.jpg"), "same");
+        write(origin.resolve("3/b.jpg"), "same");
+
+        CopyPlan plan = plan(origin);
+
+        CopyTask b = task(plan, "2/b.jpg");
+        CopyTask c = task(plan, "3/b.jpg");
+        assertEquals(CopyTask.Status.COPY, b.getStatus());
+        assertEquals(origin.resolve("1/a.jpg"), b.getDuplicateOf());
+        assertEquals(CopyTask.Status.DUPLICATE, c.getStatus());
+        assertEquals(b.getDestination(), c.getDestination());
+    }
+
+    @Test
+    public void aDuplicateOfARenamedFileIsADuplicate() {
+        Path destination = Path.of("dest", "photo.jpg");
+        CopyTask first = new CopyTask(Path.of("1", "photo.jpg"), destination, null, 4);
+        CopyTask second = new CopyTask(Path.of("2", "photo.jpg"), destination, null, 4);
+        CopyTask third = new CopyTask(Path.of("3", "photo.jpg"), destination, null, 4);
+        Map<CopyTask, String> contentKeys = new HashMap<>();
+        contentKeys.put(second, "4:b");
+        contentKeys.put(third, "4:b");
+
+        CopyPlanner.resolveCollisions(List.of(first, second, third), contentKeys);
+
+        assertEquals(CopyTask.Status.COPY, first.getStatus());
+        assertEquals(CopyTask.Status.COLLISION_RENAMED, second.getStatus());
+        assertEquals(Path.of("dest", "photo_1.jpg"), second.getDestination());
+        assertEquals(CopyTask.Status.DUPLICATE, third.getStatus());
+    }
+
+    @Test
+    public void unclassifiedTasksAreLeftAlone() {
+        CopyTask unclassified = new CopyTask(Path.of("1", "file"), null, null, 4);
+
+        CopyPlanner.resolveCollisions(List.of(unclassified), Map.of());
+
+        assertEquals(CopyTask.Status.UNCLASSIFIED, unclassified.getStatus());
+        assertNull(unclassified.getDestination());
+    }
+
+    private CopyPlan plan(Path origin) throws IOException {
+        Path destination = folder.getRoot().toPath().resolve("destination");
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        CopyPlanner planner = new CopyPlanner(ClassifyTypes.FILE_EXTENSION, origin.toString(), destination.toString(),
+                false, false, false, new ConsoleLogHandler(discard, false, false));
+        return planner.plan();
+    }
+
+    private static CopyTask task(CopyPlan plan, String origin) {
+        Path path = plan.getOriginPath().resolve(origin);
+        return plan.getTasks().stream()
+                .filter(task -> task.getOrigin().equals(path))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+    }
+}
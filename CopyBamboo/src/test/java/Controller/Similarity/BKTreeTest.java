@@ -0,0 +1,89 @@
+package Controller.Similarity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests {@link BKTree} lookups against a linear scan.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class BKTreeTest {
+
+    @Test
+    public void emptyTreeFindsNothing() {
+        BKTree<String> tree = new BKTree<>();
+        assertNull(tree.nearest(0L, 64));
+        assertEquals(0, tree.size());
+    }
+
+    @Test
+    public void findsAnExactHash() {
+        BKTree<String> tree = new BKTree<>();
+        tree.add(0b1111L, "a");
+        tree.add(0b0000L, "b");
+        tree.add(0b0011L, "c");
+
+        BKTree.Match<String> match = tree.nearest(0b0011L, 8);
+        assertEquals("c", match.getValue());
+        assertEquals(0, match.getDistance());
+    }
+
+    @Test
+    public void findsTheClosestHashWithinTheDistance() {
+        BKTree<String> tree = new BKTree<>();
+        tree.add(0L, "zero");
+        tree.add(0xFFL, "eight");
+        tree.add(0xFFFFL, "sixteen");
+
+        BKTree.Match<String> match = tree.nearest(0x7FL, 8);
+        assertEquals("eight", match.getValue());
+        assertEquals(1, match.getDistance());
+        assertEquals("sixteen", tree.nearest(0x7FFFL, 1).getValue());
+        assertNull(tree.nearest(0xFFFFFFL, 7));
+    }
+
+    @Test
+    public void keepsValuesWithTheSameHash() {
+        BKTree<String> tree = new BKTree<>();
+        tree.add(42L, "first");
+        tree.add(42L, "second");
+
+        assertEquals(2, tree.size());
+        assertEquals("first", tree.nearest(42L, 0).getValue());
+    }
+
+    @Test
+    public void matchesALinearScan() {
+        Random random = new Random(7);
+        BKTree<Integer> tree = new BKTree<>();
+        long[] hashes = new long[2000];
+        for (int i = 0; i < hashes.length; i++) {
+            // Hashes near a few centers, as the hashes of similar images are
+            long center = (i % 5) * 0x0123456789ABCDEFL;
+            hashes[i] = center ^ random.nextLong() & random.nextLong() & random.nextLong();
+            tree.add(hashes[i], i);
+        }
+        for (int query = 0; query < 200; query++) {
+            // Half the queries are a few bits off a stored hash, the others anywhere
+            long hash = query % 2 == 0
+                    ? hashes[random.nextInt(hashes.length)] ^ 1L << random.nextInt(64) ^ 1L << random.nextInt(64)
+                    : random.nextLong();
+            int maxDistance = random.nextInt(20);
+            int best = Integer.MAX_VALUE;
+            for (long candidate : hashes) {
+                best = Math.min(best, Long.bitCount(candidate ^ hash));
+            }
+            BKTree.Match<Integer> match = tree.nearest(hash, maxDistance);
+            if (best > maxDistance) {
+                assertNull(match);
+            } else {
+                assertEquals(best, match.getDistance());
+                assertEquals(best, Long.bitCount(hashes[match.getValue()] ^ hash));
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package Controller;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link SparseWriter}: the file written must hold exactly the data
+ * given, with its full size, however the zero blocks fall in the buffers.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class SparseWriterTest {
+
+    private static final int BLOCK = SparseWriter.BLOCK_SIZE;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Returns random data with the given ranges, as start and end pairs,
+     * cleared to zeros.
+     */
+    static byte[] data(int length, int... zeroRanges) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        for (int i = 0; i < zeroRanges.length; i += 2) {
+            Arrays.fill(data, zeroRanges[i], zeroRanges[i + 1], (byte) 0);
+        }
+        return data;
+    }
+
+    @Test
+    public void writesTheDataAroundTheHoles() throws IOException {
+        byte[] data = data(10 * BLOCK, 2 * BLOCK, 5 * BLOCK, 7 * BLOCK + 10, 9 * BLOCK);
+        Path file = write(new ByteBuffer[]{ByteBuffer.wrap(data)});
+        assertArrayEquals(data, Files.readAllBytes(file));
+    }
+
+    @Test
+    public void givesTheFullSizeToAFileEndingInAHole() throws IOException {
+        byte[] data = data(6 * BLOCK + 100, 2 * BLOCK, 6 * BLOCK + 100);
+        Path file = write(new ByteBuffer[]{ByteBuffer.wrap(data)});
+        assertEquals(data.length, Files.size(file));
+        assertArrayEquals(data, Files.readAllBytes(file));
+    }
+
+    @Test
+    public void writesAFileOfZerosOnly() throws IOException {
+        byte[] data = new byte[3 * BLOCK + 1];
+        Path file = write(new ByteBuffer[]{ByteBuffer.wrap(data)});
+        assertEquals(data.length, Files.size(file));
+        assertArrayEquals(data, Files.readAllBytes(file));
+    }
+
+    @Test
+    public void keepsAHoleSpanningTwoBuffers() throws IOException {
+        // The buffers are not aligned to the blocks and the hole crosses from one to the next
+        byte[] data = data(12 * BLOCK, 3 * BLOCK, 9 * BLOCK);
+        int split = 5 * BLOCK + 123;
+        Path file = write(new ByteBuffer[]{
+            ByteBuffer.wrap(data, 0, split),
+            ByteBuffer.wrap(data, split, data.length - split)});
+        assertEquals(data.length, Files.size(file));
+        assertArrayEquals(data, Files.readAllBytes(file));
+    }
+
+    @Test
+    public void readsBuffersFromTheirPosition() throws IOException {
+        byte[] data = data(8 * BLOCK, BLOCK, 4 * BLOCK);
+        byte[] padded = new byte[data.length + 77];
+        System.arraycopy(data, 0, padded, 77, data.length);
+        ByteBuffer slice = ByteBuffer.wrap(padded, 77, data.length).slice();
+        Path file = write(new ByteBuffer[]{slice});
+        assertArrayEquals(data, Files.readAllBytes(file));
+    }
+
+    @Test
+    public void writesDirectBuffers() throws IOException {
+        byte[] data = data(9 * BLOCK, BLOCK, 3 * BLOCK, 6 * BLOCK, 9 * BLOCK);
+        int split = 4 * BLOCK + 5;
+        Path file = write(new ByteBuffer[]{
+            direct(Arrays.copyOfRange(data, 0, split)),
+            direct(Arrays.copyOfRange(data, split, data.length))});
+        assertEquals(data.length, Files.size(file));
+        assertArrayEquals(data, Files.readAllBytes(file));
+    }
+
+    @Test
+    public void countsOnlyTheDataWritten() throws IOException {
+        byte[] data = data(4 * BLOCK, BLOCK, 3 * BLOCK);
+        try (FileChannel channel = FileChannel.open(folder.getRoot().toPath().resolve("count"),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.SPARSE)) {
+            assertEquals(2 * BLOCK, new SparseWriter(channel).write(ByteBuffer.wrap(data)));
+        }
+    }
+
+    private static ByteBuffer direct(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+        buffer.put(data).flip();
+        return buffer;
+    }
+
+    private Path write(ByteBuffer[] buffers) throws IOException {
+        Path file = Files.createTempFile(folder.getRoot().toPath(), "sparse", ".bin");
+        Files.delete(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.SPARSE)) {
+            SparseWriter writer = new SparseWriter(channel);
+            for (ByteBuffer buffer : buffers) {
+                writer.write(buffer);
+                assertEquals(0, buffer.remaining());
+            }
+            writer.finish();
+        }
+        return file;
+    }
+}
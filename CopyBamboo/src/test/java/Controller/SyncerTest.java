@@ -0,0 +1,198 @@
+package Controller;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import Log.LogExcepcion;
+import Model.DurabilityMode;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link Syncer} in every {@link DurabilityMode}: the order of the
+ * flushes, renames and completions, and the copies that can't be put in
+ * place.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class SyncerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+    private final List<Exception> logged = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Records the flushes, checking that no file is in place before its
+     * temporary file is flushed, and fails the flushes of the files named
+     * {@code bad}.
+     */
+    private final class RecordingSyncer extends Syncer {
+
+        RecordingSyncer(DurabilityMode mode) {
+            super(mode, new LogExcepcion() {
+                @Override
+                public void anadirExcepcionLog(Exception e) {
+                    logged.add(e);
+                }
+            });
+        }
+
+        @Override
+        protected void syncFile(Path file) throws IOException {
+            String name = destinationOf(file).getFileName().toString();
+            assertTrue(Files.exists(file));
+            assertFalse(name + " renamed before its flush", Files.exists(destinationOf(file)));
+            if (name.startsWith("bad")) {
+                throw new IOException("Flush failed: " + name);
+            }
+            events.add("flush " + name);
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        directory = folder.newFolder("out").toPath();
+    }
+
+    @Test
+    public void noneRenamesAndCompletesAtOnce() throws IOException {
+        Syncer syncer = new RecordingSyncer(DurabilityMode.NONE);
+        Path destination = directory.resolve("a.txt");
+        Path temp = temp(destination, "a");
+
+        syncer.moveIntoPlace(temp, destination);
+        assertFalse(Files.exists(temp));
+        assertContent(destination, "a");
+        syncer.commit(destination, () -> events.add("done a.txt"), e -> events.add("failed a.txt"));
+        syncer.close();
+
+        assertEquals(List.of("done a.txt"), events);
+    }
+
+    @Test
+    public void perFileFlushesBeforeTheRename() throws IOException {
+        Syncer syncer = new RecordingSyncer(DurabilityMode.PER_FILE);
+        Path destination = directory.resolve("a.txt");
+
+        syncer.moveIntoPlace(temp(destination, "a"), destination);
+        assertContent(destination, "a");
+        syncer.commit(destination, () -> events.add("done a.txt"), e -> events.add("failed a.txt"));
+
+        assertEquals(List.of("flush a.txt", "done a.txt"), events);
+    }
+
+    @Test
+    public void perFileLeavesAFileThatCantBeFlushed() throws IOException {
+        Syncer syncer = new RecordingSyncer(DurabilityMode.PER_FILE);
+        Path destination = directory.resolve("bad.txt");
+
+        try {
+            syncer.moveIntoPlace(temp(destination, "bad"), destination);
+        } catch (IOException e) {
+            events.add(e.getMessage());
+        }
+
+        assertEquals(List.of("Flush failed: bad.txt"), events);
+        assertFalse(Files.exists(destination));
+    }
+
+    @Test
+    public void groupCommitRenamesAfterTheFlushesAndCompletesInOrder() throws IOException {
+        Syncer syncer = new RecordingSyncer(DurabilityMode.GROUP_COMMIT);
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            Path destination = directory.resolve(i + ".txt");
+            Path temp = temp(destination, Integer.toString(i));
+            syncer.moveIntoPlace(temp, destination);
+            String name = destination.getFileName().toString();
+            syncer.commit(destination, () -> {
+                assertFalse(Files.exists(temp));
+                assertTrue(Files.exists(destination));
+                events.add("done " + name);
+            }, e -> events.add("failed " + name));
+            expected.add("done " + name);
+        }
+        syncer.close();
+
+        List<String> done = new ArrayList<>();
+        int flushes = 0;
+        for (String event : events) {
+            if (event.startsWith("flush ")) {
+                flushes++;
+                // A file is flushed before the completions of its batch run
+                assertFalse(done.contains("done " + event.substring(6)));
+            } else {
+                done.add(event);
+            }
+        }
+        assertEquals(600, flushes);
+        assertEquals(expected, done);
+        assertContent(directory.resolve("599.txt"), "599");
+        assertTrue(logged.isEmpty());
+    }
+
+    @Test
+    public void groupCommitReportsTheCopiesThatCantBePutInPlace() throws IOException {
+        Syncer syncer = new RecordingSyncer(DurabilityMode.GROUP_COMMIT);
+        List<IOException> failures = Collections.synchronizedList(new ArrayList<>());
+        Path good = directory.resolve("good.txt");
+        Path bad = directory.resolve("bad.txt");
+        Path badTemp = temp(bad, "bad");
+        // The rename fails, the directory of the destination is gone
+        Path lost = directory.resolve("gone").resolve("lost.txt");
+        Path lostTemp = temp(good.resolveSibling("lost.txt"), "lost");
+        for (Path[] copy : new Path[][]{{temp(good, "good"), good}, {badTemp, bad}, {lostTemp, lost}}) {
+            syncer.moveIntoPlace(copy[0], copy[1]);
+            String name = copy[1].getFileName().toString();
+            syncer.commit(copy[1], () -> events.add("done " + name), e -> {
+                failures.add(e);
+                events.add("failed " + name);
+            });
+        }
+        syncer.close();
+
+        assertTrue(events.containsAll(List.of("flush good.txt", "flush lost.txt")));
+        events.removeIf(event -> event.startsWith("flush "));
+        assertEquals(List.of("done good.txt", "failed bad.txt", "failed lost.txt"), events);
+        assertEquals("Flush failed: bad.txt", failures.get(0).getMessage());
+        assertEquals(2, failures.size());
+        assertContent(good, "good");
+        assertFalse(Files.exists(bad));
+        assertFalse(Files.exists(badTemp));
+        assertFalse(Files.exists(lostTemp));
+    }
+
+    private static Path temp(Path destination, String text) throws IOException {
+        return Files.write(FileCopier.tempFileFor(destination), text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the destination a temporary file of {@link FileCopier} is for.
+     */
+    private static Path destinationOf(Path temp) {
+        String name = temp.getFileName().toString();
+        if (!name.endsWith(FileCopier.TEMP_SUFFIX)) {
+            return temp;
+        }
+        name = name.substring(1, name.length() - FileCopier.TEMP_SUFFIX.length());
+        return temp.resolveSibling(name.substring(0, name.lastIndexOf('.')));
+    }
+
+    private static void assertContent(Path file, String text) throws IOException {
+        assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), Files.readAllBytes(file));
+    }
+}
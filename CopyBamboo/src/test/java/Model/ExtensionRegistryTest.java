@@ -0,0 +1,77 @@
+package Model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the parsing and reloading of {@link ExtensionRegistry} files.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class ExtensionRegistryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void parsesTypesAndExtensions() {
+        Map<String, String> mapping = ExtensionRegistry.parse(List.of(
+                "# Type = extensions",
+                "",
+                "RAW = cr2, .NEF ,dng",
+                "Images=heic"));
+
+        assertEquals(Map.of("cr2", "RAW", "NEF", "RAW", "dng", "RAW", "heic", "Images"), mapping);
+    }
+
+    @Test
+    public void rejectsInvalidLines() {
+        assertThrows(IllegalArgumentException.class, () -> ExtensionRegistry.parse(List.of("RAW cr2")));
+        assertThrows(IllegalArgumentException.class, () -> ExtensionRegistry.parse(List.of("= cr2")));
+        assertThrows(IllegalArgumentException.class, () -> ExtensionRegistry.parse(List.of("a/b = cr2")));
+        assertThrows(IllegalArgumentException.class, () -> ExtensionRegistry.parse(List.of("RAW = cr2,,dng")));
+        assertThrows(IllegalArgumentException.class, () -> ExtensionRegistry.parse(List.of("RAW = tar.gz")));
+    }
+
+    @Test
+    public void rejectsTypesMadeOfDots() {
+        assertThrows(IllegalArgumentException.class, () -> ExtensionRegistry.parse(List.of(". = cr2")));
+        assertThrows(IllegalArgumentException.class, () -> ExtensionRegistry.parse(List.of(".. = cr2")));
+        assertEquals("v1.2", ExtensionRegistry.parse(List.of("v1.2 = cr2")).get("cr2"));
+    }
+
+    @Test
+    public void reloadsOnlyWhenTheFileChanges() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("extensions.conf");
+        ExtensionRegistry registry = new ExtensionRegistry(file, Map.of("jpg", "Images"));
+
+        assertFalse(registry.reload());
+        Files.writeString(file, "RAW = cr2\n");
+        assertTrue(registry.reload());
+        assertEquals("RAW", registry.getTable().get("CR2"));
+        assertEquals("Images", registry.getTable().get("jpg"));
+        assertFalse(registry.reload());
+
+        Files.writeString(file, "RAW cr2\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000));
+        assertThrows(IllegalArgumentException.class, registry::reload);
+        assertEquals("RAW", registry.getTable().get("cr2"));
+
+        Files.delete(file);
+        assertTrue(registry.reload());
+        assertNull(registry.getTable().get("cr2"));
+    }
+}
@@ -0,0 +1,62 @@
+package Model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+/**
+ * Tests {@link ExtensionTable} lookups.
+ * <p>
+ * <b>Author:</b> ThePandogs</p>
+ */
+public class ExtensionTableTest {
+
+    @Test
+    public void findsEveryExtensionOfTheMapping() {
+        Map<String, String> mapping = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            mapping.put("x" + Integer.toString(i, 36), "Type" + i % 7);
+        }
+        ExtensionTable table = ExtensionTable.compile(mapping);
+
+        for (Map.Entry<String, String> entry : mapping.entrySet()) {
+            assertEquals(entry.getValue(), table.get(entry.getKey()));
+        }
+        assertNull(table.get("y0"));
+        assertNull(table.get("x"));
+    }
+
+    @Test
+    public void ignoresCase() {
+        ExtensionTable table = ExtensionTable.compile(Map.of("JPG", "Images", "mp3", "Music", "ÉTÉ", "Summer"));
+
+        assertEquals("Images", table.get("jpg"));
+        assertEquals("Images", table.get("JpG"));
+        assertEquals("Music", table.get("MP3"));
+        assertEquals("Summer", table.get("été"));
+        assertEquals("Images", table.getMapping().get("jpg"));
+    }
+
+    @Test
+    public void readsAnExtensionInPlace() {
+        ExtensionTable table = ExtensionTable.compile(Map.of("png", "Images", "gz", "Compressed"));
+        String name = "holiday.PNG";
+
+        assertEquals("Images", table.get(name, name.lastIndexOf('.') + 1, name.length()));
+        assertEquals("Compressed", table.get("backup.tar.gz", 11, 13));
+        assertNull(table.get(name, 0, 7));
+    }
+
+    @Test
+    public void emptyTableFindsNothing() {
+        ExtensionTable table = ExtensionTable.compile(Map.of());
+
+        assertNull(table.get("jpg"));
+        assertNull(table.get(""));
+        assertTrue(table.getMapping().isEmpty());
+    }
+}